@@ -3,9 +3,14 @@ package org.femtoframework.io;
 
 import org.femtoframework.nio.ByteBufferPool;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.SelectableChannel;
 
 public class ByteBufferInputStream
     extends InputStream
@@ -60,6 +65,63 @@ public class ByteBufferInputStream
         init(size);
     }
 
+    /**
+     * 用scattering read从Channel中读取size数量的byte，直接读入Buffer链，不经过InputStream拷贝
+     *
+     * @param channel 阻塞的Channel
+     * @param size    数据总大小
+     * @return ByteBufferInputStream
+     * @throws EOFException Channel在读完之前结束
+     * @throws IllegalBlockingModeException Channel是非阻塞的
+     */
+    public static ByteBufferInputStream readFrom(ScatteringByteChannel channel, int size)
+        throws IOException
+    {
+        if (channel instanceof SelectableChannel && !((SelectableChannel)channel).isBlocking()) {
+            throw new IllegalBlockingModeException();
+        }
+        ByteBufferInputStream bbis = new ByteBufferInputStream((InputStream)null);
+        bbis.init(channel, size);
+        return bbis;
+    }
+
+    /**
+     * 从Channel中全部读取
+     */
+    protected void init(ScatteringByteChannel channel, int size) throws IOException
+    {
+        this.size = size;
+        this.count = (size / BUFFER_SIZE) + 1;
+        buf = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            ByteBuffer bb = ByteBufferPool.allocate();
+            bb.limit(Math.min(BUFFER_SIZE, size - i * BUFFER_SIZE));
+            buf[i] = bb;
+        }
+        int left = size;
+        int offset = 0;
+        while (left > 0) {
+            long n = channel.read(buf, offset, count - offset);
+            if (n < 0) {
+                close();
+                throw new EOFException("Expected " + size + " bytes, but " + (size - left) + " read");
+            }
+            else if (n == 0) {
+                //A blocking channel never returns 0 while there is room, it would spin here
+                close();
+                throw new IOException("No bytes read from a non-blocking channel, " + (size - left) + " of " + size + " read");
+            }
+            left -= n;
+            while (offset < count && !buf[offset].hasRemaining()) {
+                offset++;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            buf[i].flip();
+        }
+        available = size;
+    }
+
     private boolean shared = false;
 
     /**
@@ -206,6 +268,83 @@ public class ByteBufferInputStream
         return read;
     }
 
+    /**
+     * 用一次gathering write把剩下的数据写到Channel，不需要拷贝，写出的数据视为已经读取
+     *
+     * @param channel GatheringByteChannel
+     * @return 写出的字节数，非阻塞的Channel写不进去时返回
+     * @throws IOException
+     */
+    public long writeTo(GatheringByteChannel channel)
+        throws IOException
+    {
+        ensureOpen();
+        ByteBuffer[] buffers = toReadOnlyBuffers();
+        long written = 0;
+        int first = 0;
+        while (first < buffers.length) {
+            long n = channel.write(buffers, first, buffers.length - first);
+            if (n <= 0) {
+                break;
+            }
+            written += n;
+            while (first < buffers.length && !buffers[first].hasRemaining()) {
+                first++;
+            }
+        }
+        skipBuffered((int)written);
+        return written;
+    }
+
+    /**
+     * 返回剩下数据的只读视图，共享数据不拷贝，读取这些视图不会改变流的位置<br>
+     * 视图在流被close之前有效
+     *
+     * @return 只读的ByteBuffer数组
+     */
+    public ByteBuffer[] toReadOnlyBuffers()
+    {
+        int left = available;
+        int i = index;
+        int p = pos;
+        ByteBuffer[] views = new ByteBuffer[Math.max(0, count - index)];
+        int n = 0;
+        while (left > 0 && i < count) {
+            ByteBuffer view = buf[i].asReadOnlyBuffer();
+            int len = Math.min(view.limit() - p, left);
+            view.limit(p + len);
+            view.position(p);
+            views[n++] = view;
+            left -= len;
+            i++;
+            p = 0;
+        }
+        if (n < views.length) {
+            ByteBuffer[] trimmed = new ByteBuffer[n];
+            System.arraycopy(views, 0, trimmed, 0, n);
+            views = trimmed;
+        }
+        return views;
+    }
+
+    /**
+     * Moves forward without copying
+     */
+    private void skipBuffered(int len)
+    {
+        available -= len;
+        while (len > 0 && index < count) {
+            int remaining = buf[index].limit() - pos;
+            if (len < remaining) {
+                pos += len;
+                return;
+            }
+            len -= remaining;
+            index++;
+            pos = 0;
+        }
+    }
+
     public int available()
     {
         return available;
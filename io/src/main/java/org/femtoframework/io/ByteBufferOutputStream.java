@@ -6,6 +6,8 @@ import org.femtoframework.nio.ByteBufferPool;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
 
 public class ByteBufferOutputStream
     extends OutputStream
@@ -152,6 +154,125 @@ public class ByteBufferOutputStream
         out.flush();
     }
 
+    /**
+     * 用一次gathering write把所有的数据写到Channel，不需要拷贝
+     * <p>
+     * 阻塞的Channel会写完所有的数据；非阻塞的Channel写不进去时返回，
+     * 这时可以用#toReadOnlyBuffers自己管理剩下的数据
+     *
+     * @param channel GatheringByteChannel
+     * @return 写出的字节数
+     * @throws IOException
+     */
+    public long writeTo(GatheringByteChannel channel)
+        throws IOException
+    {
+        ByteBuffer[] buffers = toReadOnlyBuffers();
+        long written = 0;
+        int first = 0;
+        while (first < buffers.length) {
+            long n = channel.write(buffers, first, buffers.length - first);
+            if (n <= 0) {
+                break;
+            }
+            written += n;
+            while (first < buffers.length && !buffers[first].hasRemaining()) {
+                first++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 用scattering read从Channel中读取len个字节，追加到已有的数据后面，直接读入Buffer链
+     *
+     * @param channel ScatteringByteChannel
+     * @param len     最多读取的字节数
+     * @return 读取的字节数，Channel已经结束并且没有读到数据时返回-1；
+     *         非阻塞的Channel没有数据时返回已经读取的字节数
+     * @throws IOException
+     */
+    public int readFrom(ScatteringByteChannel channel, int len)
+        throws IOException
+    {
+        if (len < 0) {
+            throw new IllegalArgumentException("Negative length: " + len);
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int newsize = size + len;
+        int free = newsize - capacity();
+        if (free > 0) {
+            //扩容
+            expandCapacity(count + (free / BUFF_SIZE) + 1);
+        }
+        //Views of the free space from the current size to the new size
+        int first = size / BUFF_SIZE;
+        int last = (newsize - 1) / BUFF_SIZE;
+        ByteBuffer[] views = new ByteBuffer[last - first + 1];
+        for (int i = first; i <= last; i++) {
+            ByteBuffer view = buf[i].duplicate();
+            int start = i * BUFF_SIZE;
+            view.limit(Math.min(BUFF_SIZE, newsize - start));
+            view.position(Math.max(0, size - start));
+            views[i - first] = view;
+        }
+
+        int read = 0;
+        int offset = 0;
+        while (read < len) {
+            long n = channel.read(views, offset, views.length - offset);
+            if (n < 0) {
+                if (read == 0) {
+                    return -1;
+                }
+                break;
+            }
+            if (n == 0) {
+                break;
+            }
+            read += n;
+            while (offset < views.length && !views[offset].hasRemaining()) {
+                offset++;
+            }
+        }
+        advance(read);
+        return read;
+    }
+
+    /**
+     * Moves the positions of the buffers forward, the bytes are in the buffers already
+     */
+    private void advance(int len)
+    {
+        int newsize = size + len;
+        for (int i = size / BUFF_SIZE; i < count && i * BUFF_SIZE < newsize; i++) {
+            buf[i].position(Math.min(BUFF_SIZE, newsize - i * BUFF_SIZE));
+        }
+        size = newsize;
+        index = size / BUFF_SIZE;
+    }
+
+    /**
+     * 返回数据的只读视图，每个Buffer对应链中的一个Buffer，共享数据不拷贝<br>
+     * 视图在流被reset或者close之前有效
+     *
+     * @return 只读的ByteBuffer数组，长度为实际使用的Buffer数
+     */
+    public ByteBuffer[] toReadOnlyBuffers()
+    {
+        int used = (size + BUFF_SIZE - 1) / BUFF_SIZE;
+        ByteBuffer[] buffers = new ByteBuffer[used];
+        for (int i = 0; i < used; i++) {
+            ByteBuffer view = buf[i].asReadOnlyBuffer();
+            view.limit(Math.min(BUFF_SIZE, size - i * BUFF_SIZE));
+            view.position(0);
+            buffers[i] = view;
+        }
+        return buffers;
+    }
+
     public void reset()
     {
         int max = index < count ? index : count - 1;
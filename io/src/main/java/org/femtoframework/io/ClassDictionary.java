@@ -0,0 +1,101 @@
+package org.femtoframework.io;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 类名字典，FastObjectOutputStream和FastObjectInputStream用编号代替类名
+ * <p/>
+ * Both sides must register the same classes in the same order before the streams are created,
+ * the ids start from 1. The classes met in a stream but not registered get session ids after the
+ * registered ones, the first time the name is written, afterwards only the id.
+ * An empty dictionary gives the session ids only.
+ *
+ * @see FastObjectOutputStream#FastObjectOutputStream(java.io.OutputStream, ClassDictionary)
+ * @see FastObjectInputStream#FastObjectInputStream(java.io.InputStream, ClassDictionary)
+ */
+public class ClassDictionary
+{
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private volatile String[] names = new String[0];
+
+    public ClassDictionary()
+    {
+    }
+
+    /**
+     * @param classes 要注册的类
+     */
+    public ClassDictionary(Class<?>... classes)
+    {
+        for (Class<?> clazz : classes) {
+            register(clazz);
+        }
+    }
+
+    /**
+     * 注册类
+     *
+     * @param clazz 类
+     * @return 编号
+     */
+    public int register(Class<?> clazz)
+    {
+        return register(clazz.getName());
+    }
+
+    /**
+     * 注册类名，已经注册的返回原来的编号
+     *
+     * @param className 类名
+     * @return 编号
+     */
+    public synchronized int register(String className)
+    {
+        Integer id = ids.get(className);
+        if (id != null) {
+            return id;
+        }
+        String[] newNames = Arrays.copyOf(names, names.length + 1);
+        newNames[names.length] = className;
+        names = newNames;
+        ids.put(className, newNames.length);
+        return newNames.length;
+    }
+
+    /**
+     * 类名的编号
+     *
+     * @param className 类名
+     * @return 编号，没有注册返回0
+     */
+    public int getId(String className)
+    {
+        Integer id = ids.get(className);
+        return id != null ? id : 0;
+    }
+
+    /**
+     * 编号对应的类名
+     *
+     * @param id 编号
+     * @return 类名，没有注册返回<code>null</code>
+     */
+    public String getName(int id)
+    {
+        String[] names = this.names;
+        return id > 0 && id <= names.length ? names[id - 1] : null;
+    }
+
+    /**
+     * 注册的数量，也是最大的编号
+     *
+     * @return int
+     */
+    public int size()
+    {
+        return names.length;
+    }
+}
@@ -7,18 +7,54 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 快速对象输入流<br>
  * <p/>
  * 与<code>ObjectInputStream</code>的区别在于它不传Class信息<br>
  * <p/>
+ * 解析过的类按ClassLoader缓存，不会每次都调用Class.forName；
+ * 使用ClassDictionary时，每个编号在流中只解析一次。<br>
+ * <p/>
  * 注意：不能在JDK1.3与较低的版本间互用<br>
  * 如果出现上述情况，请设置系统变量： serialization=normal<br>
  *
  * @see ObjectInputStream
+ * @see ClassDictionary
  */
 public class FastObjectInputStream extends ObjectInputStream {
+
+    /**
+     * 每个ClassLoader解析过的类，用弱引用避免ClassLoader无法卸载
+     */
+    private static final Map<ClassLoader, Map<String, WeakReference<Class>>> classCache
+        = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final ClassDictionary dictionary;
+
+    /**
+     * 第一个会话编号
+     */
+    private int sessionBase;
+
+    /**
+     * 解析过的注册类，下标是编号
+     */
+    private ObjectStreamClass[] registered;
+
+    /**
+     * 本次会话中的类，reset后依然有效
+     */
+    private List<ObjectStreamClass> session;
+
     /**
      * 构造快速串行化输入流
      *
@@ -26,8 +62,26 @@ public class FastObjectInputStream extends ObjectInputStream {
      * @throws IOException 发生I/O异常时抛出
      */
     public FastObjectInputStream(InputStream input)
+        throws IOException {
+        this(input, null);
+    }
+
+    /**
+     * 构造快速串行化输入流
+     *
+     * @param input      输入流
+     * @param dictionary 类名字典，需要和输出端相同，<code>null</code>表示每次都传类名
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public FastObjectInputStream(InputStream input, ClassDictionary dictionary)
         throws IOException {
         super(input);
+        this.dictionary = dictionary;
+        if (dictionary != null) {
+            this.sessionBase = dictionary.size() + 1;
+            this.registered = new ObjectStreamClass[sessionBase];
+            this.session = new ArrayList<>();
+        }
     }
 
     protected void readStreamHeader() {
@@ -36,9 +90,29 @@ public class FastObjectInputStream extends ObjectInputStream {
 
     protected ObjectStreamClass readClassDescriptor()
         throws IOException, ClassNotFoundException {
-        String className = CodecUtil.readSingle(this);
-        Class clazz = resolveClass(className);
-        return ObjectStreamClass.lookup(clazz);
+        if (dictionary == null) {
+            return ObjectStreamClass.lookup(resolveClass(CodecUtil.readSingle(this)));
+        }
+        int id = CodecUtil.readVarInt(this);
+        ObjectStreamClass desc;
+        if (id == 0) {
+            desc = ObjectStreamClass.lookup(resolveClass(CodecUtil.readSingle(this)));
+            session.add(desc);
+        }
+        else if (id < sessionBase) {
+            desc = registered[id];
+            if (desc == null) {
+                desc = ObjectStreamClass.lookup(resolveClass(dictionary.getName(id)));
+                registered[id] = desc;
+            }
+        }
+        else if (id - sessionBase < session.size()) {
+            desc = session.get(id - sessionBase);
+        }
+        else {
+            throw new StreamCorruptedException("Unknown class id:" + id);
+        }
+        return desc;
     }
 
     protected Class resolveClass(ObjectStreamClass osc)
@@ -53,7 +127,20 @@ public class FastObjectInputStream extends ObjectInputStream {
 
     protected Class resolveClass(String className)
         throws IOException, ClassNotFoundException {
-        return Class.forName(className, true, Reflection.getClassLoader());
+        ClassLoader loader = Reflection.getClassLoader();
+        Map<String, WeakReference<Class>> classes = classCache.computeIfAbsent(
+            loader, key -> new ConcurrentHashMap<>());
+        WeakReference<Class> ref = classes.get(className);
+        Class clazz = ref != null ? ref.get() : null;
+        if (clazz == null) {
+            clazz = Class.forName(className, true, loader);
+            classes.put(className, new WeakReference<>(clazz));
+        }
+        return clazz;
+    }
+
+    public ClassDictionary getDictionary() {
+        return dictionary;
     }
 
     /**
@@ -71,4 +158,3 @@ public class FastObjectInputStream extends ObjectInputStream {
         return CodecUtil.readString(this);
     }
 }
-
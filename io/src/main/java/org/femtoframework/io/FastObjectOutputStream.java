@@ -5,23 +5,59 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 快速对象输出流<br>
  * <p/>
  * 与<code>ObjectOutputStream</code>的区别在于它不传Class信息。<br>
  * <p/>
+ * 使用ClassDictionary时，类名只在第一次出现时传输，以后只传变长的编号，
+ * 对方需要用相同的ClassDictionary构造FastObjectInputStream。<br>
+ * <p/>
  * 注意：不能在JDK1.3与较低的版本间互用。<br>
  * 如果出现上述情况，请设置系统变量： serialization=normal<br>
  *
  * @see ObjectOutputStream
+ * @see ClassDictionary
  */
 
 public class FastObjectOutputStream extends ObjectOutputStream {
 
+    private final ClassDictionary dictionary;
+
+    /**
+     * 本次会话中的类编号，reset后依然有效
+     */
+    private Map<String, Integer> sessionIds;
+
+    /**
+     * 第一个会话编号，之后注册到字典的类名不使用
+     */
+    private int sessionBase;
+
+    private int nextId;
+
     public FastObjectOutputStream(OutputStream output)
+        throws IOException {
+        this(output, null);
+    }
+
+    /**
+     * @param output     输出流
+     * @param dictionary 类名字典，<code>null</code>表示每次都传类名
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public FastObjectOutputStream(OutputStream output, ClassDictionary dictionary)
         throws IOException {
         super(output);
+        this.dictionary = dictionary;
+        if (dictionary != null) {
+            this.sessionBase = dictionary.size() + 1;
+            this.nextId = sessionBase;
+            this.sessionIds = new HashMap<>();
+        }
     }
 
     protected void writeStreamHeader() {
@@ -33,7 +69,28 @@ public class FastObjectOutputStream extends ObjectOutputStream {
      */
     protected void writeClassDescriptor(ObjectStreamClass desc)
         throws IOException {
-        CodecUtil.writeSingle(this, desc.getName());
+        if (dictionary == null) {
+            CodecUtil.writeSingle(this, desc.getName());
+            return;
+        }
+        String name = desc.getName();
+        int id = dictionary.getId(name);
+        if (id <= 0 || id >= sessionBase) {
+            Integer sessionId = sessionIds.get(name);
+            if (sessionId == null) {
+                //0 means a new name follows
+                CodecUtil.writeVarInt(this, 0);
+                CodecUtil.writeSingle(this, name);
+                sessionIds.put(name, nextId++);
+                return;
+            }
+            id = sessionId;
+        }
+        CodecUtil.writeVarInt(this, id);
+    }
+
+    public ClassDictionary getDictionary() {
+        return dictionary;
     }
 
     /**
@@ -84,5 +84,20 @@ public class FileReader  extends InputStreamReader {
         super(new FileInputStream(fd), charset);
     }
 
-}
+    private FileReader(InputStream input, Charset charset) {
+        super(input, charset);
+    }
 
+    /**
+     * Creates a <tt>FileReader</tt> which reads the file through a memory mapping,
+     * the mapping is released when the reader is closed.
+     *
+     * @param file the <tt>File</tt> to read from
+     * @param charset Charset
+     * @exception IOException if the file cannot be opened or mapped
+     * @see MappedFileInputStream
+     */
+    public static FileReader mapped(File file, Charset charset) throws IOException {
+        return new FileReader(new MappedFileInputStream(file), charset);
+    }
+}
@@ -0,0 +1,98 @@
+package org.femtoframework.io;
+
+import org.femtoframework.nio.ByteBufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Channel based copy engine of FileUtil
+ * <p>
+ * FileChannel#transferTo and #transferFrom let the kernel move the bytes without user-space buffers.
+ * One call moves at most 2G on most platforms and may move less than asked, so the range is moved in chunks
+ * until it is done. If the kernel path makes no progress while the source still has bytes,
+ * the rest goes through a direct buffer.
+ * A non-blocking channel which takes no more bytes stops the copy, the count returned tells how far it got.
+ */
+final class FileTransfer
+{
+    private FileTransfer()
+    {
+    }
+
+    /**
+     * Moves count bytes from the position of the file to the channel
+     *
+     * @return bytes moved, less than count if the file ends before or a non-blocking channel is full
+     */
+    static long transferTo(FileChannel src, long position, long count, WritableByteChannel dst, long chunk)
+        throws IOException
+    {
+        long done = 0;
+        while (done < count) {
+            long n = src.transferTo(position + done, Math.min(chunk, count - done), dst);
+            if (n <= 0) {
+                if (position + done >= src.size()) {
+                    break;
+                }
+                done += copy(src, position + done, count - done, dst);
+                break;
+            }
+            done += n;
+        }
+        return done;
+    }
+
+    /**
+     * Moves count bytes from the channel to the position of the file
+     *
+     * @return bytes moved, less than count if the channel ends before
+     */
+    static long transferFrom(ReadableByteChannel src, FileChannel dst, long position, long count, long chunk)
+        throws IOException
+    {
+        long done = 0;
+        while (done < count) {
+            long n = dst.transferFrom(src, position + done, Math.min(chunk, count - done));
+            if (n <= 0) {
+                break;
+            }
+            done += n;
+        }
+        return done;
+    }
+
+    private static long copy(FileChannel src, long position, long count, WritableByteChannel dst)
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBufferPool.allocateDirect(ByteBufferPool.SIZE_32K);
+        try {
+            long done = 0;
+            while (done < count) {
+                buffer.clear();
+                if (count - done < buffer.capacity()) {
+                    buffer.limit((int)(count - done));
+                }
+                int r = src.read(buffer, position + done);
+                if (r < 0) {
+                    break;
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    if (dst.write(buffer) == 0) {
+                        //Non-blocking channel is full, spinning would burn the CPU
+                        return done + buffer.position();
+                    }
+                }
+                done += r;
+            }
+            return done;
+        }
+        finally {
+            ByteBufferPool.recycle(buffer);
+        }
+    }
+}
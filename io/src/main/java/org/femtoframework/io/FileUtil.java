@@ -5,8 +5,20 @@ import org.femtoframework.util.ArrayUtil;
 
 import java.io.*;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 public interface FileUtil {
+    /**
+     * 通道传输时每次最多传输的字节数（64M），大文件分段传输
+     */
+    long TRANSFER_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * 小于这个大小的文件用流拷贝（64K）
+     */
+    int TRANSFER_THRESHOLD = 64 * 1024;
+
     /**
      * Reteurn the extension from fileName
      *
@@ -108,6 +120,45 @@ public interface FileUtil {
         }
     }
 
+    /**
+     * 用多个线程删除文件或者目录，一个文件删除失败不影响其它文件
+     *
+     * @param file        文件或者目录
+     * @param parallelism 并行的线程数，小于等于0时使用CPU数
+     * @return 是否删除成功，错误的详细信息可以用ParallelFileWalker#delete取得
+     */
+    public static boolean delete(File file, int parallelism)
+    {
+        try {
+            new ParallelFileWalker(parallelism).delete(file);
+            return true;
+        }
+        catch (IOException ioe) {
+            return false;
+        }
+    }
+
+    /**
+     * 用多个线程清除该目录
+     *
+     * @param path        目录
+     * @param parallelism 并行的线程数，小于等于0时使用CPU数
+     * @return 是否清除成功，如果对象是文件或者不存在，返回<code>false</code>
+     */
+    public static boolean clear(File path, int parallelism)
+    {
+        if (path == null || !path.isDirectory()) {
+            return false;
+        }
+        try {
+            new ParallelFileWalker(parallelism).clear(path);
+            return true;
+        }
+        catch (IOException ioe) {
+            return false;
+        }
+    }
+
     /**
      * 清除该目录
      *
@@ -565,6 +616,22 @@ public interface FileUtil {
     public static void copyTo(File file, OutputStream out)
             throws IOException
     {
+        if (out instanceof FileOutputStream && file.isFile() && file.length() >= TRANSFER_THRESHOLD) {
+            //The channel belongs to the stream, do not close it
+            FileChannel foc = ((FileOutputStream)out).getChannel();
+            FileInputStream fis = null;
+            FileChannel fic = null;
+            try {
+                fis = new FileInputStream(file);
+                fic = fis.getChannel();
+                transfer(fic, 0, fic.size(), foc);
+            }
+            finally {
+                IOUtil.close(fic);
+                IOUtil.close(fis);
+            }
+            return;
+        }
         FileInputStream fis = null;
         BufferedInputStream bis = null;
         try {
@@ -581,7 +648,8 @@ public interface FileUtil {
     public static void copyTo(File src, File dst)
             throws IOException
     {
-        if (src.length() < 64 * 1024) {
+        //Devices and pipes are not files, they go through the streams
+        if (!src.isFile() || src.length() < TRANSFER_THRESHOLD) {
             FileInputStream fis = null;
             BufferedInputStream bis = null;
             FileOutputStream fos = null;
@@ -609,7 +677,11 @@ public interface FileUtil {
                 fic = fis.getChannel();
                 fos = new FileOutputStream(dst);
                 foc = fos.getChannel();
-                fic.transferTo(0, src.length(), foc);
+                long size = fic.size();
+                long copied = transfer(fic, 0, size, foc);
+                if (copied < size) {
+                    throw new IOException("Source was truncated while copying:" + src + ", " + copied + "/" + size);
+                }
 //                foc.force(true);
             }
             finally {
@@ -640,6 +712,35 @@ public interface FileUtil {
         copyTo0(files, dstDir);
     }
 
+    /**
+     * 用多个线程将srcDir目录中所有文件或者目录拷贝到目标目录
+     *
+     * @param srcDir      源目录
+     * @param dstDir      目标目录
+     * @param parallelism 并行的线程数，小于等于0时使用CPU数
+     * @throws IOException 所有的错误，第一个错误之外的作为suppressed
+     * @see ParallelFileWalker
+     */
+    public static void copyAll(File srcDir, File dstDir, int parallelism)
+            throws IOException
+    {
+        new ParallelFileWalker(parallelism).copyAll(srcDir, dstDir);
+    }
+
+    /**
+     * 用多个线程将srcDir目录中满足条件的文件或者目录拷贝到目标目录
+     *
+     * @param srcDir      源目录
+     * @param pattern     模式
+     * @param dstDir      目标目录
+     * @param parallelism 并行的线程数，小于等于0时使用CPU数
+     * @throws IOException 所有的错误，第一个错误之外的作为suppressed
+     */
+    public static void copyTo(File srcDir, String pattern, File dstDir, int parallelism) throws IOException
+    {
+        new ParallelFileWalker(parallelism).copyTo(srcDir, pattern, dstDir);
+    }
+
     /**
      * 将srcDir目录中满足条件的文件或者目录拷贝到目标目录
      *
@@ -735,8 +836,7 @@ public interface FileUtil {
             fis = new FileInputStream(file);
             fic = fis.getChannel();
 
-//            fic.transferTo(0, file.length(), fch);
-            fch.transferFrom(fic, fch.size(), fic.size());
+            transfer(fic, fch, fch.size(), fic.size());
 //            fch.force(true);
         }
         finally {
@@ -754,6 +854,36 @@ public interface FileUtil {
     public static void copyTo(InputStream in, File dst)
             throws IOException
     {
+        if (in instanceof FileInputStream) {
+            //The channel belongs to the stream, do not close it
+            FileChannel fic = ((FileInputStream)in).getChannel();
+            long position;
+            long count;
+            try {
+                position = fic.position();
+                count = fic.size() - position;
+            }
+            catch (IOException ioe) {
+                //Pipes and devices can't seek ("Illegal seek"), they go through the streams
+                position = 0;
+                count = -1;
+            }
+            if (count >= TRANSFER_THRESHOLD) {
+                FileOutputStream fos = null;
+                FileChannel foc = null;
+                try {
+                    fos = new FileOutputStream(dst);
+                    foc = fos.getChannel();
+                    long copied = transfer(fic, position, count, foc);
+                    fic.position(position + copied);
+                }
+                finally {
+                    IOUtil.close(foc);
+                    IOUtil.close(fos);
+                }
+                return;
+            }
+        }
         FileOutputStream fos = null;
         BufferedOutputStream bos = null;
         try {
@@ -766,4 +896,35 @@ public interface FileUtil {
             IOUtil.close(bos, fos);
         }
     }
+
+    /**
+     * 用FileChannel#transferTo把文件中的一段传输到通道中，不经过用户空间的缓冲区<br>
+     * 超过2G的文件分段传输，内核不能传输时改用缓冲区拷贝
+     *
+     * @param src      源文件
+     * @param position 开始的位置
+     * @param count    字节数
+     * @param dst      目标通道
+     * @return 传输的字节数，源文件提前结束时小于count
+     */
+    public static long transfer(FileChannel src, long position, long count, WritableByteChannel dst)
+            throws IOException
+    {
+        return FileTransfer.transferTo(src, position, count, dst, TRANSFER_CHUNK_SIZE);
+    }
+
+    /**
+     * 用FileChannel#transferFrom把通道中的数据传输到文件的指定位置，超过2G分段传输
+     *
+     * @param src      源通道
+     * @param dst      目标文件
+     * @param position 写入的位置
+     * @param count    字节数
+     * @return 传输的字节数，源通道提前结束时小于count
+     */
+    public static long transfer(ReadableByteChannel src, FileChannel dst, long position, long count)
+            throws IOException
+    {
+        return FileTransfer.transferFrom(src, dst, position, count, TRANSFER_CHUNK_SIZE);
+    }
 }
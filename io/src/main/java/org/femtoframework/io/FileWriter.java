@@ -138,4 +138,22 @@ public class FileWriter extends OutputStreamWriter {
         super(new FileOutputStream(fd), charset);
     }
 
+    private FileWriter(OutputStream output, Charset charset) {
+        super(output, charset);
+    }
+
+    /**
+     * Creates a <tt>FileWriter</tt> which writes the file through a memory mapping,
+     * the file is cut to the bytes written when the writer is closed.
+     *
+     * @param file a File object to write to
+     * @param append if <code>true</code>, then bytes will be written
+     *               to the end of the file rather than the beginning
+     * @param charset Charset
+     * @throws IOException if the file cannot be opened or mapped
+     * @see MappedFileOutputStream
+     */
+    public static FileWriter mapped(File file, boolean append, Charset charset) throws IOException {
+        return new FileWriter(new MappedFileOutputStream(file, append), charset);
+    }
 }
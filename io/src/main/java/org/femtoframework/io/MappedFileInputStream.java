@@ -0,0 +1,408 @@
+package org.femtoframework.io;
+
+import org.femtoframework.io.filter.ByteScanner;
+import org.femtoframework.nio.DirectBuffers;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 用内存映射读取文件的输入流
+ * <p>
+ * The file is mapped one window at a time, a window is at most 2G, the next window is mapped
+ * when the reader moves out of the current one, so files larger than 2G are read the same way.
+ * Reads come from the page cache without read system calls or copies into a Java buffer.
+ * <p>
+ * The window is unmapped on #close, not when it is garbage-collected, the stream must not be used after that.
+ * Multi-byte values are big-endian as in DataInputStream.
+ *
+ * @see FileReader#mapped(File, Charset)
+ */
+public class MappedFileInputStream extends InputStream implements DataInput
+{
+    /**
+     * 默认的映射窗口大小（64M）
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final int SCAN_SIZE = 8192;
+
+    private final FileChannel channel;
+
+    private final long length;
+
+    private final int windowSize;
+
+    /**
+     * 当前的映射窗口
+     */
+    private MappedByteBuffer window;
+
+    /**
+     * 当前窗口在文件中的起始位置
+     */
+    private long windowStart;
+
+    private long mark = 0;
+
+    /**
+     * readLine的扫描缓冲区
+     */
+    private byte[] scanBuffer;
+
+    private boolean closed = false;
+
+    public MappedFileInputStream(String fileName) throws IOException
+    {
+        this(new File(fileName));
+    }
+
+    public MappedFileInputStream(File file) throws IOException
+    {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param file       文件
+     * @param windowSize 每次映射的字节数
+     * @throws IOException
+     */
+    public MappedFileInputStream(File file, int windowSize) throws IOException
+    {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Invalid window size:" + windowSize);
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.length = channel.size();
+        this.windowSize = windowSize;
+        try {
+            map(0);
+        }
+        catch (IOException ioe) {
+            IOUtil.close(channel);
+            throw ioe;
+        }
+    }
+
+    private void map(long position) throws IOException
+    {
+        MappedByteBuffer old = window;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                             Math.min(windowSize, length - position));
+        windowStart = position;
+        DirectBuffers.unmap(old);
+    }
+
+    /**
+     * Makes sure the current window has a byte, returns false at the end of the file
+     */
+    private boolean ensure() throws IOException
+    {
+        ensureOpen();
+        if (window.hasRemaining()) {
+            return true;
+        }
+        long position = windowStart + window.position();
+        if (position >= length) {
+            return false;
+        }
+        map(position);
+        return true;
+    }
+
+    //The memory is gone after close, the window must not be touched
+    private MappedByteBuffer ensureOpen() throws IOException
+    {
+        if (closed) {
+            throw new IOException("The InputStream is closed.");
+        }
+        return window;
+    }
+
+    public int read() throws IOException
+    {
+        if (!ensure()) {
+            return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if ((off < 0) || (len < 0) || (off + len > b.length)) {
+            throw new IndexOutOfBoundsException("Offset=" + off + " Length=" + len);
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < len && ensure()) {
+            int n = Math.min(len - read, window.remaining());
+            window.get(b, off + read, n);
+            read += n;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    public long skip(long n) throws IOException
+    {
+        long position = position();
+        long skipped = Math.max(0, Math.min(n, length - position));
+        position(position + skipped);
+        return skipped;
+    }
+
+    public int available() throws IOException
+    {
+        return (int)Math.min(Integer.MAX_VALUE, length - position());
+    }
+
+    public boolean markSupported()
+    {
+        return true;
+    }
+
+    public void mark(int readLimit)
+    {
+        if (!closed) {
+            mark = windowStart + window.position();
+        }
+    }
+
+    public void reset() throws IOException
+    {
+        position(mark);
+    }
+
+    /**
+     * 当前在文件中的位置
+     *
+     * @return long
+     */
+    public long position() throws IOException
+    {
+        return windowStart + ensureOpen().position();
+    }
+
+    /**
+     * 移动到文件中的指定位置，超出当前窗口时重新映射
+     *
+     * @param position 位置
+     * @throws IOException
+     */
+    public void position(long position) throws IOException
+    {
+        if (position < 0 || position > length) {
+            throw new IllegalArgumentException("Invalid position:" + position + ", length:" + length);
+        }
+        ensureOpen();
+        if (position >= windowStart && position <= windowStart + window.limit()) {
+            window.position((int)(position - windowStart));
+        }
+        else {
+            map(position);
+        }
+    }
+
+    /**
+     * 文件长度
+     *
+     * @return long
+     */
+    public long length()
+    {
+        return length;
+    }
+
+    public int getWindowSize()
+    {
+        return windowSize;
+    }
+
+    public void readFully(byte[] b) throws IOException
+    {
+        readFully(b, 0, b.length);
+    }
+
+    public void readFully(byte[] b, int off, int len) throws IOException
+    {
+        if (len > 0 && read(b, off, len) < len) {
+            throw new EOFException();
+        }
+    }
+
+    public int skipBytes(int n) throws IOException
+    {
+        return (int)skip(n);
+    }
+
+    public boolean readBoolean() throws IOException
+    {
+        return readUnsignedByte() != 0;
+    }
+
+    public byte readByte() throws IOException
+    {
+        return (byte)readUnsignedByte();
+    }
+
+    public int readUnsignedByte() throws IOException
+    {
+        int b = read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    public short readShort() throws IOException
+    {
+        if (ensureOpen().remaining() >= 2) {
+            return window.getShort();
+        }
+        return (short)((readUnsignedByte() << 8) | readUnsignedByte());
+    }
+
+    public int readUnsignedShort() throws IOException
+    {
+        return readShort() & 0xFFFF;
+    }
+
+    public char readChar() throws IOException
+    {
+        return (char)readShort();
+    }
+
+    public int readInt() throws IOException
+    {
+        if (ensureOpen().remaining() >= 4) {
+            return window.getInt();
+        }
+        return (readUnsignedByte() << 24) | (readUnsignedByte() << 16) | (readUnsignedByte() << 8)
+               | readUnsignedByte();
+    }
+
+    public long readLong() throws IOException
+    {
+        if (ensureOpen().remaining() >= 8) {
+            return window.getLong();
+        }
+        return ((long)readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    public float readFloat() throws IOException
+    {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public double readDouble() throws IOException
+    {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * 读取一行，每个字节作为一个字符，与DataInputStream#readLine相同
+     *
+     * @return 不包括行结束符的一行，文件结束时返回<code>null</code>
+     */
+    public String readLine() throws IOException
+    {
+        return readLine(null);
+    }
+
+    /**
+     * 用指定的字符集读取一行，行以'\n'、'\r'或者"\r\n"结束
+     *
+     * @param charset 字符集，<code>null</code>表示每个字节作为一个字符
+     * @return 不包括行结束符的一行，文件结束时返回<code>null</code>
+     */
+    public String readLine(Charset charset) throws IOException
+    {
+        if (!ensure()) {
+            return null;
+        }
+        if (scanBuffer == null) {
+            scanBuffer = new byte[SCAN_SIZE];
+        }
+        byte[] scan = scanBuffer;
+        LineBuffer line = null;
+        //Short chunks first, most lines are short, the chunk grows while the line goes on
+        int chunk = 128;
+        while (ensure()) {
+            //One bulk copy out of the window, then ByteScanner looks for the end in the array
+            int start = window.position();
+            int n = Math.min(chunk, window.remaining());
+            window.get(scan, 0, n);
+            int end = ByteScanner.indexOfLineEnd(scan, 0, n);
+            if (end < 0) {
+                if (line == null) {
+                    line = new LineBuffer(n * 2);
+                }
+                line.write(scan, 0, n);
+                chunk = Math.min(chunk << 1, SCAN_SIZE);
+                continue;
+            }
+            window.position(start + end + 1);
+            if (scan[end] == '\r') {
+                if (end + 1 < n) {
+                    if (scan[end + 1] == '\n') {
+                        window.get();
+                    }
+                }
+                else if (ensure() && window.get(window.position()) == '\n') {
+                    window.get();
+                }
+            }
+            if (line == null) {
+                return decode(scan, end, charset);
+            }
+            line.write(scan, 0, end);
+            break;
+        }
+        return decode(line.getBytes(), line.size(), charset);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String decode(byte[] bytes, int len, Charset charset)
+    {
+        return charset != null ? new String(bytes, 0, len, charset) : new String(bytes, 0, 0, len);
+    }
+
+    public String readUTF() throws IOException
+    {
+        return DataInputStream.readUTF(this);
+    }
+
+    /**
+     * 解除映射并关闭文件
+     */
+    public void close() throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        DirectBuffers.unmap(window);
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Bytes of a line which spans windows, exposes the internal array
+     */
+    private static final class LineBuffer extends java.io.ByteArrayOutputStream
+    {
+        LineBuffer(int size)
+        {
+            super(size);
+        }
+
+        byte[] getBytes()
+        {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.femtoframework.io;
+
+import org.femtoframework.nio.DirectBuffers;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 用内存映射写文件的输出流
+ * <p>
+ * The file is mapped one window at a time and grows by a window when the writer moves past its end,
+ * writes go to the page cache without write system calls. #force writes the dirty pages of the current
+ * window to the storage device, the pages of the windows already unmapped are written back by the OS.
+ * #close unmaps the window and cuts the file to the bytes written, the stream must not be used after that.
+ * Multi-byte values are big-endian as in DataOutputStream.
+ * <p>
+ * Mapping a window sets the file size to the end of the window at once, so until #close the file is longer
+ * than the data, by up to a whole window (64M by default) of zero bytes. If the process dies before #close,
+ * the zero padding stays in the file; readers of a file which may not have been closed cleanly need their
+ * own length or end marker, or use a smaller window size to bound the padding.
+ *
+ * @see FileWriter#mapped(File, boolean, Charset)
+ */
+public class MappedFileOutputStream extends OutputStream implements DataOutput
+{
+    /**
+     * 默认的映射窗口大小（64M）
+     */
+    public static final int DEFAULT_WINDOW_SIZE = MappedFileInputStream.DEFAULT_WINDOW_SIZE;
+
+    private final FileChannel channel;
+
+    private final int windowSize;
+
+    /**
+     * 当前的映射窗口
+     */
+    private MappedByteBuffer window;
+
+    /**
+     * 当前窗口在文件中的起始位置
+     */
+    private long windowStart;
+
+    private boolean closed = false;
+
+    private DataOutputStream utf;
+
+    public MappedFileOutputStream(String fileName) throws IOException
+    {
+        this(new File(fileName), false);
+    }
+
+    public MappedFileOutputStream(File file, boolean append) throws IOException
+    {
+        this(file, append, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param file       文件
+     * @param append     是否写在文件的最后
+     * @param windowSize 每次映射的字节数
+     * @throws IOException
+     */
+    public MappedFileOutputStream(File file, boolean append, int windowSize) throws IOException
+    {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Invalid window size:" + windowSize);
+        }
+        if (append) {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                            StandardOpenOption.WRITE);
+        }
+        else {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        this.windowSize = windowSize;
+        try {
+            map(channel.size());
+        }
+        catch (IOException ioe) {
+            IOUtil.close(channel);
+            throw ioe;
+        }
+    }
+
+    private void map(long position) throws IOException
+    {
+        MappedByteBuffer old = window;
+        window = channel.map(FileChannel.MapMode.READ_WRITE, position, windowSize);
+        windowStart = position;
+        DirectBuffers.unmap(old);
+    }
+
+    //The memory is gone after close, the window must not be touched
+    private MappedByteBuffer ensureOpen() throws IOException
+    {
+        if (closed) {
+            throw new IOException("The OutputStream is closed.");
+        }
+        return window;
+    }
+
+    /**
+     * Makes sure the current window has room for a byte
+     */
+    private MappedByteBuffer ensure() throws IOException
+    {
+        if (!ensureOpen().hasRemaining()) {
+            map(windowStart + window.position());
+        }
+        return window;
+    }
+
+    public void write(int b) throws IOException
+    {
+        ensure().put((byte)b);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        if ((off < 0) || (len < 0) || (off + len > b.length)) {
+            throw new IndexOutOfBoundsException("Offset=" + off + " Length=" + len);
+        }
+        int written = 0;
+        while (written < len) {
+            MappedByteBuffer w = ensure();
+            int n = Math.min(len - written, w.remaining());
+            w.put(b, off + written, n);
+            written += n;
+        }
+    }
+
+    /**
+     * 当前在文件中的位置，也就是文件的有效长度
+     *
+     * @return long
+     */
+    public long position() throws IOException
+    {
+        return windowStart + ensureOpen().position();
+    }
+
+    public int getWindowSize()
+    {
+        return windowSize;
+    }
+
+    /**
+     * 把当前窗口中修改过的页写到存储设备
+     *
+     * @throws IOException
+     */
+    public void force() throws IOException
+    {
+        ensureOpen().force();
+    }
+
+    public void writeBoolean(boolean v) throws IOException
+    {
+        write(v ? 1 : 0);
+    }
+
+    public void writeByte(int v) throws IOException
+    {
+        write(v);
+    }
+
+    public void writeShort(int v) throws IOException
+    {
+        if (ensureOpen().remaining() >= 2) {
+            window.putShort((short)v);
+        }
+        else {
+            write(v >>> 8);
+            write(v);
+        }
+    }
+
+    public void writeChar(int v) throws IOException
+    {
+        writeShort(v);
+    }
+
+    public void writeInt(int v) throws IOException
+    {
+        if (ensureOpen().remaining() >= 4) {
+            window.putInt(v);
+        }
+        else {
+            writeShort(v >>> 16);
+            writeShort(v);
+        }
+    }
+
+    public void writeLong(long v) throws IOException
+    {
+        if (ensureOpen().remaining() >= 8) {
+            window.putLong(v);
+        }
+        else {
+            writeInt((int)(v >>> 32));
+            writeInt((int)v);
+        }
+    }
+
+    public void writeFloat(float v) throws IOException
+    {
+        writeInt(Float.floatToIntBits(v));
+    }
+
+    public void writeDouble(double v) throws IOException
+    {
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+    public void writeBytes(String s) throws IOException
+    {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            write(s.charAt(i));
+        }
+    }
+
+    public void writeChars(String s) throws IOException
+    {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    public void writeUTF(String s) throws IOException
+    {
+        if (utf == null) {
+            //DataOutputStream does not buffer, the bytes come straight here
+            utf = new DataOutputStream(this);
+        }
+        utf.writeUTF(s);
+    }
+
+    /**
+     * 解除映射，把文件截到写入的长度并关闭
+     */
+    public void close() throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        long size = position();
+        closed = true;
+        DirectBuffers.unmap(window);
+        window = null;
+        try {
+            channel.truncate(size);
+        }
+        finally {
+            channel.close();
+        }
+    }
+}
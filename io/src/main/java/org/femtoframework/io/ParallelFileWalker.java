@@ -0,0 +1,356 @@
+package org.femtoframework.io;
+
+import org.femtoframework.io.filter.FilenameSelector;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 并行的目录拷贝和删除
+ * <p>
+ * Every directory is a fork-join task which forks one task per entry, so the I/O of many small files
+ * overlaps on the given count of threads. A failure does not stop the walk, the walk goes on with the other
+ * entries and all the failures are thrown together at the end, the first one with the others suppressed.
+ * <p>
+ * The progress counters can be read from another thread while an operation is running,
+ * they are reset when the next operation starts. One walker runs one operation at a time.
+ *
+ * @see FileUtil#copyAll(File, File, int)
+ * @see FileUtil#delete(File, int)
+ */
+public class ParallelFileWalker
+{
+    /**
+     * 异常中最多附带的错误数
+     */
+    public static final int MAX_SUPPRESSED = 100;
+
+    private final int parallelism;
+
+    private final LongAdder files = new LongAdder();
+
+    private final LongAdder directories = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final ConcurrentLinkedQueue<IOException> errors = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 用CPU数作为并行度
+     */
+    public ParallelFileWalker()
+    {
+        this(0);
+    }
+
+    /**
+     * @param parallelism 并行的线程数，小于等于0时使用CPU数
+     */
+    public ParallelFileWalker(int parallelism)
+    {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 将srcDir目录中所有文件或者目录拷贝到目标目录
+     *
+     * @param srcDir 源目录
+     * @param dstDir 目标目录
+     * @throws IOException 所有的错误，第一个错误之外的作为suppressed
+     */
+    public void copyAll(File srcDir, File dstDir) throws IOException
+    {
+        copy(srcDir, null, dstDir);
+    }
+
+    /**
+     * 将srcDir目录中满足条件的文件或者目录拷贝到目标目录，模式只用于srcDir下的第一层，选中的目录全部拷贝
+     *
+     * @param srcDir  源目录
+     * @param pattern 模式
+     * @param dstDir  目标目录
+     * @throws IOException 所有的错误，第一个错误之外的作为suppressed
+     */
+    public void copyTo(File srcDir, String pattern, File dstDir) throws IOException
+    {
+        copy(srcDir, new FilenameSelector(pattern), dstDir);
+    }
+
+    private void copy(File srcDir, FilenameSelector selector, File dstDir) throws IOException
+    {
+        if (!srcDir.isDirectory()) {
+            throw new IllegalArgumentException("Invalid source directory:" + srcDir);
+        }
+        if (!dstDir.isDirectory()) {
+            throw new IllegalArgumentException("Invalid destination directory:" + dstDir);
+        }
+        reset();
+        File[] entries = selector != null ? srcDir.listFiles(selector) : srcDir.listFiles();
+        if (entries == null) {
+            throw new IOException("Can't list directory:" + srcDir);
+        }
+        List<CopyTask> tasks = new ArrayList<>(entries.length);
+        for (File entry : entries) {
+            tasks.add(new CopyTask(entry, new File(dstDir, entry.getName())));
+        }
+        run(new RecursiveAction()
+        {
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+        throwErrors();
+    }
+
+    /**
+     * 删除文件或者目录
+     *
+     * @param file 文件或者目录
+     * @throws IOException 没有删除的文件，第一个错误之外的作为suppressed
+     */
+    public void delete(File file) throws IOException
+    {
+        reset();
+        if (file != null && file.exists()) {
+            run(new DeleteTask(file));
+        }
+        throwErrors();
+    }
+
+    /**
+     * 清除目录中所有的文件和目录，目录本身保留
+     *
+     * @param dir 目录
+     * @throws IOException 没有删除的文件，第一个错误之外的作为suppressed
+     */
+    public void clear(File dir) throws IOException
+    {
+        if (dir == null || !dir.isDirectory()) {
+            throw new IllegalArgumentException("Invalid directory:" + dir);
+        }
+        reset();
+        File[] entries = dir.listFiles();
+        if (entries == null) {
+            throw new IOException("Can't list directory:" + dir);
+        }
+        List<DeleteTask> tasks = new ArrayList<>(entries.length);
+        for (File entry : entries) {
+            tasks.add(new DeleteTask(entry));
+        }
+        run(new RecursiveAction()
+        {
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+        throwErrors();
+    }
+
+    private void run(ForkJoinTask<?> task)
+    {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(task);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    private void reset()
+    {
+        files.reset();
+        directories.reset();
+        bytes.reset();
+        errors.clear();
+    }
+
+    private void throwErrors() throws IOException
+    {
+        List<IOException> list = getErrors();
+        if (list.isEmpty()) {
+            return;
+        }
+        IOException first = list.get(0);
+        if (list.size() == 1) {
+            throw first;
+        }
+        IOException all = new IOException(list.size() + " errors, the first one:" + first.getMessage(), first);
+        for (int i = 1; i < list.size() && i <= MAX_SUPPRESSED; i++) {
+            all.addSuppressed(list.get(i));
+        }
+        throw all;
+    }
+
+    private void onError(IOException error)
+    {
+        errors.add(error);
+    }
+
+    /**
+     * 已经处理的文件数
+     *
+     * @return long
+     */
+    public long getFileCount()
+    {
+        return files.sum();
+    }
+
+    /**
+     * 已经处理的目录数
+     *
+     * @return long
+     */
+    public long getDirectoryCount()
+    {
+        return directories.sum();
+    }
+
+    /**
+     * 已经拷贝或者删除的字节数
+     *
+     * @return long
+     */
+    public long getByteCount()
+    {
+        return bytes.sum();
+    }
+
+    /**
+     * 当前的错误数
+     *
+     * @return int
+     */
+    public int getErrorCount()
+    {
+        return errors.size();
+    }
+
+    /**
+     * 最近一次操作的所有错误
+     *
+     * @return List
+     */
+    public List<IOException> getErrors()
+    {
+        return new ArrayList<>(errors);
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Copies one file or directory
+     */
+    private class CopyTask extends RecursiveAction
+    {
+        private final File src;
+
+        private final File dst;
+
+        CopyTask(File src, File dst)
+        {
+            this.src = src;
+            this.dst = dst;
+        }
+
+        protected void compute()
+        {
+            try {
+                if (src.isFile()) {
+                    long length = src.length();
+                    FileUtil.copyTo(src, dst);
+                    files.increment();
+                    bytes.add(length);
+                }
+                else if (src.isDirectory()) {
+                    if (!dst.exists()) {
+                        if (!dst.mkdirs() && !dst.isDirectory()) {
+                            throw new IOException("Can't make directory:" + dst);
+                        }
+                    }
+                    else if (dst.isFile()) {
+                        throw new IOException("Has a file same name as:" + dst);
+                    }
+                    File[] entries = src.listFiles();
+                    if (entries == null) {
+                        throw new IOException("Can't list directory:" + src);
+                    }
+                    directories.increment();
+                    List<CopyTask> tasks = new ArrayList<>(entries.length);
+                    for (File entry : entries) {
+                        tasks.add(new CopyTask(entry, new File(dst, entry.getName())));
+                    }
+                    invokeAll(tasks);
+                }
+            }
+            catch (IOException ioe) {
+                onError(ioe);
+            }
+            catch (RuntimeException re) {
+                onError(new IOException("Copy " + src + " to " + dst + " failed", re));
+            }
+        }
+    }
+
+    /**
+     * Deletes one file or directory, returns whether it is deleted
+     */
+    private class DeleteTask extends RecursiveTask<Boolean>
+    {
+        private final File file;
+
+        DeleteTask(File file)
+        {
+            this.file = file;
+        }
+
+        protected Boolean compute()
+        {
+            boolean isDirectory = file.isDirectory();
+            long length = isDirectory ? 0 : file.length();
+            if (isDirectory) {
+                File[] entries = file.listFiles();
+                if (entries != null && entries.length > 0) {
+                    List<DeleteTask> tasks = new ArrayList<>(entries.length);
+                    for (File entry : entries) {
+                        tasks.add(new DeleteTask(entry));
+                    }
+                    boolean all = true;
+                    for (DeleteTask task : invokeAll(tasks)) {
+                        all &= task.join();
+                    }
+                    if (!all) {
+                        //The failures of the entries are reported already
+                        return false;
+                    }
+                }
+            }
+            if (!file.delete() && file.exists()) {
+                onError(new IOException("Can't delete:" + file));
+                return false;
+            }
+            if (isDirectory) {
+                directories.increment();
+            }
+            else {
+                files.increment();
+                bytes.add(length);
+            }
+            return true;
+        }
+    }
+}
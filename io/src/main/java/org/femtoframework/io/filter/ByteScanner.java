@@ -0,0 +1,65 @@
+package org.femtoframework.io.filter;
+
+/**
+ * 在字节数组中查找字节
+ * <p>
+ * This is the version for runtimes before JDK 21, a plain per-byte loop. On JDK 8 there is no cheap way to load
+ * eight bytes of a byte[] as one long without Unsafe, HeapByteBuffer#getLong assembles the long byte by byte,
+ * so a word scan is slower than this loop there. The JDK 21 version in src/main/java21 scans 8 bytes at a time
+ * and is packaged under META-INF/versions/21.
+ */
+public final class ByteScanner
+{
+    private ByteScanner()
+    {
+    }
+
+    /**
+     * 查找指定的字节
+     *
+     * @param bytes 字节数组
+     * @param from  开始位置（包括）
+     * @param to    结束位置（不包括）
+     * @param value 要找的字节
+     * @return 第一个位置，没有找到返回-1
+     * @throws IndexOutOfBoundsException from或者to超出数组范围
+     */
+    public static int indexOf(byte[] bytes, int from, int to, byte value)
+    {
+        checkRange(bytes, from, to);
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找第一个'\r'或者'\n'
+     *
+     * @param bytes 字节数组
+     * @param from  开始位置（包括）
+     * @param to    结束位置（不包括）
+     * @return 第一个位置，没有找到返回-1
+     * @throws IndexOutOfBoundsException from或者to超出数组范围
+     */
+    public static int indexOfLineEnd(byte[] bytes, int from, int to)
+    {
+        checkRange(bytes, from, to);
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void checkRange(byte[] bytes, int from, int to)
+    {
+        if (from < 0 || from > to || to > bytes.length) {
+            throw new IndexOutOfBoundsException("from:" + from + " to:" + to + " length:" + bytes.length);
+        }
+    }
+}
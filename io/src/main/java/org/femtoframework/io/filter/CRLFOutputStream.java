@@ -39,29 +39,46 @@ public class CRLFOutputStream extends FilterOutputStream
         lastByte = b;
     }
 
+    /**
+     * 批量转换，正确的CRLF和普通字节原样成段输出，只在单独的'\r'或者'\n'处拆开
+     * <p/>
+     * The line ends are found with {@link ByteScanner}, eight bytes at a time,
+     * so a body which is already CRLF goes to the wrapped stream in one call.
+     */
     public void write(byte b[], int off, int len)
         throws IOException
     {
+        if ((off | len | (b.length - (len + off)) | (off + len)) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return;
+        }
+        int end = off + len;
         int start = off;
-        len += off;
-        for (int i = start; i < len; i++) {
-            if (b[i] == '\r') {
-                out.write(b, start, i - start);
-                out.write(NEWLINE);
-                start = i + 1;
+        if (lastByte == '\r' && b[off] == '\n') {
+            //The CRLF has been written for the CR
+            start++;
+        }
+        int i = start;
+        int found;
+        while ((found = ByteScanner.indexOfLineEnd(b, i, end)) >= 0) {
+            if (b[found] == '\r' && found + 1 < end && b[found + 1] == '\n') {
+                //Already CRLF, stays in the run
+                i = found + 2;
+                continue;
             }
-            else if (b[i] == '\n') {
-                if (lastByte != '\r') {
-                    out.write(b, start, i - start);
-                    out.write(NEWLINE);
-                }
-                start = i + 1;
+            //Bare CR or bare NL
+            if (found > start) {
+                out.write(b, start, found - start);
             }
-            lastByte = b[i];
+            out.write(NEWLINE);
+            start = i = found + 1;
         }
-        if ((len - start) > 0) {
-            out.write(b, start, len - start);
+        if (end > start) {
+            out.write(b, start, end - start);
         }
+        lastByte = b[end - 1];
     }
 
     /*
@@ -4,7 +4,7 @@ package org.femtoframework.io.filter;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
 
 /**
  * This class is to support reading CRLF terminated lines that
@@ -15,11 +15,26 @@ import java.io.PushbackInputStream;
  * <p/>
  * It is implemented as a FilterInputStream, so one can just wrap
  * this class around any input stream and read bytes from this filter.
+ * <p/>
+ * The bytes are read ahead into an internal buffer in bulk and the line ends are
+ * found with {@link ByteScanner}, so all the reads must go through this filter once a line has been read.
+ * mark/reset work on the read-ahead buffer as in BufferedInputStream, the buffer keeps the bytes from the mark
+ * until more than readLimit bytes have been read after it.
  */
 
 public class LineInputStream extends FilterInputStream
 {
-    private char[] lineBuffer = null; // reusable byte buffer
+    private byte[] buf; // read ahead buffer
+
+    private int pos = 0;
+
+    private int limit = 0;
+
+    private int lineStart = 0; // start of the line found by nextLine
+
+    private int markPos = -1; // position of the mark in buf, -1 if there is none
+
+    private int markLimit = 0;
 
     private int buffSize = 2048;
 
@@ -31,6 +46,9 @@ public class LineInputStream extends FilterInputStream
     public LineInputStream(InputStream in, int buffSize)
     {
         super(in);
+        if (buffSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size:" + buffSize);
+        }
         this.buffSize = buffSize;
     }
 
@@ -43,55 +61,205 @@ public class LineInputStream extends FilterInputStream
      * This class is similar to the deprecated
      * <code>DataInputStream.readLine()</code>
      */
+    @SuppressWarnings("deprecation")
     public String readLine() throws IOException
     {
-        InputStream in = this.in;
-        char[] buf = lineBuffer;
-
-        if (buf == null) {
-            buf = lineBuffer = new char[buffSize];
+        int end = nextLine();
+        if (end < 0) {
+            return null;
         }
+        return new String(buf, 0, lineStart, end - lineStart);
+    }
 
-        int c1;
-        int room = buf.length;
-        int offset = 0;
+    /**
+     * 读取一行，返回内部缓冲区中这一行的只读视图，不复制字节
+     * <p/>
+     * The slice does not include the line terminator, it is only valid until the next read from this stream.
+     *
+     * @return 一行的字节，没有数据时返回<code>null</code>
+     * @throws IOException
+     */
+    public ByteBuffer readLineBuffer() throws IOException
+    {
+        int end = nextLine();
+        if (end < 0) {
+            return null;
+        }
+        return ByteBuffer.wrap(buf, lineStart, end - lineStart).slice().asReadOnlyBuffer();
+    }
 
-        while ((c1 = in.read()) != -1) {
-            if (c1 == '\n') // Got NL, outa here.
-            {
-                break;
+    /**
+     * Finds the next line in the buffer, the line is [lineStart, returned end),
+     * pos is moved after the terminator
+     *
+     * @return End of the line, -1 if there is no more data
+     */
+    private int nextLine() throws IOException
+    {
+        ensureBuffer();
+        int scan = pos;
+        while (true) {
+            int end = ByteScanner.indexOfLineEnd(buf, scan, limit);
+            if (end >= 0) {
+                lineStart = pos;
+                if (buf[end] == '\r') {
+                    // Got CR, is the next byte NL ?
+                    if (end + 1 == limit) {
+                        int offset = fill();
+                        end -= offset;
+                        lineStart -= offset;
+                        if (end + 1 == limit) {
+                            //End of stream
+                            pos = limit;
+                            return end;
+                        }
+                    }
+                    pos = buf[end + 1] == '\n' ? end + 2 : end + 1;
+                }
+                else {
+                    pos = end + 1;
+                }
+                return end;
             }
-            else if (c1 == '\r') {
-                // Got CR, is the next char NL ?
-                int c2 = in.read();
-                if (c2 == -1) {
-                    break;
+            scan = limit;
+            int offset = fill();
+            scan -= offset;
+            if (scan == limit) {
+                //End of stream
+                if (pos == limit) {
+                    return -1;
                 }
-                else if (c2 != '\n') {
-                    // If not NL, pushIndent it back
-                    if (!(in instanceof PushbackInputStream)) {
-                        in = this.in = new PushbackInputStream(in);
-                    }
-                    ((PushbackInputStream)in).unread(c2);
+                lineStart = pos;
+                pos = limit;
+                return limit;
+            }
+        }
+    }
+
+    private void ensureBuffer()
+    {
+        if (buf == null) {
+            buf = new byte[buffSize];
+        }
+    }
+
+    /**
+     * Reads more bytes after limit, keeps the bytes from pos, or from the mark if it is still valid,
+     * returns how far the bytes are moved to the left. limit is unchanged at the end of stream
+     */
+    private int fill() throws IOException
+    {
+        if (markPos >= 0 && pos - markPos > markLimit) {
+            markPos = -1;
+        }
+        int keep = markPos >= 0 ? markPos : pos;
+        int offset = 0;
+        if (limit == buf.length) {
+            if (keep > 0) {
+                offset = keep;
+                System.arraycopy(buf, keep, buf, 0, limit - keep);
+                limit -= keep;
+                pos -= keep;
+                if (markPos >= 0) {
+                    markPos -= keep;
                 }
-                break; // outa here.
             }
-            // Not CR, NL or CR-NL ...
-            // .. Insert the byte into our byte buffer
-            if (--room < 0) { // No room, need to grow.
-                buf = new char[offset * 2];
-                //we replace "+128" with "*2" to speed the memory allocation when need large one
-                room = buf.length - offset - 1;
-                System.arraycopy(lineBuffer, 0, buf, 0, offset);
-                lineBuffer = buf;
+            else {
+                //we use "*2" to speed the memory allocation when need large one
+                byte[] newBuf = new byte[buf.length * 2];
+                System.arraycopy(buf, 0, newBuf, 0, limit);
+                buf = newBuf;
             }
-            buf[offset++] = (char)c1;
         }
+        int read = in.read(buf, limit, buf.length - limit);
+        if (read > 0) {
+            limit += read;
+        }
+        return offset;
+    }
 
-        if ((c1 == -1) && (offset == 0)) {
-            return null;
+    /**
+     * Whether the buffer has bytes to read, with a mark the bytes have to go through the buffer
+     */
+    private boolean buffered() throws IOException
+    {
+        if (pos < limit) {
+            return true;
+        }
+        if (markPos < 0) {
+            return false;
+        }
+        fill();
+        return pos < limit;
+    }
+
+    public int read() throws IOException
+    {
+        if (buffered()) {
+            return buf[pos++] & 0xFF;
+        }
+        return markPos < 0 ? in.read() : -1;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if ((off < 0) || (len < 0) || (off + len > b.length)) {
+            throw new IndexOutOfBoundsException("Offset=" + off + " Length=" + len);
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffered()) {
+            return markPos < 0 ? in.read(b, off, len) : -1;
         }
+        int n = Math.min(limit - pos, len);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    public long skip(long n) throws IOException
+    {
+        if (n <= 0) {
+            return 0;
+        }
+        if (!buffered()) {
+            return markPos < 0 ? in.skip(n) : 0;
+        }
+        int skipped = (int)Math.min(n, limit - pos);
+        pos += skipped;
+        return skipped;
+    }
 
-        return new String(buf, 0, offset);
+    public int available() throws IOException
+    {
+        int buffered = limit - pos;
+        int avail = in.available();
+        return buffered > Integer.MAX_VALUE - avail ? Integer.MAX_VALUE : buffered + avail;
+    }
+
+    public boolean markSupported()
+    {
+        return true;
+    }
+
+    /**
+     * Marks the position in the read-ahead buffer
+     *
+     * @param readLimit 标记之后最多还能读取的字节数
+     */
+    public synchronized void mark(int readLimit)
+    {
+        ensureBuffer();
+        markPos = pos;
+        markLimit = readLimit;
+    }
+
+    public synchronized void reset() throws IOException
+    {
+        if (markPos < 0) {
+            throw new IOException("Resetting to invalid mark");
+        }
+        pos = markPos;
     }
 }
@@ -0,0 +1,113 @@
+package org.femtoframework.io.filter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * 在字节数组中查找字节，每次比较8个字节
+ * <p>
+ * Eight bytes are loaded as one little-endian long and compared with SWAR (SIMD within a register):
+ * the word is XORed with the wanted byte repeated 8 times, so the wanted bytes become zero,
+ * then an exact zero-byte test sets the high bit of every zero byte, the lowest address with a high bit is the match.
+ * Words are loaded through a byte array view VarHandle, which the JIT compiles to one unaligned long load.
+ * <p>
+ * This is the JDK 21 version, packaged under META-INF/versions/21 of the multi-release jar.
+ */
+public final class ByteScanner
+{
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+                                                                               ByteOrder.LITTLE_ENDIAN);
+
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+    private static final long CR_WORD = 0x0D0D0D0D0D0D0D0DL;
+
+    private static final long LF_WORD = 0x0A0A0A0A0A0A0A0AL;
+
+    private ByteScanner()
+    {
+    }
+
+    /**
+     * 查找指定的字节
+     *
+     * @param bytes 字节数组
+     * @param from  开始位置（包括）
+     * @param to    结束位置（不包括）
+     * @param value 要找的字节
+     * @return 第一个位置，没有找到返回-1
+     * @throws IndexOutOfBoundsException from或者to超出数组范围
+     */
+    public static int indexOf(byte[] bytes, int from, int to, byte value)
+    {
+        checkRange(bytes, from, to);
+        int i = from;
+        long pattern = (value & 0xFFL) * 0x0101010101010101L;
+        for (; i + 8 <= to; i += 8) {
+            long found = zeroBytes((long)LONGS.get(bytes, i) ^ pattern);
+            if (found != 0) {
+                return i + firstByte(found);
+            }
+        }
+        for (; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找第一个'\r'或者'\n'
+     *
+     * @param bytes 字节数组
+     * @param from  开始位置（包括）
+     * @param to    结束位置（不包括）
+     * @return 第一个位置，没有找到返回-1
+     * @throws IndexOutOfBoundsException from或者to超出数组范围
+     */
+    public static int indexOfLineEnd(byte[] bytes, int from, int to)
+    {
+        checkRange(bytes, from, to);
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long word = (long)LONGS.get(bytes, i);
+            long found = zeroBytes(word ^ LF_WORD) | zeroBytes(word ^ CR_WORD);
+            if (found != 0) {
+                return i + firstByte(found);
+            }
+        }
+        for (; i < to; i++) {
+            byte b = bytes[i];
+            if (b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void checkRange(byte[] bytes, int from, int to)
+    {
+        if (from < 0 || from > to || to > bytes.length) {
+            throw new IndexOutOfBoundsException("from:" + from + " to:" + to + " length:" + bytes.length);
+        }
+    }
+
+    /**
+     * High bit of every zero byte, exact, no false positives caused by borrows
+     */
+    private static long zeroBytes(long x)
+    {
+        long t = (x & LOW7) + LOW7;
+        return ~(t | x | LOW7);
+    }
+
+    /**
+     * Index of the byte at the lowest address which has its high bit set
+     */
+    private static int firstByte(long found)
+    {
+        return Long.numberOfTrailingZeros(found) >>> 3;
+    }
+}
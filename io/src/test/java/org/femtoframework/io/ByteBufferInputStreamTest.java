@@ -3,9 +3,16 @@ package org.femtoframework.io;
 import org.femtoframework.nio.ByteBufferPool;
 import org.junit.Test;
 
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
@@ -291,4 +298,87 @@ public class ByteBufferInputStreamTest
             assertEquals(bytes[i], v);
         }
     }
+
+    /**
+     * 测试从Channel读取和写到Channel
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testChannel() throws Exception
+    {
+        byte[] bytes = new byte[2048];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte)(i * 7);
+        }
+        File file = File.createTempFile("bbis", ".bin");
+        file.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            channel.write(ByteBuffer.wrap(bytes));
+            channel.position(0);
+
+            ByteBufferInputStream bbis = ByteBufferInputStream.readFrom(channel, bytes.length);
+            assertEquals(bytes.length, bbis.available());
+            assertEquals(bytes[0] & 0xFF, bbis.read());
+            byte[] head = new byte[1000];
+            assertEquals(1000, bbis.read(head));
+
+            //Views do not move the stream
+            ByteBuffer[] views = bbis.toReadOnlyBuffers();
+            int remaining = 0;
+            for (ByteBuffer view : views) {
+                remaining += view.remaining();
+            }
+            assertEquals(1047, remaining);
+            assertEquals(1047, bbis.available());
+
+            //Writes the rest after the data
+            channel.position(bytes.length);
+            assertEquals(1047, bbis.writeTo(channel));
+            assertEquals(0, bbis.available());
+            assertEquals(-1, bbis.read());
+
+            ByteBuffer tail = ByteBuffer.allocate(1047);
+            channel.read(tail, bytes.length);
+            byte[] expected = new byte[1047];
+            System.arraycopy(bytes, 1001, expected, 0, 1047);
+            assertArrayEquals(expected, tail.array());
+            bbis.close();
+
+            channel.position(0);
+            try {
+                ByteBufferInputStream.readFrom(channel, 10000);
+                fail("EOF");
+            }
+            catch (EOFException eof) {
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 非阻塞的Channel不能用readFrom，否则没有数据时会空转
+     *
+     * @throws Exception
+     */
+    @Test(timeout = 10000)
+    public void testNonBlockingChannel() throws Exception
+    {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.source().configureBlocking(false);
+            pipe.sink().write(ByteBuffer.wrap(new byte[10]));
+            ByteBufferInputStream.readFrom(pipe.source(), 100);
+            fail("IllegalBlockingModeException");
+        }
+        catch (IllegalBlockingModeException expected) {
+        }
+        finally {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+    }
 }
@@ -3,7 +3,15 @@ package org.femtoframework.io;
 
 import org.junit.Test;
 
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author <a href="mailto:yqchen@naesasoft.com">yqchen</a>
@@ -84,4 +92,52 @@ public class ByteBufferOutputStreamTest
         NutletBean.assertEquals(bytesForRead[0], (byte)1);
         NutletBean.assertEquals(bytesForRead[1], (byte)2);
     }
+
+    /**
+     * 测试gathering write和scattering read
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testChannel() throws Exception
+    {
+        byte[] bytes = new byte[3000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte)i;
+        }
+        ByteBufferOutputStream bbos = new ByteBufferOutputStream();
+        bbos.write(bytes);
+
+        ByteBuffer[] views = bbos.toReadOnlyBuffers();
+        assertEquals(3, views.length);
+        assertEquals(1024, views[0].remaining());
+        assertEquals(3000 - 2048, views[2].remaining());
+        assertTrue(views[0].isReadOnly());
+
+        File file = File.createTempFile("bbos", ".bin");
+        file.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            assertEquals(3000, bbos.writeTo(channel));
+            assertEquals(3000, channel.size());
+
+            //Appends to the existing data
+            channel.position(0);
+            ByteBufferOutputStream copy = new ByteBufferOutputStream();
+            copy.write(1);
+            assertEquals(1500, copy.readFrom(channel, 1500));
+            assertEquals(1500, copy.readFrom(channel, 2000));
+            assertEquals(-1, copy.readFrom(channel, 10));
+            assertEquals(3001, copy.size());
+
+            ByteBufferInputStream bbis = copy.getInputStream();
+            assertEquals(1, bbis.read());
+            byte[] read = new byte[3000];
+            assertEquals(3000, bbis.read(read));
+            assertArrayEquals(bytes, read);
+        }
+        finally {
+            file.delete();
+        }
+    }
 }
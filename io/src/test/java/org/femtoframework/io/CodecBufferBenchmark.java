@@ -0,0 +1,50 @@
+package org.femtoframework.io;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * CodecReader和CodecUtil读取速度的比较，只在benchmark profile中运行
+ */
+public class CodecBufferBenchmark {
+
+    @Test
+    public void testBenchmark() throws Exception {
+        int rounds = 20000;
+        CodecWriter writer = new CodecWriter(ByteBuffer.allocateDirect(64 * 1024));
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        for (int i = 0; i < 200; i++) {
+            writer.writeInt(i);
+            writer.writeString("message-" + i);
+            CodecUtil.writeInt(baos, i);
+            CodecUtil.writeString(baos, "message-" + i);
+        }
+        ByteBuffer buffer = writer.flip();
+        byte[] bytes = baos.toByteArray();
+
+        for (int warm = 0; warm < 2; warm++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                CodecReader reader = new CodecReader(buffer.duplicate());
+                while (reader.remaining() > 0) {
+                    reader.readInt();
+                    reader.readString();
+                }
+            }
+            long direct = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                java.io.ByteArrayInputStream in = new java.io.ByteArrayInputStream(bytes);
+                while (in.available() > 0) {
+                    CodecUtil.readInt(in);
+                    CodecUtil.readString(in);
+                }
+            }
+            long stream = System.nanoTime() - start;
+            System.out.println("CodecReader(direct): " + direct / 1000000 + "ms, CodecUtil(stream): "
+                               + stream / 1000000 + "ms");
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.femtoframework.io;
+
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试CodecWriter和CodecReader
+ */
+public class CodecBufferTest {
+
+    private static final String CJK = "中文字符";
+
+    private static Object[] message() {
+        return new Object[]{1, -1, 300L, -5L, Integer.MIN_VALUE, Long.MAX_VALUE, (byte)3, 'c', true, (short)-2,
+            1.5f, 2.5d, "id", CJK, new String[]{"a", null, ""}, new byte[]{1, 2, 3}, new char[]{'x'}, null,
+            String.class, new Integer[]{7, 8}};
+    }
+
+    private static void assertMessage(Object[] actual) {
+        Object[] expected = message();
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            Object e = expected[i];
+            Object a = actual[i];
+            if (e instanceof Object[]) {
+                assertArrayEquals((Object[])e, (Object[])a);
+            }
+            else if (e instanceof byte[]) {
+                assertArrayEquals((byte[])e, (byte[])a);
+            }
+            else if (e instanceof char[]) {
+                assertArrayEquals((char[])e, (char[])a);
+            }
+            else {
+                assertEquals(e, a);
+            }
+        }
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static void roundTrip(CodecWriter writer, boolean compact) throws Exception {
+        writer.writeObject(message(), compact);
+        writer.writeUTFX(CJK + "abc");
+        writer.writeUTFX(null);
+        writer.writeSingle("single", compact);
+        writer.writeVarLong(Long.MIN_VALUE);
+        writer.writeSignedVarInt(-64);
+
+        CodecReader reader = new CodecReader(writer.flip());
+        assertMessage((Object[])reader.readObject(compact));
+        assertEquals(CJK + "abc", reader.readUTFX());
+        assertNull(reader.readUTFX());
+        assertEquals("single", reader.readSingle(compact));
+        assertEquals(Long.MIN_VALUE, reader.readVarLong());
+        assertEquals(-64, reader.readSignedVarInt());
+        assertEquals(0, reader.remaining());
+        assertEquals(-1, reader.readType());
+    }
+
+    @Test
+    public void testHeapAndDirect() throws Exception {
+        roundTrip(new CodecWriter(ByteBuffer.allocate(1024)), false);
+        roundTrip(new CodecWriter(ByteBuffer.allocate(1024)), true);
+        roundTrip(new CodecWriter(ByteBuffer.allocateDirect(1024)), false);
+        roundTrip(new CodecWriter(ByteBuffer.allocateDirect(1024)), true);
+    }
+
+    @Test
+    public void testSameBytesAsCodecUtil() throws Exception {
+        for (boolean compact : new boolean[]{false, true}) {
+            java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+            CodecUtil.writeString(baos, CJK, compact);
+            CodecUtil.writeSingle(baos, "single", compact);
+            CodecUtil.writeBytes(baos, new byte[]{1, 2}, compact);
+            CodecUtil.writeChars(baos, new char[]{'a', 'b'}, compact);
+            CodecUtil.writeStringArray(baos, new String[]{"x", null}, compact);
+            CodecUtil.writeUTFX(baos, CJK + "abc");
+            CodecUtil.writeInt(baos, 42);
+            CodecUtil.writeLong(baos, -42L);
+            CodecUtil.writeVarInt(baos, 1000);
+
+            CodecWriter writer = new CodecWriter(ByteBuffer.allocateDirect(512));
+            writer.writeString(CJK, compact);
+            writer.writeSingle("single", compact);
+            writer.writeBytes(new byte[]{1, 2}, compact);
+            writer.writeChars(new char[]{'a', 'b'}, compact);
+            writer.writeStringArray(new String[]{"x", null}, compact);
+            writer.writeUTFX(CJK + "abc");
+            writer.writeInt(42);
+            writer.writeLong(-42L);
+            writer.writeVarInt(1000);
+            assertArrayEquals(baos.toByteArray(), toBytes(writer.flip()));
+
+            CodecReader reader = new CodecReader(ByteBuffer.wrap(baos.toByteArray()));
+            assertEquals(CJK, reader.readString(compact));
+            assertEquals("single", reader.readSingle(compact));
+            assertArrayEquals(new byte[]{1, 2}, reader.readBytes(compact));
+            assertArrayEquals(new char[]{'a', 'b'}, reader.readChars(compact));
+            assertArrayEquals(new String[]{"x", null}, reader.readStringArray(compact));
+            assertEquals(CJK + "abc", reader.readUTFX());
+            assertEquals(42, reader.readInt());
+            assertEquals(-42L, reader.readLong());
+            assertEquals(1000, reader.readVarInt());
+        }
+    }
+
+    @Test
+    public void testSlicedHeapBuffer() throws Exception {
+        ByteBuffer whole = ByteBuffer.allocate(256);
+        whole.position(16);
+        CodecWriter writer = new CodecWriter(whole.slice());
+        writer.writeSingle("offset");
+        writer.writeUTFX("utf");
+        CodecReader reader = new CodecReader(writer.flip());
+        assertEquals("offset", reader.readSingle());
+        assertEquals("utf", reader.readUTFX());
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void testOverflow() throws Exception {
+        CodecWriter writer = new CodecWriter(ByteBuffer.allocate(8));
+        writer.writeString("too long for the buffer");
+    }
+
+    @Test
+    public void testGrowable() throws Exception {
+        CodecWriter writer = new CodecWriter(4);
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'z');
+        String str = new String(chars);
+        writer.writeString(str);
+        writer.writeLong(7L);
+        CodecReader reader = new CodecReader(writer.flip());
+        assertEquals(str, reader.readString());
+        assertEquals(7L, reader.readLong());
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        CodecWriter writer = new CodecWriter(64);
+        writer.writeString("truncated");
+        ByteBuffer buffer = writer.flip();
+        buffer.limit(buffer.limit() - 1);
+        try {
+            new CodecReader(buffer).readString();
+            fail("EOFException expected");
+        }
+        catch (EOFException expected) {
+        }
+        try {
+            new CodecReader(ByteBuffer.wrap(new byte[]{0, 0, 0, 10})).readBytes();
+            fail("EOFException expected");
+        }
+        catch (EOFException expected) {
+        }
+        //The array lengths are checked before the arrays are allocated
+        try {
+            new CodecReader(ByteBuffer.wrap(new byte[]{0, 0, (byte)0xFF, 0})).readStringArray();
+            fail("EOFException expected");
+        }
+        catch (EOFException expected) {
+        }
+        try {
+            new CodecReader(ByteBuffer.wrap(new byte[]{0, 0, 0, 10, 0, 0, 0, 0})).readObjectArray();
+            fail("EOFException expected");
+        }
+        catch (EOFException expected) {
+        }
+    }
+
+    @Test
+    public void testCorruptUTFX() throws Exception {
+        int[][] headers = {{-2, 1}, {1, -1}, {Integer.MAX_VALUE, 1}, {10, Integer.MAX_VALUE}, {10, 1 << 20}};
+        for (int[] header : headers) {
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            buffer.putInt(header[0]).putInt(header[1]).flip();
+            try {
+                new CodecReader(buffer).readUTFX();
+                fail("IOException expected");
+            }
+            catch (java.io.IOException expected) {
+            }
+        }
+    }
+}
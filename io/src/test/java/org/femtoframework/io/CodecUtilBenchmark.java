@@ -0,0 +1,43 @@
+package org.femtoframework.io;
+
+import org.junit.Test;
+
+/**
+ * UTFX编码解码的速度，ASCII、混合和中文，只在benchmark profile中运行
+ */
+public class CodecUtilBenchmark {
+
+    @Test
+    public void testUTFXBenchmark() throws Exception {
+        int rounds = 20000;
+        for (String value : new String[]{CodecUtilTest.ASCII, CodecUtilTest.MIXED, CodecUtilTest.CJK}) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            CodecUtil.writeUTFX(baos, value);
+            byte[] bytes = baos.toByteArray();
+            int utflen = bytes.length - 8;
+            byte[] utf = java.util.Arrays.copyOfRange(bytes, 8, bytes.length);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                CodecUtil.toUTFX(value);
+            }
+            long write = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                CodecUtil.fromUTFX(utf, utflen, value.length());
+            }
+            long read = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                StringBuilder sb = new StringBuilder(value.length());
+                CodecUtil.fromUTFX(utf, utflen, sb);
+                sb.toString();
+            }
+            long builder = System.nanoTime() - start;
+            System.out.println("UTFX " + value.length() + " chars/" + utflen + " bytes, write: " + write / 1000
+                               + "us, read: " + read / 1000 + "us, read(StringBuilder): " + builder / 1000 + "us");
+        }
+    }
+}
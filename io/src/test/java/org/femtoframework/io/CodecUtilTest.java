@@ -1,6 +1,8 @@
 package org.femtoframework.io;
 
+import org.femtoframework.lang.Binary;
 import org.femtoframework.util.TimeWorker;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.*;
@@ -186,6 +188,91 @@ public class CodecUtilTest {
         }
     }
 
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder(s.length() * count);
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    static final String ASCII = repeat("user.id-42:", 10);
+
+    static final String MIXED = repeat("user.id-42:", 4) + "\u00e9\u00e8" + repeat("name", 5) + "\u0000end";
+
+    static final String CJK = repeat("\u4e2d\u6587\u5b57\u7b26", 25);
+
+    private static String utfx(String str) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        CodecUtil.writeUTFX(baos, str);
+        return CodecUtil.readUTFX(baos.getInputStream());
+    }
+
+    private static String utfxData(String str) throws IOException {
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        DataCodec.writeUTFX(new DataOutputStream(baos), str);
+        return DataCodec.readUTFX(new DataInputStream(new java.io.ByteArrayInputStream(baos.toByteArray())));
+    }
+
+    @Test
+    public void testUTFX() throws Exception {
+        String[] values = {null, "", "a", "abcdefg", "abcdefgh", "abcdefghi", ASCII, MIXED, CJK,
+            repeat(ASCII, 20), repeat(MIXED, 20), repeat(CJK, 20), "abcdefg\u0000", "\u0080abcdefgh"};
+        for (String value : values) {
+            Assert.assertEquals(value, utfx(value));
+            Assert.assertEquals(value, utfxData(value));
+        }
+    }
+
+    @Test
+    public void testUTFXSameBytes() throws Exception {
+        for (String value : new String[]{ASCII, MIXED, CJK}) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            CodecUtil.writeUTFX(baos, value);
+            byte[] expected = value.getBytes("UTF-8");
+            byte[] bytes = baos.toByteArray();
+            Assert.assertEquals(value.length(), Binary.toInt(bytes, 0));
+            if (value.indexOf(0) < 0) {
+                Assert.assertArrayEquals(expected, java.util.Arrays.copyOfRange(bytes, 8, bytes.length));
+            }
+        }
+    }
+
+    @Test(expected = UTFDataFormatException.class)
+    public void testUTFXTooManyChars() throws Exception {
+        byte[] bytes = "abc".getBytes("US-ASCII");
+        CodecUtil.fromUTFX(bytes, bytes.length, 2);
+    }
+
+    @Test
+    public void testSingle() throws Exception {
+        String latin1 = repeat("caf\u00e9-", 300);
+        for (String value : new String[]{STR3, latin1}) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            CodecUtil.writeSingle(baos, value);
+            Assert.assertEquals(value, CodecUtil.readSingle(baos.getInputStream()));
+
+            java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+            DataCodec.writeSingle(new DataOutputStream(out), value);
+            Assert.assertArrayEquals(baos.toByteArray(), out.toByteArray());
+            Assert.assertEquals(value, DataCodec.readSingle(
+                new DataInputStream(new java.io.ByteArrayInputStream(out.toByteArray()))));
+        }
+        //Only the low byte of each char is written
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        CodecUtil.writeSingle(baos, "\u4e2d");
+        Assert.assertEquals("\u002d", CodecUtil.readSingle(baos.getInputStream()));
+    }
+
+    @Test
+    public void testLongString() throws Exception {
+        String value = repeat(MIXED + CJK, 10);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        CodecUtil.writeString(baos, value);
+        Assert.assertEquals(value, CodecUtil.readString(baos.getInputStream()));
+        Assert.assertEquals(value, DataCodec.readString(new DataInputStream(baos.getInputStream())));
+    }
+
 //    /**
 //     * 测试newInstance
 //     */
@@ -0,0 +1,127 @@
+package org.femtoframework.io;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试CodecUtil和DataCodec的紧凑编码
+ */
+public class CompactCodecTest {
+
+    private static Object[] message() {
+        return new Object[]{1, -1, 300L, -5L, Integer.MIN_VALUE, Long.MAX_VALUE, "id", new String[]{"a", null, ""},
+            new byte[]{1, 2, 3}, new char[]{'x'}, null, String.class, new Integer[]{7, 8}};
+    }
+
+    private static void assertMessage(Object object) {
+        Object[] expected = message();
+        Object[] actual = (Object[])object;
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            Object e = expected[i];
+            Object a = actual[i];
+            if (e instanceof Object[]) {
+                assertArrayEquals((Object[])e, (Object[])a);
+            }
+            else if (e instanceof byte[]) {
+                assertArrayEquals((byte[])e, (byte[])a);
+            }
+            else if (e instanceof char[]) {
+                assertArrayEquals((char[])e, (char[])a);
+            }
+            else {
+                assertEquals(e, a);
+            }
+        }
+    }
+
+    private static byte[] writeCodecUtil(int version) throws IOException {
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        CodecUtil.writeVersionedObject(oos, message(), version);
+        oos.flush();
+        return baos.toByteArray();
+    }
+
+    private static byte[] writeDataCodec(int version) throws IOException {
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        DataCodec.writeVersionedObject(oos, message(), version);
+        oos.flush();
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testVersionedObject() throws Exception {
+        byte[] fixed = writeCodecUtil(CodecConstants.CODEC_VERSION_FIXED);
+        byte[] compact = writeCodecUtil(CodecConstants.CODEC_VERSION_COMPACT);
+        assertMessage(CodecUtil.readVersionedObject(new ObjectInputStream(new ByteArrayInputStream(fixed))));
+        assertMessage(CodecUtil.readVersionedObject(new ObjectInputStream(new ByteArrayInputStream(compact))));
+        assertTrue(compact.length < fixed.length);
+
+        //Both codecs write the same bytes
+        assertArrayEquals(fixed, writeDataCodec(CodecConstants.CODEC_VERSION_FIXED));
+        assertArrayEquals(compact, writeDataCodec(CodecConstants.CODEC_VERSION_COMPACT));
+        assertMessage(DataCodec.readVersionedObject(new ObjectInputStream(new ByteArrayInputStream(compact))));
+    }
+
+    @Test
+    public void testVarInts() throws Exception {
+        int[] ints = {0, 1, -1, 63, -64, 64, 127, 128, 300, -300, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        long[] longs = {0, 1, -1, 1L << 35, -(1L << 35), Long.MAX_VALUE, Long.MIN_VALUE};
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        for (int i : ints) {
+            CodecUtil.writeSignedVarInt(baos, i);
+            CodecUtil.writeVarInt(baos, i);
+        }
+        for (long l : longs) {
+            CodecUtil.writeSignedVarLong(baos, l);
+            CodecUtil.writeVarLong(baos, l);
+        }
+        byte[] bytes = baos.toByteArray();
+
+        InputStream in = new ByteArrayInputStream(bytes);
+        DataInput din = new DataInputStream(new ByteArrayInputStream(bytes));
+        for (int i : ints) {
+            assertEquals(i, CodecUtil.readSignedVarInt(in));
+            assertEquals(i, CodecUtil.readVarInt(in));
+            assertEquals(i, DataCodec.readSignedVarInt(din));
+            assertEquals(i, DataCodec.readVarInt(din));
+        }
+        for (long l : longs) {
+            assertEquals(l, CodecUtil.readSignedVarLong(in));
+            assertEquals(l, CodecUtil.readVarLong(in));
+            assertEquals(l, DataCodec.readSignedVarLong(din));
+            assertEquals(l, DataCodec.readVarLong(din));
+        }
+        assertEquals(-1, in.read());
+
+        //Small values take one byte
+        baos.reset();
+        CodecUtil.writeSignedVarInt(baos, -1);
+        CodecUtil.writeSignedVarInt(baos, 63);
+        assertEquals(2, baos.size());
+    }
+
+    @Test
+    public void testVersion() throws Exception {
+        try {
+            CodecUtil.readVersion(new ByteArrayInputStream(new byte[]{9}));
+            fail("Unsupported");
+        }
+        catch (StreamCorruptedException sce) {
+        }
+        try {
+            CodecUtil.writeVersion(new java.io.ByteArrayOutputStream(), 3);
+            fail("Unsupported");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+        assertEquals(Arrays.asList(1, 2), Arrays.asList(CodecConstants.CODEC_VERSION_FIXED,
+                                                        CodecConstants.CODEC_VERSION_COMPACT));
+    }
+}
@@ -9,8 +9,12 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
+import java.io.Serializable;
+import java.util.Date;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author fengyun
@@ -239,6 +243,68 @@ public class FastObjectOutputStreamTest {
         return newObj;
     }
 
+    public static class Message implements Serializable {
+        private int id;
+        private String body;
+        private Date date;
+
+        public Message(int id, String body) {
+            this.id = id;
+            this.body = body;
+            this.date = new Date(id);
+        }
+    }
+
+    /**
+     * 每条消息之间reset，用ClassDictionary只在第一次传类名
+     */
+    private static byte[] writeMessages(ClassDictionary dictionary, int count) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        FastObjectOutputStream oos = new FastObjectOutputStream(baos, dictionary);
+        for (int i = 0; i < count; i++) {
+            oos.writeObject(new Message(i, "m" + i));
+            oos.reset();
+        }
+        oos.flush();
+        return baos.toByteArray();
+    }
+
+    private static void readMessages(byte[] bytes, ClassDictionary dictionary, int count) throws Exception {
+        FastObjectInputStream ois = new FastObjectInputStream(new java.io.ByteArrayInputStream(bytes), dictionary);
+        for (int i = 0; i < count; i++) {
+            Message message = (Message)ois.readObject();
+            assertEquals(i, message.id);
+            assertEquals("m" + i, message.body);
+            assertEquals(i, message.date.getTime());
+        }
+    }
+
+    @Test
+    public void testClassDictionary() throws Exception {
+        int count = 50;
+        byte[] plain = writeMessages(null, count);
+        readMessages(plain, null, count);
+
+        //Session ids only
+        byte[] session = writeMessages(new ClassDictionary(), count);
+        readMessages(session, new ClassDictionary(), count);
+        assertTrue(session.length < plain.length);
+
+        //Message is preregistered, Date gets a session id
+        byte[] registered = writeMessages(new ClassDictionary(Message.class), count);
+        readMessages(registered, new ClassDictionary(Message.class), count);
+        assertTrue(registered.length < session.length);
+
+        ClassDictionary dictionary = new ClassDictionary();
+        assertEquals(1, dictionary.register(Message.class));
+        assertEquals(2, dictionary.register(Date.class));
+        assertEquals(1, dictionary.register(Message.class.getName()));
+        assertEquals(2, dictionary.getId(Date.class.getName()));
+        assertEquals(0, dictionary.getId("none"));
+        assertEquals(Message.class.getName(), dictionary.getName(1));
+        assertNull(dictionary.getName(3));
+    }
+
 //    /**
 //     * 将对象串行化到ByteArrayOutputStream中，然后读回来
 //     *
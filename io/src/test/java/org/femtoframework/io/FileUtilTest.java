@@ -0,0 +1,301 @@
+package org.femtoframework.io;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试FileUtil的拷贝
+ */
+public class FileUtilTest
+{
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        dir = Files.createTempDirectory("femto_file").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        FileUtil.delete(dir);
+    }
+
+    private File create(String name, int size) throws Exception
+    {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        File file = new File(dir, name);
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    /**
+     * 测试分段传输
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testChunkedTransfer() throws Exception
+    {
+        File src = create("src.bin", 10000);
+        File dst = new File(dir, "dst.bin");
+        try (RandomAccessFile in = new RandomAccessFile(src, "r");
+             RandomAccessFile out = new RandomAccessFile(dst, "rw")) {
+            FileChannel fic = in.getChannel();
+            FileChannel foc = out.getChannel();
+            assertEquals(9000, FileTransfer.transferTo(fic, 1000, 9000, foc, 1024));
+            //The file ends before
+            assertEquals(0, FileTransfer.transferTo(fic, 10000, 100, foc, 1024));
+
+            assertEquals(1000, FileTransfer.transferFrom(Channels.newChannel(new ByteArrayInputStream(new byte[1000])),
+                                                         foc, 9000, 5000, 300));
+        }
+        byte[] expected = new byte[10000];
+        System.arraycopy(Files.readAllBytes(src.toPath()), 1000, expected, 0, 9000);
+        assertArrayEquals(expected, Files.readAllBytes(dst.toPath()));
+    }
+
+    /**
+     * 测试非阻塞的通道写满时返回已经传输的字节数
+     *
+     * @throws Exception
+     */
+    @Test(timeout = 10000)
+    public void testTransferToFullChannel() throws Exception
+    {
+        File src = create("src.bin", 10000);
+        final int[] accepted = new int[1];
+        WritableByteChannel full = new WritableByteChannel()
+        {
+            public int write(ByteBuffer src)
+            {
+                int n = Math.min(src.remaining(), 100 - accepted[0]);
+                src.position(src.position() + n);
+                accepted[0] += n;
+                return n;
+            }
+
+            public boolean isOpen()
+            {
+                return true;
+            }
+
+            public void close()
+            {
+            }
+        };
+        try (RandomAccessFile in = new RandomAccessFile(src, "r")) {
+            assertEquals(100, FileTransfer.transferTo(in.getChannel(), 0, 10000, full, 1024));
+        }
+    }
+
+    /**
+     * 测试文件之间的拷贝
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCopyTo() throws Exception
+    {
+        File small = create("small.bin", 100);
+        File large = create("large.bin", 200 * 1024);
+        byte[] largeBytes = Files.readAllBytes(large.toPath());
+
+        File copy = new File(dir, "small.copy");
+        FileUtil.copyTo(small, copy);
+        assertArrayEquals(Files.readAllBytes(small.toPath()), Files.readAllBytes(copy.toPath()));
+
+        copy = new File(dir, "large.copy");
+        FileUtil.copyTo(large, copy);
+        assertArrayEquals(largeBytes, Files.readAllBytes(copy.toPath()));
+
+        //Appends to the channel
+        try (RandomAccessFile raf = new RandomAccessFile(copy, "rw")) {
+            FileUtil.copyTo(small.getPath(), raf.getChannel());
+            assertEquals(largeBytes.length + 100, raf.length());
+        }
+
+        File sub = new File(dir, "sub");
+        File target = new File(dir, "target");
+        assertTrue(sub.mkdir() && target.mkdir());
+        FileUtil.copyTo(large, new File(sub, "large.bin"));
+        FileUtil.copyAll(sub, target);
+        assertArrayEquals(largeBytes, Files.readAllBytes(new File(target, "large.bin").toPath()));
+    }
+
+    /**
+     * 测试文件流和其它流的拷贝
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCopyStreams() throws Exception
+    {
+        File large = create("large.bin", 200 * 1024);
+        byte[] largeBytes = Files.readAllBytes(large.toPath());
+
+        //Continues from the position of the stream
+        File copy = new File(dir, "large.copy");
+        try (FileInputStream fis = new FileInputStream(large)) {
+            assertEquals(largeBytes[0] & 0xFF, fis.read());
+            FileUtil.copyTo(fis, copy);
+            assertEquals(-1, fis.read());
+        }
+        byte[] expected = new byte[largeBytes.length - 1];
+        System.arraycopy(largeBytes, 1, expected, 0, expected.length);
+        assertArrayEquals(expected, Files.readAllBytes(copy.toPath()));
+
+        //Not a file
+        File fromStream = new File(dir, "stream.copy");
+        FileUtil.copyTo(new ByteArrayInputStream(largeBytes), fromStream);
+        assertArrayEquals(largeBytes, Files.readAllBytes(fromStream.toPath()));
+
+        File toFile = new File(dir, "out.copy");
+        try (FileOutputStream fos = new FileOutputStream(toFile)) {
+            fos.write(7);
+            FileUtil.copyTo(large, fos);
+        }
+        assertEquals(largeBytes.length + 1, toFile.length());
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        FileUtil.copyTo(large, baos);
+        assertArrayEquals(largeBytes, baos.toByteArray());
+    }
+
+    /**
+     * 测试从管道拷贝，管道不能seek，走流拷贝
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCopyFromFifo() throws Exception
+    {
+        final File fifo = new File(dir, "fifo");
+        try {
+            Assume.assumeTrue(new ProcessBuilder("mkfifo", fifo.getPath()).start().waitFor() == 0);
+        }
+        catch (IOException ioe) {
+            Assume.assumeNoException(ioe);
+        }
+        final byte[] bytes = new byte[200 * 1024];
+        new Random(7).nextBytes(bytes);
+        Thread writer = new Thread()
+        {
+            public void run()
+            {
+                try (FileOutputStream fos = new FileOutputStream(fifo)) {
+                    fos.write(bytes);
+                }
+                catch (IOException ioe) {
+                    ioe.printStackTrace();
+                }
+            }
+        };
+        writer.start();
+        File copy = new File(dir, "fifo.copy");
+        try (FileInputStream fis = new FileInputStream(fifo)) {
+            FileUtil.copyTo(fis, copy);
+        }
+        writer.join(5000);
+        assertArrayEquals(bytes, Files.readAllBytes(copy.toPath()));
+    }
+
+    private File tree(String name) throws Exception
+    {
+        File root = new File(dir, name);
+        for (int i = 0; i < 4; i++) {
+            File sub = new File(root, "d" + i + "/inner");
+            assertTrue(sub.mkdirs());
+            for (int j = 0; j < 5; j++) {
+                Files.write(new File(sub, "f" + j + ".txt").toPath(), new byte[10]);
+            }
+            Files.write(new File(root, "f" + i + ".bin").toPath(), new byte[100]);
+        }
+        return root;
+    }
+
+    /**
+     * 测试并行拷贝
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelCopy() throws Exception
+    {
+        File src = tree("src");
+        File dst = new File(dir, "dst");
+        assertTrue(dst.mkdir());
+
+        ParallelFileWalker walker = new ParallelFileWalker(4);
+        walker.copyAll(src, dst);
+        assertEquals(24, walker.getFileCount());
+        assertEquals(8, walker.getDirectoryCount());
+        assertEquals(600, walker.getByteCount());
+        assertEquals(10, new File(dst, "d3/inner/f4.txt").length());
+
+        //Same pattern semantics as the sequential copy, only the first level is selected
+        File selected = new File(dir, "selected");
+        assertTrue(selected.mkdir());
+        FileUtil.copyTo(src, "d*", selected, 2);
+        assertFalse(new File(selected, "f0.bin").exists());
+        assertTrue(new File(selected, "d0/inner/f0.txt").exists());
+
+        //Errors are aggregated, the others are still copied
+        File conflict = new File(dir, "conflict");
+        assertTrue(conflict.mkdir());
+        Files.write(new File(conflict, "d0").toPath(), new byte[1]);
+        Files.write(new File(conflict, "d1").toPath(), new byte[1]);
+        try {
+            walker.copyAll(src, conflict);
+            fail("Conflicts");
+        }
+        catch (IOException ioe) {
+            assertEquals(2, walker.getErrorCount());
+            assertEquals(1, ioe.getSuppressed().length);
+        }
+        assertTrue(new File(conflict, "d2/inner/f0.txt").exists());
+    }
+
+    /**
+     * 测试并行删除和清除
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelDelete() throws Exception
+    {
+        File root = tree("root");
+        ParallelFileWalker walker = new ParallelFileWalker(3);
+        walker.clear(root);
+        assertTrue(root.isDirectory());
+        assertEquals(0, root.list().length);
+        assertEquals(24, walker.getFileCount());
+        assertEquals(8, walker.getDirectoryCount());
+
+        root = tree("again");
+        assertTrue(FileUtil.delete(root, 2));
+        assertFalse(root.exists());
+        assertTrue(FileUtil.delete(root, 2));
+        assertFalse(FileUtil.clear(root, 2));
+    }
+}
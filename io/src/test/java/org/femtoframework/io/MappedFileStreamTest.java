@@ -0,0 +1,149 @@
+package org.femtoframework.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试MappedFileInputStream和MappedFileOutputStream
+ */
+public class MappedFileStreamTest
+{
+    private File file;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        file = File.createTempFile("femto_mapped", ".bin");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        file.delete();
+    }
+
+    /**
+     * 测试跨窗口读写DataInput和DataOutput
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDataAcrossWindows() throws Exception
+    {
+        //An odd window size, values straddle the windows
+        try (MappedFileOutputStream out = new MappedFileOutputStream(file, false, 13)) {
+            for (int i = 0; i < 20; i++) {
+                out.writeInt(i);
+                out.writeLong(i * 1000000007L);
+                out.writeShort(i);
+                out.writeDouble(i / 3.0);
+                out.writeBoolean(i % 2 == 0);
+                out.writeUTF("第" + i);
+            }
+            out.write(new byte[100]);
+            out.force();
+        }
+
+        try (MappedFileInputStream in = new MappedFileInputStream(file, 17)) {
+            assertEquals(file.length(), in.length());
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i, in.readInt());
+                assertEquals(i * 1000000007L, in.readLong());
+                assertEquals(i, in.readShort());
+                assertEquals(i / 3.0, in.readDouble(), 0);
+                assertEquals(i % 2 == 0, in.readBoolean());
+                assertEquals("第" + i, in.readUTF());
+            }
+            byte[] tail = new byte[100];
+            in.readFully(tail);
+            assertEquals(-1, in.read());
+
+            //Seeks back into an earlier window
+            in.position(4);
+            assertEquals(0L, in.readLong());
+            in.mark(0);
+            assertEquals(0, in.readShort());
+            in.reset();
+            assertEquals(0, in.readShort());
+            in.close();
+            try {
+                in.read();
+                fail("Closed");
+            }
+            catch (IOException ioe) {
+            }
+        }
+    }
+
+    /**
+     * 测试按行读取和追加
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLines() throws Exception
+    {
+        try (MappedFileOutputStream out = new MappedFileOutputStream(file, false, 8)) {
+            out.write("first line\r\nsecond\r".getBytes(StandardCharsets.UTF_8));
+        }
+        //Appends after the data
+        try (MappedFileOutputStream out = new MappedFileOutputStream(file, true, 8)) {
+            out.write("\n中文行\n\nlast".getBytes(StandardCharsets.UTF_8));
+        }
+        try (MappedFileInputStream in = new MappedFileInputStream(file, 5)) {
+            assertEquals("first line", in.readLine(StandardCharsets.UTF_8));
+            assertEquals("second", in.readLine(StandardCharsets.UTF_8));
+            assertEquals("中文行", in.readLine(StandardCharsets.UTF_8));
+            assertEquals("", in.readLine());
+            assertEquals("last", in.readLine());
+            assertNull(in.readLine());
+        }
+
+        //Lines over the scan chunks, a CR at the end of a chunk
+        char[] a = new char[127];
+        char[] b = new char[20000];
+        Arrays.fill(a, 'a');
+        Arrays.fill(b, 'b');
+        try (MappedFileOutputStream out = new MappedFileOutputStream(file, false, 1024)) {
+            out.write((new String(a) + "\r\n" + new String(b) + "\nend").getBytes(StandardCharsets.UTF_8));
+        }
+        try (MappedFileInputStream in = new MappedFileInputStream(file)) {
+            assertEquals(new String(a), in.readLine());
+            assertEquals(new String(b), in.readLine());
+            assertEquals("end", in.readLine());
+            assertNull(in.readLine());
+        }
+    }
+
+    /**
+     * 测试FileReader和FileWriter的映射版本
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReaderWriter() throws Exception
+    {
+        try (Writer writer = FileWriter.mapped(file, false, StandardCharsets.UTF_8)) {
+            writer.write("你好\nworld\n");
+        }
+        assertEquals(13, file.length());
+        assertEquals("你好\nworld\n", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+
+        try (BufferedReader reader = new BufferedReader(FileReader.mapped(file, StandardCharsets.UTF_8))) {
+            assertEquals("你好", reader.readLine());
+            assertEquals("world", reader.readLine());
+            assertNull(reader.readLine());
+        }
+    }
+}
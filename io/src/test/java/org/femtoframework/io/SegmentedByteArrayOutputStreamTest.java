@@ -0,0 +1,206 @@
+package org.femtoframework.io;
+
+import org.femtoframework.nio.ByteBufferPool;
+import org.femtoframework.util.PoolStats;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试SegmentedByteArrayOutputStream
+ */
+public class SegmentedByteArrayOutputStreamTest
+{
+    private static byte[] random(int size)
+    {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testWrite() throws Exception
+    {
+        byte[] bytes = random(3 * 1024 * 1024 + 17);
+        SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream(ByteBufferPool.SIZE_32K);
+        out.write(bytes[0]);
+        out.write(bytes, 1, 100);
+        Random random = new Random(3);
+        int off = 101;
+        while (off < bytes.length) {
+            int len = Math.min(bytes.length - off, random.nextInt(50000));
+            out.write(bytes, off, len);
+            off += len;
+        }
+        assertEquals(bytes.length, out.size());
+        assertEquals(bytes.length / ByteBufferPool.SIZE_32K + 1, out.getSegmentCount());
+        assertArrayEquals(bytes, out.toByteArray());
+
+        java.io.ByteArrayOutputStream copy = new java.io.ByteArrayOutputStream();
+        out.writeTo(copy);
+        assertArrayEquals(bytes, copy.toByteArray());
+
+        //The InputStream walks the segments
+        InputStream in = out.getInputStream();
+        assertEquals(bytes.length, in.available());
+        assertEquals(bytes[0] & 0xFF, in.read());
+        assertEquals(10, in.skip(10));
+        byte[] read = new byte[bytes.length];
+        int n = IOUtil.readFully(in, read, 11, read.length - 11);
+        assertEquals(bytes.length - 11, n);
+        assertEquals(-1, in.read());
+        System.arraycopy(bytes, 0, read, 0, 11);
+        assertArrayEquals(bytes, read);
+        out.close();
+    }
+
+    @Test
+    public void testChannel() throws Exception
+    {
+        byte[] bytes = random(100000);
+        SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream();
+        out.write(bytes);
+        ByteBuffer[] buffers = out.toReadOnlyBuffers();
+        assertEquals(13, buffers.length);
+        assertTrue(buffers[0].isReadOnly());
+
+        Path path = Files.createTempFile("femto_segmented", ".bin");
+        try {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                assertEquals(bytes.length, out.writeTo(channel));
+            }
+            assertArrayEquals(bytes, Files.readAllBytes(path));
+        }
+        finally {
+            Files.delete(path);
+        }
+        out.close();
+        try {
+            out.write(1);
+            fail("Closed");
+        }
+        catch (IllegalStateException ise) {
+        }
+    }
+
+    /**
+     * Accepts at most limit bytes per call, like a non-blocking channel with a full socket buffer
+     */
+    private static class PartialChannel implements GatheringByteChannel
+    {
+        private final java.io.ByteArrayOutputStream received = new java.io.ByteArrayOutputStream();
+
+        private final int limit;
+
+        PartialChannel(int limit)
+        {
+            this.limit = limit;
+        }
+
+        public long write(ByteBuffer[] srcs, int offset, int length)
+        {
+            int written = 0;
+            for (int i = offset; i < offset + length && written < limit; i++) {
+                while (srcs[i].hasRemaining() && written < limit) {
+                    received.write(srcs[i].get());
+                    written++;
+                }
+            }
+            return written;
+        }
+
+        public long write(ByteBuffer[] srcs)
+        {
+            return write(srcs, 0, srcs.length);
+        }
+
+        public int write(ByteBuffer src)
+        {
+            return (int)write(new ByteBuffer[]{src});
+        }
+
+        public boolean isOpen()
+        {
+            return true;
+        }
+
+        public void close()
+        {
+        }
+    }
+
+    @Test
+    public void testPartialChannelWrite() throws Exception
+    {
+        byte[] bytes = random(30000);
+        SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream();
+        out.write(bytes, 0, 20000);
+        PartialChannel channel = new PartialChannel(7000)
+        {
+            private boolean full;
+
+            public long write(ByteBuffer[] srcs, int offset, int length)
+            {
+                //Every other call the socket buffer is full
+                full = !full;
+                return full ? super.write(srcs, offset, length) : 0;
+            }
+        };
+        assertEquals(7000, out.writeTo(channel));
+        assertEquals(13000, out.getChannelRemaining());
+        assertEquals(7000, out.writeTo(channel));
+        out.write(bytes, 20000, 10000);
+        assertEquals(7000, out.writeTo(channel));
+        assertEquals(7000, out.writeTo(channel));
+        assertEquals(2000, out.writeTo(channel));
+        assertEquals(0, out.getChannelRemaining());
+        assertEquals(0, out.writeTo(channel));
+        assertArrayEquals(bytes, channel.received.toByteArray());
+
+        out.reset();
+        out.write(bytes, 0, 100);
+        PartialChannel all = new PartialChannel(Integer.MAX_VALUE);
+        assertEquals(100, out.writeTo(all));
+        assertEquals(100, all.received.size());
+        out.close();
+    }
+
+    @Test
+    public void testReset() throws Exception
+    {
+        PoolStats stats = ByteBufferPool.getStats(ByteBufferPool.SIZE_8192);
+        long returned = stats.getRecycles() + stats.getDrops();
+        SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream();
+        out.write(random(20000));
+        assertEquals(3, out.getSegmentCount());
+        out.reset();
+        assertEquals(0, out.size());
+        assertEquals(0, out.getSegmentCount());
+        assertEquals(returned + 3, stats.getRecycles() + stats.getDrops());
+
+        out.write("abc".getBytes());
+        assertEquals("abc", out.toString());
+        assertEquals("abc", out.toString("UTF-8"));
+        ByteData data = out;
+        java.io.ByteArrayOutputStream copy = new java.io.ByteArrayOutputStream();
+        data.writeTo(copy);
+        assertEquals("abc", copy.toString());
+
+        try {
+            new SegmentedByteArrayOutputStream(1000);
+            fail("No pool");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+    }
+}
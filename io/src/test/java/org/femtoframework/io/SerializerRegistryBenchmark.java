@@ -0,0 +1,60 @@
+package org.femtoframework.io;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * SerializerRegistry的速度和字节数，只在benchmark profile中运行
+ */
+public class SerializerRegistryBenchmark {
+
+    @BeforeClass
+    public static void register() {
+        SerializerRegistryTest.register();
+    }
+
+    @AfterClass
+    public static void unregister() {
+        SerializerRegistryTest.unregister();
+    }
+
+    /**
+     * 和JDK串行化以及没有注册时的CodecUtil比较
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        SerializerRegistryTest.Order order = new SerializerRegistryTest.Order(12345);
+        int times = 20000;
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            int jdkBytes = 0;
+            for (int i = 0; i < times; i++) {
+                jdkBytes = SerializerRegistryTest.writeJdk(order);
+            }
+            long jdk = System.nanoTime() - start;
+
+            SerializerRegistry.unregister(SerializerRegistryTest.Order.class);
+            SerializerRegistry.unregister(SerializerRegistryTest.Address.class);
+            start = System.nanoTime();
+            int fallbackBytes = 0;
+            for (int i = 0; i < times; i++) {
+                fallbackBytes = SerializerRegistryTest.writeCodec(order);
+            }
+            long fallback = System.nanoTime() - start;
+            SerializerRegistryTest.register();
+
+            start = System.nanoTime();
+            int registeredBytes = 0;
+            for (int i = 0; i < times; i++) {
+                registeredBytes = SerializerRegistryTest.writeCodec(order);
+            }
+            long registered = System.nanoTime() - start;
+            if (pass == 1) {
+                System.out.println("JDK:" + jdk / 1000000 + "ms " + jdkBytes + " bytes, CodecUtil fallback:"
+                                   + fallback / 1000000 + "ms " + fallbackBytes + " bytes, registered:"
+                                   + registered / 1000000 + "ms " + registeredBytes + " bytes");
+            }
+        }
+    }
+}
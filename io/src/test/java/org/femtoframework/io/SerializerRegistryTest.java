@@ -0,0 +1,259 @@
+package org.femtoframework.io;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试SerializerRegistry，并和JDK串行化比较
+ */
+public class SerializerRegistryTest {
+
+    public static class Address implements Serializable {
+        private String city;
+        private int zip;
+
+        public Address() {
+        }
+
+        public Address(String city, int zip) {
+            this.city = city;
+            this.zip = zip;
+        }
+    }
+
+    public static class Order implements Serializable {
+        private long id;
+        private String customer;
+        private double amount;
+        private boolean paid;
+        private char status;
+        private short items;
+        private byte priority;
+        private float discount;
+        private Address address;
+        private List<String> tags;
+        private transient int cached;
+
+        private Order() {
+        }
+
+        public Order(long id) {
+            this.id = id;
+            this.customer = "customer" + id;
+            this.amount = id * 1.5;
+            this.paid = id % 2 == 0;
+            this.status = 'N';
+            this.items = (short)id;
+            this.priority = (byte)id;
+            this.discount = 0.1f;
+            this.address = new Address("city" + id, (int)id);
+            this.tags = new ArrayList<>();
+            tags.add("rpc");
+            this.cached = 7;
+        }
+    }
+
+    public static class Point implements Streamable {
+        private int x;
+        private int y;
+
+        public Point() {
+        }
+
+        public Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public void writeTo(OutputStream oos) throws IOException {
+            CodecUtil.writeInt(oos, x);
+            CodecUtil.writeInt(oos, y);
+        }
+
+        public void readFrom(InputStream ois) throws IOException {
+            x = CodecUtil.readInt(ois);
+            y = CodecUtil.readInt(ois);
+        }
+    }
+
+    public static class Node {
+        private String name;
+        private Node left;
+        private Node right;
+
+        public Node() {
+        }
+
+        public Node(String name) {
+            this.name = name;
+        }
+    }
+
+    @BeforeClass
+    public static void register() {
+        SerializerRegistry.register(Order.class, 1001);
+        SerializerRegistry.register(Address.class, 1002);
+        SerializerRegistry.register(Point.class, 1003);
+        SerializerRegistry.register(Node.class, 1004);
+    }
+
+    @AfterClass
+    public static void unregister() {
+        SerializerRegistry.unregister(Order.class);
+        SerializerRegistry.unregister(Address.class);
+        SerializerRegistry.unregister(Point.class);
+        SerializerRegistry.unregister(Node.class);
+    }
+
+    private static void assertOrder(Order expected, Object object) {
+        Order order = (Order)object;
+        assertEquals(expected.id, order.id);
+        assertEquals(expected.customer, order.customer);
+        assertEquals(expected.amount, order.amount, 0);
+        assertEquals(expected.paid, order.paid);
+        assertEquals(expected.status, order.status);
+        assertEquals(expected.items, order.items);
+        assertEquals(expected.priority, order.priority);
+        assertEquals(expected.discount, order.discount, 0);
+        assertEquals(expected.address.city, order.address.city);
+        assertEquals(expected.address.zip, order.address.zip);
+        assertEquals(expected.tags, order.tags);
+        assertEquals(0, order.cached);
+    }
+
+    @Test
+    public void testCodecUtil() throws Exception {
+        Order order = new Order(42);
+        order.customer = null;
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        CodecUtil.writeObject(oos, order);
+        CodecUtil.writeObject(oos, new Point(3, 4));
+        CodecUtil.writeObject(oos, new Object[]{new Address("a", 1), "b"});
+        oos.flush();
+
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        assertOrder(order, CodecUtil.readObject(ois));
+        Point point = (Point)CodecUtil.readObject(ois);
+        assertEquals(3, point.x);
+        assertEquals(4, point.y);
+        Object[] array = (Object[])CodecUtil.readObject(ois);
+        assertEquals("a", ((Address)array[0]).city);
+        assertEquals("b", array[1]);
+    }
+
+    @Test
+    public void testDataCodec() throws Exception {
+        Order order = new Order(7);
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        DataCodec.writeObject(oos, order);
+        DataCodec.writeObject(oos, new Point(5, 6));
+        oos.flush();
+
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        assertOrder(order, DataCodec.readObject(ois));
+        assertEquals(6, ((Point)DataCodec.readObject(ois)).y);
+    }
+
+    @Test
+    public void testRegistration() throws Exception {
+        assertEquals(1001, SerializerRegistry.getId(Order.class));
+        assertEquals(0, SerializerRegistry.getId(String.class));
+        assertTrue(SerializerRegistry.getSerializer(Order.class) instanceof FieldSerializer);
+        assertEquals(10, ((FieldSerializer)SerializerRegistry.getSerializer(Order.class)).getFieldCount());
+        try {
+            SerializerRegistry.register(Thread.State.class, 1001);
+            fail("Id is used");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+        try {
+            new FieldSerializer<>(Integer.class);
+            fail("Final fields");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+    }
+
+    /**
+     * 共享引用读回来是两个对象，循环引用写出时抛出IOException
+     */
+    @Test
+    public void testGraph() throws Exception {
+        Node root = new Node("root");
+        Node shared = new Node("shared");
+        root.left = shared;
+        root.right = shared;
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        DataCodec.writeObject(oos, root);
+        oos.flush();
+        Node copy = (Node)DataCodec.readObject(new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())));
+        assertEquals("shared", copy.left.name);
+        assertEquals("shared", copy.right.name);
+        assertNotSame(copy.left, copy.right);
+
+        shared.left = root;
+        for (int i = 0; i < 2; i++) {
+            oos = new ObjectOutputStream(new java.io.ByteArrayOutputStream());
+            try {
+                if (i == 0) {
+                    DataCodec.writeObject(oos, root);
+                }
+                else {
+                    CodecUtil.writeObject(oos, root);
+                }
+                fail("Cyclic reference");
+            }
+            catch (IOException expected) {
+            }
+        }
+
+        shared.left = null;
+        oos = new ObjectOutputStream(new java.io.ByteArrayOutputStream());
+        CodecUtil.writeObject(oos, root);
+    }
+
+    static int writeJdk(Order order) throws IOException {
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(order);
+        oos.flush();
+        return baos.size();
+    }
+
+    static int writeCodec(Order order) throws IOException {
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        CodecUtil.writeObject(oos, order);
+        oos.flush();
+        return baos.size();
+    }
+
+    /**
+     * 注册以后比JDK串行化和没有注册时的CodecUtil都小
+     */
+    @Test
+    public void testSize() throws Exception {
+        Order order = new Order(12345);
+        int registeredBytes = writeCodec(order);
+        SerializerRegistry.unregister(Order.class);
+        SerializerRegistry.unregister(Address.class);
+        try {
+            int fallbackBytes = writeCodec(order);
+            assertTrue(registeredBytes < fallbackBytes);
+        }
+        finally {
+            register();
+        }
+        assertTrue(registeredBytes < writeJdk(order));
+    }
+}
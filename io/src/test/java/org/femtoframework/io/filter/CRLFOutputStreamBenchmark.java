@@ -0,0 +1,51 @@
+package org.femtoframework.io.filter;
+
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * CRLFOutputStream的吞吐量，只在benchmark profile中运行
+ */
+public class CRLFOutputStreamBenchmark
+{
+    /**
+     * 多MB的吞吐量，只打印时间
+     */
+    @Test
+    public void testThroughput() throws Exception
+    {
+        Random random = new Random(23);
+        byte[] crlf = CRLFOutputStreamTest.payload(4 * 1024 * 1024, random, true);
+        byte[] mixed = CRLFOutputStreamTest.payload(4 * 1024 * 1024, random, false);
+        OutputStream sink = new OutputStream()
+        {
+            public void write(int b)
+            {
+            }
+
+            public void write(byte[] b, int off, int len)
+            {
+            }
+        };
+        for (int pass = 0; pass < 2; pass++) {
+            for (byte[] bytes : new byte[][]{crlf, mixed}) {
+                int rounds = 10;
+                CRLFOutputStream out = new CRLFOutputStream(sink);
+                long start = System.nanoTime();
+                for (int r = 0; r < rounds; r++) {
+                    for (int off = 0; off < bytes.length; off += 8192) {
+                        out.write(bytes, off, Math.min(8192, bytes.length - off));
+                    }
+                }
+                long time = Math.max(1, System.nanoTime() - start);
+                if (pass == 1) {
+                    System.out.println((bytes == crlf ? "CRLF" : "Mixed") + " payload " + rounds * bytes.length / 1024 / 1024
+                                       + "MB, " + time / 1000000 + "ms, "
+                                       + (long)rounds * bytes.length * 1000L / time + "MB/s");
+                }
+            }
+        }
+    }
+}
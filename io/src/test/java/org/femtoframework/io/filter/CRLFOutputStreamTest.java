@@ -0,0 +1,135 @@
+package org.femtoframework.io.filter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试CRLFOutputStream
+ */
+public class CRLFOutputStreamTest
+{
+    /**
+     * Counts the calls to the wrapped stream
+     */
+    private static class CountingOutputStream extends ByteArrayOutputStream
+    {
+        int calls;
+
+        CountingOutputStream(int size)
+        {
+            super(size);
+        }
+
+        public synchronized void write(int b)
+        {
+            calls++;
+            super.write(b);
+        }
+
+        public synchronized void write(byte[] b, int off, int len)
+        {
+            calls++;
+            super.write(b, off, len);
+        }
+
+        public void write(byte[] b) throws IOException
+        {
+            write(b, 0, b.length);
+        }
+    }
+
+    /**
+     * The byte at a time conversion
+     */
+    private static byte[] expected(byte[] bytes)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 2);
+        int last = -1;
+        for (byte b : bytes) {
+            if (b == '\r') {
+                out.write('\r');
+                out.write('\n');
+            }
+            else if (b == '\n') {
+                if (last != '\r') {
+                    out.write('\r');
+                    out.write('\n');
+                }
+            }
+            else {
+                out.write(b);
+            }
+            last = b;
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] payload(int size, Random random, boolean crlfOnly)
+    {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            int r = random.nextInt(80);
+            if (r == 0) {
+                if (crlfOnly && i + 1 < size) {
+                    bytes[i++] = '\r';
+                    bytes[i] = '\n';
+                }
+                else {
+                    bytes[i] = '\r';
+                }
+            }
+            else if (r == 1 && !crlfOnly) {
+                bytes[i] = '\n';
+            }
+            else {
+                bytes[i] = (byte)(' ' + random.nextInt(90));
+            }
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testConversion() throws Exception
+    {
+        Random random = new Random(19);
+        for (int round = 0; round < 50; round++) {
+            byte[] bytes = payload(1000 + random.nextInt(1000), random, round % 2 == 0);
+            //Chunks split CRLF pairs at random places
+            CountingOutputStream target = new CountingOutputStream(bytes.length * 2);
+            CRLFOutputStream out = new CRLFOutputStream(target);
+            int off = 0;
+            while (off < bytes.length) {
+                int len = Math.min(bytes.length - off, random.nextInt(40));
+                if (len == 1 && round % 3 == 0) {
+                    out.write(bytes[off]);
+                }
+                else {
+                    out.write(bytes, off, len);
+                }
+                off += len;
+            }
+            assertArrayEquals(expected(bytes), target.toByteArray());
+        }
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        CRLFOutputStream out = new CRLFOutputStream(target);
+        out.write("a\rb\nc\r\n\n\r\r".getBytes());
+        assertEquals("a\r\nb\r\nc\r\n\r\n\r\n\r\n", target.toString());
+    }
+
+    @Test
+    public void testRunsNotSplit() throws Exception
+    {
+        byte[] bytes = payload(64 * 1024, new Random(7), true);
+        CountingOutputStream target = new CountingOutputStream(bytes.length);
+        new CRLFOutputStream(target).write(bytes);
+        //Already CRLF, one call
+        assertEquals(1, target.calls);
+        assertArrayEquals(bytes, target.toByteArray());
+    }
+}
@@ -0,0 +1,84 @@
+package org.femtoframework.io.filter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ByteScanner和LineInputStream的扫描速度，只在benchmark profile中运行
+ * <p/>
+ * It runs on target/classes, so it times the per-byte ByteScanner on every JDK, the word scan of the JDK 21
+ * layer is only in the packaged jar.
+ */
+public class LineInputStreamBenchmark
+{
+    /**
+     * The per-byte loop which LineInputStream had before
+     */
+    private static int perByte(byte[] bytes, int from, int to)
+    {
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 和逐字节扫描的比较，只打印时间
+     */
+    @Test
+    public void testScanBenchmark() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("Received: from relay").append(i).append(".example.com by gateway with ESMTP id ").append(i)
+              .append("\r\n");
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+        int rounds = 200;
+        long lines = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                int i = 0;
+                int end;
+                while ((end = perByte(bytes, i, bytes.length)) >= 0) {
+                    i = end + 1;
+                    lines++;
+                }
+            }
+            long perByte = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                int i = 0;
+                int end;
+                while ((end = ByteScanner.indexOfLineEnd(bytes, i, bytes.length)) >= 0) {
+                    i = end + 1;
+                    lines--;
+                }
+            }
+            long swar = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < rounds / 10; r++) {
+                LineInputStream lis = new LineInputStream(new ByteArrayInputStream(bytes), 8192);
+                while (lis.readLineBuffer() != null) {
+                }
+            }
+            long stream = System.nanoTime() - start;
+            if (pass == 1) {
+                System.out.println("Scan " + bytes.length * rounds + " bytes, per-byte:" + perByte / 1000000
+                                   + "ms, ByteScanner:" + swar / 1000000
+                                   + "ms, readLineBuffer " + rounds / 10 + " rounds:" + stream / 1000000 + "ms");
+            }
+        }
+        assertEquals(0, lines);
+    }
+}
@@ -0,0 +1,238 @@
+package org.femtoframework.io.filter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试LineInputStream和ByteScanner
+ */
+public class LineInputStreamTest
+{
+    /**
+     * Gives out a few bytes each time, lines and CRLF straddle the reads
+     */
+    private static class TrickleInputStream extends ByteArrayInputStream
+    {
+        TrickleInputStream(byte[] bytes)
+        {
+            super(bytes);
+        }
+
+        public synchronized int read(byte[] b, int off, int len)
+        {
+            return super.read(b, off, Math.min(len, 3));
+        }
+    }
+
+    private static byte[] bytes(String s)
+    {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testReadLine() throws Exception
+    {
+        String text = "first\r\nsecond\rthird\n\nlong line over the buffer size\r\r\nlast";
+        for (InputStream in : new InputStream[]{new ByteArrayInputStream(bytes(text)),
+            new TrickleInputStream(bytes(text))}) {
+            LineInputStream lis = new LineInputStream(in, 4);
+            assertEquals("first", lis.readLine());
+            assertEquals("second", lis.readLine());
+            assertEquals("third", lis.readLine());
+            assertEquals("", lis.readLine());
+            assertEquals("long line over the buffer size", lis.readLine());
+            assertEquals("", lis.readLine());
+            assertEquals("last", lis.readLine());
+            assertNull(lis.readLine());
+        }
+
+        //Ends with a lone CR
+        LineInputStream lis = new LineInputStream(new TrickleInputStream(bytes("a\r")));
+        assertEquals("a", lis.readLine());
+        assertNull(lis.readLine());
+    }
+
+    @Test
+    public void testMarkReset() throws Exception
+    {
+        String text = "first\r\nsecond line\nthird";
+        for (InputStream in : new InputStream[]{new ByteArrayInputStream(bytes(text)),
+            new TrickleInputStream(bytes(text))}) {
+            LineInputStream lis = new LineInputStream(in, 4);
+            assertTrue(lis.markSupported());
+            try {
+                lis.reset();
+                fail("No mark");
+            }
+            catch (IOException ioe) {
+                //Expected
+            }
+            lis.mark(100);
+            assertEquals("first", lis.readLine());
+            assertEquals("second line", lis.readLine());
+            lis.reset();
+            assertEquals('f', lis.read());
+            assertEquals("irst", lis.readLine());
+
+            //Mark at the end of the buffer, the bytes after it come through the buffer
+            lis.mark(100);
+            byte[] b = new byte[20];
+            int n = 0;
+            int read;
+            while ((read = lis.read(b, n, b.length - n)) > 0) {
+                n += read;
+            }
+            assertEquals("second line\nthird", new String(b, 0, n, StandardCharsets.ISO_8859_1));
+            lis.reset();
+            assertEquals(7, lis.skip(7));
+            assertEquals("line", lis.readLine());
+            assertEquals("third", lis.readLine());
+            assertNull(lis.readLine());
+        }
+
+        //Reading more than readLimit drops the mark
+        LineInputStream lis = new LineInputStream(new ByteArrayInputStream(new byte[64]), 4);
+        lis.mark(4);
+        byte[] b = new byte[64];
+        int n = 0;
+        int read;
+        while ((read = lis.read(b, n, b.length - n)) > 0) {
+            n += read;
+        }
+        assertEquals(64, n);
+        try {
+            lis.reset();
+            fail("Mark dropped");
+        }
+        catch (IOException ioe) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void testReadLineBuffer() throws Exception
+    {
+        LineInputStream lis = new LineInputStream(new ByteArrayInputStream(bytes("HELO example\r\nbody")));
+        ByteBuffer line = lis.readLineBuffer();
+        assertTrue(line.isReadOnly());
+        assertEquals("HELO example", StandardCharsets.ISO_8859_1.decode(line).toString());
+
+        //The rest comes out of the read ahead buffer
+        byte[] b = new byte[10];
+        assertEquals(4, lis.read(b, 0, b.length));
+        assertEquals("body", new String(b, 0, 4, StandardCharsets.ISO_8859_1));
+        assertEquals(-1, lis.read());
+        assertNull(lis.readLineBuffer());
+    }
+
+    @Test
+    public void testScanner() throws Exception
+    {
+        Random random = new Random(17);
+        byte[] bytes = new byte[200];
+        for (int round = 0; round < 500; round++) {
+            random.nextBytes(bytes);
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\r' || bytes[i] == '\n' || bytes[i] == 0x7F) {
+                    bytes[i] = 'x';
+                }
+            }
+            int from = random.nextInt(20);
+            int to = from + random.nextInt(bytes.length - from);
+            int at = -1;
+            if (round % 5 != 0 && to > from) {
+                at = from + random.nextInt(to - from);
+                bytes[at] = round % 2 == 0 ? (byte)'\r' : (byte)'\n';
+                //Only the first one counts
+                if (at + 1 < to) {
+                    bytes[at + 1 + random.nextInt(to - at - 1)] = '\n';
+                }
+            }
+            int expected = at;
+            for (int i = from; i < to; i++) {
+                if (bytes[i] == '\r' || bytes[i] == '\n') {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, ByteScanner.indexOfLineEnd(bytes, from, to));
+            assertEquals(expected < 0 ? -1 : expected, firstIndexOf(bytes, from, to, bytes[Math.max(expected, 0)],
+                                                                    expected));
+        }
+        //Bytes with the high bit, and 0x80 after a match
+        byte[] high = new byte[]{(byte)0xFF, (byte)0x80, 0x00, (byte)0x8A, 0x0A, (byte)0x80, 1, 2, 3};
+        assertEquals(4, ByteScanner.indexOfLineEnd(high, 0, high.length));
+        assertEquals(2, ByteScanner.indexOf(high, 0, high.length, (byte)0));
+        assertEquals(1, ByteScanner.indexOf(high, 0, high.length, (byte)0x80));
+        assertEquals(-1, ByteScanner.indexOf(high, 0, high.length, (byte)0x7F));
+    }
+
+    /**
+     * 测试多版本jar中的JDK 21实现
+     * <p/>
+     * femto.multiRelease只在jdk21 profile用打包好的jar测试时设置，target/classes里只有逐字节的实现
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMultiReleaseLayer() throws Exception
+    {
+        boolean wordScan;
+        try {
+            ByteScanner.class.getDeclaredField("LONGS");
+            wordScan = true;
+        }
+        catch (NoSuchFieldException e) {
+            wordScan = false;
+        }
+        assertEquals(Boolean.getBoolean("femto.multiRelease"), wordScan);
+    }
+
+    /**
+     * 测试超出数组范围
+     */
+    @Test
+    public void testScanBounds() throws Exception
+    {
+        byte[] bytes = new byte[12];
+        int[][] ranges = {{-1, 4}, {0, 13}, {8, 4}, {4, 20}};
+        for (int[] range : ranges) {
+            try {
+                ByteScanner.indexOfLineEnd(bytes, range[0], range[1]);
+                fail("IndexOutOfBoundsException expected");
+            }
+            catch (IndexOutOfBoundsException expected) {
+            }
+            try {
+                ByteScanner.indexOf(bytes, range[0], range[1], (byte)1);
+                fail("IndexOutOfBoundsException expected");
+            }
+            catch (IndexOutOfBoundsException expected) {
+            }
+        }
+        assertEquals(-1, ByteScanner.indexOf(bytes, 12, 12, (byte)0));
+    }
+
+    private static int firstIndexOf(byte[] bytes, int from, int to, byte value, int expected)
+    {
+        if (expected < 0) {
+            return -1;
+        }
+        int found = ByteScanner.indexOf(bytes, from, to, value);
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                assertEquals(i, found);
+                break;
+            }
+        }
+        return found;
+    }
+}
@@ -34,6 +34,15 @@ public interface CodecConstants
     int TYPE_OBJECT_ARRAY = 17;
     int TYPE_EXTERNALIZABLE = 18;
 
+    //SerializerRegistry中注册的类，后面是编号
+    int TYPE_SERIALIZER = 19;
+
+    //编码版本，定长的大端整数
+    int CODEC_VERSION_FIXED = 1;
+
+    //编码版本，长度和整数用ZigZag变长格式
+    int CODEC_VERSION_COMPACT = 2;
+
     int MAX_ARRAY_LENGTH = 64 * 1024;
     int MAX_STRING_LENGTH = 1024 * 1024;
 
@@ -0,0 +1,434 @@
+package org.femtoframework.io;
+
+import org.femtoframework.lang.reflect.Reflection;
+import org.femtoframework.util.DataUtil;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 直接从ByteBuffer读取的解码器，格式与CodecUtil相同
+ * <p/>
+ * It reads from the position to the limit of a heap or direct buffer, each primitive checks the remaining
+ * bytes once and throws EOFException when the data is cut, lengths are checked against the remaining bytes
+ * before anything is allocated. The buffer is set to big-endian.
+ * <p/>
+ * #readObject reads the built-in types of CodecUtil#readObject, the types which need an ObjectInputStream
+ * (TYPE_OBJECT, TYPE_STREAMABLE and TYPE_SERIALIZER, the registered serializers) throw StreamCorruptedException.
+ *
+ * @see CodecWriter
+ * @see CodecUtil
+ */
+public class CodecReader implements CodecConstants
+{
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer 要读的数据，从position到limit
+     */
+    public CodecReader(ByteBuffer buffer)
+    {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    public ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * 剩下的字节数
+     *
+     * @return int
+     */
+    public int remaining()
+    {
+        return buffer.remaining();
+    }
+
+    private ByteBuffer ensure(int n) throws EOFException
+    {
+        if (buffer.remaining() < n) {
+            throw new EOFException("Need " + n + " bytes, remaining:" + buffer.remaining());
+        }
+        return buffer;
+    }
+
+    public int readType() throws IOException
+    {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    public byte readByte() throws IOException
+    {
+        return ensure(1).get();
+    }
+
+    public int readUnsignedByte() throws IOException
+    {
+        return ensure(1).get() & 0xFF;
+    }
+
+    public boolean readBoolean() throws IOException
+    {
+        return ensure(1).get() != 0;
+    }
+
+    public char readChar() throws IOException
+    {
+        return ensure(2).getChar();
+    }
+
+    public short readShort() throws IOException
+    {
+        return ensure(2).getShort();
+    }
+
+    public int readUnsignedShort() throws IOException
+    {
+        return ensure(2).getShort() & 0xFFFF;
+    }
+
+    public int readInt() throws IOException
+    {
+        return ensure(4).getInt();
+    }
+
+    public long readUnsignedInt() throws IOException
+    {
+        return ensure(4).getInt() & 0xFFFFFFFFL;
+    }
+
+    public long readLong() throws IOException
+    {
+        return ensure(8).getLong();
+    }
+
+    public float readFloat() throws IOException
+    {
+        return ensure(4).getFloat();
+    }
+
+    public double readDouble() throws IOException
+    {
+        return ensure(8).getDouble();
+    }
+
+    public int readVarInt() throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = ensure(1).get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length int");
+    }
+
+    public long readVarLong() throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = ensure(1).get();
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length long");
+    }
+
+    public int readSignedVarInt() throws IOException
+    {
+        int i = readVarInt();
+        return (i >>> 1) ^ -(i & 1);
+    }
+
+    public long readSignedVarLong() throws IOException
+    {
+        long l = readVarLong();
+        return (l >>> 1) ^ -(l & 1);
+    }
+
+    private int readLength(boolean compact) throws IOException
+    {
+        return compact ? readSignedVarInt() : readInt();
+    }
+
+    /**
+     * 与CodecUtil#readVersion相同
+     */
+    public int readVersion() throws IOException
+    {
+        int version = readUnsignedByte();
+        if (version != CODEC_VERSION_FIXED && version != CODEC_VERSION_COMPACT) {
+            throw new StreamCorruptedException("Unsupported codec version:" + version);
+        }
+        return version;
+    }
+
+    /**
+     * 读取指定数量的字节，没有长度
+     */
+    public void readFully(byte[] bytes, int off, int len) throws IOException
+    {
+        ensure(len).get(bytes, off, len);
+    }
+
+    public byte[] readBytes() throws IOException
+    {
+        return readBytes(false);
+    }
+
+    public byte[] readBytes(boolean compact) throws IOException
+    {
+        int len = readLength(compact);
+        if (len < 0) {
+            return null;
+        }
+        ByteBuffer buffer = ensure(len);
+        byte[] bytes = new byte[len];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 读取带长度的字节，返回Buffer中的只读视图，不复制
+     *
+     * @return ByteBuffer，<code>null</code>时返回<code>null</code>
+     */
+    public ByteBuffer readByteBuffer() throws IOException
+    {
+        int len = readInt();
+        if (len < 0) {
+            return null;
+        }
+        ByteBuffer slice = ensure(len).slice();
+        slice.limit(len);
+        buffer.position(buffer.position() + len);
+        return slice.asReadOnlyBuffer();
+    }
+
+    public char[] readChars() throws IOException
+    {
+        return readChars(false);
+    }
+
+    public char[] readChars(boolean compact) throws IOException
+    {
+        int len = readLength(compact);
+        if (len < 0) {
+            return null;
+        }
+        else if (len > MAX_STRING_LENGTH) {
+            throw new IOException("The length of chars is so big");
+        }
+        ByteBuffer buffer = ensure(len * 2);
+        char[] chars = new char[len];
+        buffer.asCharBuffer().get(chars);
+        buffer.position(buffer.position() + len * 2);
+        return chars;
+    }
+
+    public String readString() throws IOException
+    {
+        return readString(false);
+    }
+
+    /**
+     * 与CodecUtil#readString相同，每个字符两个字节
+     */
+    public String readString(boolean compact) throws IOException
+    {
+        int len = readLength(compact);
+        if (len < 0) {
+            return null;
+        }
+        else if (len == 0) {
+            return "";
+        }
+        else if (len > MAX_STRING_LENGTH) {
+            throw new IOException("The string length is so big");
+        }
+        char[] chars = len <= CHAR_BUFFER_SIZE ? CodecUtil.getCharBuffer() : new char[len];
+        ensure(len * 2).asCharBuffer().get(chars, 0, len);
+        buffer.position(buffer.position() + len * 2);
+        return new String(chars, 0, len);
+    }
+
+    public String readSingle() throws IOException
+    {
+        return readSingle(false);
+    }
+
+    /**
+     * 与CodecUtil#readSingle相同，每个字节一个字符
+     */
+    @SuppressWarnings("deprecation")
+    public String readSingle(boolean compact) throws IOException
+    {
+        int len = readLength(compact);
+        if (len < 0) {
+            return null;
+        }
+        else if (len == 0) {
+            return "";
+        }
+        else if (len > MAX_STRING_LENGTH) {
+            throw new IOException("The string length is so big");
+        }
+        ByteBuffer buffer = ensure(len);
+        String str;
+        if (buffer.hasArray()) {
+            str = new String(buffer.array(), 0, buffer.arrayOffset() + buffer.position(), len);
+            buffer.position(buffer.position() + len);
+        }
+        else {
+            byte[] bytes = len <= BYTE_BUFFER_SIZE ? CodecUtil.getByteBuffer() : new byte[len];
+            buffer.get(bytes, 0, len);
+            str = new String(bytes, 0, 0, len);
+        }
+        return str;
+    }
+
+    /**
+     * 与CodecUtil#readUTFX相同
+     */
+    public String readUTFX() throws IOException
+    {
+        int strlen = readInt();
+        if (strlen == -1) {
+            return null;
+        }
+        else if (strlen == 0) {
+            return DataUtil.EMPTY_STRING;
+        }
+        else if (strlen < 0) {
+            throw new UTFDataFormatException("Invalid string length:" + strlen);
+        }
+        else if (strlen > MAX_STRING_LENGTH) {
+            throw new IOException("The string length is so big");
+        }
+        int utflen = readInt();
+        if (utflen < 0) {
+            throw new UTFDataFormatException("Invalid UTF length:" + utflen);
+        }
+        else if (utflen > MAX_STRING_LENGTH) {
+            throw new IOException("The UTF length is so big");
+        }
+        ByteBuffer buffer = ensure(utflen);
+        byte[] bytes = utflen <= BYTE_BUFFER_SIZE ? CodecUtil.getByteBuffer() : new byte[utflen];
+        buffer.get(bytes, 0, utflen);
+        return CodecUtil.fromUTFX(bytes, utflen, strlen);
+    }
+
+    public String[] readStringArray() throws IOException
+    {
+        return readStringArray(false);
+    }
+
+    public String[] readStringArray(boolean compact) throws IOException
+    {
+        int len = readLength(compact);
+        if (len < 0) {
+            return null;
+        }
+        else if (len == 0) {
+            return DataUtil.EMPTY_STRING_ARRAY;
+        }
+        else if (len > MAX_ARRAY_LENGTH) {
+            throw new IOException("The length is so big");
+        }
+        //Each string takes its length at least
+        ensure(compact ? len : len * 4);
+        String[] array = new String[len];
+        for (int i = 0; i < len; i++) {
+            array[i] = readString(compact);
+        }
+        return array;
+    }
+
+    public Object[] readObjectArray() throws IOException, ClassNotFoundException
+    {
+        return readObjectArray(false);
+    }
+
+    public Object[] readObjectArray(boolean compact) throws IOException, ClassNotFoundException
+    {
+        int len = readLength(compact);
+        if (len < 0) {
+            return null;
+        }
+        else if (len > MAX_ARRAY_LENGTH) {
+            throw new IOException("The length is so big");
+        }
+        //Each element takes its type at least
+        ensure(len);
+        Class clazz = Reflection.getClass(readSingle(compact));
+        Object[] array = (Object[])Array.newInstance(clazz, len);
+        for (int i = 0; i < len; i++) {
+            array[i] = readObject(compact);
+        }
+        return array;
+    }
+
+    public Object readObject() throws IOException, ClassNotFoundException
+    {
+        return readObject(false);
+    }
+
+    /**
+     * 读取CodecWriter#writeObject写出的对象
+     *
+     * @param compact 是否紧凑模式
+     * @return 对象
+     * @throws StreamCorruptedException 需要ObjectInputStream的类型，包括TYPE_SERIALIZER
+     */
+    public Object readObject(boolean compact) throws IOException, ClassNotFoundException
+    {
+        int type = readType();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_BYTE_ARRAY:
+                return readBytes(compact);
+            case TYPE_CHAR_ARRAY:
+                return readChars(compact);
+            case TYPE_STRING:
+                return readString(compact);
+            case TYPE_INTEGER:
+                return compact ? readSignedVarInt() : readInt();
+            case TYPE_LONG:
+                return compact ? readSignedVarLong() : readLong();
+            case TYPE_BYTE:
+                return readByte();
+            case TYPE_CHARACTER:
+                return readChar();
+            case TYPE_BOOLEAN:
+                return readBoolean();
+            case TYPE_SHORT:
+                return readShort();
+            case TYPE_FLOAT:
+                return readFloat();
+            case TYPE_DOUBLE:
+                return readDouble();
+            case TYPE_CLASS:
+                return Reflection.getClass(readSingle(compact));
+            case TYPE_STRING_ARRAY:
+                return readStringArray(compact);
+            case TYPE_OBJECT_ARRAY:
+                return readObjectArray(compact);
+            case -1:
+                throw new EOFException();
+            default:
+                throw new StreamCorruptedException("Type:" + type + " needs an ObjectInputStream");
+        }
+    }
+}
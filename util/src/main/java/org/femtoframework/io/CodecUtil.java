@@ -175,12 +175,17 @@ public class CodecUtil implements CodecConstants {
     }
 
     public static void writeBytes(OutputStream out, byte[] bytes)
+        throws IOException {
+        writeBytes(out, bytes, false);
+    }
+
+    public static void writeBytes(OutputStream out, byte[] bytes, boolean compact)
         throws IOException {
         int len = -1;
         if (bytes != null) {
             len = bytes.length;
         }
-        writeInt(out, len);
+        writeLength(out, len, compact);
         if (bytes != null) {
             out.write(bytes);
         }
@@ -259,6 +264,197 @@ public class CodecUtil implements CodecConstants {
         return ((ch1 << 24) + (ch2 << 16) + (ch3 << 8) + (ch4));
     }
 
+    /**
+     * 用变长格式写出无符号整数，每个字节7位，小的数字只占一个字节
+     *
+     * @param out 输出流
+     * @param i   整数，负数按无符号处理，占5个字节
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static void writeVarInt(OutputStream out, int i)
+        throws IOException {
+        while ((i & ~0x7F) != 0) {
+            out.write((i & 0x7F) | 0x80);
+            i >>>= 7;
+        }
+        out.write(i);
+    }
+
+    /**
+     * 读取变长格式的无符号整数
+     *
+     * @param in 输入流
+     * @return 整数
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static int readVarInt(InputStream in)
+        throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length int");
+    }
+
+    /**
+     * 用变长格式写出无符号长整数
+     *
+     * @param out 输出流
+     * @param l   长整数，负数占10个字节
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static void writeVarLong(OutputStream out, long l)
+        throws IOException {
+        while ((l & ~0x7FL) != 0) {
+            out.write(((int)l & 0x7F) | 0x80);
+            l >>>= 7;
+        }
+        out.write((int)l);
+    }
+
+    /**
+     * 读取变长格式的无符号长整数
+     *
+     * @param in 输入流
+     * @return 长整数
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static long readVarLong(InputStream in)
+        throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length long");
+    }
+
+    /**
+     * 用ZigZag和变长格式写出有符号整数，绝对值小的负数也只占一个字节
+     *
+     * @param out 输出流
+     * @param i   整数
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static void writeSignedVarInt(OutputStream out, int i)
+        throws IOException {
+        writeVarInt(out, (i << 1) ^ (i >> 31));
+    }
+
+    public static int readSignedVarInt(InputStream in)
+        throws IOException {
+        int i = readVarInt(in);
+        return (i >>> 1) ^ -(i & 1);
+    }
+
+    /**
+     * 用ZigZag和变长格式写出有符号长整数
+     *
+     * @param out 输出流
+     * @param l   长整数
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static void writeSignedVarLong(OutputStream out, long l)
+        throws IOException {
+        writeVarLong(out, (l << 1) ^ (l >> 63));
+    }
+
+    public static long readSignedVarLong(InputStream in)
+        throws IOException {
+        long l = readVarLong(in);
+        return (l >>> 1) ^ -(l & 1);
+    }
+
+    /**
+     * 写出长度，-1表示<code>null</code>
+     */
+    static void writeLength(OutputStream out, int len, boolean compact)
+        throws IOException {
+        if (compact) {
+            writeSignedVarInt(out, len);
+        }
+        else {
+            writeInt(out, len);
+        }
+    }
+
+    static int readLength(InputStream in, boolean compact)
+        throws IOException {
+        return compact ? readSignedVarInt(in) : readInt(in);
+    }
+
+    /**
+     * 写出编码版本，放在消息的开头，读取方根据它选择定长或者紧凑格式
+     *
+     * @param out     输出流
+     * @param version CODEC_VERSION_FIXED或者CODEC_VERSION_COMPACT
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static void writeVersion(OutputStream out, int version)
+        throws IOException {
+        if (version != CODEC_VERSION_FIXED && version != CODEC_VERSION_COMPACT) {
+            throw new IllegalArgumentException("Unsupported codec version:" + version);
+        }
+        out.write(version);
+    }
+
+    /**
+     * 读取编码版本
+     *
+     * @param in 输入流
+     * @return CODEC_VERSION_FIXED或者CODEC_VERSION_COMPACT
+     * @throws IOException 版本不支持或者发生I/O异常时抛出
+     */
+    public static int readVersion(InputStream in)
+        throws IOException {
+        int version = in.read();
+        if (version < 0) {
+            throw new EOFException();
+        }
+        if (version != CODEC_VERSION_FIXED && version != CODEC_VERSION_COMPACT) {
+            throw new StreamCorruptedException("Unsupported codec version:" + version);
+        }
+        return version;
+    }
+
+    /**
+     * 写出编码版本和对象
+     *
+     * @param oos     输出流
+     * @param object  对象
+     * @param version CODEC_VERSION_FIXED或者CODEC_VERSION_COMPACT
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static void writeVersionedObject(ObjectOutputStream oos, Object object, int version)
+        throws IOException {
+        writeVersion(oos, version);
+        writeObject(oos, object, version == CODEC_VERSION_COMPACT);
+    }
+
+    /**
+     * 读取#writeVersionedObject写出的对象
+     *
+     * @param ois 输入流
+     * @return 对象
+     */
+    public static Object readVersionedObject(ObjectInputStream ois)
+        throws IOException, ClassNotFoundException {
+        return readObject(ois, readVersion(ois) == CODEC_VERSION_COMPACT);
+    }
+
     public static long readLong(InputStream in)
         throws IOException {
         return ((long)(readInt(in)) << 32) +
@@ -277,7 +473,12 @@ public class CodecUtil implements CodecConstants {
 
     public static byte[] readBytes(InputStream in)
         throws IOException {
-        int len = readInt(in);
+        return readBytes(in, false);
+    }
+
+    public static byte[] readBytes(InputStream in, boolean compact)
+        throws IOException {
+        int len = readLength(in, compact);
         if (len < 0) {
             return null;
         }
@@ -305,7 +506,6 @@ public class CodecUtil implements CodecConstants {
         }
 
         int utflen = readInt(in);
-        StringBuilder sb = new StringBuilder(strlen);
         ByteBuffer buffer;
         byte[] bytes;
         if (utflen <= BYTE_BUFFER_SIZE) {
@@ -318,17 +518,90 @@ public class CodecUtil implements CodecConstants {
 
         IOUtil.readFully(in, bytes, 0, utflen);
 
-        fromUTFX(bytes, utflen, sb);
+        return fromUTFX(bytes, utflen, strlen);
+    }
 
-        return sb.toString();
+    /**
+     * 解码UTFX字节，纯ASCII的字节直接生成字符串
+     *
+     * @param bytes  UTF8字节
+     * @param utflen 字节数
+     * @param strlen 字符数
+     * @return 字符串
+     * @throws UTFDataFormatException 格式错误或者字符数多于strlen
+     */
+    @SuppressWarnings("deprecation")
+    public static String fromUTFX(byte[] bytes, int utflen, int strlen)
+            throws IOException {
+        if (utflen == strlen && isAscii(bytes, 0, utflen)) {
+            return new String(bytes, 0, 0, utflen);
+        }
+        int size = strlen < utflen ? strlen : utflen;
+        char[] chars = size <= CHAR_BUFFER_SIZE ? getCharBuffer() : new char[size];
+        int count = decodeUTFX(bytes, utflen, chars, size);
+        return new String(chars, 0, count);
     }
 
     public static void fromUTFX(byte[] bytes, int utflen, StringBuilder sb)
             throws IOException {
+        char[] chars = utflen <= CHAR_BUFFER_SIZE ? getCharBuffer() : new char[utflen];
+        int count = decodeUTFX(bytes, utflen, chars, utflen);
+        sb.append(chars, 0, count);
+    }
+
+    /**
+     * 每次检查8个字节，是否都小于0x80
+     */
+    static boolean isAscii(byte[] bytes, int off, int len) {
+        int i = off;
+        int end = off + len;
+        for (; i + 8 <= end; i += 8) {
+            if ((bytes[i] | bytes[i + 1] | bytes[i + 2] | bytes[i + 3]
+                 | bytes[i + 4] | bytes[i + 5] | bytes[i + 6] | bytes[i + 7]) < 0) {
+                return false;
+            }
+        }
+        for (; i < end; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 开头有多少个字符在0x01到0x7F之间，UTFX中这些字符各占一个字节，每次检查8个字符
+     */
+    static int asciiPrefix(char[] chars, int len) {
+        int i = 0;
+        for (; i + 8 <= len; i += 8) {
+            int c0 = chars[i], c1 = chars[i + 1], c2 = chars[i + 2], c3 = chars[i + 3];
+            int c4 = chars[i + 4], c5 = chars[i + 5], c6 = chars[i + 6], c7 = chars[i + 7];
+            //c - 1 is negative only for char 0, which takes two bytes
+            if (((c0 | c1 | c2 | c3 | c4 | c5 | c6 | c7) & 0xFF80) != 0
+                || ((c0 - 1) | (c1 - 1) | (c2 - 1) | (c3 - 1) | (c4 - 1) | (c5 - 1) | (c6 - 1) | (c7 - 1)) < 0) {
+                break;
+            }
+        }
+        for (; i < len; i++) {
+            int c = chars[i];
+            if (c < 0x0001 || c > 0x007F) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static int decodeUTFX(byte[] bytes, int utflen, char[] chars, int size)
+            throws IOException {
         int c, char2, char3;
         int count = 0;
+        int n = 0;
 
         while (count < utflen) {
+            if (n == size) {
+                throw new UTFDataFormatException("More than " + size + " chars");
+            }
             c = (int)bytes[count] & 0xff;
             switch (c >> 4) {
                 case 0:
@@ -341,7 +614,7 @@ public class CodecUtil implements CodecConstants {
                 case 7:
                     /* 0xxxxxxx*/
                     count++;
-                    sb.append((char)c);
+                    chars[n++] = (char)c;
                     break;
                 case 12:
                 case 13:
@@ -354,7 +627,7 @@ public class CodecUtil implements CodecConstants {
                     if ((char2 & 0xC0) != 0x80) {
                         throw new UTFDataFormatException();
                     }
-                    sb.append((char)(((c & 0x1F) << 6) | (char2 & 0x3F)));
+                    chars[n++] = (char)(((c & 0x1F) << 6) | (char2 & 0x3F));
                     break;
                 case 14:
                     /* 1110 xxxx  10xx xxxx  10xx xxxx */
@@ -367,15 +640,16 @@ public class CodecUtil implements CodecConstants {
                     if (((char2 & 0xC0) != 0x80) || ((char3 & 0xC0) != 0x80)) {
                         throw new UTFDataFormatException();
                     }
-                    sb.append((char)(((c & 0x0F) << 12) |
+                    chars[n++] = (char)(((c & 0x0F) << 12) |
                             ((char2 & 0x3F) << 6) |
-                            ((char3 & 0x3F))));
+                            ((char3 & 0x3F)));
                     break;
                 default:
                     /* 10xx xxxx,  1111 xxxx */
                     throw new UTFDataFormatException();
             }
         }
+        return n;
     }
 
 
@@ -402,6 +676,7 @@ public class CodecUtil implements CodecConstants {
         return size;
     }
 
+    @SuppressWarnings("deprecation")
     public static ByteBuffer toUTFX(String str) throws IOException {
         int strlen = str.length();
         int utflen = 0;
@@ -419,7 +694,9 @@ public class CodecUtil implements CodecConstants {
 
         str.getChars(0, strlen, chars, 0);
 
-        for (int i = 0; i < strlen; i++) {
+        int ascii = asciiPrefix(chars, strlen);
+        utflen = ascii;
+        for (int i = ascii; i < strlen; i++) {
             c = chars[i];
             if ((c >= 0x0001) && (c <= 0x007F)) {
                 utflen++;
@@ -452,7 +729,9 @@ public class CodecUtil implements CodecConstants {
         count += 4;
         Binary.append(bytes, count, utflen);
         count += 4;
-        for (int i = 0; i < strlen; i++) {
+        str.getBytes(0, ascii, bytes, count);
+        count += ascii;
+        for (int i = ascii; i < strlen; i++) {
             c = chars[i];
             if ((c >= 0x0001) && (c <= 0x007F)) {
                 bytes[count++] = (byte)c;
@@ -480,7 +759,12 @@ public class CodecUtil implements CodecConstants {
      */
     public static char[] readChars(InputStream in)
         throws IOException {
-        int len = readInt(in);
+        return readChars(in, false);
+    }
+
+    public static char[] readChars(InputStream in, boolean compact)
+        throws IOException {
+        int len = readLength(in, compact);
         if (len < 0) {
             return null;
         }
@@ -519,13 +803,18 @@ public class CodecUtil implements CodecConstants {
      * 采用byte缓冲机制的快速写字符
      */
     public static void writeChars(OutputStream out, char[] chars)
+        throws IOException {
+        writeChars(out, chars, false);
+    }
+
+    public static void writeChars(OutputStream out, char[] chars, boolean compact)
         throws IOException {
         int len = -1;
         if (chars != null) {
             len = chars.length;
         }
         int v;
-        writeInt(out, len);
+        writeLength(out, len, compact);
         if (len <= 0) {
             return;
         }
@@ -561,12 +850,17 @@ public class CodecUtil implements CodecConstants {
      * 采用byte缓冲机制的快速写字符
      */
     public static void writeString(OutputStream out, String str)
+        throws IOException {
+        writeString(out, str, false);
+    }
+
+    public static void writeString(OutputStream out, String str, boolean compact)
         throws IOException {
         int len = -1;
         if (str != null) {
             len = str.length();
         }
-        writeInt(out, len);
+        writeLength(out, len, compact);
 
         if (len > 0) {
             byte[] buf = getByteBuffer();
@@ -598,30 +892,25 @@ public class CodecUtil implements CodecConstants {
      * 写单字节字符
      */
     public static void writeSingle(OutputStream out, String s)
+        throws IOException {
+        writeSingle(out, s, false);
+    }
+
+    @SuppressWarnings("deprecation")
+    public static void writeSingle(OutputStream out, String s, boolean compact)
         throws IOException {
         int len = -1;
         if (s != null) {
             len = s.length();
         }
-        writeInt(out, len);
+        writeLength(out, len, compact);
 
-        int v;
-        if (len <= 0) {
-            return;
-        }
-        else {
+        if (len > 0) {
             byte[] bytes = getByteBuffer();
-            int j = 0;
-            for (int i = 0; i < len; i++) {
-                v = s.charAt(i);
-                bytes[j++] = (byte)((v) & 0xFF);
-                if (j == bytes.length) { //Full
-                    out.write(bytes, 0, j);
-                    j = 0;
-                }
-            }
-            if (j > 0) {
-                out.write(bytes, 0, j);
+            for (int i = 0; i < len; i += bytes.length) {
+                int end = Math.min(len, i + bytes.length);
+                s.getBytes(i, end, bytes, 0);
+                out.write(bytes, 0, end - i);
             }
         }
     }
@@ -665,7 +954,13 @@ public class CodecUtil implements CodecConstants {
 
     public static String readSingle(InputStream in)
         throws IOException {
-        int len = readInt(in);
+        return readSingle(in, false);
+    }
+
+    @SuppressWarnings("deprecation")
+    public static String readSingle(InputStream in, boolean compact)
+        throws IOException {
+        int len = readLength(in, compact);
 
         if (len < 0) {
             return null;
@@ -677,43 +972,23 @@ public class CodecUtil implements CodecConstants {
             throw new IOException("The string length is so big");
         }
 
-        byte[] bytes = getByteBuffer();
-        int ch1;
-        int read = 0;
-        if (len <= CHAR_BUFFER_SIZE) {
-            read = IOUtil.readFully(in, bytes, 0, len);
-            if (read != len) {
-                throw new IOException("No more data left:" + len + " read:" + read);
-            }
-            char[] chars = getCharBuffer();
-            for (int i = 0, j = 0; j < read; i++) {
-                ch1 = (bytes[j++] & 0xFF);
-                chars[i] = (char)(ch1);
-            }
-            return new String(chars, 0, len);
-        }
-        else {
-            StringBuilder sb = new StringBuilder(len);
-            while (len > 0) {
-                read = bytes.length > len ? len : bytes.length;
-                read = IOUtil.readFully(in, bytes, 0, read);
-                if (read <= 0) {
-                    break;
-                }
-                for (int i = 0, j = 0; i < read; i++) {
-                    ch1 = (bytes[j++] & 0xFF);
-                    sb.append((char)(ch1));
-                }
-                len -= read;
-            }
-            return sb.toString();
+        byte[] bytes = len <= BYTE_BUFFER_SIZE ? getByteBuffer() : new byte[len];
+        int read = IOUtil.readFully(in, bytes, 0, len);
+        if (read != len) {
+            throw new IOException("No more data left:" + len + " read:" + read);
         }
+        return new String(bytes, 0, 0, len);
     }
 
 
     public static String readString(InputStream in)
         throws IOException {
-        int len = readInt(in);
+        return readString(in, false);
+    }
+
+    public static String readString(InputStream in, boolean compact)
+        throws IOException {
+        int len = readLength(in, compact);
 
         if (len < 0) {
             return null;
@@ -754,9 +1029,11 @@ public class CodecUtil implements CodecConstants {
             return new String(chars, 0, len);
         }
         else {
-            StringBuilder sb = new StringBuilder(len);
-            while (len > 0) {
-                read = buf.length > len * 2 ? len * 2 : buf.length;
+            char[] chars = new char[len];
+            int k = 0;
+            int l = len;
+            while (l > 0) {
+                read = buf.length > l * 2 ? l * 2 : buf.length;
                 read = IOUtil.readFully(in, buf, 0, read);
                 if (read <= 0) {
                     break;
@@ -764,31 +1041,31 @@ public class CodecUtil implements CodecConstants {
                 for (int j = 0; j < read;) {
                     ch1 = (buf[j++] & 0xFF);
                     ch2 = (buf[j++] & 0xFF);
-                    sb.append((char)((ch1 << 8) + (ch2)));
+                    chars[k++] = (char)((ch1 << 8) + (ch2));
                 }
-                len -= (read / 2);
+                l -= (read / 2);
             }
-            return sb.toString();
+            return new String(chars, 0, k);
         }
     }
 
     private static void writeString(OutputStream out,
-                                    String str, byte[] buf)
+                                    String str, byte[] buf, boolean compact)
         throws IOException {
         int len = -1;
         if (str != null) {
             len = str.length();
         }
-        writeInt(out, len);
+        writeLength(out, len, compact);
 
         if (len > 0) {
             writeString(out, str, len, buf);
         }
     }
 
-    private static String readString(InputStream in, byte[] buf)
+    private static String readString(InputStream in, byte[] buf, boolean compact)
         throws IOException {
-        int len = readInt(in);
+        int len = readLength(in, compact);
 
         if (len < 0) {
             return null;
@@ -810,17 +1087,22 @@ public class CodecUtil implements CodecConstants {
 
 
     public static void writeStringArray(OutputStream oos, String[] array)
+        throws IOException {
+        writeStringArray(oos, array, false);
+    }
+
+    public static void writeStringArray(OutputStream oos, String[] array, boolean compact)
         throws IOException {
         if (array == null) {
-            writeInt(oos, -1);
+            writeLength(oos, -1, compact);
             return;
         }
 
         int len = array.length;
-        writeInt(oos, len);
+        writeLength(oos, len, compact);
         byte[] buf = getByteBuffer();
         for (int i = 0; i < len; i++) {
-            writeString(oos, array[i], buf);
+            writeString(oos, array[i], buf, compact);
         }
     }
 
@@ -831,7 +1113,12 @@ public class CodecUtil implements CodecConstants {
 
     public static String[] readStringArray(InputStream ois)
         throws IOException {
-        int len = readInt(ois);
+        return readStringArray(ois, false);
+    }
+
+    public static String[] readStringArray(InputStream ois, boolean compact)
+        throws IOException {
+        int len = readLength(ois, compact);
         if (len == -1) {
             return null;
         }
@@ -845,7 +1132,7 @@ public class CodecUtil implements CodecConstants {
         String[] array = new String[len];
         byte[] buf = getByteBuffer();
         for (int i = 0; i < len; i++) {
-            array[i] = readString(ois, buf);
+            array[i] = readString(ois, buf, compact);
         }
 
         return array;
@@ -853,13 +1140,19 @@ public class CodecUtil implements CodecConstants {
 
     //快速串行化相关的类
 
-    static void writeClass(OutputStream out, Class clazz)
+    static void writeClass(OutputStream out, Class clazz, boolean compact)
         throws IOException {
-        writeSingle(out, clazz.getName());
+        writeSingle(out, clazz.getName(), compact);
     }
 
     public static void writeObject(ObjectOutputStream oos, Object object)
         throws IOException {
+        writeObject(oos, object, false);
+    }
+
+    public static void writeObject(ObjectOutputStream oos, Object object, boolean compact)
+        throws IOException {
+        SerializerRegistry.Registration registration;
         if (object == null) {
             writeNull(oos);
             return;
@@ -867,15 +1160,15 @@ public class CodecUtil implements CodecConstants {
 
         if (object instanceof byte[]) {
             writeType(oos, TYPE_BYTE_ARRAY);
-            writeBytes(oos, (byte[])object);
+            writeBytes(oos, (byte[])object, compact);
         }
         else if (object instanceof String) {
             writeType(oos, TYPE_STRING);
-            writeString(oos, (String)object);
+            writeString(oos, (String)object, compact);
         }
         else if (object instanceof char[]) {
             writeType(oos, TYPE_CHAR_ARRAY);
-            writeChars(oos, (char[])object);
+            writeChars(oos, (char[])object, compact);
         }
         else if (object instanceof Character) {
             writeType(oos, TYPE_CHARACTER);
@@ -884,11 +1177,21 @@ public class CodecUtil implements CodecConstants {
         else if (object instanceof Number) {
             if (object instanceof Integer) {
                 writeType(oos, TYPE_INTEGER);
-                writeInt(oos, (Integer)object);
+                if (compact) {
+                    writeSignedVarInt(oos, (Integer)object);
+                }
+                else {
+                    writeInt(oos, (Integer)object);
+                }
             }
             else if (object instanceof Long) {
                 writeType(oos, TYPE_LONG);
-                writeLong(oos, (Long)object);
+                if (compact) {
+                    writeSignedVarLong(oos, (Long)object);
+                }
+                else {
+                    writeLong(oos, (Long)object);
+                }
             }
             else if (object instanceof Byte) {
                 writeType(oos, TYPE_BYTE);
@@ -917,11 +1220,14 @@ public class CodecUtil implements CodecConstants {
         }
         else if (object instanceof String[]) {
             writeType(oos, TYPE_STRING_ARRAY);
-            writeStringArray(oos, (String[])object);
+            writeStringArray(oos, (String[])object, compact);
         }
         else if (object instanceof Class) {
             writeType(oos, TYPE_CLASS);
-            writeClass(oos, (Class)object);
+            writeClass(oos, (Class)object, compact);
+        }
+        else if ((registration = SerializerRegistry.lookup(object.getClass())) != null) {
+            registration.write(oos, object);
         }
         else if (object instanceof Streamable) {
             writeType(oos, TYPE_STREAMABLE);
@@ -929,7 +1235,7 @@ public class CodecUtil implements CodecConstants {
         }
         else if (object instanceof Object[]) {
             writeType(oos, TYPE_OBJECT_ARRAY);
-            writeObjectArray(oos, (Object[])object);
+            writeObjectArray(oos, (Object[])object, compact);
         }
         else {
             writeType(oos, TYPE_OBJECT);
@@ -969,22 +1275,33 @@ public class CodecUtil implements CodecConstants {
     public static void writeObjectArray(ObjectOutputStream oos,
                                         Object[] array)
         throws IOException {
+        writeObjectArray(oos, array, false);
+    }
+
+    public static void writeObjectArray(ObjectOutputStream oos,
+                                        Object[] array, boolean compact)
+        throws IOException {
         if (array == null) {
-            writeInt(oos, -1);
+            writeLength(oos, -1, compact);
             return;
         }
 
         int len = array.length;
-        writeInt(oos, len);
-        writeClass(oos, array.getClass().getComponentType());
+        writeLength(oos, len, compact);
+        writeClass(oos, array.getClass().getComponentType(), compact);
         for (int i = 0; i < len; i++) {
-            writeObject(oos, array[i]);
+            writeObject(oos, array[i], compact);
         }
     }
 
     public static Object[] readObjectArray(ObjectInputStream ois)
         throws IOException, ClassNotFoundException {
-        int len = readInt(ois);
+        return readObjectArray(ois, false);
+    }
+
+    public static Object[] readObjectArray(ObjectInputStream ois, boolean compact)
+        throws IOException, ClassNotFoundException {
+        int len = readLength(ois, compact);
         if (len == -1) {
             return null;
         }
@@ -992,37 +1309,42 @@ public class CodecUtil implements CodecConstants {
             throw new IOException("The length is so big");
         }
 
-        Class clazz = readClass(ois);
+        Class clazz = readClass(ois, compact);
         Object[] array = (Object[])Array.newInstance(clazz, len);
         for (int i = 0; i < len; i++) {
-            array[i] = readObject(ois);
+            array[i] = readObject(ois, compact);
         }
         return array;
     }
 
-    static Class readClass(InputStream in)
+    static Class readClass(InputStream in, boolean compact)
         throws IOException, ClassNotFoundException {
-        String className = readSingle(in);
+        String className = readSingle(in, compact);
         return Reflection.getClass(className);
     }
 
 
     public static Object readObject(ObjectInputStream ois)
+        throws ClassNotFoundException, IOException {
+        return readObject(ois, false);
+    }
+
+    public static Object readObject(ObjectInputStream ois, boolean compact)
         throws ClassNotFoundException, IOException {
         int type = readType(ois);
         switch (type) {
             case TYPE_NULL:
                 return null;
             case TYPE_BYTE_ARRAY:
-                return readBytes(ois);
+                return readBytes(ois, compact);
             case TYPE_CHAR_ARRAY:
-                return readChars(ois);
+                return readChars(ois, compact);
             case TYPE_STRING:
-                return readString(ois);
+                return readString(ois, compact);
             case TYPE_INTEGER:
-                return readInt(ois);
+                return compact ? readSignedVarInt(ois) : readInt(ois);
             case TYPE_LONG:
-                return readLong(ois);
+                return compact ? readSignedVarLong(ois) : readLong(ois);
             case TYPE_STREAMABLE:
                 return readStreamable(ois);
             case TYPE_BYTE:
@@ -1040,11 +1362,13 @@ public class CodecUtil implements CodecConstants {
             case TYPE_OBJECT:
                 return ois.readObject();
             case TYPE_CLASS:
-                return readClass(ois);
+                return readClass(ois, compact);
             case TYPE_STRING_ARRAY:
-                return readStringArray(ois);
+                return readStringArray(ois, compact);
             case TYPE_OBJECT_ARRAY:
-                return readObjectArray(ois);
+                return readObjectArray(ois, compact);
+            case TYPE_SERIALIZER:
+                return SerializerRegistry.read(ois);
             default:
                 throw new IOException("Invalid Type:" + type);
         }
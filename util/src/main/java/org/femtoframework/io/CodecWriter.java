@@ -0,0 +1,530 @@
+package org.femtoframework.io;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.UTFDataFormatException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 直接写到ByteBuffer的编码器，格式与CodecUtil相同
+ * <p/>
+ * Each primitive checks the room once and is one put on the buffer, no virtual call per byte.
+ * A writer over a given buffer throws BufferOverflowException when the buffer is full,
+ * a writer created with a capacity grows, a direct buffer grows into a new direct buffer.
+ * The buffer can't grow over MAX_CAPACITY, writing more throws BufferOverflowException, the cause tells the required size.
+ * The buffer is set to big-endian.
+ * <p/>
+ * #writeObject covers the built-in types of CodecUtil#writeObject, the types which need an
+ * ObjectOutputStream (TYPE_OBJECT, Streamable, registered serializers) are not supported.
+ *
+ * @see CodecReader
+ * @see CodecUtil
+ */
+public class CodecWriter implements CodecConstants
+{
+    /**
+     * 可增长Buffer的最大容量，有些VM不能分配Integer.MAX_VALUE长度的数组
+     */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private ByteBuffer buffer;
+
+    private final boolean growable;
+
+    /**
+     * 写到指定的Buffer，从当前位置开始，空间不够时抛出BufferOverflowException
+     *
+     * @param buffer 堆内或者堆外Buffer
+     */
+    public CodecWriter(ByteBuffer buffer)
+    {
+        this(buffer, false);
+    }
+
+    /**
+     * 写到自动扩展的堆内Buffer
+     *
+     * @param capacity 初始容量
+     */
+    public CodecWriter(int capacity)
+    {
+        this(ByteBuffer.allocate(capacity), true);
+    }
+
+    /**
+     * @param buffer   Buffer
+     * @param growable 空间不够时是否换一个更大的Buffer
+     */
+    public CodecWriter(ByteBuffer buffer, boolean growable)
+    {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        this.growable = growable;
+    }
+
+    /**
+     * 当前的Buffer，扩展后与构造时的不同
+     *
+     * @return ByteBuffer
+     */
+    public ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * 已经写了多少字节
+     *
+     * @return 当前位置
+     */
+    public int position()
+    {
+        return buffer.position();
+    }
+
+    /**
+     * 翻转Buffer准备读取或者发送
+     *
+     * @return ByteBuffer
+     */
+    public ByteBuffer flip()
+    {
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Makes sure there is room for n bytes
+     */
+    private ByteBuffer ensure(long n)
+    {
+        ByteBuffer buffer = this.buffer;
+        if (buffer.remaining() >= n) {
+            return buffer;
+        }
+        if (!growable) {
+            throw new BufferOverflowException();
+        }
+        long required = buffer.position() + n;
+        if (required > MAX_CAPACITY) {
+            BufferOverflowException boe = new BufferOverflowException();
+            boe.initCause(new IllegalStateException("Required buffer size " + required + " is over " + MAX_CAPACITY));
+            throw boe;
+        }
+        int capacity = (int)Math.max(Math.min((long)buffer.capacity() << 1, MAX_CAPACITY), required);
+        ByteBuffer newBuffer = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        buffer.flip();
+        newBuffer.put(buffer);
+        this.buffer = newBuffer;
+        return newBuffer;
+    }
+
+    public void writeNull()
+    {
+        writeType(TYPE_NULL);
+    }
+
+    public void writeType(int type)
+    {
+        ensure(1).put((byte)type);
+    }
+
+    public void writeByte(byte b)
+    {
+        ensure(1).put(b);
+    }
+
+    public void writeUnsignedByte(int i)
+    {
+        ensure(1).put((byte)i);
+    }
+
+    public void writeBoolean(boolean b)
+    {
+        ensure(1).put(b ? (byte)1 : (byte)0);
+    }
+
+    public void writeChar(char c)
+    {
+        ensure(2).putChar(c);
+    }
+
+    public void writeShort(short s)
+    {
+        ensure(2).putShort(s);
+    }
+
+    public void writeUnsignedShort(int i)
+    {
+        ensure(2).putShort((short)i);
+    }
+
+    public void writeInt(int i)
+    {
+        ensure(4).putInt(i);
+    }
+
+    public void writeUnsignedInt(long l)
+    {
+        ensure(4).putInt((int)l);
+    }
+
+    public void writeLong(long l)
+    {
+        ensure(8).putLong(l);
+    }
+
+    public void writeFloat(float f)
+    {
+        ensure(4).putFloat(f);
+    }
+
+    public void writeDouble(double d)
+    {
+        ensure(8).putDouble(d);
+    }
+
+    /**
+     * 与CodecUtil#writeVarInt相同
+     */
+    public void writeVarInt(int i)
+    {
+        ByteBuffer buffer = ensure(5);
+        while ((i & ~0x7F) != 0) {
+            buffer.put((byte)((i & 0x7F) | 0x80));
+            i >>>= 7;
+        }
+        buffer.put((byte)i);
+    }
+
+    public void writeVarLong(long l)
+    {
+        ByteBuffer buffer = ensure(10);
+        while ((l & ~0x7FL) != 0) {
+            buffer.put((byte)(((int)l & 0x7F) | 0x80));
+            l >>>= 7;
+        }
+        buffer.put((byte)l);
+    }
+
+    public void writeSignedVarInt(int i)
+    {
+        writeVarInt((i << 1) ^ (i >> 31));
+    }
+
+    public void writeSignedVarLong(long l)
+    {
+        writeVarLong((l << 1) ^ (l >> 63));
+    }
+
+    private void writeLength(int len, boolean compact)
+    {
+        if (compact) {
+            writeSignedVarInt(len);
+        }
+        else {
+            writeInt(len);
+        }
+    }
+
+    /**
+     * 与CodecUtil#writeVersion相同
+     */
+    public void writeVersion(int version)
+    {
+        if (version != CODEC_VERSION_FIXED && version != CODEC_VERSION_COMPACT) {
+            throw new IllegalArgumentException("Unsupported codec version:" + version);
+        }
+        ensure(1).put((byte)version);
+    }
+
+    /**
+     * 直接写出字节，没有长度
+     */
+    public void write(byte[] bytes, int off, int len)
+    {
+        ensure(len).put(bytes, off, len);
+    }
+
+    /**
+     * 直接写出Buffer中剩余的字节，没有长度
+     */
+    public void write(ByteBuffer src)
+    {
+        ensure(src.remaining()).put(src);
+    }
+
+    public void writeBytes(byte[] bytes)
+    {
+        writeBytes(bytes, false);
+    }
+
+    public void writeBytes(byte[] bytes, boolean compact)
+    {
+        if (bytes == null) {
+            writeLength(-1, compact);
+            return;
+        }
+        writeLength(bytes.length, compact);
+        ensure(bytes.length).put(bytes);
+    }
+
+    public void writeChars(char[] chars)
+    {
+        writeChars(chars, false);
+    }
+
+    public void writeChars(char[] chars, boolean compact)
+    {
+        if (chars == null) {
+            writeLength(-1, compact);
+            return;
+        }
+        writeLength(chars.length, compact);
+        ByteBuffer buffer = ensure(chars.length * 2L);
+        buffer.asCharBuffer().put(chars);
+        buffer.position(buffer.position() + chars.length * 2);
+    }
+
+    public void writeString(String str)
+    {
+        writeString(str, false);
+    }
+
+    /**
+     * 与CodecUtil#writeString相同，每个字符两个字节
+     */
+    public void writeString(String str, boolean compact)
+    {
+        if (str == null) {
+            writeLength(-1, compact);
+            return;
+        }
+        int len = str.length();
+        writeLength(len, compact);
+        ByteBuffer buffer = ensure(len * 2L);
+        int pos = buffer.position();
+        for (int i = 0; i < len; i++, pos += 2) {
+            buffer.putChar(pos, str.charAt(i));
+        }
+        buffer.position(pos);
+    }
+
+    public void writeSingle(String s)
+    {
+        writeSingle(s, false);
+    }
+
+    /**
+     * 与CodecUtil#writeSingle相同，每个字符只写低字节
+     */
+    public void writeSingle(String s, boolean compact)
+    {
+        if (s == null) {
+            writeLength(-1, compact);
+            return;
+        }
+        int len = s.length();
+        writeLength(len, compact);
+        ByteBuffer buffer = ensure(len);
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int off = buffer.arrayOffset() + buffer.position();
+            for (int i = 0; i < len; i++) {
+                array[off + i] = (byte)s.charAt(i);
+            }
+            buffer.position(buffer.position() + len);
+        }
+        else {
+            for (int i = 0; i < len; i++) {
+                buffer.put((byte)s.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * 与CodecUtil#writeUTFX相同
+     *
+     * @return UTF8的字节数，<code>null</code>返回-1
+     */
+    @SuppressWarnings("deprecation")
+    public int writeUTFX(String str) throws UTFDataFormatException
+    {
+        if (str == null) {
+            writeInt(-1);
+            return -1;
+        }
+        int strlen = str.length();
+        if (strlen == 0) {
+            writeInt(0);
+            return 0;
+        }
+        int utflen = 0;
+        for (int i = 0; i < strlen; i++) {
+            char c = str.charAt(i);
+            if ((c >= 0x0001) && (c <= 0x007F)) {
+                utflen++;
+            }
+            else if (c > 0x07FF) {
+                utflen += 3;
+            }
+            else {
+                utflen += 2;
+            }
+        }
+        if (utflen > 65535) {
+            throw new UTFDataFormatException();
+        }
+        ByteBuffer buffer = ensure(utflen + 8);
+        buffer.putInt(strlen);
+        buffer.putInt(utflen);
+        int pos = buffer.position();
+        if (utflen == strlen && buffer.hasArray()) {
+            //All ASCII
+            str.getBytes(0, strlen, buffer.array(), buffer.arrayOffset() + pos);
+            buffer.position(pos + strlen);
+            return utflen + 8;
+        }
+        for (int i = 0; i < strlen; i++) {
+            char c = str.charAt(i);
+            if ((c >= 0x0001) && (c <= 0x007F)) {
+                buffer.put(pos++, (byte)c);
+            }
+            else if (c > 0x07FF) {
+                buffer.put(pos++, (byte)(0xE0 | ((c >> 12) & 0x0F)));
+                buffer.put(pos++, (byte)(0x80 | ((c >> 6) & 0x3F)));
+                buffer.put(pos++, (byte)(0x80 | ((c) & 0x3F)));
+            }
+            else {
+                buffer.put(pos++, (byte)(0xC0 | ((c >> 6) & 0x1F)));
+                buffer.put(pos++, (byte)(0x80 | ((c) & 0x3F)));
+            }
+        }
+        buffer.position(pos);
+        return utflen + 8;
+    }
+
+    public void writeStringArray(String[] array)
+    {
+        writeStringArray(array, false);
+    }
+
+    public void writeStringArray(String[] array, boolean compact)
+    {
+        if (array == null) {
+            writeLength(-1, compact);
+            return;
+        }
+        writeLength(array.length, compact);
+        for (String str : array) {
+            writeString(str, compact);
+        }
+    }
+
+    public void writeObjectArray(Object[] array) throws IOException
+    {
+        writeObjectArray(array, false);
+    }
+
+    public void writeObjectArray(Object[] array, boolean compact) throws IOException
+    {
+        if (array == null) {
+            writeLength(-1, compact);
+            return;
+        }
+        writeLength(array.length, compact);
+        writeSingle(array.getClass().getComponentType().getName(), compact);
+        for (Object object : array) {
+            writeObject(object, compact);
+        }
+    }
+
+    public void writeObject(Object object) throws IOException
+    {
+        writeObject(object, false);
+    }
+
+    /**
+     * 与CodecUtil#writeObject相同的格式
+     *
+     * @param object  对象
+     * @param compact 是否紧凑模式
+     * @throws NotSerializableException 需要ObjectOutputStream的对象
+     */
+    public void writeObject(Object object, boolean compact) throws IOException
+    {
+        if (object == null) {
+            writeNull();
+        }
+        else if (object instanceof byte[]) {
+            writeType(TYPE_BYTE_ARRAY);
+            writeBytes((byte[])object, compact);
+        }
+        else if (object instanceof String) {
+            writeType(TYPE_STRING);
+            writeString((String)object, compact);
+        }
+        else if (object instanceof char[]) {
+            writeType(TYPE_CHAR_ARRAY);
+            writeChars((char[])object, compact);
+        }
+        else if (object instanceof Character) {
+            writeType(TYPE_CHARACTER);
+            writeChar((Character)object);
+        }
+        else if (object instanceof Integer) {
+            writeType(TYPE_INTEGER);
+            if (compact) {
+                writeSignedVarInt((Integer)object);
+            }
+            else {
+                writeInt((Integer)object);
+            }
+        }
+        else if (object instanceof Long) {
+            writeType(TYPE_LONG);
+            if (compact) {
+                writeSignedVarLong((Long)object);
+            }
+            else {
+                writeLong((Long)object);
+            }
+        }
+        else if (object instanceof Byte) {
+            writeType(TYPE_BYTE);
+            writeByte((Byte)object);
+        }
+        else if (object instanceof Float) {
+            writeType(TYPE_FLOAT);
+            writeFloat((Float)object);
+        }
+        else if (object instanceof Double) {
+            writeType(TYPE_DOUBLE);
+            writeDouble((Double)object);
+        }
+        else if (object instanceof Short) {
+            writeType(TYPE_SHORT);
+            writeShort((Short)object);
+        }
+        else if (object instanceof Boolean) {
+            writeType(TYPE_BOOLEAN);
+            writeBoolean((Boolean)object);
+        }
+        else if (object instanceof String[]) {
+            writeType(TYPE_STRING_ARRAY);
+            writeStringArray((String[])object, compact);
+        }
+        else if (object instanceof Class) {
+            writeType(TYPE_CLASS);
+            writeSingle(((Class)object).getName(), compact);
+        }
+        else if (object instanceof Object[]) {
+            writeType(TYPE_OBJECT_ARRAY);
+            writeObjectArray((Object[])object, compact);
+        }
+        else {
+            throw new NotSerializableException(object.getClass().getName() + " needs an ObjectOutputStream");
+        }
+    }
+}
@@ -50,16 +50,154 @@ public class DataCodec implements CodecConstants {
         return (int)in.readByte();
     }
 
+    /**
+     * 用变长格式写出无符号整数，与CodecUtil#writeVarInt相同
+     *
+     * @param out 输出
+     * @param i   整数
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static void writeVarInt(DataOutput out, int i)
+        throws IOException {
+        while ((i & ~0x7F) != 0) {
+            out.write((i & 0x7F) | 0x80);
+            i >>>= 7;
+        }
+        out.write(i);
+    }
+
+    /**
+     * 读取变长格式的无符号整数
+     *
+     * @param in 输入
+     * @return 整数
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static int readVarInt(DataInput in)
+        throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length int");
+    }
+
+    /**
+     * 用变长格式写出无符号长整数，与CodecUtil#writeVarLong相同
+     */
+    public static void writeVarLong(DataOutput out, long l)
+        throws IOException {
+        while ((l & ~0x7FL) != 0) {
+            out.write(((int)l & 0x7F) | 0x80);
+            l >>>= 7;
+        }
+        out.write((int)l);
+    }
+
+    public static long readVarLong(DataInput in)
+        throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length long");
+    }
+
+    /**
+     * 用ZigZag和变长格式写出有符号整数，与CodecUtil#writeSignedVarInt相同
+     */
+    public static void writeSignedVarInt(DataOutput out, int i)
+        throws IOException {
+        writeVarInt(out, (i << 1) ^ (i >> 31));
+    }
+
+    public static int readSignedVarInt(DataInput in)
+        throws IOException {
+        int i = readVarInt(in);
+        return (i >>> 1) ^ -(i & 1);
+    }
+
+    public static void writeSignedVarLong(DataOutput out, long l)
+        throws IOException {
+        writeVarLong(out, (l << 1) ^ (l >> 63));
+    }
+
+    public static long readSignedVarLong(DataInput in)
+        throws IOException {
+        long l = readVarLong(in);
+        return (l >>> 1) ^ -(l & 1);
+    }
+
+    static void writeLength(DataOutput out, int len, boolean compact)
+        throws IOException {
+        if (compact) {
+            writeSignedVarInt(out, len);
+        }
+        else {
+            out.writeInt(len);
+        }
+    }
+
+    static int readLength(DataInput in, boolean compact)
+        throws IOException {
+        return compact ? readSignedVarInt(in) : in.readInt();
+    }
+
+    /**
+     * 写出编码版本和对象，格式与CodecUtil#writeVersionedObject相同
+     *
+     * @param oos     输出
+     * @param object  对象
+     * @param version CODEC_VERSION_FIXED或者CODEC_VERSION_COMPACT
+     * @throws IOException 发生I/O异常时抛出
+     */
+    public static void writeVersionedObject(ObjectOutput oos, Object object, int version)
+        throws IOException {
+        if (version != CODEC_VERSION_FIXED && version != CODEC_VERSION_COMPACT) {
+            throw new IllegalArgumentException("Unsupported codec version:" + version);
+        }
+        oos.write(version);
+        writeObject(oos, object, version == CODEC_VERSION_COMPACT);
+    }
+
+    /**
+     * 读取#writeVersionedObject写出的对象
+     *
+     * @param ois 输入
+     * @return 对象
+     */
+    public static Object readVersionedObject(ObjectInput ois)
+        throws IOException, ClassNotFoundException {
+        int version = ois.readUnsignedByte();
+        if (version != CODEC_VERSION_FIXED && version != CODEC_VERSION_COMPACT) {
+            throw new StreamCorruptedException("Unsupported codec version:" + version);
+        }
+        return readObject(ois, version == CODEC_VERSION_COMPACT);
+    }
+
     /**
      * 采用byte缓冲机制的快速写字符
      */
     public static void writeString(DataOutput out, String str)
+        throws IOException {
+        writeString(out, str, false);
+    }
+
+    public static void writeString(DataOutput out, String str, boolean compact)
         throws IOException {
         int len = -1;
         if (str != null) {
             len = str.length();
         }
-        out.writeInt(len);
+        writeLength(out, len, compact);
 
         if (len > 0) {
             byte[] buf = CodecUtil.getByteBuffer();
@@ -71,27 +209,25 @@ public class DataCodec implements CodecConstants {
      * 写单字节字符
      */
     public static void writeSingle(DataOutput out, String s)
+        throws IOException {
+        writeSingle(out, s, false);
+    }
+
+    @SuppressWarnings("deprecation")
+    public static void writeSingle(DataOutput out, String s, boolean compact)
         throws IOException {
         int len = -1;
         if (s != null) {
             len = s.length();
         }
-        out.writeInt(len);
+        writeLength(out, len, compact);
 
-        int v;
         if (len > 0) {
             byte[] bytes = CodecUtil.getByteBuffer();
-            int j = 0;
-            for (int i = 0; i < len; i++) {
-                v = s.charAt(i);
-                bytes[j++] = (byte)((v) & 0xFF);
-                if (j == bytes.length) { //Full
-                    out.write(bytes, 0, j);
-                    j = 0;
-                }
-            }
-            if (j > 0) {
-                out.write(bytes, 0, j);
+            for (int i = 0; i < len; i += bytes.length) {
+                int end = Math.min(len, i + bytes.length);
+                s.getBytes(i, end, bytes, 0);
+                out.write(bytes, 0, end - i);
             }
         }
     }
@@ -117,7 +253,13 @@ public class DataCodec implements CodecConstants {
 
     public static String readSingle(DataInput in)
         throws IOException {
-        int len = in.readInt();
+        return readSingle(in, false);
+    }
+
+    @SuppressWarnings("deprecation")
+    public static String readSingle(DataInput in, boolean compact)
+        throws IOException {
+        int len = readLength(in, compact);
 
         if (len < 0) {
             return null;
@@ -129,40 +271,20 @@ public class DataCodec implements CodecConstants {
             throw new IOException("The string length is so big");
         }
 
-        byte[] bytes = CodecUtil.getByteBuffer();
-        int ch1;
-        int read;
-        if (len <= CHAR_BUFFER_SIZE) {
-            in.readFully(bytes, 0, len);
-            char[] chars = CodecUtil.getCharBuffer();
-            for (int i = 0, j = 0; j < len; i++) {
-                ch1 = (bytes[j++] & 0xFF);
-                chars[i] = (char)(ch1);
-            }
-            return new String(chars, 0, len);
-        }
-        else {
-            StringBuilder sb = new StringBuilder(len);
-            while (len > 0) {
-                read = bytes.length > len ? len : bytes.length;
-                in.readFully(bytes, 0, read);
-                if (read <= 0) {
-                    break;
-                }
-                for (int i = 0, j = 0; i < read; i++) {
-                    ch1 = (bytes[j++] & 0xFF);
-                    sb.append((char)(ch1));
-                }
-                len -= read;
-            }
-            return sb.toString();
-        }
+        byte[] bytes = len <= BYTE_BUFFER_SIZE ? CodecUtil.getByteBuffer() : new byte[len];
+        in.readFully(bytes, 0, len);
+        return new String(bytes, 0, 0, len);
     }
 
 
     public static String readString(DataInput in)
         throws IOException {
-        int len = in.readInt();
+        return readString(in, false);
+    }
+
+    public static String readString(DataInput in, boolean compact)
+        throws IOException {
+        int len = readLength(in, compact);
 
         if (len < 0) {
             return null;
@@ -200,28 +322,35 @@ public class DataCodec implements CodecConstants {
             return new String(chars, 0, len);
         }
         else {
-            StringBuilder sb = new StringBuilder(len);
-            while (len > 0) {
-                read = buf.length > len * 2 ? len * 2 : buf.length;
+            char[] chars = new char[len];
+            int k = 0;
+            int l = len;
+            while (l > 0) {
+                read = buf.length > l * 2 ? l * 2 : buf.length;
                 in.readFully(buf, 0, read);
                 for (int j = 0; j < read;) {
                     ch1 = (buf[j++] & 0xFF);
                     ch2 = (buf[j++] & 0xFF);
-                    sb.append((char)((ch1 << 8) + (ch2)));
+                    chars[k++] = (char)((ch1 << 8) + (ch2));
                 }
-                len -= (read / 2);
+                l -= (read / 2);
             }
-            return sb.toString();
+            return new String(chars, 0, len);
         }
     }
 
     public static void writeBytes(DataOutput out, byte[] bytes)
+        throws IOException {
+        writeBytes(out, bytes, false);
+    }
+
+    public static void writeBytes(DataOutput out, byte[] bytes, boolean compact)
         throws IOException {
         int len = -1;
         if (bytes != null) {
             len = bytes.length;
         }
-        out.writeInt(len);
+        writeLength(out, len, compact);
         if (bytes != null) {
             out.write(bytes);
         }
@@ -229,7 +358,12 @@ public class DataCodec implements CodecConstants {
 
     public static byte[] readBytes(DataInput in)
         throws IOException {
-        int len = in.readInt();
+        return readBytes(in, false);
+    }
+
+    public static byte[] readBytes(DataInput in, boolean compact)
+        throws IOException {
+        int len = readLength(in, compact);
         if (len < 0) {
             return null;
         }
@@ -240,22 +374,22 @@ public class DataCodec implements CodecConstants {
     }
 
 
-    private static void writeString(DataOutput out, String str, byte[] buf)
+    private static void writeString(DataOutput out, String str, byte[] buf, boolean compact)
         throws IOException {
         int len = -1;
         if (str != null) {
             len = str.length();
         }
-        out.writeInt(len);
+        writeLength(out, len, compact);
 
         if (len > 0) {
             writeString(out, str, len, buf);
         }
     }
 
-    private static String readString(DataInput in, byte[] buf)
+    private static String readString(DataInput in, byte[] buf, boolean compact)
         throws IOException {
-        int len = in.readInt();
+        int len = readLength(in, compact);
 
         if (len < 0) {
             return null;
@@ -279,7 +413,12 @@ public class DataCodec implements CodecConstants {
      */
     public static char[] readChars(DataInput in)
         throws IOException {
-        int len = in.readInt();
+        return readChars(in, false);
+    }
+
+    public static char[] readChars(DataInput in, boolean compact)
+        throws IOException {
+        int len = readLength(in, compact);
         if (len < 0) {
             return null;
         }
@@ -315,13 +454,18 @@ public class DataCodec implements CodecConstants {
      * 采用byte缓冲机制的快速写字符
      */
     public static void writeChars(DataOutput out, char[] chars)
+        throws IOException {
+        writeChars(out, chars, false);
+    }
+
+    public static void writeChars(DataOutput out, char[] chars, boolean compact)
         throws IOException {
         int len = -1;
         if (chars != null) {
             len = chars.length;
         }
         int v;
-        out.writeInt(len);
+        writeLength(out, len, compact);
         if (len <= 0) {
             return;
         }
@@ -352,13 +496,19 @@ public class DataCodec implements CodecConstants {
         }
     }
 
-    static void writeClass(ObjectOutput out, Class clazz)
+    static void writeClass(ObjectOutput out, Class clazz, boolean compact)
         throws IOException {
-        writeSingle(out, clazz.getName());
+        writeSingle(out, clazz.getName(), compact);
     }
 
     public static void writeObject(ObjectOutput oos, Object object)
         throws IOException {
+        writeObject(oos, object, false);
+    }
+
+    public static void writeObject(ObjectOutput oos, Object object, boolean compact)
+        throws IOException {
+        SerializerRegistry.Registration registration;
         if (object == null) {
             writeNull(oos);
             return;
@@ -366,15 +516,15 @@ public class DataCodec implements CodecConstants {
 
         if (object instanceof byte[]) {
             writeType(oos, TYPE_BYTE_ARRAY);
-            writeBytes(oos, (byte[])object);
+            writeBytes(oos, (byte[])object, compact);
         }
         else if (object instanceof String) {
             writeType(oos, TYPE_STRING);
-            writeString(oos, (String)object);
+            writeString(oos, (String)object, compact);
         }
         else if (object instanceof char[]) {
             writeType(oos, TYPE_CHAR_ARRAY);
-            writeChars(oos, (char[])object);
+            writeChars(oos, (char[])object, compact);
         }
         else if (object instanceof Character) {
             writeType(oos, TYPE_CHARACTER);
@@ -383,11 +533,21 @@ public class DataCodec implements CodecConstants {
         else if (object instanceof Number) {
             if (object instanceof Integer) {
                 writeType(oos, TYPE_INTEGER);
-                oos.writeInt((Integer)object);
+                if (compact) {
+                    writeSignedVarInt(oos, (Integer)object);
+                }
+                else {
+                    oos.writeInt((Integer)object);
+                }
             }
             else if (object instanceof Long) {
                 writeType(oos, TYPE_LONG);
-                oos.writeLong((Long)object);
+                if (compact) {
+                    writeSignedVarLong(oos, (Long)object);
+                }
+                else {
+                    oos.writeLong((Long)object);
+                }
             }
             else if (object instanceof Byte) {
                 writeType(oos, TYPE_BYTE);
@@ -416,15 +576,18 @@ public class DataCodec implements CodecConstants {
         }
         else if (object instanceof String[]) {
             writeType(oos, TYPE_STRING_ARRAY);
-            writeStringArray(oos, (String[])object);
+            writeStringArray(oos, (String[])object, compact);
         }
         else if (object instanceof Class) {
             writeType(oos, TYPE_CLASS);
-            writeClass(oos, (Class)object);
+            writeClass(oos, (Class)object, compact);
+        }
+        else if ((registration = SerializerRegistry.lookup(object.getClass())) != null) {
+            registration.write(oos, object);
         }
         else if (object instanceof Object[]) {
             writeType(oos, TYPE_OBJECT_ARRAY);
-            writeObjectArray(oos, (Object[])object);
+            writeObjectArray(oos, (Object[])object, compact);
         }
         else if (object instanceof Externalizable) {
             writeType(oos, TYPE_EXTERNALIZABLE);
@@ -461,8 +624,8 @@ public class DataCodec implements CodecConstants {
         return obj;
     }
 
-    static Class readClass(DataInput in) throws IOException, ClassNotFoundException {
-        String className = readSingle(in);
+    static Class readClass(DataInput in, boolean compact) throws IOException, ClassNotFoundException {
+        String className = readSingle(in, compact);
         return Reflection.getClass(className);
     }
 
@@ -479,23 +642,33 @@ public class DataCodec implements CodecConstants {
 
 
     public static void writeObjectArray(ObjectOutput oos, Object[] array)
+        throws IOException {
+        writeObjectArray(oos, array, false);
+    }
+
+    public static void writeObjectArray(ObjectOutput oos, Object[] array, boolean compact)
         throws IOException {
         if (array == null) {
-            oos.writeInt(-1);
+            writeLength(oos, -1, compact);
             return;
         }
 
         int len = array.length;
-        oos.writeInt(len);
-        writeClass(oos, array.getClass().getComponentType());
+        writeLength(oos, len, compact);
+        writeClass(oos, array.getClass().getComponentType(), compact);
         for (int i = 0; i < len; i++) {
-            writeObject(oos, array[i]);
+            writeObject(oos, array[i], compact);
         }
     }
 
     public static Object[] readObjectArray(ObjectInput ois)
         throws IOException, ClassNotFoundException {
-        int len = ois.readInt();
+        return readObjectArray(ois, false);
+    }
+
+    public static Object[] readObjectArray(ObjectInput ois, boolean compact)
+        throws IOException, ClassNotFoundException {
+        int len = readLength(ois, compact);
         if (len == -1) {
             return null;
         }
@@ -503,31 +676,36 @@ public class DataCodec implements CodecConstants {
             throw new IOException("The length is so big");
         }
 
-        Class clazz = readClass(ois);
+        Class clazz = readClass(ois, compact);
         Object[] array = (Object[])Array.newInstance(clazz, len);
         for (int i = 0; i < len; i++) {
-            array[i] = readObject(ois);
+            array[i] = readObject(ois, compact);
         }
         return array;
     }
 
 
     public static Object readObject(ObjectInput ois)
+        throws ClassNotFoundException, IOException {
+        return readObject(ois, false);
+    }
+
+    public static Object readObject(ObjectInput ois, boolean compact)
         throws ClassNotFoundException, IOException {
         int type = readType(ois);
         switch (type) {
             case TYPE_NULL:
                 return null;
             case TYPE_BYTE_ARRAY:
-                return readBytes(ois);
+                return readBytes(ois, compact);
             case TYPE_CHAR_ARRAY:
-                return readChars(ois);
+                return readChars(ois, compact);
             case TYPE_STRING:
-                return readString(ois);
+                return readString(ois, compact);
             case TYPE_INTEGER:
-                return ois.readInt();
+                return compact ? readSignedVarInt(ois) : ois.readInt();
             case TYPE_LONG:
-                return ois.readLong();
+                return compact ? readSignedVarLong(ois) : ois.readLong();
             case TYPE_BYTE:
                 return ois.readByte();
             case TYPE_CHARACTER:
@@ -543,11 +721,13 @@ public class DataCodec implements CodecConstants {
             case TYPE_OBJECT:
                 return ois.readObject();
             case TYPE_CLASS:
-                return readClass(ois);
+                return readClass(ois, compact);
             case TYPE_STRING_ARRAY:
-                return readStringArray(ois);
+                return readStringArray(ois, compact);
             case TYPE_OBJECT_ARRAY:
-                return readObjectArray(ois);
+                return readObjectArray(ois, compact);
+            case TYPE_SERIALIZER:
+                return SerializerRegistry.read(ois);
             case TYPE_EXTERNALIZABLE:
                 return readExternalizable(ois);
             default:
@@ -558,23 +738,33 @@ public class DataCodec implements CodecConstants {
 
 
     public static void writeStringArray(DataOutput oos, String[] array)
+        throws IOException {
+        writeStringArray(oos, array, false);
+    }
+
+    public static void writeStringArray(DataOutput oos, String[] array, boolean compact)
         throws IOException {
         if (array == null) {
-            oos.writeInt(-1);
+            writeLength(oos, -1, compact);
             return;
         }
 
         int len = array.length;
-        oos.writeInt(len);
+        writeLength(oos, len, compact);
         byte[] buf = CodecUtil.getByteBuffer();
         for (int i = 0; i < len; i++) {
-            writeString(oos, array[i], buf);
+            writeString(oos, array[i], buf, compact);
         }
     }
 
     public static String[] readStringArray(DataInput ois)
         throws IOException {
-        int len = ois.readInt();
+        return readStringArray(ois, false);
+    }
+
+    public static String[] readStringArray(DataInput ois, boolean compact)
+        throws IOException {
+        int len = readLength(ois, compact);
         if (len == -1) {
             return null;
         }
@@ -588,7 +778,7 @@ public class DataCodec implements CodecConstants {
         String[] array = new String[len];
         byte[] buf = CodecUtil.getByteBuffer();
         for (int i = 0; i < len; i++) {
-            array[i] = readString(ois, buf);
+            array[i] = readString(ois, buf, compact);
         }
 
         return array;
@@ -607,7 +797,6 @@ public class DataCodec implements CodecConstants {
         }
 
         int utflen = in.readInt();
-        StringBuilder sb = new StringBuilder(strlen);
         ByteBuffer buffer;
         byte[] bytes;
         if (utflen <= BYTE_BUFFER_SIZE) {
@@ -619,8 +808,7 @@ public class DataCodec implements CodecConstants {
         }
 
         in.readFully(bytes, 0, utflen);
-        CodecUtil.fromUTFX(bytes, utflen, sb);
-        return sb.toString();
+        return CodecUtil.fromUTFX(bytes, utflen, strlen);
     }
 
     //UTF8
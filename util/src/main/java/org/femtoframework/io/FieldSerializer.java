@@ -0,0 +1,377 @@
+package org.femtoframework.io;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 按字段串行化的ObjectSerializer，字段通过MethodHandle读写
+ * <p/>
+ * All the non-static, non-transient fields are written in a fixed order, the fields of the superclass first,
+ * the fields of one class by name. Primitives and Strings are written directly, the other fields with
+ * DataCodec#writeObject. No class names and no field names go to the stream, so both sides must have the
+ * same fields. The class needs a no-arg constructor, which may be private.
+ * <p/>
+ * Object fields are written by value, a shared reference comes back as separate copies and a cycle fails
+ * with an IOException, see SerializerRegistry.
+ *
+ * @see SerializerRegistry#register(Class, int)
+ */
+public class FieldSerializer<T> implements ObjectSerializer<T>
+{
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> type;
+
+    private final MethodHandle constructor;
+
+    private final FieldCodec[] fields;
+
+    /**
+     * @param type 类
+     * @throws IllegalArgumentException 没有无参构造方法或者有final字段
+     */
+    public FieldSerializer(Class<T> type)
+    {
+        this.type = type;
+        try {
+            Constructor<T> c = type.getDeclaredConstructor();
+            c.setAccessible(true);
+            this.constructor = LOOKUP.unreflectConstructor(c).asType(MethodType.methodType(Object.class));
+        }
+        catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("No accessible no-arg constructor in " + type.getName(), e);
+        }
+
+        List<FieldCodec> codecs = new ArrayList<>();
+        List<Class<?>> classes = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            classes.add(0, c);
+        }
+        for (Class<?> c : classes) {
+            Field[] declared = c.getDeclaredFields();
+            Arrays.sort(declared, Comparator.comparing(Field::getName));
+            for (Field field : declared) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                    continue;
+                }
+                if (Modifier.isFinal(modifiers)) {
+                    throw new IllegalArgumentException("Final field " + field + " can't be set");
+                }
+                field.setAccessible(true);
+                try {
+                    codecs.add(codec(field));
+                }
+                catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("Field " + field + " is not accessible", e);
+                }
+            }
+        }
+        this.fields = codecs.toArray(new FieldCodec[codecs.size()]);
+    }
+
+    public Class<T> getType()
+    {
+        return type;
+    }
+
+    /**
+     * 字段的数量
+     *
+     * @return int
+     */
+    public int getFieldCount()
+    {
+        return fields.length;
+    }
+
+    public void writeObject(ObjectOutput out, T object) throws IOException
+    {
+        try {
+            for (FieldCodec field : fields) {
+                field.write(out, object);
+            }
+        }
+        catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T readObject(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        try {
+            Object object = (Object)constructor.invokeExact();
+            for (FieldCodec field : fields) {
+                field.read(in, object);
+            }
+            return (T)object;
+        }
+        catch (ClassNotFoundException cnfe) {
+            throw cnfe;
+        }
+        catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static IOException rethrow(Throwable t)
+    {
+        if (t instanceof IOException) {
+            return (IOException)t;
+        }
+        else if (t instanceof RuntimeException) {
+            throw (RuntimeException)t;
+        }
+        else if (t instanceof Error) {
+            throw (Error)t;
+        }
+        return new IOException(t);
+    }
+
+    private static FieldCodec codec(Field field) throws IllegalAccessException
+    {
+        Class<?> fieldType = field.getType();
+        if (fieldType == int.class) {
+            return new IntCodec(field);
+        }
+        else if (fieldType == long.class) {
+            return new LongCodec(field);
+        }
+        else if (fieldType == boolean.class) {
+            return new BooleanCodec(field);
+        }
+        else if (fieldType == double.class) {
+            return new DoubleCodec(field);
+        }
+        else if (fieldType == float.class) {
+            return new FloatCodec(field);
+        }
+        else if (fieldType == short.class) {
+            return new ShortCodec(field);
+        }
+        else if (fieldType == byte.class) {
+            return new ByteCodec(field);
+        }
+        else if (fieldType == char.class) {
+            return new CharCodec(field);
+        }
+        else if (fieldType == String.class) {
+            return new StringCodec(field);
+        }
+        else {
+            return new ObjectCodec(field);
+        }
+    }
+
+    /**
+     * Reads and writes one field, the getter is (Object)X and the setter (Object, X)void
+     */
+    private abstract static class FieldCodec
+    {
+        final MethodHandle getter;
+
+        final MethodHandle setter;
+
+        FieldCodec(Field field, Class<?> as) throws IllegalAccessException
+        {
+            getter = LOOKUP.unreflectGetter(field).asType(MethodType.methodType(as, Object.class));
+            setter = LOOKUP.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, as));
+        }
+
+        abstract void write(ObjectOutput out, Object object) throws Throwable;
+
+        abstract void read(ObjectInput in, Object object) throws Throwable;
+    }
+
+    private static final class IntCodec extends FieldCodec
+    {
+        IntCodec(Field field) throws IllegalAccessException
+        {
+            super(field, int.class);
+        }
+
+        void write(ObjectOutput out, Object object) throws Throwable
+        {
+            out.writeInt((int)getter.invokeExact(object));
+        }
+
+        void read(ObjectInput in, Object object) throws Throwable
+        {
+            setter.invokeExact(object, in.readInt());
+        }
+    }
+
+    private static final class LongCodec extends FieldCodec
+    {
+        LongCodec(Field field) throws IllegalAccessException
+        {
+            super(field, long.class);
+        }
+
+        void write(ObjectOutput out, Object object) throws Throwable
+        {
+            out.writeLong((long)getter.invokeExact(object));
+        }
+
+        void read(ObjectInput in, Object object) throws Throwable
+        {
+            setter.invokeExact(object, in.readLong());
+        }
+    }
+
+    private static final class BooleanCodec extends FieldCodec
+    {
+        BooleanCodec(Field field) throws IllegalAccessException
+        {
+            super(field, boolean.class);
+        }
+
+        void write(ObjectOutput out, Object object) throws Throwable
+        {
+            out.writeBoolean((boolean)getter.invokeExact(object));
+        }
+
+        void read(ObjectInput in, Object object) throws Throwable
+        {
+            setter.invokeExact(object, in.readBoolean());
+        }
+    }
+
+    private static final class DoubleCodec extends FieldCodec
+    {
+        DoubleCodec(Field field) throws IllegalAccessException
+        {
+            super(field, double.class);
+        }
+
+        void write(ObjectOutput out, Object object) throws Throwable
+        {
+            out.writeDouble((double)getter.invokeExact(object));
+        }
+
+        void read(ObjectInput in, Object object) throws Throwable
+        {
+            setter.invokeExact(object, in.readDouble());
+        }
+    }
+
+    private static final class FloatCodec extends FieldCodec
+    {
+        FloatCodec(Field field) throws IllegalAccessException
+        {
+            super(field, float.class);
+        }
+
+        void write(ObjectOutput out, Object object) throws Throwable
+        {
+            out.writeFloat((float)getter.invokeExact(object));
+        }
+
+        void read(ObjectInput in, Object object) throws Throwable
+        {
+            setter.invokeExact(object, in.readFloat());
+        }
+    }
+
+    private static final class ShortCodec extends FieldCodec
+    {
+        ShortCodec(Field field) throws IllegalAccessException
+        {
+            super(field, short.class);
+        }
+
+        void write(ObjectOutput out, Object object) throws Throwable
+        {
+            out.writeShort((short)getter.invokeExact(object));
+        }
+
+        void read(ObjectInput in, Object object) throws Throwable
+        {
+            setter.invokeExact(object, in.readShort());
+        }
+    }
+
+    private static final class ByteCodec extends FieldCodec
+    {
+        ByteCodec(Field field) throws IllegalAccessException
+        {
+            super(field, byte.class);
+        }
+
+        void write(ObjectOutput out, Object object) throws Throwable
+        {
+            out.writeByte((byte)getter.invokeExact(object));
+        }
+
+        void read(ObjectInput in, Object object) throws Throwable
+        {
+            setter.invokeExact(object, in.readByte());
+        }
+    }
+
+    private static final class CharCodec extends FieldCodec
+    {
+        CharCodec(Field field) throws IllegalAccessException
+        {
+            super(field, char.class);
+        }
+
+        void write(ObjectOutput out, Object object) throws Throwable
+        {
+            out.writeChar((char)getter.invokeExact(object));
+        }
+
+        void read(ObjectInput in, Object object) throws Throwable
+        {
+            setter.invokeExact(object, in.readChar());
+        }
+    }
+
+    private static final class StringCodec extends FieldCodec
+    {
+        StringCodec(Field field) throws IllegalAccessException
+        {
+            super(field, String.class);
+        }
+
+        void write(ObjectOutput out, Object object) throws Throwable
+        {
+            DataCodec.writeString(out, (String)getter.invokeExact(object));
+        }
+
+        void read(ObjectInput in, Object object) throws Throwable
+        {
+            setter.invokeExact(object, DataCodec.readString(in));
+        }
+    }
+
+    private static final class ObjectCodec extends FieldCodec
+    {
+        ObjectCodec(Field field) throws IllegalAccessException
+        {
+            super(field, Object.class);
+        }
+
+        void write(ObjectOutput out, Object object) throws Throwable
+        {
+            DataCodec.writeObject(out, (Object)getter.invokeExact(object));
+        }
+
+        void read(ObjectInput in, Object object) throws Throwable
+        {
+            setter.invokeExact(object, DataCodec.readObject(in));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.femtoframework.io;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * 对象的串行化器，注册到SerializerRegistry后CodecUtil和DataCodec直接调用，不再经过ObjectOutputStream
+ *
+ * @see SerializerRegistry
+ */
+public interface ObjectSerializer<T>
+{
+    /**
+     * 串行化
+     *
+     * @param out    输出
+     * @param object 对象，不是<code>null</code>
+     * @throws IOException 当发生I/O异常时
+     */
+    void writeObject(ObjectOutput out, T object)
+        throws IOException;
+
+    /**
+     * 反串行化
+     *
+     * @param in 输入
+     * @return 对象
+     * @throws IOException            当发生I/O异常时
+     * @throws ClassNotFoundException
+     */
+    T readObject(ObjectInput in)
+        throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,445 @@
+package org.femtoframework.io;
+
+import org.femtoframework.nio.ByteBufferPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * 分段的ByteArrayOutputStream
+ * <p/>
+ * Differences with org.femtoframework.io.ByteArrayOutputStream
+ * 1. The data is kept in fixed-size segments from ByteBufferPool, growing appends a segment instead of copying.
+ * 2. #writeTo, #getInputStream and the channel writes walk the segments, there is no consolidation copy,
+ * only #toByteArray and #toString make one contiguous copy.
+ * 3. The segments go back to the pool on #reset and #close, InputStreams and buffers taken before must not be
+ * used after that.
+ * 4. #writeTo(GatheringByteChannel) keeps a cursor, a call after a partial write of a non-blocking channel
+ * continues with the bytes not written yet, #reset sets the cursor back to 0.
+ */
+public class SegmentedByteArrayOutputStream extends OutputStream implements ByteData
+{
+    /**
+     * 默认的段大小
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = ByteBufferPool.SIZE_8192;
+
+    /**
+     * The segments, all full except the last one
+     */
+    protected ByteBuffer[] segments = new ByteBuffer[8];
+
+    /**
+     * The number of segments
+     */
+    protected int segmentCount = 0;
+
+    /**
+     * The array of the last segment
+     */
+    private byte[] current;
+
+    /**
+     * The number of valid bytes in the last segment.
+     */
+    private int position;
+
+    /**
+     * The number of valid bytes
+     */
+    protected int count = 0;
+
+    /**
+     * The number of bytes already written by #writeTo(GatheringByteChannel)
+     */
+    private int channelPosition = 0;
+
+    private final int segmentSize;
+
+    private boolean closed = false;
+
+    public SegmentedByteArrayOutputStream()
+    {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize 段大小，需要是ByteBufferPool中有池的大小
+     */
+    public SegmentedByteArrayOutputStream(int segmentSize)
+    {
+        if (!ByteBufferPool.hasPool(segmentSize)) {
+            throw new IllegalArgumentException("No pool for segment size:" + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Check to make sure that the stream has not been closed
+     */
+    private void ensureOpen()
+    {
+        if (closed) {
+            throw new IllegalStateException("Byte array output stream closed");
+        }
+    }
+
+    private void addSegment()
+    {
+        if (segmentCount == segments.length) {
+            ByteBuffer[] newSegments = new ByteBuffer[segmentCount << 1];
+            System.arraycopy(segments, 0, newSegments, 0, segmentCount);
+            segments = newSegments;
+        }
+        ByteBuffer segment = ByteBufferPool.allocate(segmentSize);
+        segments[segmentCount++] = segment;
+        current = segment.array();
+        position = 0;
+    }
+
+    /**
+     * Writes the specified byte to this byte array output stream.
+     *
+     * @param b the byte to be written.
+     */
+    public void write(int b)
+    {
+        ensureOpen();
+        if (current == null || position == current.length) {
+            addSegment();
+        }
+        current[position++] = (byte)b;
+        count++;
+    }
+
+    /**
+     * Writes <code>len</code> bytes from the specified byte array
+     * starting at offset <code>off</code> to this byte array output stream.
+     *
+     * @param b   the data.
+     * @param off the start offset in the data.
+     * @param len the number of bytes to write.
+     */
+    public void write(byte b[], int off, int len)
+    {
+        ensureOpen();
+        if ((off < 0) || (off > b.length) || (len < 0) ||
+            ((off + len) > b.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException("Length of bytes:" + b.length
+                                                + " off:" + off + " len:" + len);
+        }
+        while (len > 0) {
+            if (current == null || position == current.length) {
+                addSegment();
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(b, off, current, position, n);
+            position += n;
+            off += n;
+            len -= n;
+            count += n;
+        }
+    }
+
+    /**
+     * Valid bytes in the segment
+     */
+    private int length(int index)
+    {
+        return index == segmentCount - 1 ? position : segmentSize;
+    }
+
+    /**
+     * Writes the complete contents of this byte array output stream to
+     * the specified output stream argument, one write per segment.
+     *
+     * @param out the output stream to which to write the data.
+     * @throws java.io.IOException if an I/O error occurs.
+     */
+    public void writeTo(OutputStream out)
+        throws IOException
+    {
+        ensureOpen();
+        for (int i = 0; i < segmentCount; i++) {
+            int len = length(i);
+            if (len > 0) {
+                out.write(segments[i].array(), 0, len);
+            }
+        }
+    }
+
+    /**
+     * 用gathering write把还没写出的数据写到Channel，非阻塞的Channel写不进去时返回<br>
+     * 再次调用时从上次写到的位置继续，#getChannelRemaining为0时全部写完
+     *
+     * @param channel Channel
+     * @return 这次写出的字节数
+     * @throws IOException
+     */
+    public long writeTo(GatheringByteChannel channel) throws IOException
+    {
+        ensureOpen();
+        if (channelPosition >= count) {
+            return 0;
+        }
+        int first = channelPosition / segmentSize;
+        ByteBuffer[] buffers = new ByteBuffer[segmentCount - first];
+        for (int i = first; i < segmentCount; i++) {
+            ByteBuffer buffer = segments[i].asReadOnlyBuffer();
+            buffer.limit(length(i));
+            buffers[i - first] = buffer;
+        }
+        buffers[0].position(channelPosition - first * segmentSize);
+
+        long written = 0;
+        int index = 0;
+        while (index < buffers.length) {
+            long n = channel.write(buffers, index, buffers.length - index);
+            if (n <= 0) {
+                break;
+            }
+            written += n;
+            while (index < buffers.length && !buffers[index].hasRemaining()) {
+                index++;
+            }
+        }
+        channelPosition += (int)written;
+        return written;
+    }
+
+    /**
+     * 还没有通过#writeTo(GatheringByteChannel)写出的字节数
+     *
+     * @return int
+     */
+    public int getChannelRemaining()
+    {
+        return count - channelPosition;
+    }
+
+    /**
+     * 返回每个段的只读视图，不复制数据
+     *
+     * @return ByteBuffer[]
+     */
+    public ByteBuffer[] toReadOnlyBuffers()
+    {
+        ensureOpen();
+        ByteBuffer[] buffers = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            ByteBuffer buffer = segments[i].asReadOnlyBuffer();
+            buffer.limit(length(i));
+            buffers[i] = buffer;
+        }
+        return buffers;
+    }
+
+    /**
+     * 返回所有的段给ByteBufferPool，输出流可以继续使用
+     */
+    public void reset()
+    {
+        ensureOpen();
+        release();
+    }
+
+    private void release()
+    {
+        for (int i = 0; i < segmentCount; i++) {
+            ByteBufferPool.recycle(segments[i]);
+            segments[i] = null;
+        }
+        segmentCount = 0;
+        current = null;
+        position = 0;
+        count = 0;
+        channelPosition = 0;
+    }
+
+    /**
+     * Creates a newly allocated byte array. Its size is the current
+     * size of this output stream and the valid contents of the segments
+     * have been copied into it.
+     *
+     * @return the current contents of this output stream, as a byte array.
+     */
+    public byte[] toByteArray()
+    {
+        ensureOpen();
+        byte[] bytes = new byte[count];
+        int off = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            int len = length(i);
+            System.arraycopy(segments[i].array(), 0, bytes, off, len);
+            off += len;
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the current size of the data.
+     *
+     * @return the number of valid bytes in this output stream.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Return current count
+     *
+     * @return
+     */
+    public int getCount()
+    {
+        return size();
+    }
+
+    /**
+     * 段大小
+     *
+     * @return int
+     */
+    public int getSegmentSize()
+    {
+        return segmentSize;
+    }
+
+    /**
+     * 当前段的数量
+     *
+     * @return int
+     */
+    public int getSegmentCount()
+    {
+        return segmentCount;
+    }
+
+    /**
+     * Converts the contents into a string, translating bytes into
+     * characters according to the platform's default character encoding.
+     *
+     * @return String translated from the contents.
+     */
+    public String toString()
+    {
+        return new String(toByteArray());
+    }
+
+    /**
+     * Converts the contents into a string, translating bytes into
+     * characters according to the specified character encoding.
+     *
+     * @param enc a character-encoding name.
+     * @return String translated from the contents.
+     * @throws java.io.UnsupportedEncodingException
+     *          If the named encoding is not supported.
+     */
+    public String toString(String enc)
+        throws UnsupportedEncodingException
+    {
+        return new String(toByteArray(), enc);
+    }
+
+    /**
+     * 返回所有的段给ByteBufferPool并关闭，关闭后不能再写
+     */
+    public void close()
+    {
+        if (!closed) {
+            release();
+            closed = true;
+        }
+    }
+
+    /**
+     * 读取当前数据的输入流，直接读取各个段，在#reset或者#close之前有效
+     *
+     * @return InputStream
+     */
+    public InputStream getInputStream() throws IOException
+    {
+        ensureOpen();
+        return new SegmentInputStream(toReadOnlyBuffers());
+    }
+
+    /**
+     * Reads the segments one after another
+     */
+    private static class SegmentInputStream extends InputStream
+    {
+        private final ByteBuffer[] buffers;
+
+        private int index = 0;
+
+        SegmentInputStream(ByteBuffer[] buffers)
+        {
+            this.buffers = buffers;
+        }
+
+        /**
+         * The current buffer with bytes, null at the end
+         */
+        private ByteBuffer buffer()
+        {
+            while (index < buffers.length) {
+                ByteBuffer buffer = buffers[index];
+                if (buffer.hasRemaining()) {
+                    return buffer;
+                }
+                index++;
+            }
+            return null;
+        }
+
+        public int read()
+        {
+            ByteBuffer buffer = buffer();
+            return buffer != null ? buffer.get() & 0xFF : -1;
+        }
+
+        public int read(byte[] b, int off, int len)
+        {
+            if ((off < 0) || (len < 0) || (off + len > b.length)) {
+                throw new IndexOutOfBoundsException("Offset=" + off + " Length=" + len);
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int read = 0;
+            ByteBuffer buffer;
+            while (read < len && (buffer = buffer()) != null) {
+                int n = Math.min(len - read, buffer.remaining());
+                buffer.get(b, off + read, n);
+                read += n;
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        public long skip(long n)
+        {
+            long skipped = 0;
+            ByteBuffer buffer;
+            while (skipped < n && (buffer = buffer()) != null) {
+                int s = (int)Math.min(n - skipped, buffer.remaining());
+                buffer.position(buffer.position() + s);
+                skipped += s;
+            }
+            return skipped;
+        }
+
+        public int available()
+        {
+            long available = 0;
+            for (int i = index; i < buffers.length; i++) {
+                available += buffers[i].remaining();
+            }
+            return (int)Math.min(Integer.MAX_VALUE, available);
+        }
+    }
+}
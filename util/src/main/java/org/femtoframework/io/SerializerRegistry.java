@@ -0,0 +1,309 @@
+package org.femtoframework.io;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 串行化器注册表
+ * <p/>
+ * CodecUtil#writeObject and DataCodec#writeObject look up the class of an object which is not one of the
+ * built-in types here before falling back to ObjectOutputStream#writeObject. A registered object is written
+ * as TYPE_SERIALIZER, the id as a variable-length int and the fields, no class name, no class descriptor.
+ * Both sides must register the same classes with the same ids. Only the exact class matches, not subclasses.
+ * <p/>
+ * There are no back references: an object reached twice is written twice and read back as two copies, so
+ * only tree-shaped values should be registered. A cycle through registered objects is detected while writing
+ * and fails with an IOException instead of a StackOverflowError.
+ */
+public class SerializerRegistry
+{
+    private static final Map<Class<?>, Registration> byClass = new ConcurrentHashMap<>();
+
+    private static final Map<Integer, Registration> byId = new ConcurrentHashMap<>();
+
+    /**
+     * 当前线程正在写出的注册对象，用来发现循环引用
+     */
+    private static final ThreadLocal<WriteStack> writing = ThreadLocal.withInitial(WriteStack::new);
+
+    /**
+     * 注册类，自动生成串行化器<br>
+     * Externalizable和Streamable调用自己的方法，其它的类按字段串行化
+     *
+     * @param type 类，需要有无参构造方法
+     * @param id   编号，大于0
+     * @return 生成的串行化器
+     * @throws IllegalArgumentException 编号已经被别的类使用，或者不能生成串行化器
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ObjectSerializer<T> register(Class<T> type, int id)
+    {
+        ObjectSerializer<T> serializer;
+        if (Externalizable.class.isAssignableFrom(type)) {
+            serializer = (ObjectSerializer<T>)new ExternalizableSerializer(type);
+        }
+        else if (Streamable.class.isAssignableFrom(type)) {
+            serializer = (ObjectSerializer<T>)new StreamableSerializer(type);
+        }
+        else {
+            serializer = new FieldSerializer<>(type);
+        }
+        register(type, id, serializer);
+        return serializer;
+    }
+
+    /**
+     * 用指定的串行化器注册类
+     *
+     * @param type       类
+     * @param id         编号，大于0
+     * @param serializer 串行化器
+     * @throws IllegalArgumentException 编号已经被别的类使用
+     */
+    public static synchronized <T> void register(Class<T> type, int id, ObjectSerializer<T> serializer)
+    {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Invalid serializer id:" + id);
+        }
+        Registration old = byId.get(id);
+        if (old != null && old.type != type) {
+            throw new IllegalArgumentException("Serializer id:" + id + " is used by " + old.type.getName());
+        }
+        unregister(type);
+        Registration registration = new Registration(type, id, serializer);
+        byId.put(id, registration);
+        byClass.put(type, registration);
+    }
+
+    /**
+     * 取消注册
+     *
+     * @param type 类
+     * @return 是否注册过
+     */
+    public static synchronized boolean unregister(Class<?> type)
+    {
+        Registration registration = byClass.remove(type);
+        if (registration != null) {
+            byId.remove(registration.id);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 类的串行化器
+     *
+     * @param type 类
+     * @return 串行化器，没有注册返回<code>null</code>
+     */
+    public static ObjectSerializer<?> getSerializer(Class<?> type)
+    {
+        Registration registration = byClass.get(type);
+        return registration != null ? registration.serializer : null;
+    }
+
+    /**
+     * 类的编号
+     *
+     * @param type 类
+     * @return 编号，没有注册返回0
+     */
+    public static int getId(Class<?> type)
+    {
+        Registration registration = byClass.get(type);
+        return registration != null ? registration.id : 0;
+    }
+
+    static Registration lookup(Class<?> type)
+    {
+        return byClass.get(type);
+    }
+
+    /**
+     * 读取TYPE_SERIALIZER之后的编号和对象
+     */
+    static Object read(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        int id = DataCodec.readVarInt(in);
+        Registration registration = byId.get(id);
+        if (registration == null) {
+            throw new IOException("No serializer registered with id:" + id);
+        }
+        return registration.serializer.readObject(in);
+    }
+
+    static final class Registration
+    {
+        final Class<?> type;
+
+        final int id;
+
+        final ObjectSerializer serializer;
+
+        Registration(Class<?> type, int id, ObjectSerializer serializer)
+        {
+            this.type = type;
+            this.id = id;
+            this.serializer = serializer;
+        }
+
+        /**
+         * 写出TYPE_SERIALIZER、编号和对象
+         *
+         * @throws IOException 对象已经在写出中，即有循环引用
+         */
+        @SuppressWarnings("unchecked")
+        void write(ObjectOutput out, Object object) throws IOException
+        {
+            WriteStack stack = writing.get();
+            stack.push(object);
+            try {
+                DataCodec.writeType(out, CodecConstants.TYPE_SERIALIZER);
+                DataCodec.writeVarInt(out, id);
+                serializer.writeObject(out, object);
+            }
+            finally {
+                stack.pop();
+            }
+        }
+    }
+
+    /**
+     * The registered objects being written by this thread, the nesting is shallow for tree-shaped values,
+     * so an identity scan is cheaper than a map
+     */
+    private static final class WriteStack
+    {
+        private Object[] objects = new Object[8];
+
+        private int size;
+
+        void push(Object object) throws IOException
+        {
+            for (int i = 0; i < size; i++) {
+                if (objects[i] == object) {
+                    throw new IOException("Cyclic reference to " + object.getClass().getName()
+                                          + ", only tree-shaped values can be registered");
+                }
+            }
+            if (size == objects.length) {
+                objects = Arrays.copyOf(objects, size * 2);
+            }
+            objects[size++] = object;
+        }
+
+        void pop()
+        {
+            objects[--size] = null;
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> type)
+    {
+        try {
+            Constructor<?> c = type.getDeclaredConstructor();
+            c.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(c).asType(MethodType.methodType(Object.class));
+        }
+        catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("No accessible no-arg constructor in " + type.getName(), e);
+        }
+    }
+
+    private static Object newInstance(MethodHandle constructor) throws IOException
+    {
+        try {
+            return (Object)constructor.invokeExact();
+        }
+        catch (RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable t) {
+            throw new IOException(t);
+        }
+    }
+
+    /**
+     * Calls writeExternal and readExternal, the instance is created without reflection per object
+     */
+    private static final class ExternalizableSerializer implements ObjectSerializer<Externalizable>
+    {
+        private final MethodHandle constructor;
+
+        ExternalizableSerializer(Class<?> type)
+        {
+            this.constructor = constructor(type);
+        }
+
+        public void writeObject(ObjectOutput out, Externalizable object) throws IOException
+        {
+            object.writeExternal(out);
+        }
+
+        public Externalizable readObject(ObjectInput in) throws IOException, ClassNotFoundException
+        {
+            Externalizable object = (Externalizable)newInstance(constructor);
+            object.readExternal(in);
+            return object;
+        }
+    }
+
+    /**
+     * Calls writeTo and readFrom, ObjectOutputStream and ObjectInputStream are passed as they are
+     */
+    private static final class StreamableSerializer implements ObjectSerializer<Streamable>
+    {
+        private final MethodHandle constructor;
+
+        StreamableSerializer(Class<?> type)
+        {
+            this.constructor = constructor(type);
+        }
+
+        public void writeObject(final ObjectOutput out, Streamable object) throws IOException
+        {
+            object.writeTo(out instanceof OutputStream ? (OutputStream)out : new OutputStream()
+            {
+                public void write(int b) throws IOException
+                {
+                    out.write(b);
+                }
+
+                public void write(byte[] b, int off, int len) throws IOException
+                {
+                    out.write(b, off, len);
+                }
+            });
+        }
+
+        public Streamable readObject(final ObjectInput in) throws IOException, ClassNotFoundException
+        {
+            Streamable object = (Streamable)newInstance(constructor);
+            object.readFrom(in instanceof InputStream ? (InputStream)in : new InputStream()
+            {
+                public int read() throws IOException
+                {
+                    return in.read();
+                }
+
+                public int read(byte[] b, int off, int len) throws IOException
+                {
+                    return in.read(b, off, len);
+                }
+            });
+            return object;
+        }
+    }
+}
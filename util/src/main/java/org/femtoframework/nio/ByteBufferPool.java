@@ -1,8 +1,11 @@
 package org.femtoframework.nio;
 
 import org.femtoframework.util.ObjectPool;
+import org.femtoframework.util.PoolStats;
+import org.femtoframework.util.StripedObjectPool;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * ByteBuffer连接池
@@ -23,23 +26,47 @@ public class ByteBufferPool
 
     public static final int DEFAULT_BUFFER_SIZE = SIZE_1024;
 
+    //回收池按线程缓存，I/O线程取出和回收时通常不需要加锁
+
     //回收池 512
-    private static ObjectPool pool0 = new ObjectPool(64);
+    private static ObjectPool pool0 = new StripedObjectPool(8, 64);
 
     //回收池 1K
-    private static ObjectPool pool1 = new ObjectPool(512);
+    private static ObjectPool pool1 = new StripedObjectPool(16, 512);
 
     //回收池 2K
-    private static ObjectPool pool2 = new ObjectPool(64);
+    private static ObjectPool pool2 = new StripedObjectPool(8, 64);
 
     //回收池 4K
-    private static ObjectPool pool3 = new ObjectPool(32);
+    private static ObjectPool pool3 = new StripedObjectPool(4, 32);
 
     //回收池 8K
-    private static ObjectPool pool4 = new ObjectPool(32);
+    private static ObjectPool pool4 = new StripedObjectPool(4, 32);
 
     //回收池 32K
-    private static ObjectPool pool5 = new ObjectPool(4);
+    private static ObjectPool pool5 = new StripedObjectPool(1, 4);
+
+    //没有回收池的分配次数
+    private static final LongAdder oversize = new LongAdder();
+
+    /**
+     * 最大堆外内存的系统属性
+     */
+    public static final String DIRECT_MAX_CAPACITY = "femto.nio.direct.max";
+
+    //堆外内存池
+    private static final DirectArena arena = new DirectArena(
+        new int[]{SIZE_512, SIZE_1024, SIZE_2048, SIZE_4096, SIZE_8192, SIZE_32K},
+        DirectArena.DEFAULT_CHUNK_SIZE, Long.getLong(DIRECT_MAX_CAPACITY, DirectArena.DEFAULT_MAX_CAPACITY));
+
+    /**
+     * PooledByteBuffer泄漏检测采样间隔的系统属性，1表示跟踪所有的Buffer，0表示关闭
+     */
+    public static final String LEAK_SAMPLING_INTERVAL = "femto.nio.leak.sample";
+
+    //PooledByteBuffer的泄漏检测
+    private static final LeakDetector leakDetector = new LeakDetector(
+        "PooledByteBuffer", Integer.getInteger(LEAK_SAMPLING_INTERVAL, LeakDetector.DEFAULT_SAMPLING_INTERVAL));
 
     /**
      * 从Buffer Pool 中取出
@@ -65,6 +92,9 @@ public class ByteBufferPool
         if (pool != null) {
             buffer = (ByteBuffer)pool.get();
         }
+        else {
+            oversize.increment();
+        }
         if (buffer == null) {
             buffer = ByteBuffer.wrap(new byte[capacity]);
         }
@@ -79,9 +109,65 @@ public class ByteBufferPool
     public static ByteBuffer allocateBySize(int size)
     {
         if (size > SIZE_32K) {
+            oversize.increment();
             return ByteBuffer.wrap(new byte[size]);
         }
-        int capacity = SIZE_8192;
+        return allocate(capacityOf(size));
+    }
+
+    /**
+     * 从堆外内存池中取出，用于Channel读写，避免堆内Buffer的额外拷贝<br>
+     * 没有对应的回收池或者超出最大堆外内存时，直接申请一个不回收的堆外Buffer
+     *
+     * @param capacity 容积
+     */
+    public static ByteBuffer allocateDirect(int capacity)
+    {
+        ByteBuffer buffer = arena.allocate(capacity);
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(capacity);
+        }
+        return buffer;
+    }
+
+    /**
+     * 从堆外内存池中取出
+     *
+     * @param size 当前的大小，根据大小选取合适的ByteBuffer
+     */
+    public static ByteBuffer allocateDirectBySize(int size)
+    {
+        if (size > SIZE_32K) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        return allocateDirect(capacityOf(size));
+    }
+
+    /**
+     * 从Buffer Pool 中取出，返回引用计数的句柄，最后一次release时自动回收
+     *
+     * @param size 当前的大小，根据大小选取合适的ByteBuffer
+     * @return PooledByteBuffer
+     */
+    public static PooledByteBuffer allocatePooled(int size)
+    {
+        return PooledByteBuffer.wrap(allocateBySize(size), leakDetector);
+    }
+
+    /**
+     * 从堆外内存池中取出，返回引用计数的句柄，最后一次release时自动回收
+     *
+     * @param size 当前的大小，根据大小选取合适的ByteBuffer
+     * @return PooledByteBuffer
+     */
+    public static PooledByteBuffer allocatePooledDirect(int size)
+    {
+        return PooledByteBuffer.wrap(allocateDirectBySize(size), leakDetector);
+    }
+
+    private static int capacityOf(int size)
+    {
+        int capacity;
         if (size <= SIZE_512) {
             capacity = SIZE_512;
         }
@@ -100,8 +186,7 @@ public class ByteBufferPool
         else {
             capacity = SIZE_32K;
         }
-
-        return allocate(capacity);
+        return capacity;
     }
 
     /**
@@ -152,7 +237,81 @@ public class ByteBufferPool
     }
 
     /**
-     * 回收ByteBuffer
+     * 返回回收池的统计，包括取出次数、命中、未命中、回收、池满丢弃和空闲的最高值
+     *
+     * @param capacity 容积
+     * @return PoolStats，没有对应的回收池时返回<code>null</code>
+     */
+    public static PoolStats getStats(int capacity)
+    {
+        ObjectPool pool = getPool(capacity);
+        return pool != null ? pool.getStats() : null;
+    }
+
+    /**
+     * 超出最大回收池或者没有对应回收池的堆内分配次数，这些Buffer不会被回收
+     *
+     * @return long
+     */
+    public static long getOversizeCount()
+    {
+        return oversize.sum();
+    }
+
+    /**
+     * 回收池的共享容量
+     *
+     * @param capacity 容积
+     * @return 共享的Buffer数，没有对应的回收池时返回0
+     */
+    public static int getPoolCapacity(int capacity)
+    {
+        ObjectPool pool = getPool(capacity);
+        return pool != null ? pool.size() : 0;
+    }
+
+    /**
+     * 根据统计调整回收池的容量
+     *
+     * @param capacity       容积
+     * @param threadCapacity 每个线程缓存的Buffer数，0表示不缓存
+     * @param sharedCapacity 共享的Buffer数
+     * @throws IllegalArgumentException 没有对应的回收池
+     */
+    public static void setPoolCapacity(int capacity, int threadCapacity, int sharedCapacity)
+    {
+        ObjectPool pool = getPool(capacity);
+        if (pool == null) {
+            throw new IllegalArgumentException("No pool of capacity:" + capacity);
+        }
+        if (pool instanceof StripedObjectPool) {
+            ((StripedObjectPool)pool).setThreadCapacity(threadCapacity);
+        }
+        pool.setCapacity(sharedCapacity);
+    }
+
+    /**
+     * 返回堆外内存池
+     *
+     * @return DirectArena
+     */
+    public static DirectArena getDirectArena()
+    {
+        return arena;
+    }
+
+    /**
+     * 返回PooledByteBuffer的泄漏检测
+     *
+     * @return LeakDetector
+     */
+    public static LeakDetector getLeakDetector()
+    {
+        return leakDetector;
+    }
+
+    /**
+     * 回收ByteBuffer，回收后不能再使用这个ByteBuffer
      */
     public static void recycle(ByteBuffer buffer)
     {
@@ -161,6 +320,11 @@ public class ByteBufferPool
         }
 
         buffer.clear();
+        if (buffer.isDirect()) {
+            //Direct buffers which are not from the arena are left to GC
+            arena.recycle(buffer);
+            return;
+        }
         int capacity = buffer.capacity();
         ObjectPool pool = getPool(capacity);
         if (pool != null) {
@@ -0,0 +1,421 @@
+package org.femtoframework.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 堆外内存池
+ * <p>
+ * Direct memory is reserved in large chunks, every chunk serves one size class and is carved into slots.
+ * Each allocation hands out a fresh slice over a free slot, #recycle puts the slot back.
+ * A slice which is garbage-collected without #recycle is reported as a leak and its slot is kept out of
+ * circulation for good, duplicate, slice or read-only views of the slice could still be in use since they
+ * keep the chunk alive rather than the slice. So a chunk with a leaked slot is never freed either.
+ * Set "femto.nio.leak.trace" to true to record where leaked buffers were allocated.
+ * <p>
+ * Chunks are never given back to GC, #release frees the chunks which have no slot in use.
+ */
+public class DirectArena
+{
+    /**
+     * 默认的块大小（1M）
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * 默认的最大堆外内存（64M）
+     */
+    public static final long DEFAULT_MAX_CAPACITY = 64L * 1024 * 1024;
+
+    /**
+     * System property to record where leaked buffers were allocated
+     */
+    public static final String LEAK_TRACE = "femto.nio.leak.trace";
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectArena.class);
+
+    private final SizeClass[] classes;
+
+    private final int chunkSize;
+
+    private final long maxCapacity;
+
+    private final AtomicLong reserved = new AtomicLong();
+
+    private final ConcurrentHashMap<Integer, Lease> leases = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<ByteBuffer> collected = new ReferenceQueue<>();
+
+    private final LongAdder leakCount = new LongAdder();
+
+    private volatile boolean traceLeaks = Boolean.getBoolean(LEAK_TRACE);
+
+    /**
+     * 构建堆外内存池
+     *
+     * @param sizes       Size classes
+     * @param chunkSize   Bytes reserved at a time, it is rounded up to a multiple of the size class
+     * @param maxCapacity Maximum bytes of all the chunks
+     */
+    public DirectArena(int[] sizes, int chunkSize, long maxCapacity)
+    {
+        if (chunkSize <= 0 || maxCapacity < 0) {
+            throw new IllegalArgumentException("Invalid chunk size or max capacity:" + chunkSize + "," + maxCapacity);
+        }
+        int[] sorted = sizes.clone();
+        Arrays.sort(sorted);
+        this.classes = new SizeClass[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] <= 0) {
+                throw new IllegalArgumentException("Invalid size:" + sorted[i]);
+            }
+            this.classes[i] = new SizeClass(sorted[i]);
+        }
+        this.chunkSize = chunkSize;
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * 分配指定容积的堆外Buffer
+     *
+     * @param capacity 容积，必须是一个size class
+     * @return ByteBuffer，没有对应的size class或者超出最大堆外内存时返回<code>null</code>
+     */
+    public ByteBuffer allocate(int capacity)
+    {
+        expunge();
+        SizeClass sizeClass = getSizeClass(capacity);
+        if (sizeClass == null) {
+            return null;
+        }
+        Slot slot = sizeClass.free.poll();
+        if (slot == null) {
+            slot = sizeClass.grow();
+            if (slot == null) {
+                return null;
+            }
+        }
+        return lease(slot);
+    }
+
+    private ByteBuffer lease(Slot slot)
+    {
+        while (true) {
+            ByteBuffer buffer = slot.slice();
+            int hash = System.identityHashCode(buffer);
+            Throwable trace = traceLeaks ? new Throwable("Allocated here") : null;
+            Lease lease = new Lease(buffer, slot, hash, trace, collected);
+            if (leases.putIfAbsent(hash, lease) == null) {
+                return buffer;
+            }
+            //Another live buffer has the same identity hash, takes a new slice
+            lease.clear();
+        }
+    }
+
+    /**
+     * 回收堆外Buffer
+     *
+     * @param buffer ByteBuffer
+     * @return 是否是当前分配出去的Buffer，重复回收返回<code>false</code>
+     */
+    public boolean recycle(ByteBuffer buffer)
+    {
+        if (buffer == null || !buffer.isDirect()) {
+            return false;
+        }
+        int hash = System.identityHashCode(buffer);
+        Lease lease = leases.get(hash);
+        if (lease == null || lease.get() != buffer || !leases.remove(hash, lease)) {
+            return false;
+        }
+        lease.clear();
+        lease.slot.sizeClass.free.offerFirst(lease.slot);
+        return true;
+    }
+
+    /**
+     * Counts and logs the buffers which were garbage-collected without #recycle, their slots are not reused
+     */
+    public void expunge()
+    {
+        Lease lease;
+        while ((lease = (Lease)collected.poll()) != null) {
+            if (leases.remove(lease.hash, lease)) {
+                leakCount.increment();
+                if (lease.trace != null) {
+                    logger.warn("LEAK: direct ByteBuffer(" + lease.slot.sizeClass.size
+                                + ") was garbage-collected without recycle", lease.trace);
+                }
+                else {
+                    logger.warn("LEAK: direct ByteBuffer(" + lease.slot.sizeClass.size
+                                + ") was garbage-collected without recycle, set -D" + LEAK_TRACE
+                                + "=true to see where it was allocated");
+                }
+            }
+        }
+    }
+
+    /**
+     * 释放没有被使用的块
+     *
+     * @return 释放的字节数
+     */
+    public long release()
+    {
+        expunge();
+        long released = 0;
+        for (SizeClass sizeClass : classes) {
+            released += sizeClass.release();
+        }
+        return released;
+    }
+
+    private SizeClass getSizeClass(int capacity)
+    {
+        for (SizeClass sizeClass : classes) {
+            if (sizeClass.size == capacity) {
+                return sizeClass;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否拥有对应的size class
+     *
+     * @param capacity 容积
+     * @return boolean
+     */
+    public boolean hasSizeClass(int capacity)
+    {
+        return getSizeClass(capacity) != null;
+    }
+
+    /**
+     * 已经申请的堆外内存
+     *
+     * @return 字节数
+     */
+    public long getReservedBytes()
+    {
+        return reserved.get();
+    }
+
+    public long getMaxCapacity()
+    {
+        return maxCapacity;
+    }
+
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * 块数
+     *
+     * @return int
+     */
+    public int getChunkCount()
+    {
+        int count = 0;
+        for (SizeClass sizeClass : classes) {
+            count += sizeClass.chunkCount();
+        }
+        return count;
+    }
+
+    /**
+     * 分配出去还没有回收的Buffer数
+     *
+     * @return int
+     */
+    public int getLeasedCount()
+    {
+        return leases.size();
+    }
+
+    /**
+     * 没有回收就被GC的Buffer数
+     *
+     * @return long
+     */
+    public long getLeakCount()
+    {
+        return leakCount.sum();
+    }
+
+    public boolean isTraceLeaks()
+    {
+        return traceLeaks;
+    }
+
+    /**
+     * Whether to record where every buffer is allocated, it costs a stack trace per allocation
+     *
+     * @param traceLeaks boolean
+     */
+    public void setTraceLeaks(boolean traceLeaks)
+    {
+        this.traceLeaks = traceLeaks;
+    }
+
+    /**
+     * Chunks and free slots of one size
+     */
+    private final class SizeClass
+    {
+        private final int size;
+
+        //LIFO, the slot recycled last is still in cache
+        private final ConcurrentLinkedDeque<Slot> free = new ConcurrentLinkedDeque<>();
+
+        private final List<Chunk> chunks = new ArrayList<>();
+
+        SizeClass(int size)
+        {
+            this.size = size;
+        }
+
+        /**
+         * Reserves a new chunk, returns one of its slots and frees the others
+         */
+        synchronized Slot grow()
+        {
+            Slot slot = free.poll();
+            if (slot != null) {
+                return slot;
+            }
+            int bytes = Math.max(size, chunkSize / size * size);
+            long current;
+            do {
+                current = reserved.get();
+                if (current + bytes > maxCapacity) {
+                    return null;
+                }
+            }
+            while (!reserved.compareAndSet(current, current + bytes));
+
+            Chunk chunk;
+            try {
+                chunk = new Chunk(ByteBuffer.allocateDirect(bytes));
+            }
+            catch (OutOfMemoryError oom) {
+                reserved.addAndGet(-bytes);
+                logger.warn("Direct memory exhausted, reserved:" + reserved.get(), oom);
+                return null;
+            }
+            chunks.add(chunk);
+            for (int offset = size; offset < bytes; offset += size) {
+                free.offer(new Slot(this, chunk, offset));
+            }
+            return new Slot(this, chunk, 0);
+        }
+
+        /**
+         * Frees the chunks whose slots are all free
+         */
+        synchronized long release()
+        {
+            Map<Chunk, List<Slot>> freeSlots = new IdentityHashMap<>();
+            Slot slot;
+            while ((slot = free.poll()) != null) {
+                freeSlots.computeIfAbsent(slot.chunk, c -> new ArrayList<>()).add(slot);
+            }
+            long released = 0;
+            for (Map.Entry<Chunk, List<Slot>> entry : freeSlots.entrySet()) {
+                Chunk chunk = entry.getKey();
+                int capacity = chunk.memory.capacity();
+                if (entry.getValue().size() == capacity / size) {
+                    chunks.remove(chunk);
+                    reserved.addAndGet(-capacity);
+                    DirectBuffers.free(chunk.memory);
+                    released += capacity;
+                }
+                else {
+                    free.addAll(entry.getValue());
+                }
+            }
+            return released;
+        }
+
+        synchronized int chunkCount()
+        {
+            return chunks.size();
+        }
+    }
+
+    /**
+     * Direct memory reserved at a time
+     */
+    private static final class Chunk
+    {
+        private final ByteBuffer memory;
+
+        Chunk(ByteBuffer memory)
+        {
+            this.memory = memory;
+        }
+    }
+
+    /**
+     * One buffer in a chunk
+     */
+    private static final class Slot
+    {
+        private final SizeClass sizeClass;
+
+        private final Chunk chunk;
+
+        private final int offset;
+
+        Slot(SizeClass sizeClass, Chunk chunk, int offset)
+        {
+            this.sizeClass = sizeClass;
+            this.chunk = chunk;
+            this.offset = offset;
+        }
+
+        ByteBuffer slice()
+        {
+            ByteBuffer duplicate = chunk.memory.duplicate();
+            duplicate.limit(offset + sizeClass.size);
+            duplicate.position(offset);
+            return duplicate.slice();
+        }
+    }
+
+    /**
+     * A buffer handed out, it is enqueued if the buffer is garbage-collected before #recycle
+     */
+    private static final class Lease extends WeakReference<ByteBuffer>
+    {
+        private final Slot slot;
+
+        private final int hash;
+
+        private final Throwable trace;
+
+        Lease(ByteBuffer buffer, Slot slot, int hash, Throwable trace, ReferenceQueue<ByteBuffer> queue)
+        {
+            super(buffer, queue);
+            this.slot = slot;
+            this.hash = hash;
+            this.trace = trace;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.femtoframework.nio;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Frees direct buffers and unmaps mapped buffers without waiting for GC
+ * <p>
+ * It calls the cleaner of the buffer by reflection, Unsafe#invokeCleaner on JDK 9 and later,
+ * DirectBuffer#cleaner on JDK 8. If neither is available, the memory is left to GC.
+ * <p>
+ * Internal API: a buffer which is touched after it is freed crashes the JVM. Only #unmap is public, for the
+ * mapped streams in org.femtoframework.io which own their windows; freeing direct memory stays in this package,
+ * pooled and arena buffers are never freed from outside.
+ */
+public final class DirectBuffers
+{
+    private static final Object UNSAFE;
+
+    private static final Method INVOKE_CLEANER;
+
+    private static final Method CLEANER;
+
+    private static final Method CLEAN;
+
+    static
+    {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        Method cleaner = null;
+        Method clean = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        }
+        catch (Throwable t) {
+            invokeCleaner = null;
+            try {
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            }
+            catch (Throwable t2) {
+                cleaner = null;
+            }
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    private DirectBuffers()
+    {
+    }
+
+    /**
+     * Whether the memory could be freed explicitly
+     *
+     * @return boolean
+     */
+    public static boolean isSupported()
+    {
+        return INVOKE_CLEANER != null || CLEANER != null;
+    }
+
+    /**
+     * Unmaps a MappedByteBuffer owned by the caller, the buffer and all its slices must not be used any more
+     *
+     * @param buffer Buffer returned by FileChannel#map, not a slice or a duplicate
+     * @return Whether it is unmapped
+     */
+    public static boolean unmap(MappedByteBuffer buffer)
+    {
+        return free(buffer);
+    }
+
+    /**
+     * Frees the memory of a direct buffer or unmaps a MappedByteBuffer,
+     * the buffer and all its slices must not be used any more
+     *
+     * @param buffer Direct buffer which is not a slice or a duplicate
+     * @return Whether the memory is freed
+     */
+    static boolean free(ByteBuffer buffer)
+    {
+        if (buffer == null || !buffer.isDirect()) {
+            return false;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                return true;
+            }
+            else if (CLEANER != null) {
+                Object cleaner = CLEANER.invoke(buffer);
+                if (cleaner != null) {
+                    CLEAN.invoke(cleaner);
+                    return true;
+                }
+            }
+        }
+        catch (Throwable t) {
+            //Left to GC
+        }
+        return false;
+    }
+}
@@ -0,0 +1,137 @@
+package org.femtoframework.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sampling leak detector of pooled resources
+ * <p>
+ * One of every samplingInterval resources is tracked with the stack where it was allocated.
+ * If a tracked resource is garbage-collected before it is closed, the stack is logged as a leak.
+ * The interval 1 tracks every resource, 0 turns the detector off.
+ */
+public class LeakDetector
+{
+    /**
+     * 默认的采样间隔（128）
+     */
+    public static final int DEFAULT_SAMPLING_INTERVAL = 128;
+
+    private static final Logger logger = LoggerFactory.getLogger(LeakDetector.class);
+
+    private final String resourceType;
+
+    private volatile int samplingInterval;
+
+    private final Set<Tracker> trackers = ConcurrentHashMap.newKeySet();
+
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    private final LongAdder leakCount = new LongAdder();
+
+    /**
+     * @param resourceType     Type of the resources, it is in the report
+     * @param samplingInterval One of every samplingInterval resources is tracked, 0 means never
+     */
+    public LeakDetector(String resourceType, int samplingInterval)
+    {
+        this.resourceType = resourceType;
+        setSamplingInterval(samplingInterval);
+    }
+
+    /**
+     * Tracks the resource if it is sampled
+     *
+     * @param resource Resource, it should be reachable as long as it is in use
+     * @return Tracker to close when the resource is released, or null if it is not sampled
+     */
+    public Tracker track(Object resource)
+    {
+        report();
+        int interval = samplingInterval;
+        if (interval <= 0 || (interval > 1 && ThreadLocalRandom.current().nextInt(interval) != 0)) {
+            return null;
+        }
+        Tracker tracker = new Tracker(resource, collected);
+        trackers.add(tracker);
+        return tracker;
+    }
+
+    /**
+     * Reports the tracked resources which were garbage-collected without close
+     */
+    public void report()
+    {
+        Tracker tracker;
+        while ((tracker = (Tracker)collected.poll()) != null) {
+            if (trackers.remove(tracker)) {
+                leakCount.increment();
+                logger.warn("LEAK: " + resourceType + " was garbage-collected before it was released", tracker.trace);
+            }
+        }
+    }
+
+    /**
+     * 没有释放就被GC的资源数
+     *
+     * @return long
+     */
+    public long getLeakCount()
+    {
+        return leakCount.sum();
+    }
+
+    /**
+     * 正在跟踪的资源数
+     *
+     * @return int
+     */
+    public int getTrackedCount()
+    {
+        return trackers.size();
+    }
+
+    public int getSamplingInterval()
+    {
+        return samplingInterval;
+    }
+
+    /**
+     * 采样间隔
+     *
+     * @param samplingInterval 1 tracks every resource, 0 means never
+     */
+    public void setSamplingInterval(int samplingInterval)
+    {
+        this.samplingInterval = Math.max(0, samplingInterval);
+    }
+
+    /**
+     * Tracks one resource
+     */
+    public final class Tracker extends WeakReference<Object>
+    {
+        private final Throwable trace = new Throwable("Allocated here");
+
+        Tracker(Object resource, ReferenceQueue<Object> queue)
+        {
+            super(resource, queue);
+        }
+
+        /**
+         * The resource is released, stops tracking it
+         */
+        public void close()
+        {
+            trackers.remove(this);
+            clear();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.femtoframework.nio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted handle of a ByteBuffer from ByteBufferPool
+ * <p>
+ * A new handle has one reference, #retain adds one and #release takes one,
+ * the buffer goes back to the pool when the last reference is released.
+ * Slices and duplicates share the count with the handle they come from.
+ * Once the count reaches 0, #buffer throws IllegalStateException and so does another #release,
+ * so a double release or a use after release fails fast instead of corrupting a buffer which is in use again.
+ * Do not keep the ByteBuffer returned by #buffer after releasing the handle.
+ * <p>
+ * Some of the handles are tracked by the LeakDetector of ByteBufferPool,
+ * a tracked one which is garbage-collected before its last release is logged with its allocation stack.
+ *
+ * @see ByteBufferPool#allocatePooled(int)
+ * @see ByteBufferPool#allocatePooledDirect(int)
+ */
+public final class PooledByteBuffer implements AutoCloseable
+{
+    private final Shared shared;
+
+    private final ByteBuffer buffer;
+
+    private PooledByteBuffer(Shared shared, ByteBuffer buffer)
+    {
+        this.shared = shared;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Wraps a buffer from the pool
+     *
+     * @param buffer   Buffer from ByteBufferPool
+     * @param detector Leak detector, it could be null
+     * @return Handle with one reference
+     */
+    static PooledByteBuffer wrap(ByteBuffer buffer, LeakDetector detector)
+    {
+        Shared shared = new Shared(buffer);
+        if (detector != null) {
+            shared.tracker = detector.track(shared);
+        }
+        return new PooledByteBuffer(shared, buffer);
+    }
+
+    /**
+     * The buffer of this handle
+     *
+     * @return ByteBuffer
+     * @throws IllegalStateException if the handle is released
+     */
+    public ByteBuffer buffer()
+    {
+        ensureAccessible();
+        return buffer;
+    }
+
+    public int capacity()
+    {
+        return buffer.capacity();
+    }
+
+    public boolean isDirect()
+    {
+        return buffer.isDirect();
+    }
+
+    /**
+     * Count of references
+     *
+     * @return int
+     */
+    public int refCnt()
+    {
+        return shared.refCnt.get();
+    }
+
+    /**
+     * Adds one reference
+     *
+     * @return this
+     */
+    public PooledByteBuffer retain()
+    {
+        return retain(1);
+    }
+
+    /**
+     * Adds references
+     *
+     * @param increment Count of references
+     * @return this
+     * @throws IllegalStateException if the handle is released
+     */
+    public PooledByteBuffer retain(int increment)
+    {
+        if (increment <= 0) {
+            throw new IllegalArgumentException("Invalid increment:" + increment);
+        }
+        AtomicInteger refCnt = shared.refCnt;
+        while (true) {
+            int count = refCnt.get();
+            if (count <= 0) {
+                throw new IllegalStateException("refCnt: 0, increment: " + increment);
+            }
+            if (count + increment < count) {
+                throw new IllegalStateException("refCnt: " + count + ", increment: " + increment);
+            }
+            if (refCnt.compareAndSet(count, count + increment)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Takes one reference, the buffer goes back to the pool with the last one
+     *
+     * @return Whether the last reference is released
+     */
+    public boolean release()
+    {
+        return release(1);
+    }
+
+    /**
+     * Takes references
+     *
+     * @param decrement Count of references
+     * @return Whether the last reference is released
+     * @throws IllegalStateException if there are less references than decrement
+     */
+    public boolean release(int decrement)
+    {
+        if (decrement <= 0) {
+            throw new IllegalArgumentException("Invalid decrement:" + decrement);
+        }
+        AtomicInteger refCnt = shared.refCnt;
+        while (true) {
+            int count = refCnt.get();
+            if (count < decrement) {
+                throw new IllegalStateException("refCnt: " + count + ", decrement: " + decrement);
+            }
+            if (refCnt.compareAndSet(count, count - decrement)) {
+                if (count == decrement) {
+                    shared.deallocate();
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Same as #release, for try-with-resources
+     */
+    public void close()
+    {
+        release();
+    }
+
+    /**
+     * Slice of the remaining bytes, it shares the references with this handle
+     *
+     * @return PooledByteBuffer
+     */
+    public PooledByteBuffer slice()
+    {
+        return new PooledByteBuffer(shared, buffer().slice());
+    }
+
+    /**
+     * Slice of the given bytes, it shares the references with this handle
+     *
+     * @param index  Index of the first byte
+     * @param length Count of bytes
+     * @return PooledByteBuffer
+     */
+    public PooledByteBuffer slice(int index, int length)
+    {
+        ByteBuffer duplicate = buffer().duplicate();
+        duplicate.limit(index + length);
+        duplicate.position(index);
+        return new PooledByteBuffer(shared, duplicate.slice());
+    }
+
+    /**
+     * Slice of the remaining bytes with one more reference
+     *
+     * @return PooledByteBuffer
+     */
+    public PooledByteBuffer retainedSlice()
+    {
+        PooledByteBuffer slice = slice();
+        retain();
+        return slice;
+    }
+
+    /**
+     * Duplicate which shares the references with this handle
+     *
+     * @return PooledByteBuffer
+     */
+    public PooledByteBuffer duplicate()
+    {
+        return new PooledByteBuffer(shared, buffer().duplicate());
+    }
+
+    private void ensureAccessible()
+    {
+        if (shared.refCnt.get() <= 0) {
+            throw new IllegalStateException("refCnt: 0, the buffer is released");
+        }
+    }
+
+    public String toString()
+    {
+        return "PooledByteBuffer(refCnt: " + refCnt() + ", " + buffer + ")";
+    }
+
+    /**
+     * State shared by a handle and its slices, the leak detector tracks it
+     */
+    private static final class Shared
+    {
+        private final ByteBuffer root;
+
+        private final AtomicInteger refCnt = new AtomicInteger(1);
+
+        private LeakDetector.Tracker tracker;
+
+        Shared(ByteBuffer root)
+        {
+            this.root = root;
+        }
+
+        void deallocate()
+        {
+            if (tracker != null) {
+                tracker.close();
+            }
+            ByteBufferPool.recycle(root);
+        }
+    }
+}
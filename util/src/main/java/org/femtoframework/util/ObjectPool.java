@@ -38,6 +38,11 @@ public class ObjectPool<V>
      */
     private final Object lock;
 
+    /**
+     * 统计
+     */
+    protected final PoolStats stats = new PoolStats();
+
     /**
      * 构建默认大小的对象池
      */
@@ -70,6 +75,11 @@ public class ObjectPool<V>
             if (current < maxOffset) {
                 current += 1;
                 pool[current] = o;
+                stats.onRecycle();
+                stats.onIdle(current + 1);
+            }
+            else {
+                stats.onDrop();
             }
         }
     }
@@ -83,7 +93,12 @@ public class ObjectPool<V>
         synchronized (lock) {
             if (current >= 0) {
                 item = pool[current];
+                pool[current] = null;
                 current -= 1;
+                stats.onHit();
+            }
+            else {
+                stats.onMiss();
             }
         }
         return item;
@@ -108,4 +123,47 @@ public class ObjectPool<V>
     {
         return max;
     }
+
+    /**
+     * 调整对象池大小，超出新大小的对象被丢弃
+     *
+     * @param max 池大小
+     */
+    public void setCapacity(int max)
+    {
+        if (max < 0) {
+            throw new IllegalArgumentException("Invalid capacity:" + max);
+        }
+        synchronized (lock) {
+            V[] newPool = (V[])new Object[max];
+            int count = Math.min(current + 1, max);
+            System.arraycopy(pool, 0, newPool, 0, count);
+            pool = newPool;
+            current = count - 1;
+            this.max = max;
+            this.maxOffset = max - 1;
+        }
+    }
+
+    /**
+     * 当前空闲的对象数
+     *
+     * @return int
+     */
+    public int getIdleCount()
+    {
+        synchronized (lock) {
+            return current + 1;
+        }
+    }
+
+    /**
+     * 返回统计
+     *
+     * @return PoolStats
+     */
+    public PoolStats getStats()
+    {
+        return stats;
+    }
 }
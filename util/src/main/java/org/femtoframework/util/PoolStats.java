@@ -0,0 +1,147 @@
+package org.femtoframework.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对象池的统计
+ * <p>
+ * Hits and misses count the gets, recycles and drops count the puts, a drop is a put into a full pool.
+ * The high-water mark is the most idle objects the pool has held at once,
+ * a pool whose high-water mark stays far below its capacity is oversized,
+ * one which keeps dropping is too small.
+ */
+public class PoolStats
+{
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder recycles = new LongAdder();
+
+    private final LongAdder drops = new LongAdder();
+
+    private volatile int highWaterMark;
+
+    public void onHit()
+    {
+        hits.increment();
+    }
+
+    public void onMiss()
+    {
+        misses.increment();
+    }
+
+    public void onRecycle()
+    {
+        recycles.increment();
+    }
+
+    public void onDrop()
+    {
+        drops.increment();
+    }
+
+    /**
+     * Records the count of idle objects, keeps the largest one
+     *
+     * @param idle 当前空闲的对象数
+     */
+    public void onIdle(int idle)
+    {
+        //Racy but monotonic enough for a statistic
+        if (idle > highWaterMark) {
+            highWaterMark = idle;
+        }
+    }
+
+    /**
+     * 取对象的次数
+     *
+     * @return long
+     */
+    public long getAllocations()
+    {
+        return hits.sum() + misses.sum();
+    }
+
+    /**
+     * 从池中取到对象的次数
+     *
+     * @return long
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * 池为空的次数
+     *
+     * @return long
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * 放回池中的次数
+     *
+     * @return long
+     */
+    public long getRecycles()
+    {
+        return recycles.sum();
+    }
+
+    /**
+     * 池已满而丢弃的次数
+     *
+     * @return long
+     */
+    public long getDrops()
+    {
+        return drops.sum();
+    }
+
+    /**
+     * 同时空闲的最多对象数
+     *
+     * @return int
+     */
+    public int getHighWaterMark()
+    {
+        return highWaterMark;
+    }
+
+    /**
+     * 命中率
+     *
+     * @return 0到1之间，没有取过对象时返回0
+     */
+    public double getHitRate()
+    {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double)h / total;
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset()
+    {
+        hits.reset();
+        misses.reset();
+        recycles.reset();
+        drops.reset();
+        highWaterMark = 0;
+    }
+
+    public String toString()
+    {
+        return "hits=" + getHits() + ",misses=" + getMisses() + ",recycles=" + getRecycles()
+               + ",drops=" + getDrops() + ",highWaterMark=" + highWaterMark;
+    }
+}
@@ -0,0 +1,389 @@
+package org.femtoframework.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程缓存的分段对象池，可以替代ObjectPool
+ * <p>
+ * Every thread keeps a small magazine of objects which only it touches, #get and #put go to the magazine first.
+ * An empty magazine is refilled from a shared stack and a full one is half flushed to it, in one lock each time.
+ * The shared capacity is split over stripes, every thread has a home stripe chosen by its id,
+ * so threads seldom take the same lock.
+ * <p>
+ * Objects in the magazine of a terminated thread are left to GC.
+ * <p>
+ * Both capacities can be tuned at runtime from the statistics, a magazine takes its new capacity
+ * the next time its thread touches it, the magazine of the thread which sets it at once. When the thread capacity
+ * drops to 0 the magazines are flushed to the shared stripes in the same way. The high-water mark of the statistics counts the shared objects only,
+ * objects flushed from a magazine into a full stripe are counted as drops.
+ */
+public class StripedObjectPool<V> extends ObjectPool<V>
+{
+    /**
+     * 默认每个线程缓存的对象数（16）
+     */
+    public static final int DEFAULT_THREAD_CAPACITY = 16;
+
+    private volatile int threadCapacity;
+
+    private volatile int sharedCapacity;
+
+    //Objects in all the stripes, only changed under a stripe lock
+    private final AtomicInteger sharedIdle = new AtomicInteger();
+
+    private final Stripe[] stripes;
+
+    private final int stripeMask;
+
+    private final ThreadLocal<Magazine> magazines = new ThreadLocal<Magazine>()
+    {
+        protected Magazine initialValue()
+        {
+            return new Magazine(threadCapacity);
+        }
+    };
+
+    /**
+     * 构建默认大小的对象池
+     */
+    public StripedObjectPool()
+    {
+        this(DEFAULT_THREAD_CAPACITY, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * 构建对象池，分段数为不小于CPU数的2的幂
+     *
+     * @param threadCapacity 每个线程缓存的对象数，0表示不缓存
+     * @param sharedCapacity 共享的对象数
+     */
+    public StripedObjectPool(int threadCapacity, int sharedCapacity)
+    {
+        this(threadCapacity, sharedCapacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 构建对象池
+     *
+     * @param threadCapacity 每个线程缓存的对象数，0表示不缓存
+     * @param sharedCapacity 共享的对象数
+     * @param stripes        分段数，向上取整为2的幂，每段至少容纳一个对象
+     */
+    public StripedObjectPool(int threadCapacity, int sharedCapacity, int stripes)
+    {
+        super(0);
+        if (threadCapacity < 0 || sharedCapacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity:" + threadCapacity + "," + sharedCapacity);
+        }
+        this.threadCapacity = threadCapacity;
+        this.sharedCapacity = sharedCapacity;
+
+        int count = 1;
+        while (count < stripes && count < sharedCapacity) {
+            count <<= 1;
+        }
+        this.stripes = new Stripe[count];
+        this.stripeMask = count - 1;
+        int perStripe = (sharedCapacity + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(perStripe, stats, sharedIdle);
+        }
+    }
+
+    /**
+     * 把对象o放入对象池中，对象池已满时丢弃
+     *
+     * @param o 对象
+     */
+    public void put(V o)
+    {
+        if (o == null) {
+            return;
+        }
+        int capacity = threadCapacity;
+        if (capacity == 0) {
+            magazine(0);
+            homeStripe().push(o);
+            return;
+        }
+        Magazine magazine = magazine(capacity);
+        if (magazine.count == capacity) {
+            //Keeps half of them for the coming gets
+            homeStripe().pushAll(magazine, (capacity + 1) / 2);
+        }
+        magazine.items[magazine.count++] = o;
+        stats.onRecycle();
+    }
+
+    /**
+     * 从对象池中取出对象
+     *
+     * @return 对象，对象池为空时返回<code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    public V get()
+    {
+        int capacity = threadCapacity;
+        if (capacity == 0) {
+            //Flushes what the magazine kept before the capacity dropped to 0
+            magazine(0);
+            Object item = takeShared();
+            if (item != null) {
+                stats.onHit();
+            }
+            else {
+                stats.onMiss();
+            }
+            return (V)item;
+        }
+        Magazine magazine = magazine(capacity);
+        if (magazine.count == 0 && !refill(magazine, capacity)) {
+            stats.onMiss();
+            return null;
+        }
+        int i = --magazine.count;
+        Object item = magazine.items[i];
+        magazine.items[i] = null;
+        stats.onHit();
+        return (V)item;
+    }
+
+    /**
+     * Magazine of the current thread, resized if the thread capacity has changed
+     */
+    private Magazine magazine(int capacity)
+    {
+        Magazine magazine = magazines.get();
+        if (magazine.items.length != capacity) {
+            if (magazine.count > capacity) {
+                homeStripe().pushAll(magazine, magazine.count - capacity);
+            }
+            Object[] items = new Object[capacity];
+            System.arraycopy(magazine.items, 0, items, 0, magazine.count);
+            magazine.items = items;
+        }
+        return magazine;
+    }
+
+    /**
+     * Refills half of the magazine from the home stripe, or from the others if it is empty
+     */
+    private boolean refill(Magazine magazine, int capacity)
+    {
+        int want = (capacity + 1) / 2;
+        int home = homeIndex();
+        for (int i = 0; i <= stripeMask; i++) {
+            if (stripes[(home + i) & stripeMask].popAll(magazine, want) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object takeShared()
+    {
+        int home = homeIndex();
+        for (int i = 0; i <= stripeMask; i++) {
+            Object item = stripes[(home + i) & stripeMask].pop();
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private int homeIndex()
+    {
+        long id = Thread.currentThread().getId();
+        return (int)(id ^ (id >>> 16)) & stripeMask;
+    }
+
+    private Stripe homeStripe()
+    {
+        return stripes[homeIndex()];
+    }
+
+    /**
+     * 共享的对象数
+     *
+     * @return int
+     */
+    public int size()
+    {
+        return sharedCapacity;
+    }
+
+    /**
+     * 每个线程缓存的对象数
+     *
+     * @return int
+     */
+    public int getThreadCapacity()
+    {
+        return threadCapacity;
+    }
+
+    /**
+     * 调整每个线程缓存的对象数，当前线程立即生效，其它线程下次存取时生效
+     *
+     * @param threadCapacity 每个线程缓存的对象数，0表示不缓存
+     */
+    public void setThreadCapacity(int threadCapacity)
+    {
+        if (threadCapacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity:" + threadCapacity);
+        }
+        this.threadCapacity = threadCapacity;
+        magazine(threadCapacity);
+    }
+
+    /**
+     * 调整共享的对象数，分段数不变，超出新大小的对象被丢弃
+     *
+     * @param sharedCapacity 共享的对象数
+     */
+    public void setCapacity(int sharedCapacity)
+    {
+        if (sharedCapacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity:" + sharedCapacity);
+        }
+        this.sharedCapacity = sharedCapacity;
+        int perStripe = (sharedCapacity + stripes.length - 1) / stripes.length;
+        for (Stripe stripe : stripes) {
+            stripe.resize(perStripe);
+        }
+    }
+
+    /**
+     * 共享栈中空闲的对象数，不包括线程缓存的对象
+     *
+     * @return int
+     */
+    public int getIdleCount()
+    {
+        return sharedIdle.get();
+    }
+
+    /**
+     * 分段数
+     *
+     * @return int
+     */
+    public int getStripeCount()
+    {
+        return stripes.length;
+    }
+
+    /**
+     * Objects cached by one thread, only the owner touches it
+     */
+    private static final class Magazine
+    {
+        Object[] items;
+
+        int count;
+
+        Magazine(int capacity)
+        {
+            items = new Object[capacity];
+        }
+    }
+
+    /**
+     * Shared stack of one stripe
+     */
+    private static final class Stripe
+    {
+        private Object[] items;
+
+        private int count;
+
+        private final PoolStats stats;
+
+        private final AtomicInteger sharedIdle;
+
+        Stripe(int capacity, PoolStats stats, AtomicInteger sharedIdle)
+        {
+            this.items = new Object[capacity];
+            this.stats = stats;
+            this.sharedIdle = sharedIdle;
+        }
+
+        synchronized void push(Object o)
+        {
+            if (count < items.length) {
+                items[count++] = o;
+                stats.onRecycle();
+                stats.onIdle(sharedIdle.incrementAndGet());
+            }
+            else {
+                stats.onDrop();
+            }
+        }
+
+        synchronized Object pop()
+        {
+            if (count == 0) {
+                return null;
+            }
+            Object item = items[--count];
+            items[count] = null;
+            sharedIdle.decrementAndGet();
+            return item;
+        }
+
+        /**
+         * Moves n objects from the top of the magazine, the ones which do not fit are dropped
+         */
+        synchronized void pushAll(Magazine magazine, int n)
+        {
+            int pushed = 0;
+            for (int i = 0; i < n; i++) {
+                Object item = magazine.items[--magazine.count];
+                magazine.items[magazine.count] = null;
+                if (count < items.length) {
+                    items[count++] = item;
+                    pushed++;
+                }
+                else {
+                    stats.onDrop();
+                }
+            }
+            if (pushed > 0) {
+                stats.onIdle(sharedIdle.addAndGet(pushed));
+            }
+        }
+
+        /**
+         * Moves at most n objects to the magazine
+         */
+        synchronized int popAll(Magazine magazine, int n)
+        {
+            n = Math.min(n, count);
+            for (int i = 0; i < n; i++) {
+                Object item = items[--count];
+                items[count] = null;
+                magazine.items[magazine.count++] = item;
+            }
+            if (n > 0) {
+                sharedIdle.addAndGet(-n);
+            }
+            return n;
+        }
+
+        /**
+         * Drops the objects over the new capacity
+         */
+        synchronized void resize(int capacity)
+        {
+            Object[] newItems = new Object[capacity];
+            int kept = Math.min(count, capacity);
+            System.arraycopy(items, 0, newItems, 0, kept);
+            if (count > kept) {
+                sharedIdle.addAndGet(kept - count);
+            }
+            items = newItems;
+            count = kept;
+        }
+    }
+}
@@ -0,0 +1,643 @@
+package org.femtoframework.util.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Lock-free linked batch queue
+ * <p>
+ * Producers append by swapping the tail, a batch is linked privately first and appended with one swap.
+ * Consumers claim the nodes after the head by moving the head, a batch of any size is claimed in one step.
+ * How the head is moved decides whether there could be one or many consumers, see subclasses.
+ * <p>
+ * Head and tail live in separate padded references, so producers and consumers do not share a cache line.
+ * Like LinkedQueue, #poll() and #poll(long) with timeout &lt;= 0 wait until an element arrives.
+ * <p>
+ * #remove(int), #remove(Object) and Iterator#remove delete logically: the value of the node is swapped to null
+ * and the node stays in the chain until a consumer passes it. Consumers take a value with the same swap, so an
+ * element goes either to one consumer or to one remover. They walk the chain from the head, O(n) as in
+ * LinkedQueue. Removers never move the head, so any thread may remove while the only consumer of
+ * MpscLinkedQueue drains.
+ *
+ * @see MpscLinkedQueue
+ * @see MpmcLinkedQueue
+ */
+public abstract class AbstractLockFreeQueue<V> extends AbstractQueue<V> implements BatchQueue<V>
+{
+    /*
+     * Longest park of a waiting consumer, it only matters when a wake-up is lost
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /*
+     * Checks before a consumer parks
+     */
+    private static final int SPINS = 64;
+
+    protected final PaddedReference<Node<V>> head;
+
+    protected final PaddedReference<Node<V>> tail;
+
+    private final LongAdder offered = new LongAdder();
+
+    private final LongAdder polled = new LongAdder();
+
+    private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+    protected AbstractLockFreeQueue()
+    {
+        Node<V> stub = new Node<>(null);
+        head = new PaddedReference<>(stub);
+        tail = new PaddedReference<>(stub);
+    }
+
+    /**
+     * Moves the head from h to last, the nodes after h up to last belong to the caller when it returns true
+     *
+     * @param h    Head which was read
+     * @param last New head
+     * @return Whether the nodes are claimed
+     */
+    protected abstract boolean advanceHead(Node<V> h, Node<V> last);
+
+    /**
+     * 入队
+     *
+     * @param obj 对象
+     * @return 对象是否已经入队
+     */
+    public boolean offer(V obj)
+    {
+        if (obj == null) {
+            return false;
+        }
+        Node<V> node = new Node<>(obj);
+        append(node, node);
+        offered.increment();
+        signal(1);
+        return true;
+    }
+
+    /**
+     * 添加一批对象，整批只需要一次原子操作
+     *
+     * @param batch 一批对象
+     */
+    public void offerBatch(V[] batch)
+    {
+        if (batch == null || batch.length == 0) {
+            return;
+        }
+        Node<V> first = null;
+        Node<V> last = null;
+        int count = 0;
+        for (V obj : batch) {
+            if (obj != null) {
+                Node<V> node = new Node<>(obj);
+                if (first == null) {
+                    first = node;
+                }
+                else {
+                    last.next = node;
+                }
+                last = node;
+                count++;
+            }
+        }
+        if (first != null) {
+            append(first, last);
+            offered.add(count);
+            signal(count);
+        }
+    }
+
+    private void append(Node<V> first, Node<V> last)
+    {
+        Node<V> prev = tail.getAndSet(last);
+        //Consumers stop at prev until it is linked, the queue looks shorter for a moment
+        prev.next = first;
+    }
+
+    private void signal(int count)
+    {
+        for (int i = 0; i < count && !waiters.isEmpty(); i++) {
+            Thread waiter = waiters.poll();
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    /**
+     * Takes the head without waiting
+     *
+     * @return the head or null if the queue is empty
+     */
+    protected V poll0()
+    {
+        while (true) {
+            Node<V> h = head.get();
+            Node<V> n = h.next;
+            if (n == null) {
+                return null;
+            }
+            if (advanceHead(h, n)) {
+                //n is the stub now, its value is null when it was removed
+                V obj = n.take();
+                if (obj != null) {
+                    polled.increment();
+                    return obj;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes at most max elements without waiting
+     *
+     * @param max Max expected results
+     * @return the elements or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    protected V[] pollBatch0(int max)
+    {
+        while (true) {
+            Node<V> h = head.get();
+            Node<V> last = h;
+            int count = 0;
+            int live = 0;
+            Node<V> n;
+            //The removed nodes are claimed too, but they don't count in max
+            while (live < max && (n = last.next) != null) {
+                last = n;
+                count++;
+                if (n.value != null) {
+                    live++;
+                }
+            }
+            if (count == 0) {
+                return null;
+            }
+            if (advanceHead(h, last)) {
+                V[] objs = (V[])new Object[live];
+                Node<V> node = h;
+                int taken = 0;
+                for (int i = 0; i < count; i++) {
+                    node = node.next;
+                    V obj = node.take();
+                    if (obj != null) {
+                        objs[taken++] = obj;
+                    }
+                }
+                if (taken > 0) {
+                    polled.add(taken);
+                    return taken == live ? objs : Arrays.copyOf(objs, taken);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes at most max elements without waiting, into dst if it is not null, otherwise to the consumer
+     *
+     * @param dst      Destination
+     * @param consumer Consumer of the elements
+     * @param max      Max expected results
+     * @return Count of elements taken
+     */
+    protected int drain0(V[] dst, Consumer<? super V> consumer, int max)
+    {
+        while (true) {
+            Node<V> h = head.get();
+            Node<V> last = h;
+            int count = 0;
+            int live = 0;
+            Node<V> n;
+            //The removed nodes are claimed too, but they don't count in max
+            while (live < max && (n = last.next) != null) {
+                last = n;
+                count++;
+                if (n.value != null) {
+                    live++;
+                }
+            }
+            if (count == 0) {
+                return 0;
+            }
+            if (advanceHead(h, last)) {
+                Node<V> node = h;
+                int taken = 0;
+                int i = 0;
+                try {
+                    for (; i < count; i++) {
+                        node = node.next;
+                        V obj = node.take();
+                        if (obj == null) {
+                            continue;
+                        }
+                        polled.increment();
+                        if (dst != null) {
+                            dst[taken++] = obj;
+                        }
+                        else {
+                            taken++;
+                            consumer.accept(obj);
+                        }
+                    }
+                }
+                catch (Throwable t) {
+                    //The consumer threw, the rest of the claimed nodes go back to the caller with the exception
+                    List<Object> undelivered = new ArrayList<>(count - i);
+                    for (i++; i < count; i++) {
+                        node = node.next;
+                        V obj = node.take();
+                        if (obj != null) {
+                            polled.increment();
+                            undelivered.add(obj);
+                        }
+                    }
+                    if (!undelivered.isEmpty()) {
+                        t.addSuppressed(new UndeliveredException(undelivered));
+                    }
+                    throw t;
+                }
+                if (taken > 0) {
+                    return taken;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until the queue is not empty
+     *
+     * @param deadline System.nanoTime() to give up, 0 means never
+     * @return false if it is timeout or interrupted
+     */
+    protected boolean await(long deadline)
+    {
+        for (int i = 0; i < SPINS; i++) {
+            if (!isEmpty()) {
+                return true;
+            }
+        }
+
+        Thread current = Thread.currentThread();
+        while (true) {
+            waiters.offer(current);
+            try {
+                //Check again, an element could arrive before we were in the waiters
+                if (!isEmpty()) {
+                    return true;
+                }
+                long park = MAX_PARK_NANOS;
+                if (deadline != 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    park = Math.min(park, remaining);
+                }
+                LockSupport.parkNanos(this, park);
+                if (Thread.interrupted()) {
+                    current.interrupt();
+                    return false;
+                }
+            }
+            finally {
+                waiters.remove(current);
+            }
+        }
+    }
+
+    /**
+     * 出队，如果队列为空，等待直到有对象入队
+     *
+     * @return 对象，如果等待被中断返回<code>null</code>
+     */
+    public V poll()
+    {
+        return poll(0);
+    }
+
+    /**
+     * 出队<br>
+     * 等待指定的毫秒数，如果没有对象入队，返回<code>null</code>
+     *
+     * @param timeout 超时，小于等于0表示一直等待
+     * @return 对象
+     */
+    public V poll(long timeout)
+    {
+        V obj = poll0();
+        if (obj != null) {
+            return obj;
+        }
+        long deadline = timeout <= 0 ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (await(deadline)) {
+            obj = poll0();
+            if (obj != null) {
+                return obj;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 等待指定毫秒数，有对象入队后一次取出最多指定数量的对象
+     *
+     * @param wait Timeout in milliseconds, at least 50
+     * @param max  Max expected results
+     * @return the elements or null if no element arrives in time
+     */
+    public V[] pollBatch(long wait, int max)
+    {
+        if (max <= 0) {
+            throw new IllegalArgumentException("Invalid max:" + max);
+        }
+        if (wait <= 50) {
+            wait = 50;
+        }
+        V[] objs = pollBatch0(max);
+        if (objs != null) {
+            return objs;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wait);
+        while (await(deadline)) {
+            objs = pollBatch0(max);
+            if (objs != null) {
+                return objs;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 等待指定毫秒数，有对象入队后一次取出最多指定数量的对象放入给定的数组
+     *
+     * @param dst     Destination
+     * @param max     Max expected results
+     * @param timeout Timeout in milliseconds, at least 50 as in #pollBatch
+     * @return Count of elements put into dst
+     */
+    public int drainTo(V[] dst, int max, long timeout)
+    {
+        return drain(dst, null, Math.min(max, dst.length), timeout);
+    }
+
+    /**
+     * 等待指定毫秒数，有对象入队后一次取出最多指定数量的对象交给consumer处理
+     *
+     * @param consumer Consumer of the elements, if it throws, the elements after that one are attached to
+     *                 the exception, see UndeliveredException#getUndelivered(Throwable)
+     * @param max      Max expected results
+     * @param timeout  Timeout in milliseconds, at least 50 as in #pollBatch
+     * @return Count of elements taken
+     */
+    public int drain(Consumer<? super V> consumer, int max, long timeout)
+    {
+        if (consumer == null) {
+            throw new NullPointerException("Null consumer");
+        }
+        return drain(null, consumer, max, timeout);
+    }
+
+    private int drain(V[] dst, Consumer<? super V> consumer, int max, long timeout)
+    {
+        if (max <= 0) {
+            return 0;
+        }
+        int count = drain0(dst, consumer, max);
+        if (count > 0) {
+            return count;
+        }
+        if (timeout <= 50) {
+            timeout = 50;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (await(deadline)) {
+            count = drain0(dst, consumer, max);
+            if (count > 0) {
+                return count;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 选取指定的对象
+     *
+     * @param i 索引
+     */
+    public V peek(int i)
+    {
+        if (i < 0) {
+            throw new IllegalArgumentException("Index out of bound:" + i);
+        }
+        Node<V> node = node(i);
+        V obj = node != null ? node.value : null;
+        if (obj == null) {
+            throw new IllegalArgumentException("Index out of bound:" + i);
+        }
+        return obj;
+    }
+
+    /**
+     * The i-th node with a value, the removed and taken nodes are not counted
+     */
+    private Node<V> node(int i)
+    {
+        int j = 0;
+        for (Node<V> node = head.get().next; node != null; node = node.next) {
+            if (node.value != null && j++ == i) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 删除指定位置的对象
+     *
+     * @param i 索引
+     * @return 返回对应的对象
+     */
+    public V remove(int i)
+    {
+        if (i < 0) {
+            throw new IllegalArgumentException("Index out of bound:" + i);
+        }
+        //Even the head is deleted logically, polling here would move the head beside the consumer of MpscLinkedQueue
+        while (true) {
+            Node<V> node = node(i);
+            if (node == null) {
+                throw new IllegalArgumentException("Index out of bound:" + i);
+            }
+            V obj = node.value;
+            //Taken by someone else meanwhile, the i-th element is another one now
+            if (obj != null && node.remove(obj)) {
+                polled.increment();
+                return obj;
+            }
+        }
+    }
+
+    /**
+     * 将指定的对象从队列中删除
+     *
+     * @param obj 对象
+     * @return 是否删除了
+     */
+    public boolean remove(Object obj)
+    {
+        if (obj == null) {
+            return false;
+        }
+        for (Node<V> node = head.get().next; node != null; node = node.next) {
+            V value = node.value;
+            if (value != null && obj.equals(value) && node.remove(value)) {
+                polled.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty()
+    {
+        return head.get().next == null;
+    }
+
+    /**
+     * Count of elements, it is a snapshot under concurrent access
+     */
+    public int size()
+    {
+        long size = offered.sum() - polled.sum();
+        return size <= 0 ? 0 : (int)Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Weakly consistent iterator, Iterator#remove deletes the element logically
+     */
+    public Iterator<V> iterator()
+    {
+        return new Iterator<V>()
+        {
+            private Node<V> node = head.get();
+
+            private Node<V> lastNode;
+
+            private V lastValue;
+
+            private V nextValue = advance();
+
+            private V advance()
+            {
+                //Skips the nodes taken after the iterator passed the head
+                V obj = null;
+                while (obj == null && node != null) {
+                    node = node.next;
+                    obj = node != null ? node.value : null;
+                }
+                return obj;
+            }
+
+            public boolean hasNext()
+            {
+                return nextValue != null;
+            }
+
+            public V next()
+            {
+                V obj = nextValue;
+                if (obj == null) {
+                    throw new NoSuchElementException();
+                }
+                lastNode = node;
+                lastValue = obj;
+                nextValue = advance();
+                return obj;
+            }
+
+            public void remove()
+            {
+                if (lastNode == null) {
+                    throw new IllegalStateException();
+                }
+                //Nothing to do if a consumer took it meanwhile
+                if (lastNode.remove(lastValue)) {
+                    polled.increment();
+                }
+                lastNode = null;
+                lastValue = null;
+            }
+        };
+    }
+
+    /**
+     * Queue Size;
+     */
+    public String toString()
+    {
+        return "Queue Size:" + size();
+    }
+
+    protected static final class Node<V>
+    {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, Object> VALUE
+            = AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
+
+        volatile Node<V> next;
+
+        volatile V value;
+
+        Node(V value)
+        {
+            this.value = value;
+        }
+
+        /**
+         * Takes the value, null if it was removed
+         */
+        @SuppressWarnings("unchecked")
+        V take()
+        {
+            return (V)VALUE.getAndSet(this, null);
+        }
+
+        /**
+         * Removes the value if it is still there
+         */
+        boolean remove(V expected)
+        {
+            return VALUE.compareAndSet(this, expected, null);
+        }
+    }
+
+    /**
+     * AtomicReference padded to its own cache line
+     */
+    @SuppressWarnings("unused")
+    protected static final class PaddedReference<T> extends AtomicReference<T>
+    {
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+        PaddedReference(T value)
+        {
+            super(value);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.femtoframework.util.queue;
 
+import java.util.function.Consumer;
+
 public interface BatchQueue<E> extends Queue<E> {
 
     /**
@@ -16,4 +18,27 @@ public interface BatchQueue<E> extends Queue<E> {
      * @param max Max expected results
      */
     E[] pollBatch(long timeout, int max);
+
+    /**
+     * 等待指定毫秒数，有对象入队后取出最多指定数量的对象放入给定的数组，不分配新的数组
+     *
+     * @param dst     Destination, elements are put from index 0
+     * @param max     Max expected results, it is limited by the length of dst
+     * @param timeout Timeout in milliseconds, at least 50 as in #pollBatch
+     * @return Count of elements put into dst, 0 if no element arrives in time
+     */
+    int drainTo(E[] dst, int max, long timeout);
+
+    /**
+     * 等待指定毫秒数，有对象入队后取出最多指定数量的对象交给consumer处理，不分配新的数组<br>
+     * The elements are taken out of the queue before the consumer sees them,
+     * if the consumer throws an exception, the rest of them are not put back, they are attached to the exception
+     * as a suppressed UndeliveredException, UndeliveredException#getUndelivered(Throwable) gets them back.
+     *
+     * @param consumer Consumer of the elements
+     * @param max      Max expected results
+     * @param timeout  Timeout in milliseconds, at least 50 as in #pollBatch
+     * @return Count of elements taken, 0 if no element arrives in time
+     */
+    int drain(Consumer<? super E> consumer, int max, long timeout);
 }
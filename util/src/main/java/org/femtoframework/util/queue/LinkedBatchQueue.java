@@ -1,7 +1,13 @@
 package org.femtoframework.util.queue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 /**
  * 采用Linked方式的批处理队列
+ * <p>
+ * Every operation takes the monitor of the queue, see MpscLinkedQueue and MpmcLinkedQueue for lock-free ones.
  *
  * @author fengyun
  * @version 1.00 2005-2-9 15:36:54
@@ -66,4 +72,98 @@ public class LinkedBatchQueue<V>
         }
         return objs;
     }
+
+    /**
+     * 等待指定毫秒数，有对象入队后取出最多指定数量的对象放入给定的数组
+     *
+     * @param dst     Destination
+     * @param max     Max expected results
+     * @param timeout Timeout in milliseconds, at least 50 as in #pollBatch
+     * @return Count of elements put into dst
+     */
+    public synchronized int drainTo(V[] dst, int max, long timeout)
+    {
+        max = Math.min(max, dst.length);
+        if (max <= 0 || !await(timeout)) {
+            return 0;
+        }
+
+        int s = size();
+        s = s > max ? max : s;
+        for (int i = 0; i < s; i++) {
+            dst[i] = poll0();
+        }
+        return s;
+    }
+
+    /**
+     * 等待指定毫秒数，有对象入队后取出最多指定数量的对象交给consumer处理，处理时不持有锁
+     *
+     * @param consumer Consumer of the elements, if it throws, the elements after that one are attached to
+     *                 the exception, see UndeliveredException#getUndelivered(Throwable)
+     * @param max      Max expected results
+     * @param timeout  Timeout in milliseconds, at least 50 as in #pollBatch
+     * @return Count of elements taken
+     */
+    public int drain(Consumer<? super V> consumer, int max, long timeout)
+    {
+        Entry<V> first;
+        synchronized (this) {
+            if (max <= 0 || !await(timeout)) {
+                return 0;
+            }
+            first = detach0(max);
+        }
+
+        int count = 0;
+        Entry<V> entry = first;
+        try {
+            for (; entry != null; entry = entry.next) {
+                count++;
+                consumer.accept(entry.value);
+            }
+        }
+        catch (Throwable t) {
+            //The consumer threw, the rest of the detached entries go back to the caller with the exception
+            List<Object> undelivered = new ArrayList<>();
+            for (entry = entry.next; entry != null; entry = entry.next) {
+                undelivered.add(entry.value);
+            }
+            if (!undelivered.isEmpty()) {
+                t.addSuppressed(new UndeliveredException(undelivered));
+            }
+            throw t;
+        }
+        finally {
+            recycleAll(first);
+        }
+        return count;
+    }
+
+    /**
+     * 等待直到队列不为空，调用者需要持有锁
+     *
+     * @param timeout Timeout in milliseconds, at least 50
+     * @return 队列是否不为空
+     */
+    private boolean await(long timeout)
+    {
+        if (timeout <= 50) {
+            timeout = 50;
+        }
+        long start = System.currentTimeMillis();
+        while (isEmpty()) {
+            long remaining = timeout - (System.currentTimeMillis() - start);
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            }
+            catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
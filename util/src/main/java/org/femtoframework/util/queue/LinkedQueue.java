@@ -110,6 +110,47 @@ public class LinkedQueue<V> extends AbstractQueue<V> implements Queue<V>
         return obj;
     }
 
+    /**
+     * 从队头摘下最多max个节点，调用者需要持有锁
+     *
+     * @param max 最多节点数
+     * @return 第一个节点，摘下的最后一个节点的next为null
+     */
+    protected Entry<V> detach0(int max)
+    {
+        Entry<V> first = head.next;
+        if (first == null || max <= 0) {
+            return null;
+        }
+        Entry<V> last = first;
+        int count = 1;
+        while (count < max && last.next != null) {
+            last = last.next;
+            count++;
+        }
+        head.next = last.next;
+        last.next = null;
+        if (tail == last) {
+            tail = head;
+        }
+        size -= count;
+        return first;
+    }
+
+    /**
+     * 回收摘下的节点
+     *
+     * @param entry 第一个节点
+     */
+    protected synchronized void recycleAll(Entry<V> entry)
+    {
+        while (entry != null && freeSize < MAX_FREE) {
+            Entry<V> next = entry.next;
+            recycle(entry);
+            entry = next;
+        }
+    }
+
     protected V poll1()
     {
         while (isEmpty()) {
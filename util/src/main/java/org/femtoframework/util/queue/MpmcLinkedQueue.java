@@ -0,0 +1,24 @@
+package org.femtoframework.util.queue;
+
+/**
+ * Lock-free multi-producer multi-consumer batch queue
+ * <p>
+ * Consumers race for the head by CAS, a batch is taken by one CAS however many elements it holds.
+ * It could replace LinkedBatchQueue where several threads poll.
+ *
+ * @see MpscLinkedQueue
+ */
+public class MpmcLinkedQueue<V> extends AbstractLockFreeQueue<V>
+{
+    /**
+     * Claims the nodes by CAS, fails if another consumer moved the head first
+     *
+     * @param h    Head which was read
+     * @param last New head
+     * @return Whether the nodes are claimed
+     */
+    protected boolean advanceHead(Node<V> h, Node<V> last)
+    {
+        return head.compareAndSet(h, last);
+    }
+}
@@ -0,0 +1,26 @@
+package org.femtoframework.util.queue;
+
+/**
+ * Lock-free multi-producer single-consumer batch queue
+ * <p>
+ * Only one thread polls at a time, so the head is moved by an ordered store without CAS,
+ * a batch is taken by one store however many elements it holds.
+ * It fits the pipelines which drain the queue in one thread.
+ *
+ * @see MpmcLinkedQueue
+ */
+public class MpscLinkedQueue<V> extends AbstractLockFreeQueue<V>
+{
+    /**
+     * The only consumer owns the head
+     *
+     * @param h    Head which was read
+     * @param last New head
+     * @return Always true
+     */
+    protected boolean advanceHead(Node<V> h, Node<V> last)
+    {
+        head.lazySet(last);
+        return true;
+    }
+}
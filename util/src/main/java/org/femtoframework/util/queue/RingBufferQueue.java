@@ -0,0 +1,787 @@
+package org.femtoframework.util.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free MPMC ring buffer queue
+ * <p>
+ * All the slots are allocated up front, the capacity is rounded up to a power of two.
+ * Every slot carries a sequence number, producers and consumers claim slots by CAS on tail or head
+ * and publish them by advancing the sequences, a batch of slots is claimed by one CAS.
+ * Head and tail are padded to their own cache lines.
+ * <p>
+ * When the buffer is full, #offer(Object) returns false, #offer(Object, long) waits for a free slot
+ * and #offerBatch(Object[]) waits until the whole batch is in. How threads wait is decided by the WaitStrategy.
+ * Like the other queues in this package, #poll() and #poll(long) with timeout &lt;= 0 wait until an element arrives.
+ * <p>
+ * #remove(int), #remove(Object) and Iterator#remove delete logically: the slot is swapped to null by CAS and
+ * stays claimed until a consumer passes it, then it is free again. Consumers take slots with the same swap, so
+ * an element goes either to one consumer or to one remover. The removed slots still count against the capacity
+ * until then.
+ *
+ * @see WaitStrategy
+ */
+public class RingBufferQueue<V> extends AbstractQueue<V> implements BatchQueue<V>
+{
+    /*
+     * Longest park of a blocked thread, it only matters when a wake-up is lost
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /*
+     * Rounds of spinning before the wait strategy applies
+     */
+    private static final int SPINS = 64;
+
+    private final int capacity;
+
+    private final int mask;
+
+    private final AtomicReferenceArray<V> slots;
+
+    private final AtomicLongArray sequences;
+
+    private final PaddedLong head = new PaddedLong();
+
+    private final PaddedLong tail = new PaddedLong();
+
+    /**
+     * Removed slots which no consumer has passed yet
+     */
+    private final LongAdder removed = new LongAdder();
+
+    private final WaitStrategy waitStrategy;
+
+    private final ConcurrentLinkedQueue<Thread> consumers = new ConcurrentLinkedQueue<>();
+
+    private final ConcurrentLinkedQueue<Thread> producers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Ring buffer which blocks waiting threads
+     *
+     * @param capacity Minimum capacity, rounded up to a power of two
+     */
+    public RingBufferQueue(int capacity)
+    {
+        this(capacity, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * @param capacity     Minimum capacity, rounded up to a power of two
+     * @param waitStrategy How threads wait
+     */
+    public RingBufferQueue(int capacity, WaitStrategy waitStrategy)
+    {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity:" + capacity);
+        }
+        if (waitStrategy == null) {
+            throw new NullPointerException("Null wait strategy");
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * 入队，队列已满时不等待
+     *
+     * @param obj 对象
+     * @return 对象是否已经入队
+     */
+    public boolean offer(V obj)
+    {
+        if (obj == null) {
+            return false;
+        }
+        while (true) {
+            long pos = tail.get();
+            int index = (int)(pos & mask);
+            long dif = sequences.get(index) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.set(index, obj);
+                    sequences.set(index, pos + 1);
+                    signal(consumers, 1);
+                    return true;
+                }
+            }
+            else if (dif < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 入队，队列已满时等待指定的毫秒数
+     *
+     * @param obj     对象
+     * @param timeout Timeout in milliseconds, &lt;= 0 means not waiting
+     * @return 对象是否已经入队
+     */
+    public boolean offer(V obj, long timeout)
+    {
+        if (offer(obj)) {
+            return true;
+        }
+        if (obj == null || timeout <= 0) {
+            return false;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (int round = 0; idle(false, round, deadline); round++) {
+            if (offer(obj)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 添加一批对象，队列已满时等待直到全部入队或者线程被中断，null被忽略
+     *
+     * @param batch 一批对象
+     */
+    public void offerBatch(V[] batch)
+    {
+        if (batch != null) {
+            offerBatch(batch, 0, 0);
+        }
+    }
+
+    /**
+     * 添加一批对象，队列已满时等待指定的毫秒数，null被忽略
+     *
+     * @param batch   一批对象
+     * @param timeout Timeout in milliseconds, &lt;= 0 means not waiting
+     * @return Index of the first element which is not in the queue, batch.length if all of them are in
+     */
+    public int offerBatch(V[] batch, long timeout)
+    {
+        if (batch == null) {
+            return 0;
+        }
+        if (timeout <= 0) {
+            return tryOfferBatch(batch, 0);
+        }
+        return offerBatch(batch, 0, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
+
+    private int offerBatch(V[] batch, int from, long deadline)
+    {
+        from = tryOfferBatch(batch, from);
+        for (int round = 0; from < batch.length && idle(false, round, deadline); round++) {
+            int next = tryOfferBatch(batch, from);
+            if (next > from) {
+                from = next;
+                round = 0;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Puts as many elements as the free slots take, with one CAS
+     *
+     * @param batch Batch
+     * @param from  Index of the first element to put
+     * @return Index of the first element which is not in the queue
+     */
+    private int tryOfferBatch(V[] batch, int from)
+    {
+        while (from < batch.length && batch[from] == null) {
+            from++;
+        }
+        while (from < batch.length) {
+            long pos = tail.get();
+            int free = 0;
+            int end = from;
+            long dif = 0;
+            while (end < batch.length) {
+                if (batch[end] != null) {
+                    dif = sequences.get((int)((pos + free) & mask)) - (pos + free);
+                    if (dif != 0) {
+                        break;
+                    }
+                    free++;
+                }
+                end++;
+            }
+            if (free == 0) {
+                if (dif < 0) {
+                    //Full
+                    return from;
+                }
+                //Another producer moved the tail
+                continue;
+            }
+            if (tail.compareAndSet(pos, pos + free)) {
+                long p = pos;
+                for (int i = from; i < end; i++) {
+                    V obj = batch[i];
+                    if (obj != null) {
+                        int index = (int)(p & mask);
+                        slots.set(index, obj);
+                        sequences.set(index, p + 1);
+                        p++;
+                    }
+                }
+                signal(consumers, free);
+                return end;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Takes at most max elements without waiting, into dst if it is not null, otherwise to the consumer
+     *
+     * @param dst      Destination
+     * @param consumer Consumer of the elements
+     * @param max      Max expected results
+     * @return Count of elements taken
+     */
+    protected int drain0(Object[] dst, Consumer<? super V> consumer, int max)
+    {
+        while (true) {
+            long pos = head.get();
+            int count = 0;
+            long dif = 0;
+            while (count < max) {
+                dif = sequences.get((int)((pos + count) & mask)) - (pos + count + 1);
+                if (dif != 0) {
+                    break;
+                }
+                count++;
+            }
+            if (count == 0) {
+                if (dif < 0) {
+                    return 0;
+                }
+                //Another consumer moved the head
+                continue;
+            }
+            if (head.compareAndSet(pos, pos + count)) {
+                int taken = 0;
+                int skipped = 0;
+                int i = 0;
+                try {
+                    for (; i < count; i++) {
+                        long p = pos + i;
+                        int index = (int)(p & mask);
+                        V obj = slots.getAndSet(index, null);
+                        sequences.set(index, p + capacity);
+                        if (obj == null) {
+                            skipped++;
+                        }
+                        else if (dst != null) {
+                            dst[taken++] = obj;
+                        }
+                        else {
+                            taken++;
+                            consumer.accept(obj);
+                        }
+                    }
+                }
+                catch (Throwable t) {
+                    //The consumer threw, the rest of the claimed slots are freed, the elements in them
+                    //go back to the caller with the exception
+                    List<Object> undelivered = new ArrayList<>(count - i);
+                    for (i++; i < count; i++) {
+                        long p = pos + i;
+                        int index = (int)(p & mask);
+                        V obj = slots.getAndSet(index, null);
+                        if (obj == null) {
+                            skipped++;
+                        }
+                        else {
+                            undelivered.add(obj);
+                        }
+                        sequences.set(index, p + capacity);
+                    }
+                    if (!undelivered.isEmpty()) {
+                        t.addSuppressed(new UndeliveredException(undelivered));
+                    }
+                    throw t;
+                }
+                finally {
+                    if (skipped > 0) {
+                        removed.add(-skipped);
+                    }
+                    signal(producers, count);
+                }
+                if (taken > 0) {
+                    return taken;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the head without waiting
+     *
+     * @return the head or null if the queue is empty
+     */
+    protected V poll0()
+    {
+        while (true) {
+            long pos = head.get();
+            int index = (int)(pos & mask);
+            long dif = sequences.get(index) - (pos + 1);
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    V obj = slots.getAndSet(index, null);
+                    sequences.set(index, pos + capacity);
+                    signal(producers, 1);
+                    if (obj != null) {
+                        return obj;
+                    }
+                    removed.decrement();
+                }
+            }
+            else if (dif < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * One round of waiting
+     *
+     * @param consumer Whether a consumer is waiting
+     * @param round    Rounds waited
+     * @param deadline System.nanoTime() to give up, 0 means never
+     * @return false if it is timeout or interrupted
+     */
+    private boolean idle(boolean consumer, int round, long deadline)
+    {
+        long remaining = MAX_PARK_NANOS;
+        if (deadline != 0) {
+            remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+        }
+        if (round >= SPINS) {
+            switch (waitStrategy) {
+                case YIELD:
+                    Thread.yield();
+                    break;
+                case PARK:
+                    LockSupport.parkNanos(this, 1);
+                    break;
+                case BLOCKING:
+                    block(consumer ? consumers : producers, consumer, Math.min(remaining, MAX_PARK_NANOS));
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (Thread.interrupted()) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    private void block(ConcurrentLinkedQueue<Thread> waiters, boolean consumer, long nanos)
+    {
+        Thread current = Thread.currentThread();
+        waiters.offer(current);
+        try {
+            //Check again, the other side could move before we were in the waiters
+            if (consumer ? isEmpty() : isFull()) {
+                LockSupport.parkNanos(this, nanos);
+            }
+        }
+        finally {
+            waiters.remove(current);
+        }
+    }
+
+    private void signal(ConcurrentLinkedQueue<Thread> waiters, int count)
+    {
+        if (waitStrategy != WaitStrategy.BLOCKING) {
+            return;
+        }
+        for (int i = 0; i < count && !waiters.isEmpty(); i++) {
+            Thread waiter = waiters.poll();
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    /**
+     * 出队，如果队列为空，等待直到有对象入队
+     *
+     * @return 对象，如果等待被中断返回<code>null</code>
+     */
+    public V poll()
+    {
+        return poll(0);
+    }
+
+    /**
+     * 出队<br>
+     * 等待指定的毫秒数，如果没有对象入队，返回<code>null</code>
+     *
+     * @param timeout 超时，小于等于0表示一直等待
+     * @return 对象
+     */
+    public V poll(long timeout)
+    {
+        V obj = poll0();
+        if (obj != null) {
+            return obj;
+        }
+        long deadline = timeout <= 0 ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (int round = 0; idle(true, round, deadline); round++) {
+            obj = poll0();
+            if (obj != null) {
+                return obj;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 等待指定毫秒数，有对象入队后一次取出最多指定数量的对象
+     *
+     * @param wait Timeout in milliseconds, at least 50
+     * @param max  Max expected results
+     * @return the elements or null if no element arrives in time
+     */
+    @SuppressWarnings("unchecked")
+    public V[] pollBatch(long wait, int max)
+    {
+        if (max <= 0) {
+            throw new IllegalArgumentException("Invalid max:" + max);
+        }
+        if (wait <= 50) {
+            wait = 50;
+        }
+        max = Math.min(max, capacity);
+        Object[] objs = new Object[max];
+        int count = drain(objs, null, max, wait);
+        if (count == 0) {
+            return null;
+        }
+        return (V[])(count == max ? objs : Arrays.copyOf(objs, count));
+    }
+
+    /**
+     * 等待指定毫秒数，有对象入队后一次取出最多指定数量的对象放入给定的数组
+     *
+     * @param dst     Destination
+     * @param max     Max expected results
+     * @param timeout Timeout in milliseconds, at least 50 as in #pollBatch
+     * @return Count of elements put into dst
+     */
+    public int drainTo(V[] dst, int max, long timeout)
+    {
+        return drain(dst, null, Math.min(max, dst.length), timeout);
+    }
+
+    /**
+     * 等待指定毫秒数，有对象入队后一次取出最多指定数量的对象交给consumer处理
+     *
+     * @param consumer Consumer of the elements, if it throws, the elements after that one are attached to
+     *                 the exception, see UndeliveredException#getUndelivered(Throwable)
+     * @param max      Max expected results
+     * @param timeout  Timeout in milliseconds, at least 50 as in #pollBatch
+     * @return Count of elements taken
+     */
+    public int drain(Consumer<? super V> consumer, int max, long timeout)
+    {
+        if (consumer == null) {
+            throw new NullPointerException("Null consumer");
+        }
+        return drain(null, consumer, max, timeout);
+    }
+
+    private int drain(Object[] dst, Consumer<? super V> consumer, int max, long timeout)
+    {
+        if (max <= 0) {
+            return 0;
+        }
+        int count = drain0(dst, consumer, max);
+        if (count > 0) {
+            return count;
+        }
+        if (timeout <= 50) {
+            timeout = 50;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (int round = 0; idle(true, round, deadline); round++) {
+            count = drain0(dst, consumer, max);
+            if (count > 0) {
+                return count;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 选取指定的对象
+     *
+     * @param i 索引
+     */
+    public V peek(int i)
+    {
+        if (i < 0 || i >= capacity) {
+            throw new IllegalArgumentException("Index out of bound:" + i);
+        }
+        long pos = position(i);
+        V obj = pos >= 0 ? slots.get((int)(pos & mask)) : null;
+        if (obj == null) {
+            throw new IllegalArgumentException("Index out of bound:" + i);
+        }
+        return obj;
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of this queue
+     *
+     * @return the head of this queue, or {@code null} if this queue is empty
+     */
+    @Override
+    public V peek()
+    {
+        long pos = position(0);
+        return pos >= 0 ? slots.get((int)(pos & mask)) : null;
+    }
+
+    /**
+     * Position of the i-th published slot with a value, the removed slots are not counted
+     *
+     * @return the position or -1
+     */
+    private long position(int i)
+    {
+        int j = 0;
+        long end = head.get() + capacity;
+        for (long pos = head.get(); pos < end; pos++) {
+            int index = (int)(pos & mask);
+            if (sequences.get(index) != pos + 1) {
+                break;
+            }
+            if (slots.get(index) != null && j++ == i) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the element of a published slot if it is still there
+     */
+    private boolean remove(long pos, V expected)
+    {
+        int index = (int)(pos & mask);
+        if (sequences.get(index) == pos + 1 && slots.compareAndSet(index, expected, null)) {
+            removed.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 删除指定位置的对象
+     *
+     * @param i 索引
+     * @return 返回对应的对象
+     */
+    public V remove(int i)
+    {
+        if (i < 0 || i >= capacity) {
+            throw new IllegalArgumentException("Index out of bound:" + i);
+        }
+        if (i == 0) {
+            V obj = poll0();
+            if (obj == null) {
+                throw new IllegalArgumentException("Index out of bound:" + i);
+            }
+            return obj;
+        }
+        while (true) {
+            long pos = position(i);
+            if (pos < 0) {
+                throw new IllegalArgumentException("Index out of bound:" + i);
+            }
+            V obj = slots.get((int)(pos & mask));
+            //Taken by someone else meanwhile, the i-th element is another one now
+            if (obj != null && remove(pos, obj)) {
+                return obj;
+            }
+        }
+    }
+
+    /**
+     * 将指定的对象从队列中删除
+     *
+     * @param obj 对象
+     * @return 是否删除了
+     */
+    public boolean remove(Object obj)
+    {
+        if (obj == null) {
+            return false;
+        }
+        long end = head.get() + capacity;
+        for (long pos = head.get(); pos < end; pos++) {
+            int index = (int)(pos & mask);
+            if (sequences.get(index) != pos + 1) {
+                break;
+            }
+            V value = slots.get(index);
+            if (value != null && obj.equals(value) && remove(pos, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty()
+    {
+        long pos = head.get();
+        return sequences.get((int)(pos & mask)) != pos + 1;
+    }
+
+    /**
+     * Whether there is no free slot
+     */
+    public boolean isFull()
+    {
+        long pos = tail.get();
+        return sequences.get((int)(pos & mask)) < pos;
+    }
+
+    /**
+     * Count of elements, it is a snapshot under concurrent access
+     */
+    public int size()
+    {
+        long h = head.get();
+        long t = tail.get();
+        long size = t - h - removed.sum();
+        return size <= 0 ? 0 : (int)Math.min(size, capacity);
+    }
+
+    /**
+     * Count of free slots, it is a snapshot under concurrent access
+     */
+    public int remainingCapacity()
+    {
+        return capacity - size();
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    public WaitStrategy getWaitStrategy()
+    {
+        return waitStrategy;
+    }
+
+    /**
+     * Weakly consistent iterator, Iterator#remove deletes the element logically
+     */
+    public Iterator<V> iterator()
+    {
+        return new Iterator<V>()
+        {
+            private long pos = head.get();
+
+            private long lastPos = -1;
+
+            private V lastValue;
+
+            private V nextValue = advance();
+
+            private V advance()
+            {
+                //Stops at the first slot which is not published or already taken, skips the removed ones
+                while (true) {
+                    int index = (int)(pos & mask);
+                    if (sequences.get(index) != pos + 1) {
+                        return null;
+                    }
+                    V obj = slots.get(index);
+                    pos++;
+                    if (obj != null) {
+                        return obj;
+                    }
+                }
+            }
+
+            public boolean hasNext()
+            {
+                return nextValue != null;
+            }
+
+            public V next()
+            {
+                V obj = nextValue;
+                if (obj == null) {
+                    throw new NoSuchElementException();
+                }
+                lastPos = pos - 1;
+                lastValue = obj;
+                nextValue = advance();
+                return obj;
+            }
+
+            public void remove()
+            {
+                if (lastPos < 0) {
+                    throw new IllegalStateException();
+                }
+                //Nothing to do if a consumer took it meanwhile
+                RingBufferQueue.this.remove(lastPos, lastValue);
+                lastPos = -1;
+                lastValue = null;
+            }
+        };
+    }
+
+    /**
+     * Queue Size;
+     */
+    public String toString()
+    {
+        return "Queue Size:" + size() + " Capacity:" + capacity;
+    }
+
+    /**
+     * AtomicLong padded to its own cache line
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedLong extends AtomicLong
+    {
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
@@ -0,0 +1,54 @@
+package org.femtoframework.util.queue;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量处理时consumer抛出异常，已经从队列中取出但是没有交给consumer的对象
+ * <p/>
+ * BatchQueue#drain attaches it to the exception thrown by the consumer as a suppressed exception,
+ * the caller can get the elements back with #getUndelivered and put them back or handle them.
+ *
+ * @see BatchQueue#drain(java.util.function.Consumer, int, long)
+ */
+public class UndeliveredException extends RuntimeException
+{
+    private final List<?> undelivered;
+
+    /**
+     * Construct a new exception with the elements not delivered
+     *
+     * @param undelivered The elements in the queue order
+     */
+    public UndeliveredException(List<?> undelivered)
+    {
+        super(undelivered.size() + " elements are not delivered", null, false, false);
+        this.undelivered = Collections.unmodifiableList(undelivered);
+    }
+
+    /**
+     * 没有交给consumer的对象，按照队列中的顺序
+     *
+     * @return The elements
+     */
+    public List<?> getUndelivered()
+    {
+        return undelivered;
+    }
+
+    /**
+     * 从consumer抛出的异常中取出没有交给consumer的对象
+     *
+     * @param thrown The exception thrown by BatchQueue#drain
+     * @return The elements not delivered, empty if there is none
+     */
+    public static List<?> getUndelivered(Throwable thrown)
+    {
+        for (Throwable suppressed : thrown.getSuppressed()) {
+            if (suppressed instanceof UndeliveredException) {
+                return ((UndeliveredException)suppressed).getUndelivered();
+            }
+        }
+        return Collections.emptyList();
+    }
+}
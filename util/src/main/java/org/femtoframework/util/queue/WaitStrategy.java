@@ -0,0 +1,30 @@
+package org.femtoframework.util.queue;
+
+/**
+ * How a thread waits on a RingBufferQueue, consumers for an element, producers for a free slot.
+ * All of them spin a few rounds first.
+ *
+ * @see RingBufferQueue
+ */
+public enum WaitStrategy
+{
+    /**
+     * Keeps spinning, the lowest latency, it holds a core while waiting
+     */
+    BUSY_SPIN,
+
+    /**
+     * Yields the core between checks
+     */
+    YIELD,
+
+    /**
+     * Parks for the shortest time between checks, nobody needs to wake it up
+     */
+    PARK,
+
+    /**
+     * Parks until the other side signals, the lowest CPU usage, every offer and poll checks for waiters
+     */
+    BLOCKING
+}
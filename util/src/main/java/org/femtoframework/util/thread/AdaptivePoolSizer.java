@@ -0,0 +1,259 @@
+package org.femtoframework.util.thread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sizes a thread pool by the measured task wait time instead of spare thread counts.
+ * <p>
+ * Executing threads record the wait time (submit to start) and the service time (start to end) of every task,
+ * the monitor folds them into exponentially weighted moving averages once per period and moves the target size:
+ * <ul>
+ * <li>GROW when the average wait is above the target, by at least one step, or up to what Little's law says
+ * the current arrival rate keeps busy</li>
+ * <li>SHRINK when the average wait stays below lowWatermark * target for shrinkDelay periods in a row,
+ * and the busy estimate leaves room for it</li>
+ * <li>HOLD otherwise, the band between the two thresholds keeps the pool from flapping</li>
+ * </ul>
+ */
+public class AdaptivePoolSizer
+{
+    /**
+     * Decision of the last period
+     */
+    public enum Decision
+    {
+        HOLD,
+        GROW,
+        SHRINK
+    }
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    private final LongAdder serviceNanos = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private long targetWaitNanos;
+
+    private double alpha = 0.3;
+
+    private double lowWatermark = 0.5;
+
+    private int shrinkDelay = 3;
+
+    private volatile double waitEwma = Double.NaN;
+
+    private volatile double serviceEwma = Double.NaN;
+
+    private volatile double arrivalRate = Double.NaN;
+
+    private volatile int targetThreads;
+
+    private volatile Decision lastDecision = Decision.HOLD;
+
+    private volatile long growCount;
+
+    private volatile long shrinkCount;
+
+    private int calmPeriods;
+
+    /**
+     * @param targetWaitMillis Target of the average task wait time
+     */
+    public AdaptivePoolSizer(long targetWaitMillis)
+    {
+        this.targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(targetWaitMillis);
+    }
+
+    /**
+     * Records one executed task, called by the executing thread
+     *
+     * @param waitNanos    Time from submit to start
+     * @param serviceNanos Time from start to end
+     */
+    public void record(long waitNanos, long serviceNanos)
+    {
+        this.waitNanos.add(waitNanos);
+        this.serviceNanos.add(serviceNanos);
+        this.completed.increment();
+    }
+
+    /**
+     * Folds the samples of the last period and returns the new target size, called by the monitor only
+     *
+     * @param currentThreads Current count of threads
+     * @param minThreads     Lower bound
+     * @param maxThreads     Upper bound
+     * @param step           Threads to add or remove at least in one period
+     * @param elapsedNanos   Length of the last period
+     * @return Target count of threads
+     */
+    public synchronized int resize(int currentThreads, int minThreads, int maxThreads, int step, long elapsedNanos)
+    {
+        long count = completed.sumThenReset();
+        long waits = waitNanos.sumThenReset();
+        long services = serviceNanos.sumThenReset();
+
+        double seconds = elapsedNanos > 0 ? elapsedNanos / 1e9 : 1;
+        arrivalRate = fold(arrivalRate, count / seconds);
+        if (count > 0) {
+            waitEwma = fold(waitEwma, (double)waits / count);
+            serviceEwma = fold(serviceEwma, (double)services / count);
+        }
+        else if (!Double.isNaN(waitEwma)) {
+            //Nothing waited in this period
+            waitEwma = fold(waitEwma, 0);
+        }
+
+        if (targetThreads <= 0) {
+            targetThreads = currentThreads;
+        }
+        step = Math.max(1, step);
+        //Little's law, the count of threads busy with the current arrival rate
+        int busy = Double.isNaN(serviceEwma) ? 0 : (int)Math.ceil(arrivalRate * serviceEwma / 1e9);
+
+        int target = targetThreads;
+        Decision decision = Decision.HOLD;
+        if (!Double.isNaN(waitEwma) && waitEwma > targetWaitNanos) {
+            calmPeriods = 0;
+            target = Math.max(Math.max(targetThreads, currentThreads) + step, busy + 1);
+            decision = Decision.GROW;
+        }
+        else if (Double.isNaN(waitEwma) || waitEwma < targetWaitNanos * lowWatermark) {
+            int floor = Math.max(minThreads, busy + (busy + 3) / 4);
+            if (floor < targetThreads && ++calmPeriods >= shrinkDelay) {
+                calmPeriods = 0;
+                target = Math.max(floor, targetThreads - step);
+                decision = Decision.SHRINK;
+            }
+        }
+        else {
+            calmPeriods = 0;
+        }
+
+        target = Math.max(minThreads, Math.min(maxThreads, target));
+        if (target == targetThreads) {
+            decision = Decision.HOLD;
+        }
+        else if (decision == Decision.GROW) {
+            growCount++;
+        }
+        else if (decision == Decision.SHRINK) {
+            shrinkCount++;
+        }
+        targetThreads = target;
+        lastDecision = decision;
+        return target;
+    }
+
+    private double fold(double ewma, double sample)
+    {
+        return Double.isNaN(ewma) ? sample : alpha * sample + (1 - alpha) * ewma;
+    }
+
+    /**
+     * Average task wait time in milliseconds
+     */
+    public double getWaitTimeEwma()
+    {
+        return Double.isNaN(waitEwma) ? 0 : waitEwma / 1e6;
+    }
+
+    /**
+     * Average task service time in milliseconds
+     */
+    public double getServiceTimeEwma()
+    {
+        return Double.isNaN(serviceEwma) ? 0 : serviceEwma / 1e6;
+    }
+
+    /**
+     * Average count of finished tasks per second
+     */
+    public double getArrivalRate()
+    {
+        return Double.isNaN(arrivalRate) ? 0 : arrivalRate;
+    }
+
+    public int getTargetThreads()
+    {
+        return targetThreads;
+    }
+
+    public Decision getLastDecision()
+    {
+        return lastDecision;
+    }
+
+    public long getGrowCount()
+    {
+        return growCount;
+    }
+
+    public long getShrinkCount()
+    {
+        return shrinkCount;
+    }
+
+    public long getTargetWaitMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(targetWaitNanos);
+    }
+
+    public void setTargetWaitMillis(long targetWaitMillis)
+    {
+        this.targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(targetWaitMillis);
+    }
+
+    public double getAlpha()
+    {
+        return alpha;
+    }
+
+    /**
+     * Weight of the latest period in the moving averages
+     *
+     * @param alpha (0, 1]
+     */
+    public void setAlpha(double alpha)
+    {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("Alpha should be in (0, 1]:" + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    public double getLowWatermark()
+    {
+        return lowWatermark;
+    }
+
+    /**
+     * Fraction of the target wait time under which the pool may shrink
+     *
+     * @param lowWatermark [0, 1)
+     */
+    public void setLowWatermark(double lowWatermark)
+    {
+        if (lowWatermark < 0 || lowWatermark >= 1) {
+            throw new IllegalArgumentException("Low watermark should be in [0, 1):" + lowWatermark);
+        }
+        this.lowWatermark = lowWatermark;
+    }
+
+    public int getShrinkDelay()
+    {
+        return shrinkDelay;
+    }
+
+    /**
+     * Periods in a row under the low watermark before shrinking
+     *
+     * @param shrinkDelay Count of periods
+     */
+    public void setShrinkDelay(int shrinkDelay)
+    {
+        this.shrinkDelay = Math.max(1, shrinkDelay);
+    }
+}
@@ -0,0 +1,103 @@
+package org.femtoframework.util.thread;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free bounded MPMC ring of spare ThreadControllers.
+ * <p>
+ * Every slot carries a sequence number, producers and consumers claim a slot by CAS on tail or head
+ * and publish it by advancing the sequence, so neither side ever takes a monitor.
+ */
+final class ControllerRing
+{
+    private final int mask;
+
+    private final AtomicReferenceArray<ThreadController> slots;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity Minimum capacity, rounded up to a power of two
+     */
+    ControllerRing(int capacity)
+    {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Puts a controller at the tail
+     *
+     * @param controller ThreadController
+     * @return false if the ring is full
+     */
+    boolean offer(ThreadController controller)
+    {
+        while (true) {
+            long pos = tail.get();
+            int index = (int)(pos & mask);
+            long dif = sequences.get(index) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.set(index, controller);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+            }
+            else if (dif < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Takes the controller at the head
+     *
+     * @return ThreadController or null if the ring is empty
+     */
+    ThreadController poll()
+    {
+        while (true) {
+            long pos = head.get();
+            int index = (int)(pos & mask);
+            long dif = sequences.get(index) - (pos + 1);
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    ThreadController controller = slots.get(index);
+                    slots.set(index, null);
+                    sequences.set(index, pos + mask + 1);
+                    return controller;
+                }
+            }
+            else if (dif < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Count of spare controllers, it is a snapshot under concurrent access
+     *
+     * @return Count of spare controllers
+     */
+    int size()
+    {
+        long h = head.get();
+        long t = tail.get();
+        return t > h ? (int)(t - h) : 0;
+    }
+}
@@ -0,0 +1,251 @@
+package org.femtoframework.util.thread;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default metrics sink, keeps counters and histograms in memory and exposes them as a JMX MBean
+ * named "org.femtoframework.util.thread:type={executor type},name={executor name}".
+ * <p>
+ * If the name is taken already, for example by two pools with the default name, the MBean is not registered,
+ * the metrics are still available from the executor.
+ */
+public class DefaultExecutorMetrics implements ExecutorMetrics, ExecutorMetricsMBean
+{
+    public static final String DOMAIN = "org.femtoframework.util.thread";
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultExecutorMetrics.class);
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder threadCreated = new LongAdder();
+
+    private final LongAdder threadTerminated = new LongAdder();
+
+    private volatile int peakThreadCount;
+
+    private final LatencyHistogram competeTime = new LatencyHistogram();
+
+    private final LatencyHistogram queueWaitTime = new LatencyHistogram();
+
+    private final LatencyHistogram runTime = new LatencyHistogram();
+
+    private ObjectName objectName;
+
+    public void onSubmit()
+    {
+        submitted.increment();
+    }
+
+    public void onReject()
+    {
+        rejected.increment();
+    }
+
+    public void onCompete(long blockedNanos)
+    {
+        competeTime.record(blockedNanos);
+    }
+
+    public void onComplete(long waitNanos, long runNanos)
+    {
+        queueWaitTime.record(waitNanos);
+        runTime.record(runNanos);
+    }
+
+    public void onThreadCreated(int currentThreads)
+    {
+        threadCreated.increment();
+        if (currentThreads > peakThreadCount) {
+            peakThreadCount = currentThreads;
+        }
+    }
+
+    public void onThreadTerminated()
+    {
+        threadTerminated.increment();
+    }
+
+    /**
+     * Registers the MBean
+     *
+     * @param type Type of the executor
+     * @param name Name of the executor
+     */
+    public synchronized void open(String type, String name)
+    {
+        if (objectName != null) {
+            return;
+        }
+        try {
+            ObjectName on = new ObjectName(DOMAIN + ":type=" + ObjectName.quote(type)
+                                           + ",name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(on)) {
+                logger.debug("MBean exists already:" + on);
+                return;
+            }
+            server.registerMBean(new StandardMBean(this, ExecutorMetricsMBean.class), on);
+            objectName = on;
+        }
+        catch (Exception e) {
+            logger.debug("Unable to register executor metrics:" + name, e);
+        }
+    }
+
+    /**
+     * Unregisters the MBean
+     */
+    public synchronized void close()
+    {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            }
+            catch (Exception e) {
+                logger.debug("Unable to unregister executor metrics:" + objectName, e);
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * Name of the registered MBean
+     *
+     * @return ObjectName or null if it is not registered
+     */
+    public ObjectName getObjectName()
+    {
+        return objectName;
+    }
+
+    public long getSubmittedCount()
+    {
+        return submitted.sum();
+    }
+
+    public long getCompletedCount()
+    {
+        return runTime.getCount();
+    }
+
+    public long getRejectedCount()
+    {
+        return rejected.sum();
+    }
+
+    public long getThreadCreatedCount()
+    {
+        return threadCreated.sum();
+    }
+
+    public long getThreadTerminatedCount()
+    {
+        return threadTerminated.sum();
+    }
+
+    public int getPeakThreadCount()
+    {
+        return peakThreadCount;
+    }
+
+    public long getCompeteCount()
+    {
+        return competeTime.getCount();
+    }
+
+    public long getCompeteMeanMicros()
+    {
+        return micros(competeTime.getMean());
+    }
+
+    public long getCompeteP99Micros()
+    {
+        return micros(competeTime.getPercentile(99));
+    }
+
+    public long getCompeteMaxMicros()
+    {
+        return micros(competeTime.getMax());
+    }
+
+    public long getQueueWaitMeanMicros()
+    {
+        return micros(queueWaitTime.getMean());
+    }
+
+    public long getQueueWaitP99Micros()
+    {
+        return micros(queueWaitTime.getPercentile(99));
+    }
+
+    public long getQueueWaitMaxMicros()
+    {
+        return micros(queueWaitTime.getMax());
+    }
+
+    public long getRunTimeMeanMicros()
+    {
+        return micros(runTime.getMean());
+    }
+
+    public long getRunTimeP99Micros()
+    {
+        return micros(runTime.getPercentile(99));
+    }
+
+    public long getRunTimeMaxMicros()
+    {
+        return micros(runTime.getMax());
+    }
+
+    /**
+     * Time blocked in compete
+     */
+    public LatencyHistogram getCompeteTime()
+    {
+        return competeTime;
+    }
+
+    /**
+     * Time from submit to start
+     */
+    public LatencyHistogram getQueueWaitTime()
+    {
+        return queueWaitTime;
+    }
+
+    /**
+     * Time from start to end
+     */
+    public LatencyHistogram getRunTime()
+    {
+        return runTime;
+    }
+
+    public void reset()
+    {
+        submitted.reset();
+        rejected.reset();
+        threadCreated.reset();
+        threadTerminated.reset();
+        peakThreadCount = 0;
+        competeTime.reset();
+        queueWaitTime.reset();
+        runTime.reset();
+    }
+
+    private static long micros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,85 @@
+package org.femtoframework.util.thread;
+
+/**
+ * Metrics sink of an executor.
+ * <p>
+ * Executors call it from the submitting and executing threads, so implementations should be cheap and thread-safe.
+ * All the methods do nothing by default, a sink implements only what it needs.
+ *
+ * @see DefaultExecutorMetrics
+ */
+public interface ExecutorMetrics
+{
+    /**
+     * A sink which ignores everything, executors skip timing when they have it
+     */
+    ExecutorMetrics NONE = new ExecutorMetrics()
+    {
+    };
+
+    /**
+     * A task is submitted
+     */
+    default void onSubmit()
+    {
+    }
+
+    /**
+     * A task is rejected or dropped
+     */
+    default void onReject()
+    {
+    }
+
+    /**
+     * The submitter was blocked waiting for a thread
+     *
+     * @param blockedNanos Time blocked
+     */
+    default void onCompete(long blockedNanos)
+    {
+    }
+
+    /**
+     * A task is completed, normally or not
+     *
+     * @param waitNanos Time from submit to start
+     * @param runNanos  Time from start to end
+     */
+    default void onComplete(long waitNanos, long runNanos)
+    {
+    }
+
+    /**
+     * A thread is created
+     *
+     * @param currentThreads Count of threads after creation
+     */
+    default void onThreadCreated(int currentThreads)
+    {
+    }
+
+    /**
+     * A thread is terminated
+     */
+    default void onThreadTerminated()
+    {
+    }
+
+    /**
+     * The executor is initialized
+     *
+     * @param type Type of the executor
+     * @param name Name of the executor
+     */
+    default void open(String type, String name)
+    {
+    }
+
+    /**
+     * The executor is destroyed
+     */
+    default void close()
+    {
+    }
+}
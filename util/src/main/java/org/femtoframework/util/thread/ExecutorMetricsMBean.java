@@ -0,0 +1,46 @@
+package org.femtoframework.util.thread;
+
+/**
+ * JMX view of DefaultExecutorMetrics, times are in microseconds
+ *
+ * @see DefaultExecutorMetrics
+ */
+public interface ExecutorMetricsMBean
+{
+    long getSubmittedCount();
+
+    long getCompletedCount();
+
+    long getRejectedCount();
+
+    long getThreadCreatedCount();
+
+    long getThreadTerminatedCount();
+
+    int getPeakThreadCount();
+
+    long getCompeteCount();
+
+    long getCompeteMeanMicros();
+
+    long getCompeteP99Micros();
+
+    long getCompeteMaxMicros();
+
+    long getQueueWaitMeanMicros();
+
+    long getQueueWaitP99Micros();
+
+    long getQueueWaitMaxMicros();
+
+    long getRunTimeMeanMicros();
+
+    long getRunTimeP99Micros();
+
+    long getRunTimeMaxMicros();
+
+    /**
+     * Clears all the counters and histograms
+     */
+    void reset();
+}
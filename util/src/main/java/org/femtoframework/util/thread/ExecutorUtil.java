@@ -15,18 +15,52 @@ import java.util.concurrent.TimeUnit;
  */
 public class ExecutorUtil
 {
+    /**
+     * System property, if it is true, #newThreadPool returns a VirtualThreadExecutor on JDK 21 and later
+     */
+    public static final String VIRTUAL_THREAD_MODE = "femto.thread.virtual";
+
+    /**
+     * System property, the maxConcurrency of the VirtualThreadExecutor created by #newThreadPool, default is unlimited
+     */
+    public static final String VIRTUAL_MAX_CONCURRENCY = "femto.thread.virtual.maxConcurrency";
+
     /**
      * 创建一个线程池，用给定的各项参数进行参数注入，并且自动初始化和启动
      *
      * @return the newly created thread pool
      */
     public static ExecutorService newThreadPool(String name, int minSpareThreads, int maxSpareThreads, int maxThreads)
+    {
+        if (isVirtualThreadMode()) {
+            return newVirtualThreadExecutor(name, Integer.getInteger(VIRTUAL_MAX_CONCURRENCY, 0));
+        }
+        ThreadPool pool = new ThreadPool();
+        pool.setName(name);
+        pool.setMinSpareThreads(minSpareThreads);
+        pool.setMaxSpareThreads(maxSpareThreads);
+        pool.setMaxThreads(maxThreads);
+        pool.start();
+        return pool;
+    }
+
+    /**
+     * 创建一个采用任务队列的线程池，提交任务的线程不会等待空闲线程
+     *
+     * @param queueCapacity Capacity of the task queue
+     * @param rejectPolicy  What to do when the task queue is full
+     * @return the newly created thread pool
+     */
+    public static ExecutorService newQueuedThreadPool(String name, int minSpareThreads, int maxSpareThreads,
+                                                      int maxThreads, int queueCapacity, RejectPolicy rejectPolicy)
     {
         ThreadPool pool = new ThreadPool();
         pool.setName(name);
         pool.setMinSpareThreads(minSpareThreads);
         pool.setMaxSpareThreads(maxSpareThreads);
         pool.setMaxThreads(maxThreads);
+        pool.setQueueCapacity(queueCapacity);
+        pool.setRejectPolicy(rejectPolicy);
         pool.start();
         return pool;
     }
@@ -38,12 +72,55 @@ public class ExecutorUtil
      */
     public static ExecutorService newThreadPool(String name)
     {
+        if (isVirtualThreadMode()) {
+            return newVirtualThreadExecutor(name, Integer.getInteger(VIRTUAL_MAX_CONCURRENCY, 0));
+        }
         ThreadPool pool = new ThreadPool();
         pool.setName(name);
         pool.start();
         return pool;
     }
 
+    /**
+     * 创建一个工作窃取的执行器，并且自动初始化和启动
+     *
+     * @param parallelism Count of workers, 0 means the count of available processors
+     * @return the newly created executor
+     */
+    public static ExecutorService newWorkStealingExecutor(String name, int parallelism)
+    {
+        WorkStealingExecutor executor = new WorkStealingExecutor();
+        executor.setName(name);
+        executor.setParallelism(parallelism);
+        executor.start();
+        return executor;
+    }
+
+    /**
+     * 创建一个虚拟线程执行器，每个任务一个虚拟线程，并且自动初始化和启动
+     *
+     * @param maxConcurrency Maximum tasks running at the same time, 0 means unlimited
+     * @return the newly created executor
+     */
+    public static ExecutorService newVirtualThreadExecutor(String name, int maxConcurrency)
+    {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor();
+        executor.setName(name);
+        executor.setMaxConcurrency(maxConcurrency);
+        executor.start();
+        return executor;
+    }
+
+    /**
+     * Whether #newThreadPool should create virtual thread executors
+     *
+     * @return true if it is enabled by system property and the runtime supports virtual threads
+     */
+    public static boolean isVirtualThreadMode()
+    {
+        return Boolean.getBoolean(VIRTUAL_THREAD_MODE) && VirtualThreads.isSupported();
+    }
+
     /**
      * 需要外部调用#start方法
      * <p/>
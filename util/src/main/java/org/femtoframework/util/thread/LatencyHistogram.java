@@ -0,0 +1,111 @@
+package org.femtoframework.util.thread;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two buckets in nanoseconds.
+ * <p>
+ * Recording is a couple of atomic adds, percentiles are the upper bound of the bucket they fall in,
+ * so they are accurate within a factor of two, which is enough to tell where executor latency comes from.
+ */
+public class LatencyHistogram
+{
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private volatile long max;
+
+    /**
+     * Records one value
+     *
+     * @param nanos Latency in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucket(nanos));
+        count.increment();
+        sum.add(nanos);
+        long m = max;
+        if (nanos > m) {
+            //Racy but monotonic enough for a gauge
+            max = nanos;
+        }
+    }
+
+    private static int bucket(long nanos)
+    {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * Mean in nanoseconds
+     */
+    public long getMean()
+    {
+        long c = count.sum();
+        return c == 0 ? 0 : sum.sum() / c;
+    }
+
+    /**
+     * Maximum in nanoseconds
+     */
+    public long getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Percentile in nanoseconds, the upper bound of the bucket
+     *
+     * @param percentile (0, 100]
+     * @return Percentile in nanoseconds
+     */
+    public long getPercentile(double percentile)
+    {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Clears all the values
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max = 0;
+    }
+}
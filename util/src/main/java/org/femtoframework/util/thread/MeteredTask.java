@@ -0,0 +1,69 @@
+package org.femtoframework.util.thread;
+
+import org.femtoframework.bean.Destroyable;
+
+/**
+ * Task wrapper which reports its wait and run time
+ */
+class MeteredTask implements Runnable, Destroyable
+{
+    private final Runnable task;
+
+    private final long submitNanos;
+
+    private final ExecutorMetrics metrics;
+
+    private final AdaptivePoolSizer sizer;
+
+    /**
+     * @param task        Task
+     * @param submitNanos System.nanoTime() on submit
+     * @param metrics     Metrics sink
+     * @param sizer       Adaptive sizer, it could be null
+     */
+    MeteredTask(Runnable task, long submitNanos, ExecutorMetrics metrics, AdaptivePoolSizer sizer)
+    {
+        this.task = task;
+        this.submitNanos = submitNanos;
+        this.metrics = metrics;
+        this.sizer = sizer;
+    }
+
+    public void run()
+    {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        }
+        finally {
+            long waitNanos = start - submitNanos;
+            long runNanos = System.nanoTime() - start;
+            metrics.onComplete(waitNanos, runNanos);
+            if (sizer != null) {
+                sizer.record(waitNanos, runNanos);
+            }
+        }
+    }
+
+    public void destroy()
+    {
+        if (task instanceof Destroyable) {
+            ((Destroyable)task).destroy();
+        }
+    }
+
+    /**
+     * The wrapped task
+     *
+     * @return Task
+     */
+    Runnable getTask()
+    {
+        return task;
+    }
+
+    public String toString()
+    {
+        return task.toString();
+    }
+}
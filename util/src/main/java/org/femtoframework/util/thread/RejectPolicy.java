@@ -0,0 +1,29 @@
+package org.femtoframework.util.thread;
+
+/**
+ * What an executor does with a task when its work queue is full
+ *
+ * @see ThreadPool#setQueueCapacity(int)
+ */
+public enum RejectPolicy {
+
+    /**
+     * Throws a RejectedExecutionException to the submitter.
+     */
+    ABORT,
+
+    /**
+     * Runs the task directly in the submitting thread.
+     */
+    CALLER_RUNS,
+
+    /**
+     * Silently drops the task.
+     */
+    DISCARD,
+
+    /**
+     * Drops the oldest queued task and queues the new one.
+     */
+    DISCARD_OLDEST;
+}
@@ -2,6 +2,9 @@ package org.femtoframework.util.thread;
 
 
 import org.femtoframework.bean.BeanPhase;
+import org.femtoframework.bean.Nameable;
+import org.femtoframework.bean.NamedBean;
+import org.femtoframework.bean.annotation.Ignore;
 import org.femtoframework.bean.annotation.Property;
 
 import java.util.concurrent.AbstractExecutorService;
@@ -13,7 +16,7 @@ import java.util.concurrent.Executor;
  * @author fengyun
  * @version 1.00 2005-3-19 2:07:08
  */
-public class SingleThreadExecutor extends AbstractExecutorService implements LifecycleExecutorService
+public class SingleThreadExecutor extends AbstractExecutorService implements LifecycleExecutorService, NamedBean, Nameable
 {
     /**
      * 单线程执行
@@ -83,6 +86,11 @@ public class SingleThreadExecutor extends AbstractExecutorService implements Lif
 
     private SingleThread thread;
 
+    private String name = "single_thread";
+
+    @Ignore
+    private ExecutorMetrics metrics = new DefaultExecutorMetrics();
+
     /**
      * 是否采用Daemon形式的线程
      */
@@ -139,6 +147,7 @@ public class SingleThreadExecutor extends AbstractExecutorService implements Lif
     {
         thread = new SingleThread();
         thread.setDaemon(daemon);
+        metrics.open("SingleThreadExecutor", getName());
     }
 
     /**
@@ -147,6 +156,7 @@ public class SingleThreadExecutor extends AbstractExecutorService implements Lif
     public void _doStart()
     {
         thread.start();
+        metrics.onThreadCreated(1);
     }
 
     /**
@@ -164,6 +174,8 @@ public class SingleThreadExecutor extends AbstractExecutorService implements Lif
     {
         thread.destroy();
         thread = null;
+        metrics.onThreadTerminated();
+        metrics.close();
     }
 
     /**
@@ -179,6 +191,49 @@ public class SingleThreadExecutor extends AbstractExecutorService implements Lif
         if (getBeanPhase().isBefore(BeanPhase.STARTING)) {
             start();
         }
-        thread.execute(runnable);
+        if (metrics == ExecutorMetrics.NONE) {
+            thread.execute(runnable);
+            return;
+        }
+
+        metrics.onSubmit();
+        long submitNanos = System.nanoTime();
+        //Blocked until the previous task is taken
+        thread.execute(new MeteredTask(runnable, submitNanos, metrics, null));
+        metrics.onCompete(System.nanoTime() - submitNanos);
+    }
+
+    /**
+     * Metrics sink, DefaultExecutorMetrics by default
+     *
+     * @return ExecutorMetrics
+     */
+    @Ignore
+    public ExecutorMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Replaces the metrics sink, it should be set before #init.
+     * ExecutorMetrics.NONE turns the metrics and the task timing off.
+     *
+     * @param metrics ExecutorMetrics
+     */
+    public void setMetrics(ExecutorMetrics metrics)
+    {
+        this.metrics = metrics == null ? ExecutorMetrics.NONE : metrics;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public void setName(String name)
+    {
+        this.name = name;
     }
 }
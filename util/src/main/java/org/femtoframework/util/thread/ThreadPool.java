@@ -10,9 +10,17 @@ import org.femtoframework.pattern.Loggable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Thread Pool implementation
@@ -27,18 +35,29 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
     public static final int MIN_SPARE_THREADS = 10;
     public static final int INC_THREADS = 10;
 
+    /*
+     * Longest park in #compete without a timeout, the same period the monitor based version waited
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
     private String name = "thread_pool";
 
-    protected ThreadController[] pool;
+    /*
+     * Spare controllers
+     */
+    @Ignore
+    private ControllerRing pool;
+
+    /*
+     * Threads parked in #compete
+     */
+    @Ignore
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
 
     @Property(value = "maxThreads", defaultValue ="100")
     @Description("Maximum threads")
     protected int maxThreads = MAX_THREADS;
 
-
-    @Ignore
-    private int mask = 0;
-
     @Property (value = "minSpareThreads", defaultValue = "10")
     @Description("Minimun spare threads")
     protected int minSpareThreads = MIN_SPARE_THREADS;
@@ -50,25 +69,47 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
     @Property (value = "incThreads", defaultValue = "10")
     private int incThreads = INC_THREADS;
 
-    @Property (value = "currentThreadCount", writable = false)
-    @Description("Current count of threads")
-    protected int currentThreadCount;
+    @Property (value = "queueCapacity", defaultValue = "0")
+    @Description("Capacity of the task queue, 0 means handing tasks to threads directly")
+    private int queueCapacity = 0;
+
+    @Property (value = "rejectPolicy", defaultValue = "ABORT")
+    @Description("What to do with a task when the task queue is full")
+    private RejectPolicy rejectPolicy = RejectPolicy.ABORT;
+
+    @Property (value = "targetWaitMillis", defaultValue = "0")
+    @Description("Target of the average task wait time, greater than 0 enables adaptive sizing")
+    private int targetWaitMillis = 0;
+
     /*
-     * Flag that the pool should terminate all the threads and stop.
+     * Adaptive sizing, replaces the spare thread counts when targetWaitMillis is set
      */
-    protected boolean stopThePool;
-
     @Ignore
-    private final Object headLock = new Object();
+    private AdaptivePoolSizer sizer;
 
     @Ignore
-    private final Object tailLock = new Object();
+    private long lastMonitorNanos;
 
+    /*
+     * Tasks waiting for a spare controller, only used in task-queue mode
+     */
     @Ignore
-    private int head = 0;
+    private BlockingQueue<Runnable> taskQueue;
+
+    @Property (value = "currentThreadCount", writable = false)
+    @Description("Current count of threads")
+    protected int currentThreadCount;
+
+    @Property (value = "peakThreadCount", writable = false)
+    @Description("Peak count of threads")
+    private int peakThreadCount;
 
     @Ignore
-    private int tail = head;
+    private ExecutorMetrics metrics = new DefaultExecutorMetrics();
+    /*
+     * Flag that the pool should terminate all the threads and stop.
+     */
+    protected volatile boolean stopThePool;
 
     @Ignore
     protected Logger logger;
@@ -85,12 +126,20 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
             logger = LoggerFactory.getLogger(getName());
         }
         adjustLimits();
-        this.mask = maxThreads + 1;
-        this.pool = new ThreadController[mask];
+        this.pool = new ControllerRing(maxThreads + 1);
+        if (queueCapacity > 0) {
+            this.taskQueue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+        if (targetWaitMillis > 0) {
+            this.sizer = new AdaptivePoolSizer(targetWaitMillis);
+        }
+        metrics.open("ThreadPool", getName());
 
         logger.info(getName() + "#init{ MaxThreads:" + maxThreads
                 + ",MaxSpareThreads:" + maxSpareThreads
-                + ",MinSpareThreads:" + minSpareThreads + " }");
+                + ",MinSpareThreads:" + minSpareThreads
+                + ",QueueCapacity:" + queueCapacity
+                + ",TargetWaitMillis:" + targetWaitMillis + " }");
 
         monitorThread = new LifecycleThread()
         {
@@ -114,6 +163,10 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
     public synchronized void _doStart()
     {
         openThreads(minSpareThreads);
+        if (sizer != null) {
+            lastMonitorNanos = System.nanoTime();
+            monitorThread.start();
+        }
     }
 
     public void setMaxThreads(int maxThreads)
@@ -155,7 +208,7 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
     @Description("Current threads in running")
     public int getCurrentThreadBusy()
     {
-        return mask == 0 ? 0 : currentThreadCount - ((mask + tail - head) % mask);
+        return pool == null ? 0 : currentThreadCount - pool.size();
     }
 
     public ThreadController compete(int timeout)
@@ -165,47 +218,65 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
             return controller;
         }
 
-        synchronized (headLock) {
+        Thread current = Thread.currentThread();
+        long start = System.nanoTime();
+        long deadline = timeout > 0 ? start + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        boolean interrupted = false;
+        try {
             while (true) {
-                int spare = (mask + tail - head) % mask;
-                if (spare <= 0) {
-                    if (currentThreadCount < maxThreads) {
-                        controller = createThread();
-                        break;
+                controller = pool.poll();
+                if (controller == null) {
+                    controller = createUnderLimit();
+                }
+                if (controller != null) {
+                    break;
+                }
+
+                competeNoThread();
+                waiters.offer(current);
+                //Check again, a controller could be recycled before we were in the waiters
+                controller = pool.poll();
+                if (controller == null && !stopThePool) {
+                    if (timeout > 0) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining > 0) {
+                            LockSupport.parkNanos(this, remaining);
+                        }
                     }
                     else {
-                        competeNoThread();
-                        long startTime = 0;
-                        try {
-                            if (timeout > 0) {
-                                startTime = System.currentTimeMillis();
-                                headLock.wait(timeout);
-                            }
-                            else {
-                                headLock.wait(100);
-                            }
-                        }
-                        catch (InterruptedException e) {
-                            logger.error("Unexpected exception", e);
-                        }
-                        //如果已经超时
-                        if (timeout > 0 && System.currentTimeMillis() - startTime > timeout) {
-                            return null;
-                        }
+                        //Bounded, so a lost wake-up costs at most one period
+                        LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                    }
+                    if (Thread.interrupted()) {
+                        interrupted = true;
                     }
                 }
-                else {
-                    controller = pool[head];
-                    pool[head] = null;
-                    head = ++head % mask;
+                waiters.remove(current);
+                if (controller != null) {
                     break;
                 }
+
                 if (stopThePool) {
                     throw new RejectedExecutionException("Current thread count:" + currentThreadCount
                             + " stop the pool:" + stopThePool);
                 }
+                //如果已经超时
+                if (timeout > 0 && System.nanoTime() - deadline >= 0) {
+                    return null;
+                }
             }
         }
+        finally {
+            metrics.onCompete(System.nanoTime() - start);
+            if (interrupted) {
+                current.interrupt();
+            }
+        }
+
+        //Pass the wake-up on if there are still spare controllers
+        if (pool.size() > 0) {
+            signalWaiter();
+        }
         return controller;
     }
 
@@ -216,29 +287,49 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
 
     public ThreadController allocate()
     {
-        if (stopThePool) {
-            throw new RejectedExecutionException("Current thread count:" + currentThreadCount
-                    + " stop the pool:" + stopThePool);
-        }
+        while (true) {
+            if (stopThePool) {
+                throw new RejectedExecutionException("Current thread count:" + currentThreadCount
+                        + " stop the pool:" + stopThePool);
+            }
 
-        ThreadController controller = null;
-        synchronized (headLock) {
-            int spare = (mask + tail - head) % mask;
-            if (spare <= 0) {
-                if (currentThreadCount < maxThreads) {
-                    int toOpen = currentThreadCount + incThreads;
-                    openThreads(toOpen);
-                }
-                else {
-                    return allocateNoThread();
+            ThreadController controller = pool.poll();
+            if (controller != null) {
+                return controller;
+            }
+
+            // The ring is empty, open more threads, they could be taken by others before we poll again
+            synchronized (this) {
+                if (currentThreadCount >= maxThreads) {
+                    break;
                 }
+                openThreads(currentThreadCount + incThreads);
             }
-            // If we are here it means that there is a free thread. Take it.
-            controller = pool[head];
-            pool[head] = null;
-            head = ++head % mask;
         }
-        return controller;
+        return allocateNoThread();
+    }
+
+    /**
+     * Creates a single controller for the caller if the pool is not full yet
+     *
+     * @return ThreadController or null if the pool has maximum threads already
+     */
+    private ThreadController createUnderLimit()
+    {
+        synchronized (this) {
+            return currentThreadCount < maxThreads ? createThread() : null;
+        }
+    }
+
+    /**
+     * Wakes up one thread parked in #compete
+     */
+    private void signalWaiter()
+    {
+        Thread waiter = waiters.poll();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
     }
 
     protected void competeNoThread()
@@ -261,20 +352,21 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
     {
         if (!stopThePool) {
             stopThePool = true;
+            if (monitorThread != null && monitorThread.isRunning()) {
+                monitorThread.stop();
+            }
             ThreadController controller = null;
-            for (int i = 0; i < maxThreads; i++) {
-                controller = pool[i];
-                if (controller != null) {
-                    try {
-                        controller.stop();
-                    }
-                    catch (Throwable t) {
-                        logger.error("Ignored exception while shutting down thread pool", t);
-                    }
-                }
+            while ((controller = pool.poll()) != null) {
+                stopIt(controller);
             }
             currentThreadCount = 0;
+            if (taskQueue != null) {
+                taskQueue.clear();
+            }
             notifyAll();
+            for (Thread waiter : waiters) {
+                LockSupport.unpark(waiter);
+            }
 
             if (logger.isDebugEnabled()) {
                 logger.debug("ThreadPool stopped");
@@ -292,35 +384,21 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
         }
 
         //从头部逐渐回收
-        int spare = (mask + tail - head) % mask;
-        if (spare > maxSpareThreads) {
-            int freed = 0;
-            while (true) {
-                ThreadController c = null;
-                synchronized (headLock) {
-                    spare = (mask + tail - head) % mask;
-                    if (spare > maxSpareThreads) {
-                        c = pool[head];
-                        pool[head] = null;
-                        head = ++head % mask;
-                    }
-                    else {
-                        break;
-                    }
-                }
-                if (c != null) {
-                    destroyIt(c);
-                    synchronized (this) {
-                        currentThreadCount--;
-                    }
-                    c = null;
-                    freed++;
-                }
+        int freed = 0;
+        while (pool.size() > maxSpareThreads) {
+            ThreadController c = pool.poll();
+            if (c == null) {
+                break;
+            }
+            destroyIt(c);
+            synchronized (this) {
+                currentThreadCount--;
+            }
+            freed++;
 
-                if (freed >= incThreads) {
-                    //每次减少增长的线程数
-                    break;
-                }
+            if (freed >= incThreads) {
+                //每次减少增长的线程数
+                break;
             }
         }
     }
@@ -328,32 +406,100 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
     /**
      * Returns the thread to the pool.
      * Called by threads as they are becoming idel.
+     * In task-queue mode the controller picks up the next queued task instead if there is one.
      */
     public void recycle(ThreadController controller)
     {
         if (stopThePool) {
-            controller.stop();
+            //A controller which was busy on #stop
+            stopIt(controller);
         }
         else {
-            // atomic
-            int spare = 0;
-            synchronized (tailLock) {
-                pool[tail] = controller;
-                tail = ++tail % mask;
+            if (taskQueue != null) {
+                Runnable next = taskQueue.poll();
+                if (next != null) {
+                    controller.execute(next);
+                    return;
+                }
+            }
+
+            putSpare(controller);
 
-                spare = (mask + tail - head) % mask;
+            //A task could be queued while the controller was on its way back
+            if (taskQueue != null && !taskQueue.isEmpty()) {
+                dispatchQueued();
             }
+        }
+    }
 
+    private void putSpare(ThreadController controller)
+    {
+        if (pool.offer(controller)) {
             //Notify Waiting Threads
-            if (spare <= 1) {
-                synchronized (headLock) {
-                    spare = (mask + tail - head) % mask;
-                    if (spare <= 1) {
-                        headLock.notifyAll();
+            signalWaiter();
+        }
+        else {
+            //Only when maxThreads was raised after init, the ring is sized on init
+            destroyIt(controller);
+            synchronized (this) {
+                currentThreadCount--;
+            }
+        }
+    }
+
+    /**
+     * Hands queued tasks to spare controllers until either of them runs out.
+     */
+    protected void dispatchQueued()
+    {
+        while (!stopThePool && !taskQueue.isEmpty()) {
+            ThreadController controller = allocate();
+            if (controller == null) {
+                return;
+            }
+            Runnable task = taskQueue.poll();
+            if (task == null) {
+                putSpare(controller);
+                return;
+            }
+            controller.execute(task);
+        }
+    }
+
+    /**
+     * Queues the task in task-queue mode, the submitter never waits for a thread.
+     *
+     * @param runnable Task
+     * @throws RejectedExecutionException if the queue is full and the reject policy is ABORT
+     */
+    protected void enqueue(Runnable runnable)
+    {
+        ThreadController controller = allocate();
+        if (controller != null) {
+            controller.execute(runnable);
+            return;
+        }
+
+        while (!taskQueue.offer(runnable)) {
+            switch (rejectPolicy) {
+                case CALLER_RUNS:
+                    runnable.run();
+                    return;
+                case DISCARD:
+                    metrics.onReject();
+                    return;
+                case DISCARD_OLDEST:
+                    if (taskQueue.poll() != null) {
+                        metrics.onReject();
                     }
-                }
+                    break;
+                default:
+                    throw new RejectedExecutionException("Task queue is full, capacity:" + queueCapacity);
             }
         }
+
+        //A controller could be recycled between allocate and offer
+        dispatchQueued();
     }
 
     /**
@@ -364,25 +510,89 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
     protected void doMonitor() throws Exception
     {
         try {
-            checkSpareControllers();
+            if (sizer != null) {
+                resize();
+            }
+            else {
+                checkSpareControllers();
+            }
         }
         catch (Throwable t) {
             logger.error("Error", t);
         }
     }
 
+    /**
+     * Moves the pool to the size chosen by the adaptive sizer, only spare threads are released.
+     * Synchronized, the sizer and lastMonitorNanos are updated by one caller at a time.
+     */
+    protected synchronized void resize()
+    {
+        if (stopThePool) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long elapsed = now - lastMonitorNanos;
+        lastMonitorNanos = now;
+
+        int current = currentThreadCount;
+        int target = sizer.resize(current, minSpareThreads, maxThreads, incThreads, elapsed);
+        if (sizer.getLastDecision() != AdaptivePoolSizer.Decision.HOLD) {
+            logger.info(getName() + "#resize{ Decision:" + sizer.getLastDecision()
+                    + ",Threads:" + current + "->" + target
+                    + ",WaitMillis:" + sizer.getWaitTimeEwma()
+                    + ",ServiceMillis:" + sizer.getServiceTimeEwma()
+                    + ",Rate:" + sizer.getArrivalRate() + " }");
+        }
+
+        if (target > current) {
+            openThreads(target);
+        }
+        else {
+            while (currentThreadCount > target) {
+                ThreadController c = pool.poll();
+                if (c == null) {
+                    break;
+                }
+                destroyIt(c);
+                currentThreadCount--;
+            }
+        }
+    }
+
+    /**
+     * Wraps the task to measure its wait and run time, unless nobody is listening
+     */
+    private Runnable metered(Runnable runnable, long submitNanos)
+    {
+        return isMetered() ? new MeteredTask(runnable, submitNanos, metrics, sizer) : runnable;
+    }
+
+    private boolean isMetered()
+    {
+        return sizer != null || metrics != ExecutorMetrics.NONE;
+    }
+
     /**
      * Terminate controller
      *
      * @param controller ThreadController
      */
-    public synchronized void terminate(ThreadController controller)
+    public void terminate(ThreadController controller)
     {
-        currentThreadCount--;
-        //Destroy It
-        destroyIt(controller);
+        synchronized (this) {
+            currentThreadCount--;
+            //Destroy It
+            destroyIt(controller);
+
+            notify();
+        }
 
-        notify();
+        //Keep the queue moving even if the terminated controller was the last one
+        if (taskQueue != null && !taskQueue.isEmpty()) {
+            dispatchQueued();
+        }
     }
 
     protected void destroyIt(ThreadController controller)
@@ -392,6 +602,23 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
         }
         catch (Throwable t) {
         }
+        metrics.onThreadTerminated();
+    }
+
+    /**
+     * Stops the controller on shutdown, the thread ends after its current task
+     *
+     * @param controller ThreadController
+     */
+    private void stopIt(ThreadController controller)
+    {
+        try {
+            controller.stop();
+        }
+        catch (Throwable t) {
+            logger.error("Ignored exception while shutting down thread pool", t);
+        }
+        metrics.onThreadTerminated();
     }
 
 
@@ -459,9 +686,14 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
     {
         ThreadController controller = newThread();
         start(controller);
+        int count;
         synchronized (this) {
-            currentThreadCount++;
+            count = ++currentThreadCount;
+            if (count > peakThreadCount) {
+                peakThreadCount = count;
+            }
         }
+        metrics.onThreadCreated(count);
         return controller;
     }
 
@@ -500,12 +732,7 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
 
         int openThreads = 0;
         for (int i = currentThreadCount; i < toOpen; i++) {
-            ThreadController controller = createThread();
-
-            synchronized (tailLock) {
-                pool[tail] = controller;
-                tail = ++tail % mask;
-            }
+            putSpare(createThread());
             openThreads ++;
         }
 
@@ -522,15 +749,18 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
         clearPool();
     }
 
+    public void _doDestroy()
+    {
+        doDestroy();
+        metrics.close();
+    }
+
     private void clearPool()
     {
         if (pool != null) {
-            for (int i = 0; i < pool.length; i++) {
-                ThreadController controller = pool[i];
-                if (controller != null) {
-                    controller.destroy();
-                    pool[i] = null;
-                }
+            ThreadController controller;
+            while ((controller = pool.poll()) != null) {
+                controller.destroy();
             }
         }
     }
@@ -558,6 +788,23 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
         if (runnable == null) {
             throw new NullPointerException("Null runnable");
         }
+        metrics.onSubmit();
+        try {
+            execute0(runnable);
+        }
+        catch (RejectedExecutionException ree) {
+            metrics.onReject();
+            throw ree;
+        }
+    }
+
+    private void execute0(Runnable runnable)
+    {
+        long submitNanos = isMetered() ? System.nanoTime() : 0;
+        if (taskQueue != null) {
+            enqueue(metered(runnable, submitNanos));
+            return;
+        }
         if (runnable instanceof FutureTask) {
             FutureTask task = (FutureTask)runnable;
             while (true) {
@@ -570,7 +817,7 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
                     return;
                 }
                 if (controller != null) {
-                    controller.execute(task);
+                    controller.execute(metered(task, submitNanos));
                     break;
                 }
                 else {
@@ -583,10 +830,146 @@ public class ThreadPool extends AbstractExecutorService implements ThreadContain
         }
         else {
             ThreadController controller = compete();
-            controller.execute(runnable);
+            controller.execute(metered(runnable, submitNanos));
         }
     }
 
+    /**
+     * Returns the tasks still in the queue, they will never be executed.
+     *
+     * @return list of tasks that never commenced execution
+     */
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        List<Runnable> tasks = new ArrayList<>();
+        if (taskQueue != null) {
+            taskQueue.drainTo(tasks);
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i) instanceof MeteredTask) {
+                    tasks.set(i, ((MeteredTask)tasks.get(i)).getTask());
+                }
+            }
+        }
+        shutdown();
+        return tasks;
+    }
+
+    public int getTargetWaitMillis()
+    {
+        return targetWaitMillis;
+    }
+
+    /**
+     * Enables adaptive sizing when it is greater than 0, it takes effect on #init.
+     * The pool is resized every monitorPeriod, which should be a few seconds rather than the default minute.
+     *
+     * @param targetWaitMillis Target of the average task wait time
+     */
+    public void setTargetWaitMillis(int targetWaitMillis)
+    {
+        this.targetWaitMillis = targetWaitMillis;
+    }
+
+    /**
+     * Adaptive sizer, its moving averages and decisions are the sizing metrics
+     *
+     * @return AdaptivePoolSizer or null if adaptive sizing is disabled
+     */
+    @Ignore
+    public AdaptivePoolSizer getSizer()
+    {
+        return sizer;
+    }
+
+    @Property (value = "waitTimeEwma", writable = false)
+    @Description("Average task wait time in milliseconds, adaptive sizing only")
+    public double getWaitTimeEwma()
+    {
+        return sizer == null ? 0 : sizer.getWaitTimeEwma();
+    }
+
+    @Property (value = "serviceTimeEwma", writable = false)
+    @Description("Average task service time in milliseconds, adaptive sizing only")
+    public double getServiceTimeEwma()
+    {
+        return sizer == null ? 0 : sizer.getServiceTimeEwma();
+    }
+
+    @Property (value = "targetThreads", writable = false)
+    @Description("Count of threads chosen by adaptive sizing")
+    public int getTargetThreads()
+    {
+        return sizer == null ? 0 : sizer.getTargetThreads();
+    }
+
+    @Property (value = "sizingDecision", writable = false)
+    @Description("Last decision of adaptive sizing")
+    public String getSizingDecision()
+    {
+        return sizer == null ? null : sizer.getLastDecision().name();
+    }
+
+    public int getPeakThreadCount()
+    {
+        return peakThreadCount;
+    }
+
+    /**
+     * Metrics sink, DefaultExecutorMetrics by default
+     *
+     * @return ExecutorMetrics
+     */
+    @Ignore
+    public ExecutorMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Replaces the metrics sink, it should be set before #init.
+     * ExecutorMetrics.NONE turns the metrics and the task timing off.
+     *
+     * @param metrics ExecutorMetrics
+     */
+    public void setMetrics(ExecutorMetrics metrics)
+    {
+        this.metrics = metrics == null ? ExecutorMetrics.NONE : metrics;
+    }
+
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+
+    /**
+     * Switches the pool to task-queue mode when capacity is greater than 0,
+     * it takes effect on #init.
+     *
+     * @param queueCapacity Capacity of the task queue
+     */
+    public void setQueueCapacity(int queueCapacity)
+    {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public RejectPolicy getRejectPolicy()
+    {
+        return rejectPolicy;
+    }
+
+    public void setRejectPolicy(RejectPolicy rejectPolicy)
+    {
+        this.rejectPolicy = rejectPolicy == null ? RejectPolicy.ABORT : rejectPolicy;
+    }
+
+    @Property (value = "queueSize", writable = false)
+    @Description("Current count of queued tasks")
+    public int getQueueSize()
+    {
+        return taskQueue == null ? 0 : taskQueue.size();
+    }
+
     public void setLogger(Logger logger)
     {
         this.logger = logger;
@@ -0,0 +1,215 @@
+package org.femtoframework.util.thread;
+
+import org.femtoframework.bean.BeanPhase;
+import org.femtoframework.bean.Nameable;
+import org.femtoframework.bean.NamedBean;
+import org.femtoframework.bean.annotation.Description;
+import org.femtoframework.bean.annotation.Ignore;
+import org.femtoframework.bean.annotation.Property;
+import org.femtoframework.pattern.Loggable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-per-task executor on virtual threads
+ * <p>
+ * Every task runs in its own virtual thread, so blocking calls do not hold a platform thread.
+ * If maxConcurrency is greater than 0, a semaphore limits how many tasks run at the same time,
+ * the others wait in their own virtual threads, the submitter never waits.
+ * <p>
+ * Virtual threads need JDK 21, on older runtimes the same executor runs tasks in platform threads,
+ * see {@link #isVirtual()}.
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService
+        implements LifecycleExecutorService, Loggable, NamedBean, Nameable
+{
+    private String name = "virtual_thread";
+
+    @Property (value = "maxConcurrency", defaultValue = "0")
+    @Description("Maximum tasks running at the same time, 0 means unlimited")
+    private int maxConcurrency = 0;
+
+    @Ignore
+    private Semaphore permits;
+
+    @Ignore
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    @Ignore
+    private final AtomicLong threadId = new AtomicLong();
+
+    private volatile boolean stopped;
+
+    @Ignore
+    protected Logger logger;
+
+    public void _doInit()
+    {
+        if (logger == null) {
+            logger = LoggerFactory.getLogger(getName());
+        }
+        if (maxConcurrency > 0) {
+            permits = new Semaphore(maxConcurrency);
+        }
+
+        logger.info(getName() + "#init{ MaxConcurrency:" + maxConcurrency + ",Virtual:" + isVirtual() + " }");
+    }
+
+    /**
+     * No new tasks are accepted, running tasks are not interrupted
+     */
+    public void _doStop()
+    {
+        stopped = true;
+    }
+
+    /**
+     * Interrupts the tasks which are still running
+     */
+    public void _doDestroy()
+    {
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        threads.clear();
+    }
+
+    /**
+     * 执行Runnable，每个任务在单独的虚拟线程中执行
+     *
+     * @param runnable 可执行程序单元
+     * @throws RejectedExecutionException 当执行器已经停止的时候抛出这个异常
+     * @throws NullPointerException       当runnable是Null的时候
+     */
+    public void execute(final Runnable runnable)
+    {
+        if (runnable == null) {
+            throw new NullPointerException("Null runnable");
+        }
+        if (getBeanPhase().isBefore(BeanPhase.STARTING)) {
+            start();
+        }
+        if (stopped) {
+            throw new RejectedExecutionException("Executor:" + getName() + " is stopped");
+        }
+
+        Thread thread = VirtualThreads.newThread(getName() + "_vthread" + threadId.incrementAndGet(), new Runnable()
+        {
+            public void run()
+            {
+                runTask(runnable);
+            }
+        });
+        threads.add(thread);
+        thread.start();
+    }
+
+    private void runTask(Runnable runnable)
+    {
+        Thread current = Thread.currentThread();
+        Semaphore semaphore = permits;
+        try {
+            if (semaphore != null) {
+                semaphore.acquire();
+            }
+            try {
+                runnable.run();
+            }
+            finally {
+                if (semaphore != null) {
+                    semaphore.release();
+                }
+            }
+        }
+        catch (InterruptedException ie) {
+            logger.debug("Interrupted before running " + runnable);
+        }
+        catch (Throwable t) {
+            logger.warn("Caught exception executing " + runnable, t);
+        }
+        finally {
+            threads.remove(current);
+        }
+    }
+
+    /**
+     * Whether tasks run in virtual threads, it is true on JDK 21 and later
+     *
+     * @return whether tasks run in virtual threads
+     */
+    public boolean isVirtual()
+    {
+        return VirtualThreads.isSupported();
+    }
+
+    public int getMaxConcurrency()
+    {
+        return maxConcurrency;
+    }
+
+    /**
+     * Maximum tasks running at the same time, it takes effect on #init
+     *
+     * @param maxConcurrency 0 means unlimited
+     */
+    public void setMaxConcurrency(int maxConcurrency)
+    {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Property (value = "currentThreadCount", writable = false)
+    @Description("Current count of threads, including the ones waiting for a permit")
+    public int getCurrentThreadCount()
+    {
+        return threads.size();
+    }
+
+    public void setLogger(Logger logger)
+    {
+        this.logger = logger;
+    }
+
+    public Logger getLogger()
+    {
+        return logger;
+    }
+
+    private BeanPhase beanPhase = BeanPhase.DISABLED;
+
+    /**
+     * Implement method of getPhase
+     *
+     * @return BeanPhase
+     */
+    @Override
+    public BeanPhase _doGetPhase() {
+        return beanPhase;
+    }
+
+    /**
+     * Phase setter for internal
+     *
+     * @param phase BeanPhase
+     */
+    @Override
+    public void _doSetPhase(BeanPhase phase) {
+        this.beanPhase = phase;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,38 @@
+package org.femtoframework.util.thread;
+
+/**
+ * Virtual thread support.
+ * <p>
+ * This is the version for runtimes before JDK 21, it creates platform threads.
+ * The JDK 21 version lives in src/main/java21 and is packaged under META-INF/versions/21.
+ */
+final class VirtualThreads
+{
+    private VirtualThreads()
+    {
+    }
+
+    /**
+     * Whether the runtime supports virtual threads
+     *
+     * @return false, virtual threads need JDK 21
+     */
+    static boolean isSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Creates an unstarted thread for the task
+     *
+     * @param name Thread name
+     * @param task Task
+     * @return A daemon platform thread
+     */
+    static Thread newThread(String name, Runnable task)
+    {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
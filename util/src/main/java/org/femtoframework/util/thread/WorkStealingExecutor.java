@@ -0,0 +1,504 @@
+package org.femtoframework.util.thread;
+
+import org.femtoframework.bean.BeanPhase;
+import org.femtoframework.bean.Destroyable;
+import org.femtoframework.bean.Nameable;
+import org.femtoframework.bean.NamedBean;
+import org.femtoframework.bean.annotation.Description;
+import org.femtoframework.bean.annotation.Ignore;
+import org.femtoframework.bean.annotation.Property;
+import org.femtoframework.pattern.Loggable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Work-stealing executor
+ * <p>
+ * Every worker owns a deque. Tasks submitted from a worker go to the head of its own deque and are taken LIFO,
+ * tasks submitted from other threads are spread over the workers round-robin.
+ * An idle worker steals from the tail of the other deques before it parks.
+ * <p>
+ * Workers never leave the executor, so as a ThreadContainer #compete and #allocate hand out a worker
+ * whose #execute queues the task on that worker, and #recycle has nothing to do.
+ */
+public class WorkStealingExecutor extends AbstractExecutorService
+        implements ThreadContainer, LifecycleExecutorService, Loggable, NamedBean, Nameable
+{
+    /*
+     * Longest park of an idle worker, it only matters when a wake-up is lost
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private String name = "work_stealing";
+
+    @Property (value = "parallelism", defaultValue = "0")
+    @Description("Count of workers, 0 means the count of available processors")
+    private int parallelism = 0;
+
+    private boolean daemon;
+
+    @Ignore
+    private Worker[] workers;
+
+    @Ignore
+    private final Queue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+
+    @Ignore
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    @Ignore
+    private final AtomicLong stealCount = new AtomicLong();
+
+    private volatile boolean stopped;
+
+    @Ignore
+    protected Logger logger;
+
+    public void _doInit()
+    {
+        if (logger == null) {
+            logger = LoggerFactory.getLogger(getName());
+        }
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        workers = new Worker[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = newWorker(i, new ConcurrentLinkedDeque<Runnable>());
+        }
+
+        logger.info(getName() + "#init{ Parallelism:" + parallelism + " }");
+    }
+
+    public void _doStart()
+    {
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Stop the workers, tasks still in the deques are not executed
+     */
+    public void _doStop()
+    {
+        stopped = true;
+        if (workers == null) {
+            return;
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.stop();
+            }
+            catch (Throwable t) {
+                logger.error("Ignored exception while shutting down executor", t);
+            }
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("WorkStealingExecutor stopped");
+        }
+    }
+
+    public void _doDestroy()
+    {
+        if (workers == null) {
+            return;
+        }
+        for (Worker worker : workers) {
+            destroyIt(worker);
+            worker.deque.clear();
+        }
+        idleWorkers.clear();
+    }
+
+    protected Worker newWorker(int index, Deque<Runnable> deque)
+    {
+        Worker worker = new Worker(index, deque);
+        worker.setContainer(this);
+        worker.setName(getName() + "_worker" + index);
+        worker.setLogger(logger);
+        worker.setDaemon(isDaemon());
+        return worker;
+    }
+
+    protected void destroyIt(ThreadController controller)
+    {
+        try {
+            controller.destroy();
+        }
+        catch (Throwable t) {
+        }
+    }
+
+    /**
+     * 执行Runnable，在工作线程中提交的任务放入该线程自己的队列，否则轮流分配给各工作线程
+     *
+     * @param runnable 可执行程序单元
+     * @throws RejectedExecutionException 当执行器已经停止的时候抛出这个异常
+     * @throws NullPointerException       当runnable是Null的时候
+     */
+    public void execute(Runnable runnable)
+    {
+        if (runnable == null) {
+            throw new NullPointerException("Null runnable");
+        }
+        if (stopped || workers == null) {
+            throw new RejectedExecutionException("Executor:" + getName() + " is not running");
+        }
+
+        Worker worker = currentWorker();
+        if (worker != null) {
+            worker.push(runnable);
+            signalIdle();
+        }
+        else {
+            nextWorker().execute(runnable);
+        }
+    }
+
+    /**
+     * Return the worker running in current thread
+     *
+     * @return Worker or null if current thread is not a worker of this executor
+     */
+    private Worker currentWorker()
+    {
+        Thread current = Thread.currentThread();
+        if (current instanceof ControlledThread) {
+            ThreadController controller = ((ControlledThread)current).getController();
+            if (controller instanceof Worker && controller.getContainer() == this) {
+                return (Worker)controller;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the worker by index
+     *
+     * @param index Index of the worker
+     * @return Worker
+     */
+    protected Worker getWorker(int index)
+    {
+        return workers[index];
+    }
+
+    private Worker nextWorker()
+    {
+        Worker[] ws = workers;
+        return ws[(nextWorker.getAndIncrement() & Integer.MAX_VALUE) % ws.length];
+    }
+
+    /**
+     * Wakes up one idle worker
+     */
+    private void signalIdle()
+    {
+        Worker idle = idleWorkers.poll();
+        if (idle != null) {
+            LockSupport.unpark(idle.getThread());
+        }
+    }
+
+    /**
+     * Takes a task from the tail of another worker's deque
+     *
+     * @param thief The worker who is stealing
+     * @return Task or null if all deques are empty
+     */
+    private Runnable steal(Worker thief)
+    {
+        Worker[] ws = workers;
+        int n = ws.length;
+        int start = ThreadLocalRandom.current().nextInt(n);
+        for (int i = 0; i < n; i++) {
+            Worker victim = ws[(start + i) % n];
+            if (victim.index != thief.index) {
+                Runnable task = victim.deque.pollLast();
+                if (task != null) {
+                    stealCount.incrementAndGet();
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a worker, it never waits
+     */
+    public ThreadController compete()
+    {
+        return compete(-1);
+    }
+
+    /**
+     * Returns a worker, it never waits
+     *
+     * @param timeout Timeout
+     * @return ThreadController
+     */
+    public ThreadController compete(int timeout)
+    {
+        if (stopped) {
+            throw new RejectedExecutionException("Executor:" + getName() + " is not running");
+        }
+        return nextWorker();
+    }
+
+    /**
+     * Returns an idle worker, if all the workers are busy, return null
+     */
+    public ThreadController allocate()
+    {
+        if (stopped) {
+            throw new RejectedExecutionException("Executor:" + getName() + " is not running");
+        }
+        return idleWorkers.poll();
+    }
+
+    /**
+     * Replaces the worker with a new one which takes over its deque
+     *
+     * @param controller ThreadController
+     */
+    public synchronized void terminate(ThreadController controller)
+    {
+        if (!(controller instanceof Worker)) {
+            return;
+        }
+        Worker worker = (Worker)controller;
+        idleWorkers.remove(worker);
+        destroyIt(worker);
+        if (!stopped && workers[worker.index] == worker) {
+            Worker replacement = newWorker(worker.index, worker.deque);
+            workers[worker.index] = replacement;
+            replacement.start();
+        }
+    }
+
+    /**
+     * Workers never leave the executor, nothing to recycle
+     *
+     * @param controller ThreadController
+     */
+    public void recycle(ThreadController controller)
+    {
+    }
+
+    /**
+     * Returns the tasks still in the deques, they will never be executed.
+     *
+     * @return list of tasks that never commenced execution
+     */
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        List<Runnable> tasks = new ArrayList<>();
+        if (workers != null) {
+            for (Worker worker : workers) {
+                Runnable task;
+                while ((task = worker.deque.pollLast()) != null) {
+                    tasks.add(task);
+                }
+            }
+        }
+        shutdown();
+        return tasks;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Count of workers, it takes effect on #init
+     *
+     * @param parallelism Count of workers
+     */
+    public void setParallelism(int parallelism)
+    {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isDaemon()
+    {
+        return daemon;
+    }
+
+    public void setDaemon(boolean daemon)
+    {
+        this.daemon = daemon;
+    }
+
+    @Property (value = "currentThreadCount", writable = false)
+    @Description("Current count of threads")
+    public int getCurrentThreadCount()
+    {
+        return workers == null ? 0 : workers.length;
+    }
+
+    @Property (value = "queuedTaskCount", writable = false)
+    @Description("Count of tasks waiting in the deques")
+    public int getQueuedTaskCount()
+    {
+        int count = 0;
+        if (workers != null) {
+            for (Worker worker : workers) {
+                count += worker.deque.size();
+            }
+        }
+        return count;
+    }
+
+    @Property (value = "stealCount", writable = false)
+    @Description("Count of tasks stolen from other workers")
+    public long getStealCount()
+    {
+        return stealCount.get();
+    }
+
+    public void setLogger(Logger logger)
+    {
+        this.logger = logger;
+    }
+
+    public Logger getLogger()
+    {
+        return logger;
+    }
+
+    private BeanPhase beanPhase = BeanPhase.DISABLED;
+
+    /**
+     * Implement method of getPhase
+     *
+     * @return BeanPhase
+     */
+    @Override
+    public BeanPhase _doGetPhase() {
+        return beanPhase;
+    }
+
+    /**
+     * Phase setter for internal
+     *
+     * @param phase BeanPhase
+     */
+    @Override
+    public void _doSetPhase(BeanPhase phase) {
+        this.beanPhase = phase;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Worker owning a deque
+     */
+    protected class Worker extends ThreadController
+    {
+        private final int index;
+
+        private final Deque<Runnable> deque;
+
+        private volatile boolean parked;
+
+        Worker(int index, Deque<Runnable> deque)
+        {
+            this.index = index;
+            this.deque = deque;
+        }
+
+        /**
+         * Owner side, the last pushed task is executed first
+         */
+        void push(Runnable task)
+        {
+            deque.offerFirst(task);
+        }
+
+        /**
+         * Queues the task on this worker from another thread
+         *
+         * @param task 可执行程序单元
+         */
+        @Override
+        public void execute(Runnable task)
+        {
+            if (task == null) {
+                throw new NullPointerException("Null Runnable");
+            }
+            deque.offerLast(task);
+            if (parked) {
+                LockSupport.unpark(getThread());
+            }
+            else {
+                signalIdle();
+            }
+        }
+
+        @Override
+        protected void doRun() throws InterruptedException
+        {
+            Runnable task = deque.pollFirst();
+            if (task == null) {
+                task = steal(this);
+            }
+            if (task == null) {
+                idleWorkers.offer(this);
+                //Check again, a task could be pushed before we were in the idle workers
+                task = deque.pollFirst();
+                if (task == null) {
+                    task = steal(this);
+                }
+                if (task == null && isRunning()) {
+                    parked = true;
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    parked = false;
+                    Thread.interrupted();
+                }
+                idleWorkers.remove(this);
+                if (task == null) {
+                    return;
+                }
+            }
+
+            try {
+                task.run();
+            }
+            catch (Throwable t) {
+                logger.warn("Caught exception executing " + task, t);
+            }
+            finally {
+                if (task instanceof Destroyable) {
+                    ((Destroyable)task).destroy();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.femtoframework.util.thread;
+
+/**
+ * Virtual thread support.
+ * <p>
+ * This is the JDK 21 version, packaged under META-INF/versions/21 of the multi-release jar.
+ */
+final class VirtualThreads
+{
+    private VirtualThreads()
+    {
+    }
+
+    /**
+     * Whether the runtime supports virtual threads
+     *
+     * @return true
+     */
+    static boolean isSupported()
+    {
+        return true;
+    }
+
+    /**
+     * Creates an unstarted thread for the task
+     *
+     * @param name Thread name
+     * @param task Task
+     * @return A virtual thread
+     */
+    static Thread newThread(String name, Runnable task)
+    {
+        return Thread.ofVirtual().name(name).unstarted(task);
+    }
+}
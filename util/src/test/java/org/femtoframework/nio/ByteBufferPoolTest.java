@@ -1,5 +1,6 @@
 package org.femtoframework.nio;
 
+import org.femtoframework.util.PoolStats;
 import org.femtoframework.util.nutlet.NutletUtil;
 import org.junit.Test;
 
@@ -132,6 +133,41 @@ public class ByteBufferPoolTest
         }
     }
 
+    /**
+     * 测试统计和调整容量
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStats() throws Exception
+    {
+        assertNull(ByteBufferPool.getStats(333));
+        PoolStats stats = ByteBufferPool.getStats(ByteBufferPool.SIZE_4096);
+        long hits = stats.getHits();
+        long recycles = stats.getRecycles();
+        ByteBuffer buffer = ByteBufferPool.allocate(ByteBufferPool.SIZE_4096);
+        ByteBufferPool.recycle(buffer);
+        ByteBufferPool.recycle(ByteBufferPool.allocate(ByteBufferPool.SIZE_4096));
+        assertTrue(stats.getHits() > hits);
+        assertEquals(recycles + 2, stats.getRecycles());
+
+        long oversize = ByteBufferPool.getOversizeCount();
+        ByteBufferPool.allocateBySize(ByteBufferPool.SIZE_32K + 1);
+        ByteBufferPool.allocate(999);
+        assertEquals(oversize + 2, ByteBufferPool.getOversizeCount());
+
+        int shared = ByteBufferPool.getPoolCapacity(ByteBufferPool.SIZE_32K);
+        ByteBufferPool.setPoolCapacity(ByteBufferPool.SIZE_32K, 2, 16);
+        assertEquals(16, ByteBufferPool.getPoolCapacity(ByteBufferPool.SIZE_32K));
+        ByteBufferPool.setPoolCapacity(ByteBufferPool.SIZE_32K, 1, shared);
+        try {
+            ByteBufferPool.setPoolCapacity(999, 1, 1);
+            fail("No pool");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+    }
+
     /**
      * 测试回收，边界
      *
@@ -0,0 +1,142 @@
+package org.femtoframework.nio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试DirectArena
+ */
+public class DirectArenaTest
+{
+    /**
+     * 测试分配和回收
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAllocateRecycle() throws Exception
+    {
+        DirectArena arena = new DirectArena(new int[]{1024, 512}, 4096, 8192);
+        assertNull(arena.allocate(100));
+        assertTrue(arena.hasSizeClass(512));
+
+        ByteBuffer buffer = arena.allocate(1024);
+        assertTrue(buffer.isDirect());
+        assertEquals(1024, buffer.capacity());
+        assertEquals(1, arena.getChunkCount());
+        assertEquals(4096, arena.getReservedBytes());
+        assertEquals(1, arena.getLeasedCount());
+
+        buffer.put(0, (byte)7);
+        assertTrue(arena.recycle(buffer));
+        //Twice
+        assertFalse(arena.recycle(buffer));
+        assertFalse(arena.recycle(ByteBuffer.allocateDirect(1024)));
+        assertEquals(0, arena.getLeasedCount());
+
+        //A new slice over the same memory
+        ByteBuffer again = arena.allocate(1024);
+        assertNotSame(buffer, again);
+        assertEquals(7, again.get(0));
+        arena.recycle(again);
+    }
+
+    /**
+     * 测试最大堆外内存和释放
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMaxCapacityRelease() throws Exception
+    {
+        DirectArena arena = new DirectArena(new int[]{1024}, 2048, 4096);
+        ByteBuffer[] buffers = new ByteBuffer[4];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = arena.allocate(1024);
+            assertNotNull(buffers[i]);
+        }
+        assertNull(arena.allocate(1024));
+        assertEquals(2, arena.getChunkCount());
+
+        //Slots do not overlap
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i].put(0, (byte)i);
+        }
+        for (int i = 0; i < buffers.length; i++) {
+            assertEquals(i, buffers[i].get(0));
+        }
+
+        arena.recycle(buffers[0]);
+        arena.recycle(buffers[1]);
+        arena.recycle(buffers[2]);
+        //One chunk still has a buffer in use
+        assertEquals(2048, arena.release());
+        assertEquals(1, arena.getChunkCount());
+        assertEquals(2048, arena.getReservedBytes());
+
+        arena.recycle(buffers[3]);
+        assertEquals(2048, arena.release());
+        assertEquals(0, arena.getChunkCount());
+        assertEquals(0, arena.getReservedBytes());
+    }
+
+    /**
+     * 测试没有回收就被GC的Buffer
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLeak() throws Exception
+    {
+        DirectArena arena = new DirectArena(new int[]{512}, 512, 512);
+        arena.setTraceLeaks(true);
+        assertNotNull(arena.allocate(512));
+        assertNull(arena.allocate(512));
+
+        for (int i = 0; i < 50 && arena.getLeakCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+            arena.expunge();
+        }
+        assertEquals(1, arena.getLeakCount());
+        assertEquals(0, arena.getLeasedCount());
+        //Views of the leaked buffer could still be in use, the slot and its chunk stay out of circulation
+        assertNull(arena.allocate(512));
+        assertEquals(0, arena.release());
+        assertEquals(1, arena.getChunkCount());
+    }
+
+    /**
+     * 测试ByteBufferPool的堆外内存
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testByteBufferPool() throws Exception
+    {
+        DirectArena arena = ByteBufferPool.getDirectArena();
+        int leased = arena.getLeasedCount();
+        ByteBuffer buffer = ByteBufferPool.allocateDirectBySize(1000);
+        assertTrue(buffer.isDirect());
+        assertEquals(ByteBufferPool.SIZE_1024, buffer.capacity());
+        assertEquals(leased + 1, arena.getLeasedCount());
+        ByteBufferPool.recycle(buffer);
+        assertEquals(leased, arena.getLeasedCount());
+
+        //Not pooled
+        ByteBuffer large = ByteBufferPool.allocateDirectBySize(40000);
+        assertTrue(large.isDirect());
+        assertEquals(40000, large.capacity());
+        ByteBufferPool.recycle(large);
+
+        //Direct buffers never go to the heap pools
+        ByteBuffer heap = ByteBufferPool.allocate(ByteBufferPool.SIZE_2048);
+        assertFalse(heap.isDirect());
+        ByteBufferPool.recycle(ByteBuffer.allocateDirect(ByteBufferPool.SIZE_2048));
+        ByteBufferPool.recycle(heap);
+        assertSame(heap, ByteBufferPool.allocate(ByteBufferPool.SIZE_2048));
+    }
+}
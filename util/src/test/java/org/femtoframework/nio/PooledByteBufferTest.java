@@ -0,0 +1,108 @@
+package org.femtoframework.nio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试PooledByteBuffer
+ */
+public class PooledByteBufferTest
+{
+    /**
+     * 测试引用计数
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetainRelease() throws Exception
+    {
+        PooledByteBuffer pooled = ByteBufferPool.allocatePooled(3000);
+        assertEquals(ByteBufferPool.SIZE_4096, pooled.capacity());
+        assertEquals(1, pooled.refCnt());
+        ByteBuffer buffer = pooled.buffer();
+
+        pooled.retain();
+        assertEquals(2, pooled.refCnt());
+        assertFalse(pooled.release());
+        assertTrue(pooled.release());
+        assertEquals(0, pooled.refCnt());
+
+        //The buffer is back in the pool
+        assertSame(buffer, ByteBufferPool.allocate(ByteBufferPool.SIZE_4096));
+        ByteBufferPool.recycle(buffer);
+
+        try {
+            pooled.release();
+            fail("Double release");
+        }
+        catch (IllegalStateException ise) {
+        }
+        try {
+            pooled.buffer();
+            fail("Use after release");
+        }
+        catch (IllegalStateException ise) {
+        }
+        try {
+            pooled.retain();
+            fail("Retain after release");
+        }
+        catch (IllegalStateException ise) {
+        }
+    }
+
+    /**
+     * 测试切片共享引用计数
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSlice() throws Exception
+    {
+        try (PooledByteBuffer pooled = ByteBufferPool.allocatePooledDirect(1024)) {
+            assertTrue(pooled.isDirect());
+            pooled.buffer().put(10, (byte)5);
+
+            PooledByteBuffer slice = pooled.slice(10, 20);
+            assertEquals(20, slice.capacity());
+            assertEquals(5, slice.buffer().get(0));
+            assertEquals(1, slice.refCnt());
+
+            PooledByteBuffer retained = pooled.retainedSlice();
+            assertEquals(2, pooled.refCnt());
+            assertFalse(retained.release());
+            assertEquals(1, slice.refCnt());
+        }
+    }
+
+    /**
+     * 测试泄漏检测
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLeak() throws Exception
+    {
+        LeakDetector detector = new LeakDetector("PooledByteBuffer", 1);
+        PooledByteBuffer released = PooledByteBuffer.wrap(ByteBuffer.allocate(16), detector);
+        PooledByteBuffer.wrap(ByteBuffer.allocate(16), detector);
+        assertEquals(2, detector.getTrackedCount());
+        released.release();
+        assertEquals(1, detector.getTrackedCount());
+
+        for (int i = 0; i < 50 && detector.getLeakCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+            detector.report();
+        }
+        assertEquals(1, detector.getLeakCount());
+        assertEquals(0, detector.getTrackedCount());
+
+        LeakDetector off = new LeakDetector("PooledByteBuffer", 0);
+        PooledByteBuffer.wrap(ByteBuffer.allocate(16), off);
+        assertEquals(0, off.getTrackedCount());
+    }
+}
@@ -0,0 +1,23 @@
+package org.femtoframework.util;
+
+import org.junit.Test;
+
+/**
+ * 比较ObjectPool和StripedObjectPool的吞吐量，只在benchmark profile中运行
+ */
+public class StripedObjectPoolBenchmark
+{
+    @Test
+    public void testThroughput() throws Exception
+    {
+        run(new ObjectPool<Object>(64), 4, 200000);
+        run(new StripedObjectPool<Object>(8, 64), 4, 200000);
+    }
+
+    private void run(ObjectPool<Object> pool, int threads, int rounds) throws Exception
+    {
+        long elapsed = StripedObjectPoolTest.runConcurrent(pool, threads, rounds);
+        System.out.println(pool.getClass().getSimpleName() + " get+put/s:"
+                           + ((long)threads * rounds * 1000000000L / elapsed));
+    }
+}
@@ -0,0 +1,251 @@
+package org.femtoframework.util;
+
+import org.junit.Test;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试StripedObjectPool
+ */
+public class StripedObjectPoolTest
+{
+    /**
+     * 测试同一线程的取出和放回
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetPut() throws Exception
+    {
+        ObjectPool<Object> pool = new StripedObjectPool<>(4, 8, 2);
+        assertNull(pool.get());
+        assertEquals(8, pool.size());
+
+        Object a = new Object();
+        pool.put(a);
+        assertSame(a, pool.get());
+        assertNull(pool.get());
+
+        //Overflows the magazine to the shared stripes, 4 + 8 at most are kept
+        Object[] objects = new Object[20];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new Object();
+            pool.put(objects[i]);
+        }
+        int count = 0;
+        while (pool.get() != null) {
+            count++;
+        }
+        assertTrue("Kept:" + count, count >= 8 && count <= 12);
+    }
+
+    /**
+     * 测试其它线程放回的对象可以被取出
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testShared() throws Exception
+    {
+        final StripedObjectPool<Object> pool = new StripedObjectPool<>(2, 16, 4);
+        assertEquals(4, pool.getStripeCount());
+        Thread thread = new Thread()
+        {
+            public void run()
+            {
+                for (int i = 0; i < 6; i++) {
+                    pool.put(new Object());
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        //The magazine of the other thread is lost, the flushed ones are in the stripes
+        int count = 0;
+        while (pool.get() != null) {
+            count++;
+        }
+        assertEquals(4, count);
+
+        StripedObjectPool<Object> noCache = new StripedObjectPool<>(0, 4);
+        Object a = new Object();
+        noCache.put(a);
+        assertSame(a, noCache.get());
+    }
+
+    /**
+     * 测试统计
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStats() throws Exception
+    {
+        ObjectPool<Object> plain = new ObjectPool<>(2);
+        assertNull(plain.get());
+        plain.put(new Object());
+        plain.put(new Object());
+        plain.put(new Object());
+        assertNotNull(plain.get());
+        PoolStats stats = plain.getStats();
+        assertEquals(2, stats.getAllocations());
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(2, stats.getRecycles());
+        assertEquals(1, stats.getDrops());
+        assertEquals(2, stats.getHighWaterMark());
+        assertEquals(0.5, stats.getHitRate(), 0.0001);
+
+        StripedObjectPool<Object> pool = new StripedObjectPool<>(2, 2, 1);
+        assertNull(pool.get());
+        for (int i = 0; i < 6; i++) {
+            pool.put(new Object());
+        }
+        stats = pool.getStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(6, stats.getRecycles());
+        //Four flushes of one into a stripe of 2
+        assertEquals(2, stats.getDrops());
+        assertEquals(2, stats.getHighWaterMark());
+        assertEquals(2, pool.getIdleCount());
+        stats.reset();
+        assertEquals(0, stats.getAllocations());
+    }
+
+    /**
+     * 测试调整容量
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSetCapacity() throws Exception
+    {
+        ObjectPool<Object> plain = new ObjectPool<>(4);
+        for (int i = 0; i < 4; i++) {
+            plain.put(new Object());
+        }
+        plain.setCapacity(2);
+        assertEquals(2, plain.size());
+        assertEquals(2, plain.getIdleCount());
+        plain.setCapacity(8);
+        for (int i = 0; i < 8; i++) {
+            plain.put(new Object());
+        }
+        assertEquals(8, plain.getIdleCount());
+
+        StripedObjectPool<Object> pool = new StripedObjectPool<>(2, 8, 2);
+        for (int i = 0; i < 12; i++) {
+            pool.put(new Object());
+        }
+        assertTrue(pool.getIdleCount() > 2);
+        pool.setCapacity(2);
+        assertEquals(2, pool.size());
+        assertTrue(pool.getIdleCount() <= 2);
+
+        //The magazine grows on the next put
+        pool.setThreadCapacity(8);
+        assertEquals(8, pool.getThreadCapacity());
+        long drops = pool.getStats().getDrops();
+        for (int i = 0; i < 6; i++) {
+            pool.put(new Object());
+        }
+        assertEquals(drops, pool.getStats().getDrops());
+
+        //The magazine shrinks on the next get
+        pool.setThreadCapacity(1);
+        assertNotNull(pool.get());
+        int count = 0;
+        while (pool.get() != null) {
+            count++;
+        }
+        assertTrue("Kept:" + count, count <= 3);
+
+        //No thread cache, the magazines go back to the shared stripes
+        pool = new StripedObjectPool<>(4, 16, 1);
+        for (int i = 0; i < 3; i++) {
+            pool.put(new Object());
+        }
+        assertEquals(0, pool.getIdleCount());
+        pool.setThreadCapacity(0);
+        assertEquals(3, pool.getIdleCount());
+
+        //The threads which did not set it flush their magazines on the next get
+        final StripedObjectPool<Object> other = new StripedObjectPool<>(4, 16, 1);
+        Thread thread = new Thread()
+        {
+            public void run()
+            {
+                for (int i = 0; i < 3; i++) {
+                    other.put(new Object());
+                }
+                other.setThreadCapacity(0);
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            other.put(new Object());
+        }
+        thread.start();
+        thread.join();
+        assertEquals(3, other.getIdleCount());
+        assertNotNull(other.get());
+        assertEquals(5, other.getIdleCount());
+    }
+
+    /**
+     * 测试并发取出和放回，同一个对象不会同时被两个线程取出
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrent() throws Exception
+    {
+        runConcurrent(new ObjectPool<Object>(64), 4, 200000);
+        runConcurrent(new StripedObjectPool<Object>(8, 64), 4, 200000);
+    }
+
+    /**
+     * @return 用时（纳秒）
+     */
+    static long runConcurrent(final ObjectPool<Object> pool, int threads, final int rounds) throws Exception
+    {
+        final Map<Object, Boolean> inUse = new IdentityHashMap<>();
+        final AtomicInteger errors = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            new Thread()
+            {
+                public void run()
+                {
+                    for (int i = 0; i < rounds; i++) {
+                        Object o = pool.get();
+                        if (o == null) {
+                            o = new Object();
+                        }
+                        if ((i & 1023) == 0) {
+                            synchronized (inUse) {
+                                if (inUse.put(o, Boolean.TRUE) != null) {
+                                    errors.incrementAndGet();
+                                }
+                            }
+                            synchronized (inUse) {
+                                inUse.remove(o);
+                            }
+                        }
+                        pool.put(o);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        assertEquals(0, errors.get());
+        return elapsed;
+    }
+}
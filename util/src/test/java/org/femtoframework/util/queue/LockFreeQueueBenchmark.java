@@ -0,0 +1,24 @@
+package org.femtoframework.util.queue;
+
+import org.junit.Test;
+
+/**
+ * 比较LinkedBatchQueue和无锁队列的吞吐量，只在benchmark profile中运行
+ */
+public class LockFreeQueueBenchmark
+{
+    @Test
+    public void testThroughput() throws Exception
+    {
+        run(new LinkedBatchQueue<Long>(), 4, 1, 200000);
+        run(new MpscLinkedQueue<Long>(), 4, 1, 200000);
+        run(new MpmcLinkedQueue<Long>(), 4, 1, 200000);
+    }
+
+    private void run(BatchQueue<Long> queue, int producers, int consumers, int perProducer) throws Exception
+    {
+        long elapsed = LockFreeQueueTest.runConcurrent(queue, producers, consumers, perProducer);
+        System.out.println(queue.getClass().getSimpleName() + " " + consumers + " consumer(s) elements/s:"
+                           + ((long)producers * perProducer * 1000000000L / elapsed));
+    }
+}
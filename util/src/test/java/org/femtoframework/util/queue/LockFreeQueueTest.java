@@ -0,0 +1,350 @@
+package org.femtoframework.util.queue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试MpscLinkedQueue和MpmcLinkedQueue，以及BatchQueue的drain
+ */
+public class LockFreeQueueTest
+{
+    /**
+     * 测试基本操作
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOfferPoll() throws Exception
+    {
+        BatchQueue<String> queue = new MpmcLinkedQueue<>();
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.offer(null));
+        queue.offer("a");
+        queue.offerBatch(new String[]{"b", null, "c", "d"});
+        assertEquals(4, queue.size());
+        assertEquals("a", queue.peek());
+        assertEquals("c", queue.peek(2));
+
+        Iterator<String> it = queue.iterator();
+        StringBuilder sb = new StringBuilder();
+        while (it.hasNext()) {
+            sb.append(it.next());
+        }
+        assertEquals("abcd", sb.toString());
+
+        assertEquals("a", queue.remove(0));
+        Object[] batch = queue.pollBatch(100, 2);
+        assertArrayEquals(new Object[]{"b", "c"}, batch);
+        assertEquals("d", queue.poll(100));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+
+        long start = System.currentTimeMillis();
+        assertNull(queue.poll(100));
+        assertNull(queue.pollBatch(100, 10));
+        assertTrue(System.currentTimeMillis() - start >= 150);
+    }
+
+    /**
+     * 测试drainTo和drain
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDrain() throws Exception
+    {
+        testDrain(new LinkedBatchQueue<Integer>());
+        testDrain(new MpscLinkedQueue<Integer>());
+        testDrain(new MpmcLinkedQueue<Integer>());
+        testDrain(new RingBufferQueue<Integer>(16));
+    }
+
+    private void testDrain(final BatchQueue<Integer> queue) throws Exception
+    {
+        Integer[] buffer = new Integer[4];
+        //At least 50ms as pollBatch
+        long start = System.currentTimeMillis();
+        assertEquals(0, queue.drainTo(buffer, 4, 0));
+        assertEquals(0, queue.drain(value -> fail("Empty"), 4, -1));
+        assertEquals(0, queue.drainTo(buffer, 4, 100));
+        assertTrue(System.currentTimeMillis() - start >= 180);
+
+        queue.offerBatch(new Integer[]{1, 2, 3, 4, 5, 6});
+        //Limited by the length of the buffer
+        assertEquals(4, queue.drainTo(buffer, 10, 0));
+        assertArrayEquals(new Integer[]{1, 2, 3, 4}, buffer);
+        assertEquals(2, queue.drainTo(buffer, 10, 0));
+        assertEquals(5, (int)buffer[0]);
+        assertEquals(6, (int)buffer[1]);
+
+        final List<Integer> list = new ArrayList<>();
+        queue.offerBatch(new Integer[]{7, 8, 9});
+        assertEquals(2, queue.drain(list::add, 2, 0));
+        assertEquals(1, queue.drain(list::add, 2, 0));
+        assertEquals(0, queue.drain(list::add, 2, 0));
+        assertEquals("[7, 8, 9]", list.toString());
+        assertTrue(queue.isEmpty());
+
+        //The elements after the one the consumer failed on come back with the exception
+        queue.offerBatch(new Integer[]{11, 12, 13, 14});
+        list.clear();
+        try {
+            queue.drain(value -> {
+                if (value == 12) {
+                    throw new IllegalStateException("Failed");
+                }
+                list.add(value);
+            }, 3, 0);
+            fail("IllegalStateException expected");
+        }
+        catch (IllegalStateException expected) {
+            assertEquals("[13]", UndeliveredException.getUndelivered(expected).toString());
+        }
+        assertEquals("[11]", list.toString());
+        assertEquals(1, queue.size());
+        assertEquals(14, (int)queue.poll(100));
+        assertEquals(0, queue.size());
+
+        //Wakes up when an element arrives
+        new Thread()
+        {
+            public void run()
+            {
+                try {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e) {
+                }
+                queue.offer(10);
+            }
+        }.start();
+        list.clear();
+        assertEquals(1, queue.drain(list::add, 10, 5000));
+        assertEquals(10, (int)list.get(0));
+    }
+
+    /**
+     * 测试等待的消费者被唤醒
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWakeUp() throws Exception
+    {
+        final BatchQueue<Integer> queue = new MpscLinkedQueue<>();
+        final Object[][] result = new Object[1][];
+        Thread consumer = new Thread()
+        {
+            public void run()
+            {
+                result[0] = queue.pollBatch(10000, 100);
+            }
+        };
+        consumer.start();
+        Thread.sleep(100);
+        long start = System.currentTimeMillis();
+        queue.offerBatch(new Integer[]{1, 2, 3});
+        consumer.join(5000);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertArrayEquals(new Object[]{1, 2, 3}, result[0]);
+
+        //Interrupted while waiting
+        Thread waiting = new Thread()
+        {
+            public void run()
+            {
+                result[0] = new Object[]{queue.poll()};
+            }
+        };
+        waiting.start();
+        Thread.sleep(100);
+        waiting.interrupt();
+        waiting.join(5000);
+        assertNull(result[0][0]);
+    }
+
+    /**
+     * 测试remove(int)、remove(Object)和Iterator#remove
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRemove() throws Exception
+    {
+        BatchQueue<String> queue = new MpscLinkedQueue<>();
+        queue.offerBatch(new String[]{"a", "b", "c", "d", "e", "f"});
+        assertEquals("c", queue.remove(2));
+        assertTrue(queue.remove("e"));
+        assertFalse(queue.remove("e"));
+        assertFalse(queue.remove("x"));
+        assertEquals(4, queue.size());
+        assertEquals("d", queue.peek(2));
+        try {
+            queue.remove(4);
+            fail("Index out of bound");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+
+        Iterator<String> it = queue.iterator();
+        assertEquals("a", it.next());
+        assertEquals("b", it.next());
+        it.remove();
+        assertEquals(3, queue.size());
+        assertArrayEquals(new Object[]{"a", "d", "f"}, queue.pollBatch(100, 10));
+        assertTrue(queue.isEmpty());
+
+        //A removed element goes to nobody, a polled one can't be removed
+        queue.offerBatch(new String[]{"g", "h"});
+        assertTrue(queue.remove("g"));
+        assertTrue(queue.remove("h"));
+        assertEquals(0, queue.size());
+        assertNull(queue.poll(50));
+    }
+
+    /**
+     * 测试消费者和删除者同时取，每个对象只给一方
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentRemove() throws Exception
+    {
+        testConcurrentRemove(new MpmcLinkedQueue<Long>());
+        testConcurrentRemove(new MpscLinkedQueue<Long>());
+    }
+
+    private void testConcurrentRemove(final BatchQueue<Long> queue) throws Exception
+    {
+        final int total = 20000;
+        for (long i = 0; i < total; i++) {
+            queue.offer(i);
+        }
+        final AtomicLong removed = new AtomicLong();
+        Thread remover = new Thread()
+        {
+            public void run()
+            {
+                for (long i = total - 1; i >= 0; i -= 2) {
+                    if (queue.remove(i)) {
+                        removed.addAndGet(i);
+                    }
+                    //The head too, while the consumer is draining it
+                    if (i % 64 == 1) {
+                        try {
+                            removed.addAndGet(queue.remove(0));
+                        }
+                        catch (IllegalArgumentException empty) {
+                        }
+                    }
+                }
+            }
+        };
+        remover.start();
+        //The only consumer drains while the remover deletes
+        final AtomicLong polled = new AtomicLong();
+        int n;
+        do {
+            n = queue.drain(polled::addAndGet, 64, 50);
+        }
+        while (n > 0 || remover.isAlive());
+        remover.join();
+        assertEquals((long)total * (total - 1) / 2, polled.get() + removed.get());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * 测试多个生产者和单个消费者
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMpsc() throws Exception
+    {
+        runConcurrent(new MpscLinkedQueue<Long>(), 4, 1, 100000);
+    }
+
+    /**
+     * 测试多个生产者和多个消费者
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMpmc() throws Exception
+    {
+        runConcurrent(new MpmcLinkedQueue<Long>(), 4, 4, 100000);
+    }
+
+    /**
+     * @return 用时（纳秒）
+     */
+    static long runConcurrent(final BatchQueue<Long> queue, int producers, final int consumers,
+                              final int perProducer) throws Exception
+    {
+        final long total = (long)producers * perProducer;
+        final AtomicLong sum = new AtomicLong();
+        final AtomicLong count = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(producers + consumers);
+
+        long start = System.nanoTime();
+        for (int p = 0; p < producers; p++) {
+            final long base = (long)p * perProducer;
+            new Thread()
+            {
+                public void run()
+                {
+                    Long[] batch = new Long[8];
+                    for (int i = 0; i < perProducer; i += batch.length) {
+                        for (int j = 0; j < batch.length; j++) {
+                            batch[j] = base + i + j;
+                        }
+                        if ((i & 8) == 0) {
+                            queue.offerBatch(batch);
+                        }
+                        else {
+                            for (Long value : batch) {
+                                queue.offer(value);
+                            }
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        for (int c = 0; c < consumers; c++) {
+            new Thread()
+            {
+                public void run()
+                {
+                    while (count.get() < total) {
+                        Object[] batch = queue.pollBatch(50, 256);
+                        if (batch != null) {
+                            long s = 0;
+                            for (Object value : batch) {
+                                s += (Long)value;
+                            }
+                            sum.addAndGet(s);
+                            count.addAndGet(batch.length);
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(total, count.get());
+        assertEquals(total * (total - 1) / 2, sum.get());
+        assertTrue(queue.isEmpty());
+        return elapsed;
+    }
+}
@@ -0,0 +1,48 @@
+package org.femtoframework.util.queue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * RingBufferQueue的交付延迟，只在benchmark profile中运行
+ */
+public class RingBufferQueueBenchmark
+{
+    /**
+     * 测试单个生产者和单个消费者之间的交付延迟
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHandoffLatency() throws Exception
+    {
+        for (WaitStrategy strategy : new WaitStrategy[]{WaitStrategy.BUSY_SPIN, WaitStrategy.BLOCKING}) {
+            final RingBufferQueue<Long> queue = new RingBufferQueue<>(1024, strategy);
+            final int rounds = 5000;
+            final long[] latencies = new long[rounds];
+            Thread consumer = new Thread()
+            {
+                public void run()
+                {
+                    for (int i = 0; i < rounds; i++) {
+                        Long sent = queue.poll(1000);
+                        latencies[i] = System.nanoTime() - sent;
+                    }
+                }
+            };
+            consumer.start();
+            for (int i = 0; i < rounds; i++) {
+                queue.offer(System.nanoTime(), 1000);
+                //Leaves the consumer waiting for the next one
+                long until = System.nanoTime() + 2000;
+                while (System.nanoTime() < until) {
+                }
+            }
+            consumer.join(10000);
+            Arrays.sort(latencies);
+            System.out.println("RingBufferQueue " + strategy + " handoff p50(ns):" + latencies[rounds / 2]
+                               + " p99(ns):" + latencies[rounds * 99 / 100]);
+        }
+    }
+}
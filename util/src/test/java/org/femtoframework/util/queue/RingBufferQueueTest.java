@@ -0,0 +1,242 @@
+package org.femtoframework.util.queue;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试RingBufferQueue
+ */
+public class RingBufferQueueTest
+{
+    /**
+     * 测试基本操作
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOfferPoll() throws Exception
+    {
+        RingBufferQueue<String> queue = new RingBufferQueue<>(3);
+        assertEquals(4, queue.getCapacity());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+
+        assertTrue(queue.offer("a"));
+        assertEquals(3, queue.offerBatch(new String[]{"b", null, "c"}, 0));
+        assertEquals(3, queue.size());
+        assertEquals("a", queue.peek());
+        assertEquals("c", queue.peek(2));
+
+        Iterator<String> it = queue.iterator();
+        StringBuilder sb = new StringBuilder();
+        while (it.hasNext()) {
+            sb.append(it.next());
+        }
+        assertEquals("abc", sb.toString());
+
+        assertTrue(queue.offer("d"));
+        assertTrue(queue.isFull());
+        assertFalse(queue.offer("e"));
+        long start = System.currentTimeMillis();
+        assertFalse(queue.offer("e", 100));
+        assertTrue(System.currentTimeMillis() - start >= 90);
+        assertEquals(0, queue.offerBatch(new String[]{"e", "f"}, 0));
+
+        assertEquals("a", queue.remove(0));
+        assertArrayEquals(new Object[]{"b", "c"}, queue.pollBatch(100, 2));
+        //Wraps around
+        assertEquals(3, queue.offerBatch(new String[]{"e", "f", "g", "h"}, 0));
+        assertEquals("d", queue.poll(100));
+        String[] buffer = new String[4];
+        assertEquals(3, queue.drainTo(buffer, 4, 0));
+        assertArrayEquals(new String[]{"e", "f", "g", null}, buffer);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll(100));
+    }
+
+    /**
+     * 测试remove(int)、remove(Object)和Iterator#remove
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRemove() throws Exception
+    {
+        RingBufferQueue<String> queue = new RingBufferQueue<>(8);
+        queue.offerBatch(new String[]{"a", "b", "c", "d", "e", "f"});
+        assertEquals("c", queue.remove(2));
+        assertTrue(queue.remove("e"));
+        assertFalse(queue.remove("e"));
+        assertFalse(queue.remove("x"));
+        assertEquals(4, queue.size());
+        assertEquals("d", queue.peek(2));
+        try {
+            queue.remove(4);
+            fail("Index out of bound");
+        }
+        catch (IllegalArgumentException iae) {
+        }
+
+        Iterator<String> it = queue.iterator();
+        assertEquals("a", it.next());
+        assertEquals("b", it.next());
+        it.remove();
+        assertEquals(3, queue.size());
+        //The removed slots are free again only when a consumer passed them
+        assertEquals(2, queue.offerBatch(new String[]{"g", "h", "i"}, 0));
+        assertTrue(queue.isFull());
+        assertArrayEquals(new Object[]{"a", "d", "f", "g"}, queue.pollBatch(100, 7));
+        assertTrue(queue.offer("i"));
+        assertTrue(queue.remove("i"));
+        assertEquals("h", queue.peek());
+        assertEquals("h", queue.poll(100));
+        assertNull(queue.poll(50));
+        assertEquals(0, queue.size());
+        assertEquals(8, queue.remainingCapacity());
+    }
+
+    /**
+     * 测试消费者和删除者同时取，每个对象只给一方
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentRemove() throws Exception
+    {
+        final int total = 4096;
+        final RingBufferQueue<Long> queue = new RingBufferQueue<>(total);
+        for (long i = 0; i < total; i++) {
+            queue.offer(i);
+        }
+        final AtomicLong removed = new AtomicLong();
+        Thread remover = new Thread()
+        {
+            public void run()
+            {
+                for (long i = total - 1; i >= 0; i -= 2) {
+                    if (queue.remove(i)) {
+                        removed.addAndGet(i);
+                    }
+                }
+            }
+        };
+        remover.start();
+        long polled = 0;
+        Long value;
+        while ((value = queue.poll(200)) != null) {
+            polled += value;
+        }
+        remover.join();
+        assertEquals((long)total * (total - 1) / 2, polled + removed.get());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * 测试队列满时的反压
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBackpressure() throws Exception
+    {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            final RingBufferQueue<Integer> queue = new RingBufferQueue<>(4, strategy);
+            final int[] sum = new int[1];
+            Thread consumer = new Thread()
+            {
+                public void run()
+                {
+                    Integer[] buffer = new Integer[2];
+                    int count = 0;
+                    while (count < 100) {
+                        int n = queue.drainTo(buffer, 2, 1000);
+                        for (int i = 0; i < n; i++) {
+                            sum[0] += buffer[i];
+                        }
+                        count += n;
+                    }
+                }
+            };
+            consumer.start();
+            Integer[] batch = new Integer[100];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = i;
+            }
+            //Waits for the consumer
+            queue.offerBatch(batch);
+            consumer.join(10000);
+            assertEquals(strategy.name(), 4950, sum[0]);
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    /**
+     * 测试多个生产者和多个消费者
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrent() throws Exception
+    {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            runConcurrent(new RingBufferQueue<Long>(1024, strategy), 2, 2, 200000);
+        }
+    }
+
+    private void runConcurrent(final BatchQueue<Long> queue, int producers, final int consumers,
+                               final int perProducer) throws Exception
+    {
+        final long total = (long)producers * perProducer;
+        final AtomicLong sum = new AtomicLong();
+        final AtomicLong count = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(producers + consumers);
+
+        for (int p = 0; p < producers; p++) {
+            final long base = (long)p * perProducer;
+            new Thread()
+            {
+                public void run()
+                {
+                    Long[] batch = new Long[8];
+                    for (int i = 0; i < perProducer; i += batch.length) {
+                        for (int j = 0; j < batch.length; j++) {
+                            batch[j] = base + i + j;
+                        }
+                        queue.offerBatch(batch);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        for (int c = 0; c < consumers; c++) {
+            new Thread()
+            {
+                public void run()
+                {
+                    Long[] buffer = new Long[64];
+                    while (count.get() < total) {
+                        int n = queue.drainTo(buffer, buffer.length, 50);
+                        long s = 0;
+                        for (int i = 0; i < n; i++) {
+                            s += buffer[i];
+                        }
+                        sum.addAndGet(s);
+                        count.addAndGet(n);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+
+        assertEquals(total, count.get());
+        assertEquals(total * (total - 1) / 2, sum.get());
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,103 @@
+package org.femtoframework.util.thread;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试AdaptivePoolSizer
+ */
+public class AdaptivePoolSizerTest
+{
+    private static final long PERIOD = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 测试等待时间超过目标时扩容
+     */
+    @Test
+    public void testGrow()
+    {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(10);
+        for (int i = 0; i < 100; i++) {
+            sizer.record(50 * MS, 20 * MS);
+        }
+        assertEquals(20, sizer.resize(10, 5, 100, 10, PERIOD));
+        assertEquals(AdaptivePoolSizer.Decision.GROW, sizer.getLastDecision());
+        assertEquals(1, sizer.getGrowCount());
+        assertEquals(50.0, sizer.getWaitTimeEwma(), 0.001);
+        assertEquals(20.0, sizer.getServiceTimeEwma(), 0.001);
+        assertEquals(100.0, sizer.getArrivalRate(), 0.001);
+
+        //Never above the maximum
+        for (int i = 0; i < 100; i++) {
+            sizer.record(50 * MS, 20 * MS);
+        }
+        assertEquals(25, sizer.resize(20, 5, 25, 10, PERIOD));
+    }
+
+    /**
+     * 测试在两个阈值之间保持不变
+     */
+    @Test
+    public void testHold()
+    {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(10);
+        for (int period = 0; period < 10; period++) {
+            for (int i = 0; i < 100; i++) {
+                sizer.record(7 * MS, 1 * MS);
+            }
+            assertEquals(30, sizer.resize(30, 5, 100, 10, PERIOD));
+            assertEquals(AdaptivePoolSizer.Decision.HOLD, sizer.getLastDecision());
+        }
+    }
+
+    /**
+     * 测试等待时间持续低于低水位后才缩容
+     */
+    @Test
+    public void testShrinkAfterDelay()
+    {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(10);
+        sizer.setShrinkDelay(3);
+        for (int period = 0; period < 2; period++) {
+            for (int i = 0; i < 100; i++) {
+                sizer.record(MS, MS);
+            }
+            assertEquals(30, sizer.resize(30, 5, 100, 10, PERIOD));
+        }
+        //A single slow period resets the count
+        for (int i = 0; i < 100; i++) {
+            sizer.record(20 * MS, MS);
+        }
+        assertEquals(30, sizer.resize(30, 5, 100, 10, PERIOD));
+
+        for (int period = 0; period < 2; period++) {
+            assertEquals(30, sizer.resize(30, 5, 100, 10, PERIOD));
+        }
+        assertEquals(20, sizer.resize(30, 5, 100, 10, PERIOD));
+        assertEquals(AdaptivePoolSizer.Decision.SHRINK, sizer.getLastDecision());
+        assertEquals(1, sizer.getShrinkCount());
+    }
+
+    /**
+     * 测试缩容不低于繁忙线程的估计
+     */
+    @Test
+    public void testShrinkFloor()
+    {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(10);
+        sizer.setShrinkDelay(1);
+        //1000 tasks per second of 16ms keep 16 threads busy, 20 with headroom
+        for (int period = 0; period < 5; period++) {
+            for (int i = 0; i < 1000; i++) {
+                sizer.record(0, 16 * MS);
+            }
+            sizer.resize(30, 5, 100, 5, PERIOD);
+        }
+        assertEquals(20, sizer.getTargetThreads());
+    }
+}
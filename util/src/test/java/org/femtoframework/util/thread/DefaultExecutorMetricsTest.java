@@ -0,0 +1,144 @@
+package org.femtoframework.util.thread;
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试DefaultExecutorMetrics
+ */
+public class DefaultExecutorMetricsTest
+{
+    /**
+     * 测试直方图
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHistogram() throws Exception
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50500, histogram.getMean());
+        assertEquals(100000, histogram.getMax());
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 50000 && p50 < 100000);
+        assertEquals(100000, histogram.getPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    /**
+     * 测试计数和MBean注册
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMBean() throws Exception
+    {
+        DefaultExecutorMetrics metrics = new DefaultExecutorMetrics();
+        metrics.open("ThreadPool", "metrics_test");
+        ObjectName objectName = metrics.getObjectName();
+        assertNotNull(objectName);
+
+        metrics.onSubmit();
+        metrics.onSubmit();
+        metrics.onReject();
+        metrics.onComplete(2000, 3000);
+        metrics.onThreadCreated(1);
+        metrics.onThreadCreated(2);
+        metrics.onThreadTerminated();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.isRegistered(objectName));
+        assertEquals(2L, server.getAttribute(objectName, "SubmittedCount"));
+        assertEquals(1L, server.getAttribute(objectName, "CompletedCount"));
+        assertEquals(1L, server.getAttribute(objectName, "RejectedCount"));
+        assertEquals(2, server.getAttribute(objectName, "PeakThreadCount"));
+        assertEquals(1L, server.getAttribute(objectName, "ThreadTerminatedCount"));
+
+        //The name is taken, the second one is not registered
+        DefaultExecutorMetrics other = new DefaultExecutorMetrics();
+        other.open("ThreadPool", "metrics_test");
+        other.close();
+        assertTrue(server.isRegistered(objectName));
+
+        metrics.close();
+        assertFalse(server.isRegistered(objectName));
+    }
+
+    /**
+     * 测试ThreadPool和SingleThreadExecutor的统计
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExecutors() throws Exception
+    {
+        ThreadPool pool = new ThreadPool();
+        pool.setName("metered_pool");
+        pool.setDaemon(true);
+        pool.setMaxThreads(4);
+        pool.start();
+        runTasks(pool, 50);
+        DefaultExecutorMetrics metrics = (DefaultExecutorMetrics)pool.getMetrics();
+        assertEquals(50, metrics.getSubmittedCount());
+        assertEquals(50, metrics.getCompletedCount());
+        assertEquals(50, metrics.getQueueWaitTime().getCount());
+        assertTrue(metrics.getPeakThreadCount() >= 1);
+        assertEquals(pool.getPeakThreadCount(), metrics.getPeakThreadCount());
+        assertTrue(metrics.getThreadCreatedCount() >= 1);
+        ObjectName objectName = metrics.getObjectName();
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+        pool.stop();
+        //A controller still on its way back is reported when it returns
+        for (int i = 0; i < 100 && metrics.getThreadTerminatedCount() < metrics.getThreadCreatedCount(); i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(metrics.getThreadCreatedCount(), metrics.getThreadTerminatedCount());
+        pool.destroy();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+
+        SingleThreadExecutor executor = new SingleThreadExecutor();
+        executor.setName("metered_single");
+        executor.setDaemon(true);
+        executor.start();
+        runTasks(executor, 20);
+        metrics = (DefaultExecutorMetrics)executor.getMetrics();
+        assertEquals(20, metrics.getSubmittedCount());
+        assertEquals(20, metrics.getCompletedCount());
+        assertEquals(1, metrics.getPeakThreadCount());
+        executor.stop();
+        executor.destroy();
+        assertEquals(1, metrics.getThreadTerminatedCount());
+    }
+
+    private void runTasks(java.util.concurrent.Executor executor, int tasks) throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        //Completion is reported after the task returns
+        Thread.sleep(100);
+    }
+}
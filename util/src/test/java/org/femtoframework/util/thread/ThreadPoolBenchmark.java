@@ -0,0 +1,71 @@
+package org.femtoframework.util.thread;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ThreadPool的性能比较，只在benchmark profile中运行
+ */
+public class ThreadPoolBenchmark
+{
+    /**
+     * 比较任务队列模式和直接交付模式的吞吐量和提交延迟
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testQueueModeThroughput() throws Exception
+    {
+        ThreadPool handoff = new ThreadPool();
+        handoff.setName("handoff_pool");
+        handoff.setDaemon(true);
+        handoff.setMaxThreads(8);
+
+        ThreadPool queued = new ThreadPool();
+        queued.setName("queued_pool");
+        queued.setDaemon(true);
+        queued.setMaxThreads(8);
+        queued.setQueueCapacity(5000);
+
+        runThroughput(handoff, 5000);
+        runThroughput(queued, 5000);
+    }
+
+    private void runThroughput(ThreadPool pool, int tasks) throws Exception
+    {
+        pool.start();
+        final CountDownLatch latch = new CountDownLatch(tasks);
+        Runnable task = new Runnable()
+        {
+            public void run()
+            {
+                //A short blocking call, more tasks than threads make a burst
+                LockSupport.parkNanos(50000);
+                latch.countDown();
+            }
+        };
+
+        long[] latencies = new long[tasks];
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            long submit = System.nanoTime();
+            pool.execute(task);
+            latencies[i] = System.nanoTime() - submit;
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.println(pool.getName() + " tasks/s:" + (tasks * 1000000000L / elapsed)
+                           + " p99 submit(us):" + latencies[tasks * 99 / 100] / 1000);
+
+        pool.stop();
+        pool.destroy();
+    }
+}
@@ -5,6 +5,13 @@ import org.femtoframework.bean.BeanPhase;
 import org.femtoframework.util.nutlet.NutletUtil;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.*;
 
 /**
@@ -658,4 +665,187 @@ public class ThreadPoolTest
         assertEquals(9, pool.getIncThreads());
     }
 
-}
\ No newline at end of file
+    /**
+     * 测试任务队列模式，提交线程不会等待空闲线程
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExecuteQueued() throws Exception
+    {
+        ThreadPool pool = new ThreadPool();
+        pool.setDaemon(true);
+        pool.setMaxThreads(4);
+        pool.setQueueCapacity(1000);
+        pool.start();
+
+        int tasks = 500;
+        final CountDownLatch latch = new CountDownLatch(tasks);
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < tasks; i++) {
+            pool.execute(new Runnable()
+            {
+                public void run()
+                {
+                    count.incrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(tasks, count.get());
+        assertTrue(pool.getCurrentThreadCount() <= 4);
+        assertEquals(0, pool.getQueueSize());
+
+        pool.stop();
+        pool.destroy();
+    }
+
+    /**
+     * 测试任务队列满时的拒绝策略
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRejectPolicy() throws Exception
+    {
+        ThreadPool pool = new ThreadPool();
+        pool.setDaemon(true);
+        pool.setMaxThreads(1);
+        pool.setQueueCapacity(1);
+        pool.start();
+
+        final CountDownLatch block = new CountDownLatch(1);
+        Runnable blocker = new Runnable()
+        {
+            public void run()
+            {
+                try {
+                    block.await();
+                }
+                catch (InterruptedException e) {
+                }
+            }
+        };
+        pool.execute(blocker);
+        pool.execute(blocker);
+        assertEquals(1, pool.getQueueSize());
+
+        try {
+            pool.execute(blocker);
+            fail("Should be rejected");
+        }
+        catch (RejectedExecutionException ree) {
+        }
+
+        final Thread caller = Thread.currentThread();
+        final boolean[] callerRuns = new boolean[1];
+        pool.setRejectPolicy(RejectPolicy.CALLER_RUNS);
+        pool.execute(new Runnable()
+        {
+            public void run()
+            {
+                callerRuns[0] = Thread.currentThread() == caller;
+            }
+        });
+        assertTrue(callerRuns[0]);
+
+        Runnable newest = new Runnable()
+        {
+            public void run()
+            {
+            }
+        };
+        pool.setRejectPolicy(RejectPolicy.DISCARD_OLDEST);
+        pool.execute(newest);
+        assertEquals(1, pool.getQueueSize());
+
+        List<Runnable> remaining = pool.shutdownNow();
+        assertEquals(Arrays.asList(newest), remaining);
+        block.countDown();
+        pool.destroy();
+    }
+
+    /**
+     * 测试多个线程同时竞争少量线程，线程总数不超过最大线程数
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentCompete() throws Exception
+    {
+        final ThreadPool pool = new ThreadPool();
+        pool.setDaemon(true);
+        pool.setMaxThreads(4);
+        pool.start();
+
+        final int submitters = 8;
+        final int tasks = 1000;
+        final CountDownLatch latch = new CountDownLatch(submitters * tasks);
+        Thread[] threads = new Thread[submitters];
+        for (int i = 0; i < submitters; i++) {
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    for (int j = 0; j < tasks; j++) {
+                        pool.execute(new Runnable()
+                        {
+                            public void run()
+                            {
+                                latch.countDown();
+                            }
+                        });
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertTrue(pool.getCurrentThreadCount() <= 4);
+
+        pool.stop();
+        pool.destroy();
+    }
+
+    /**
+     * 测试自适应调整线程数，空闲时逐步释放空闲线程
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAdaptiveSizing() throws Exception
+    {
+        ThreadPool pool = new ThreadPool();
+        pool.setDaemon(true);
+        pool.setTargetWaitMillis(1);
+        //The monitor never runs, the test drives the sizer itself
+        pool.setMonitorPeriod(Integer.MAX_VALUE);
+        pool.start();
+        pool.openThreads(30);
+        assertEquals(30, pool.getCurrentThreadCount());
+
+        final CountDownLatch latch = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            pool.execute(new Runnable()
+            {
+                public void run()
+                {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 200 && pool.getCurrentThreadCount() > pool.getMinSpareThreads(); i++) {
+            pool.resize();
+            Thread.sleep(5);
+        }
+        assertEquals(pool.getMinSpareThreads(), pool.getCurrentThreadCount());
+        assertEquals(pool.getMinSpareThreads(), pool.getTargetThreads());
+        assertTrue(pool.getSizer().getShrinkCount() > 0);
+
+        pool.stop();
+        pool.destroy();
+    }
+}
@@ -0,0 +1,128 @@
+package org.femtoframework.util.thread;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试VirtualThreadExecutor
+ */
+public class VirtualThreadExecutorTest
+{
+    /**
+     * 测试并发数限制
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMaxConcurrency() throws Exception
+    {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor();
+        executor.setMaxConcurrency(4);
+        executor.start();
+
+        int tasks = 200;
+        final CountDownLatch latch = new CountDownLatch(tasks);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    int current = running.incrementAndGet();
+                    int max;
+                    while ((max = peak.get()) < current && !peak.compareAndSet(max, current)) {
+                    }
+                    try {
+                        Thread.sleep(1);
+                    }
+                    catch (InterruptedException e) {
+                    }
+                    running.decrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertTrue(peak.get() <= 4);
+
+        executor.stop();
+        executor.destroy();
+    }
+
+    /**
+     * 测试停止之后拒绝任务
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStop() throws Exception
+    {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor();
+        assertEquals("done", executor.submit(new java.util.concurrent.Callable<String>()
+        {
+            public String call()
+            {
+                return "done";
+            }
+        }).get(5, TimeUnit.SECONDS));
+
+        executor.stop();
+        assertTrue(executor.isShutdown());
+        try {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                }
+            });
+            fail("Should be rejected");
+        }
+        catch (RejectedExecutionException ree) {
+        }
+        executor.destroy();
+    }
+
+    /**
+     * 测试默认不开启虚拟线程模式
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testThreadPoolLookup() throws Exception
+    {
+        assertFalse(ExecutorUtil.isVirtualThreadMode());
+    }
+
+    /**
+     * 测试多版本jar中的JDK 21实现
+     * <p/>
+     * femto.multiRelease只在jdk21 profile用打包好的jar测试时设置，target/classes里只有1.8的实现
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMultiReleaseLayer() throws Exception
+    {
+        Thread thread = VirtualThreads.newThread("layer", new Runnable()
+        {
+            public void run()
+            {
+            }
+        });
+        if (Boolean.getBoolean("femto.multiRelease")) {
+            assertTrue(VirtualThreads.isSupported());
+            assertTrue((Boolean)Thread.class.getMethod("isVirtual").invoke(thread));
+        }
+        else {
+            assertFalse(VirtualThreads.isSupported());
+            assertTrue(thread.isDaemon());
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.femtoframework.util.thread;
+
+import org.femtoframework.bean.BeanPhase;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 测试WorkStealingExecutor
+ */
+public class WorkStealingExecutorTest
+{
+    /**
+     * 测试生命周期
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLifecycle() throws Exception
+    {
+        WorkStealingExecutor executor = new WorkStealingExecutor();
+        executor.setParallelism(3);
+        executor.setDaemon(true);
+        executor.start();
+        assertEquals(BeanPhase.STARTED, executor.getBeanPhase());
+        assertEquals(3, executor.getCurrentThreadCount());
+
+        executor.stop();
+        assertTrue(executor.isShutdown());
+        try {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                }
+            });
+            fail("Should be rejected");
+        }
+        catch (RejectedExecutionException ree) {
+        }
+        executor.destroy();
+        assertTrue(executor.isTerminated());
+    }
+
+    /**
+     * 测试提交任务
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSubmit() throws Exception
+    {
+        WorkStealingExecutor executor = new WorkStealingExecutor();
+        executor.setParallelism(2);
+        executor.setDaemon(true);
+        executor.start();
+
+        Future<String> future = executor.submit(new java.util.concurrent.Callable<String>()
+        {
+            public String call()
+            {
+                return "done";
+            }
+        });
+        assertEquals("done", future.get(5, TimeUnit.SECONDS));
+
+        executor.stop();
+        executor.destroy();
+    }
+
+    /**
+     * 测试在工作线程中拆分子任务，空闲的工作线程窃取子任务
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFanOut() throws Exception
+    {
+        final WorkStealingExecutor executor = new WorkStealingExecutor();
+        executor.setParallelism(4);
+        executor.setDaemon(true);
+        executor.start();
+
+        final int fanOut = 100;
+        final CountDownLatch latch = new CountDownLatch(fanOut * fanOut);
+        final AtomicInteger count = new AtomicInteger();
+        //All the subtasks are pushed to the first worker's deque
+        executor.getWorker(0).execute(new Runnable()
+        {
+            public void run()
+            {
+                for (int i = 0; i < fanOut; i++) {
+                    executor.execute(new Runnable()
+                    {
+                        public void run()
+                        {
+                            for (int j = 0; j < fanOut; j++) {
+                                executor.execute(new Runnable()
+                                {
+                                    public void run()
+                                    {
+                                        count.incrementAndGet();
+                                        latch.countDown();
+                                    }
+                                });
+                            }
+                        }
+                    });
+                }
+            }
+        });
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(fanOut * fanOut, count.get());
+        assertEquals(0, executor.getQueuedTaskCount());
+
+        executor.stop();
+        executor.destroy();
+    }
+
+    /**
+     * 测试ThreadContainer的实现
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testThreadContainer() throws Exception
+    {
+        WorkStealingExecutor executor = new WorkStealingExecutor();
+        executor.setParallelism(2);
+        executor.setDaemon(true);
+        executor.start();
+
+        final CountDownLatch latch = new CountDownLatch(2);
+        Runnable task = new Runnable()
+        {
+            public void run()
+            {
+                latch.countDown();
+            }
+        };
+        executor.compete().execute(task);
+        ThreadController controller = executor.compete(100);
+        controller.execute(task);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        //The terminated worker is replaced
+        executor.terminate(controller);
+        assertEquals(BeanPhase.DESTROYED, controller.getBeanPhase());
+        assertEquals(2, executor.getCurrentThreadCount());
+        final CountDownLatch again = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    again.countDown();
+                }
+            });
+        }
+        assertTrue(again.await(5, TimeUnit.SECONDS));
+
+        executor.stop();
+        executor.destroy();
+    }
+
+    /**
+     * 测试停止后返回未执行的任务
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testShutdownNow() throws Exception
+    {
+        WorkStealingExecutor executor = new WorkStealingExecutor();
+        executor.setParallelism(1);
+        executor.setDaemon(true);
+        executor.start();
+
+        final CountDownLatch block = new CountDownLatch(1);
+        executor.execute(new Runnable()
+        {
+            public void run()
+            {
+                try {
+                    block.await();
+                }
+                catch (InterruptedException e) {
+                }
+            }
+        });
+        Thread.sleep(100);
+        for (int i = 0; i < 5; i++) {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                }
+            });
+        }
+        List<Runnable> remaining = executor.shutdownNow();
+        assertEquals(5, remaining.size());
+        block.countDown();
+        executor.destroy();
+    }
+}